@@ -0,0 +1,403 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Banco de pruebas que compara las implementaciones de los árboles Secuencial
+ * y Concurrente: conteo de renglones, filtrado por columna, división,
+ * proyección de columnas y búsqueda en un árbol de directorios, sobre archivos
+ * CSV sintéticos de distintos tamaños y anchos de renglón.
+ *
+ * <p>
+ * Cada árbol se compila desde su código fuente y cada combinación de árbol,
+ * operación y archivo se mide en una JVM nueva ({@link EjecutorBenchmark}),
+ * con su propia carpeta temporal y sin catálogo de archivos, y con
+ * iteraciones de calentamiento que no se cuentan. Los resultados se
+ * muestran como una tabla comparativa y se agregan a
+ * {@code Benchmarks/resultados/historial.csv} junto con el commit, la versión
+ * de Java y el número de CPUs, de modo que puedan compararse entre commits.
+ * </p>
+ *
+ * <p>
+ * Se ejecuta desde la raíz del repositorio:
+ * </p>
+ *
+ * <pre>
+ * javac -d /tmp/benchmark Benchmarks/*.java
+ * java -cp /tmp/benchmark Benchmark --tamanos=1M,100M,1G --mediciones=5
+ * </pre>
+ *
+ * <p>
+ * Opciones, todas con un valor por defecto:
+ * {@code --tamanos=1M,10M,100M} (hasta {@code 10G}),
+ * {@code --anchos=angosto,ancho},
+ * {@code --operaciones=contar,filtrar,dividir,proyectar,buscar},
+ * {@code --arboles=Secuencial,Concurrente}, {@code --calentamiento=2},
+ * {@code --mediciones=5}, {@code --datos=<carpeta de datos>} y
+ * {@code --jvm=<opciones de la JVM>} (por ejemplo {@code -Xmx4g}).
+ * </p>
+ *
+ * <p>
+ * Los archivos se leen desde la caché de páginas del sistema operativo después
+ * de la primera iteración; para medir lecturas desde disco hay que vaciar la
+ * caché por fuera antes de cada ejecución.
+ * </p>
+ */
+public class Benchmark {
+
+    private static final String[] OPERACIONES_CSV = { "contar", "filtrar", "dividir", "proyectar" };
+
+    private static final String ENCABEZADO_HISTORIAL = "fecha,commit,java,cpus,arbol,operacion,tamano,ancho,bytes,"
+            + "iteraciones,media_ms,mediana_ms,min_ms,max_ms,desviacion_ms,mb_por_segundo";
+
+    /**
+     * Resultado de una combinación de árbol, operación y datos.
+     */
+    private static class Medicion {
+        final String arbol;
+        final String operacion;
+        final String tamano;
+        final String ancho;
+        final long bytes;
+        final double[] tiempos;
+        final String nota;
+
+        Medicion(String arbol, String operacion, String tamano, String ancho, long bytes, double[] tiempos,
+                String nota) {
+            this.arbol = arbol;
+            this.operacion = operacion;
+            this.tamano = tamano;
+            this.ancho = ancho;
+            this.bytes = bytes;
+            this.tiempos = tiempos;
+            this.nota = nota;
+        }
+
+        double mediana() {
+            double[] ordenados = tiempos.clone();
+            Arrays.sort(ordenados);
+            int mitad = ordenados.length / 2;
+            return ordenados.length % 2 == 1 ? ordenados[mitad] : (ordenados[mitad - 1] + ordenados[mitad]) / 2;
+        }
+
+        double media() {
+            return Arrays.stream(tiempos).average().orElse(Double.NaN);
+        }
+
+        double desviacion() {
+            double media = media();
+            double suma = 0;
+            for (double tiempo : tiempos) {
+                suma += (tiempo - media) * (tiempo - media);
+            }
+            return tiempos.length > 1 ? Math.sqrt(suma / (tiempos.length - 1)) : 0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = leerOpciones(args);
+        List<Long> tamanos = new ArrayList<>();
+        for (String tamano : opciones.get("tamanos").split(",")) {
+            tamanos.add(leerTamano(tamano.trim()));
+        }
+        List<GeneradorDatos.Ancho> anchos = new ArrayList<>();
+        for (String ancho : opciones.get("anchos").split(",")) {
+            anchos.add(GeneradorDatos.Ancho.valueOf(ancho.trim().toUpperCase()));
+        }
+        List<String> operaciones = Arrays.asList(opciones.get("operaciones").split(","));
+        List<String> arboles = Arrays.asList(opciones.get("arboles").split(","));
+        int calentamiento = Integer.parseInt(opciones.get("calentamiento"));
+        int mediciones = Integer.parseInt(opciones.get("mediciones"));
+        File carpetaDatos = new File(opciones.get("datos")).getAbsoluteFile();
+
+        // Compilar cada árbol desde su código fuente, sin usar los .class guardados en el repositorio
+        File compilados = Files.createTempDirectory("benchmark_clases").toFile();
+        Map<String, File> clasesArbol = new LinkedHashMap<>();
+        for (String arbol : arboles) {
+            clasesArbol.put(arbol, compilarArbol(new File(arbol), new File(compilados, arbol)));
+        }
+        String clasesBenchmark = new File(Benchmark.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                .getPath();
+
+        List<Medicion> resultados = new ArrayList<>();
+        File trabajo = new File(carpetaDatos, "trabajo");
+
+        for (long tamano : tamanos) {
+            for (GeneradorDatos.Ancho ancho : anchos) {
+                File csv = GeneradorDatos.obtenerCSV(carpetaDatos, tamano, ancho);
+                for (String operacion : operaciones) {
+                    if (!Arrays.asList(OPERACIONES_CSV).contains(operacion)) {
+                        continue;
+                    }
+                    for (String arbol : arboles) {
+                        resultados.add(medir(arbol, operacion, csv, formatearTamano(tamano),
+                                ancho.name().toLowerCase(), csv.length(), clasesBenchmark, clasesArbol.get(arbol),
+                                trabajo, calentamiento, mediciones, opciones.get("jvm")));
+                    }
+                }
+            }
+        }
+
+        if (operaciones.contains("buscar")) {
+            File arbolDirectorios = GeneradorDatos.obtenerArbol(carpetaDatos, 3, 12);
+            for (String arbol : arboles) {
+                resultados.add(medir(arbol, "buscar", arbolDirectorios, arbolDirectorios.getName(), "-", 0,
+                        clasesBenchmark, clasesArbol.get(arbol), trabajo, calentamiento, mediciones,
+                        opciones.get("jvm")));
+            }
+        }
+
+        EjecutorBenchmark.borrar(compilados.toPath());
+        mostrarTabla(resultados, arboles);
+        guardarHistorial(resultados, new File("Benchmarks/resultados/historial.csv"));
+    }
+
+    // Ejecuta una combinación en una JVM nueva y lee su resultado
+    private static Medicion medir(String arbol, String operacion, File datos, String tamano, String ancho, long bytes,
+            String clasesBenchmark, File clasesArbol, File trabajo, int calentamiento, int mediciones, String jvm)
+            throws IOException, InterruptedException {
+        System.out.printf("Midiendo %s / %s / %s %s...%n", arbol, operacion, tamano, ancho);
+
+        // Carpeta de trabajo propia con un enlace a los datos, para que las salidas no se mezclen
+        if (trabajo.exists()) {
+            EjecutorBenchmark.borrar(trabajo.toPath());
+        }
+        trabajo.mkdirs();
+        String argumentoDatos = datos.getAbsolutePath();
+        if (datos.isFile()) {
+            Path enlace = new File(trabajo, datos.getName()).toPath();
+            try {
+                Files.createLink(enlace, datos.toPath());
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.createSymbolicLink(enlace, datos.toPath());
+            }
+            argumentoDatos = datos.getName();
+        }
+
+        // Temporales propios de la JVM medida: nada de una medición anterior (como la
+        // instantánea de un catálogo de archivos) debe acelerar la siguiente
+        File temporales = new File(trabajo.getParentFile(), trabajo.getName() + "_tmp");
+        if (temporales.exists()) {
+            EjecutorBenchmark.borrar(temporales.toPath());
+        }
+        temporales.mkdirs();
+
+        List<String> comando = new ArrayList<>();
+        comando.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        comando.add("-Djava.io.tmpdir=" + temporales.getAbsolutePath());
+        comando.add("-Dconcurrente.catalogo=false");
+        if (!jvm.isEmpty()) {
+            comando.addAll(Arrays.asList(jvm.trim().split("\\s+")));
+        }
+        comando.add("-cp");
+        comando.add(clasesBenchmark + File.pathSeparator + clasesArbol.getPath());
+        comando.add("EjecutorBenchmark");
+        comando.add(operacion);
+        comando.add(argumentoDatos);
+        comando.add(Integer.toString(calentamiento));
+        comando.add(Integer.toString(mediciones));
+
+        Process proceso = new ProcessBuilder(comando).directory(trabajo)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String renglon;
+        String respuesta = null;
+        try (BufferedReader lector = new BufferedReader(
+                new InputStreamReader(proceso.getInputStream(), StandardCharsets.UTF_8))) {
+            while ((renglon = lector.readLine()) != null) {
+                respuesta = renglon;
+            }
+        }
+        proceso.waitFor();
+        EjecutorBenchmark.borrar(trabajo.toPath());
+        EjecutorBenchmark.borrar(temporales.toPath());
+
+        if (respuesta != null && respuesta.startsWith("RESULTADO")) {
+            double[] tiempos = Arrays.stream(respuesta.substring("RESULTADO".length()).trim().split(" "))
+                    .mapToDouble(Double::parseDouble).toArray();
+            return new Medicion(arbol, operacion, tamano, ancho, bytes, tiempos, null);
+        }
+        String nota = respuesta == null ? "sin respuesta (código " + proceso.exitValue() + ")" : respuesta;
+        System.err.println("  " + nota);
+        return new Medicion(arbol, operacion, tamano, ancho, bytes, new double[0], nota);
+    }
+
+    private static File compilarArbol(File fuentes, File destino) throws IOException {
+        JavaCompiler compilador = ToolProvider.getSystemJavaCompiler();
+        if (compilador == null) {
+            throw new IllegalStateException("Se necesita un JDK para compilar los árboles");
+        }
+        List<String> argumentos = new ArrayList<>(Arrays.asList("-encoding", "UTF-8", "-nowarn", "-d",
+                destino.getPath()));
+        try (Stream<Path> archivos = Files.list(fuentes.toPath())) {
+            argumentos.addAll(archivos.map(Path::toString).filter(ruta -> ruta.endsWith(".java"))
+                    .collect(Collectors.toList()));
+        }
+        destino.mkdirs();
+        if (compilador.run(null, null, null, argumentos.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("No se pudo compilar " + fuentes);
+        }
+        return destino;
+    }
+
+    // Tabla con la mediana de cada árbol y la aceleración respecto al primero
+    private static void mostrarTabla(List<Medicion> resultados, List<String> arboles) {
+        System.out.println("\n=====================================================");
+        System.out.println("                 RESULTADOS (mediana)                ");
+        System.out.println("=====================================================");
+        StringBuilder titulo = new StringBuilder(String.format("%-10s %-8s %-12s", "operacion", "tamano", "ancho"));
+        for (String arbol : arboles) {
+            titulo.append(String.format(" %14s", arbol + " ms"));
+        }
+        if (arboles.size() == 2) {
+            titulo.append(String.format(" %12s", "aceleracion"));
+        }
+        System.out.println(titulo);
+
+        Map<String, Map<String, Medicion>> porCaso = new LinkedHashMap<>();
+        for (Medicion medicion : resultados) {
+            porCaso.computeIfAbsent(medicion.operacion + "\0" + medicion.tamano + "\0" + medicion.ancho,
+                    clave -> new LinkedHashMap<>()).put(medicion.arbol, medicion);
+        }
+        for (Map<String, Medicion> caso : porCaso.values()) {
+            Medicion primera = caso.values().iterator().next();
+            StringBuilder renglon = new StringBuilder(
+                    String.format("%-10s %-8s %-12s", primera.operacion, primera.tamano, primera.ancho));
+            for (String arbol : arboles) {
+                Medicion medicion = caso.get(arbol);
+                renglon.append(medicion == null || medicion.nota != null ? String.format(" %14s", "N/D")
+                        : String.format(Locale.ROOT, " %14.1f", medicion.mediana()));
+            }
+            if (arboles.size() == 2) {
+                Medicion base = caso.get(arboles.get(0));
+                Medicion otra = caso.get(arboles.get(1));
+                if (base != null && otra != null && base.nota == null && otra.nota == null) {
+                    renglon.append(String.format(Locale.ROOT, " %11.2fx", base.mediana() / otra.mediana()));
+                }
+            }
+            System.out.println(renglon);
+        }
+    }
+
+    private static void guardarHistorial(List<Medicion> resultados, File historial) throws IOException {
+        historial.getParentFile().mkdirs();
+        boolean nuevo = !historial.exists();
+        String fecha = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date());
+        String commit = obtenerCommit();
+        String java = System.getProperty("java.version");
+        int cpus = Runtime.getRuntime().availableProcessors();
+
+        try (PrintWriter escritor = new PrintWriter(new FileWriter(historial, StandardCharsets.UTF_8, true))) {
+            if (nuevo) {
+                escritor.println(ENCABEZADO_HISTORIAL);
+            }
+            for (Medicion medicion : resultados) {
+                if (medicion.nota != null) {
+                    continue;
+                }
+                double[] ordenados = medicion.tiempos.clone();
+                Arrays.sort(ordenados);
+                double mbPorSegundo = medicion.bytes / (1024.0 * 1024.0) / (medicion.mediana() / 1000.0);
+                escritor.println(String.format(Locale.ROOT, "%s,%s,%s,%d,%s,%s,%s,%s,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.1f",
+                        fecha, commit, java, cpus, medicion.arbol, medicion.operacion, medicion.tamano,
+                        medicion.ancho, medicion.bytes, ordenados.length, medicion.media(), medicion.mediana(),
+                        ordenados[0], ordenados[ordenados.length - 1], medicion.desviacion(),
+                        medicion.bytes == 0 ? 0.0 : mbPorSegundo));
+            }
+        }
+        System.out.println("\nResultados agregados a " + historial.getPath());
+    }
+
+    private static String obtenerCommit() {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            String commit;
+            try (BufferedReader lector = new BufferedReader(new InputStreamReader(git.getInputStream()))) {
+                commit = lector.readLine();
+            }
+            return git.waitFor() == 0 && commit != null ? commit.trim() : "desconocido";
+        } catch (IOException e) {
+            return "desconocido";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "desconocido";
+        }
+    }
+
+    private static Map<String, String> leerOpciones(String[] args) {
+        Map<String, String> opciones = new LinkedHashMap<>();
+        opciones.put("tamanos", "1M,10M,100M");
+        opciones.put("anchos", "angosto,ancho");
+        opciones.put("operaciones", "contar,filtrar,dividir,proyectar,buscar");
+        opciones.put("arboles", "Secuencial,Concurrente");
+        opciones.put("calentamiento", "2");
+        opciones.put("mediciones", "5");
+        opciones.put("datos", new File(System.getProperty("java.io.tmpdir"), "benchmark_datos").getPath());
+        opciones.put("jvm", "");
+
+        for (String argumento : args) {
+            int igual = argumento.indexOf('=');
+            if (!argumento.startsWith("--") || igual < 0 || !opciones.containsKey(argumento.substring(2, igual))) {
+                throw new IllegalArgumentException("Opción no reconocida: " + argumento);
+            }
+            opciones.put(argumento.substring(2, igual), argumento.substring(igual + 1));
+        }
+        return opciones;
+    }
+
+    /**
+     * Convierte un tamaño como {@code 512K}, {@code 100M} o {@code 10G} a
+     * bytes.
+     *
+     * @param texto El tamaño con sufijo opcional.
+     * @return El número de bytes.
+     */
+    static long leerTamano(String texto) {
+        String mayusculas = texto.toUpperCase();
+        long multiplicador = 1;
+        if (mayusculas.endsWith("K")) {
+            multiplicador = 1024L;
+        } else if (mayusculas.endsWith("M")) {
+            multiplicador = 1024L * 1024;
+        } else if (mayusculas.endsWith("G")) {
+            multiplicador = 1024L * 1024 * 1024;
+        }
+        String numero = multiplicador == 1 ? mayusculas : mayusculas.substring(0, mayusculas.length() - 1);
+        return Long.parseLong(numero) * multiplicador;
+    }
+
+    /**
+     * Convierte un número de bytes al formato de {@link #leerTamano}.
+     *
+     * @param bytes El número de bytes.
+     * @return El tamaño con el sufijo más grande que lo representa exactamente.
+     */
+    static String formatearTamano(long bytes) {
+        String[] sufijos = { "G", "M", "K" };
+        long[] unidades = { 1024L * 1024 * 1024, 1024L * 1024, 1024L };
+        for (int i = 0; i < sufijos.length; i++) {
+            if (bytes >= unidades[i] && bytes % unidades[i] == 0) {
+                return bytes / unidades[i] + sufijos[i];
+            }
+        }
+        return Long.toString(bytes);
+    }
+}
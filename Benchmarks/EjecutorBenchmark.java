@@ -0,0 +1,180 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.Callable;
+
+/**
+ * Ejecuta una operación del banco de pruebas dentro de una JVM separada, cuyo
+ * classpath contiene solo uno de los árboles (Secuencial o Concurrente). Las
+ * clases del árbol se llaman por reflexión, porque ambos árboles usan los
+ * mismos nombres de clase y no tienen exactamente los mismos métodos.
+ *
+ * <p>
+ * El directorio de trabajo es una carpeta propia de la ejecución que contiene
+ * un enlace al archivo de datos; después de cada iteración se borran las
+ * salidas que la operación dejó en ella, fuera del tiempo medido. Lo que las
+ * clases del árbol imprimen se descarta, y el resultado se escribe en un solo
+ * renglón:
+ * </p>
+ *
+ * <pre>
+ * RESULTADO &lt;ms&gt; &lt;ms&gt; ...
+ * NO_DISPONIBLE &lt;motivo&gt;
+ * ERROR &lt;mensaje&gt;
+ * </pre>
+ *
+ * <p>
+ * Argumentos: {@code <operacion> <archivo> <calentamiento> <mediciones>}.
+ * </p>
+ */
+public class EjecutorBenchmark {
+
+    public static void main(String[] args) {
+        PrintStream salida = System.out;
+        if (args.length != 4) {
+            salida.println("ERROR Uso: EjecutorBenchmark <operacion> <archivo> <calentamiento> <mediciones>");
+            System.exit(2);
+        }
+
+        Operacion operacion;
+        try {
+            operacion = crearOperacion(args[0], args[1]);
+        } catch (ReflectiveOperationException e) {
+            salida.println("NO_DISPONIBLE " + e);
+            return;
+        } catch (IllegalArgumentException e) {
+            salida.println("ERROR " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        int calentamiento = Integer.parseInt(args[2]);
+        int mediciones = Integer.parseInt(args[3]);
+        File directorioTrabajo = new File(".").getAbsoluteFile();
+        PrintStream silencio = new PrintStream(OutputStream.nullOutputStream());
+
+        StringBuilder resultado = new StringBuilder("RESULTADO");
+        try {
+            System.setOut(silencio);
+            for (int i = 0; i < calentamiento + mediciones; i++) {
+                long inicio = System.nanoTime();
+                operacion.ejecutar();
+                long duracion = System.nanoTime() - inicio;
+                if (i >= calentamiento) {
+                    resultado.append(' ').append(String.format("%.3f", duracion / 1e6));
+                }
+                limpiar(directorioTrabajo, new File(args[1]).getName());
+            }
+        } catch (Exception e) {
+            Throwable causa = e instanceof InvocationTargetException ? e.getCause() : e;
+            salida.println("ERROR " + causa);
+            System.exit(1);
+        } finally {
+            System.setOut(salida);
+        }
+        salida.println(resultado);
+        // Los hilos que el árbol deja vivos no deben retrasar la salida
+        System.exit(0);
+    }
+
+    /**
+     * Una llamada a la implementación del árbol cargado.
+     */
+    private interface Operacion {
+        void ejecutar() throws Exception;
+    }
+
+    private static Operacion crearOperacion(String nombre, String archivo) throws ReflectiveOperationException {
+        switch (nombre) {
+            case "contar": {
+                Method contar = Class.forName("Dimensionar").getMethod("contarRenglonesCSV", String.class);
+                return () -> contar.invoke(null, archivo);
+            }
+            case "filtrar": {
+                // Cada árbol con su forma más rápida de filtrar
+                Class<?> filtrar = Class.forName("Filtrar");
+                Method metodo;
+                try {
+                    metodo = filtrar.getMethod("filtrarPorColumnaParalelo", String.class, String.class, String.class);
+                } catch (NoSuchMethodException e) {
+                    metodo = filtrar.getMethod("filtrarPorColumna", String.class, String.class, String.class);
+                }
+                Method filtrarPorColumna = metodo;
+                return () -> verificar(filtrarPorColumna.invoke(null, archivo, "region", "Mexico"), nombre);
+            }
+            case "dividir": {
+                // Sin sumas de verificación, igual que la versión secuencial
+                Class<?> clase = Class.forName("Dividir");
+                Object dividir = clase.getConstructor().newInstance();
+                Method dividirCSV = clase.getMethod("dividirCSV", String.class, int.class);
+                int numPartes = 4 * Runtime.getRuntime().availableProcessors();
+                return () -> verificar(dividirCSV.invoke(dividir, archivo, numPartes), nombre);
+            }
+            case "proyectar": {
+                Class<?> clase = Class.forName("ProcesarArchivo");
+                return () -> ((Callable<?>) clase.getConstructor(String.class).newInstance(archivo)).call();
+            }
+            case "buscar": {
+                // Se mide el recorrido del árbol: Benchmark desactiva el catálogo de archivos y da a
+                // cada JVM una carpeta temporal vacía, así que no se reutiliza una instantánea
+                Method buscar = Class.forName("Buscar").getMethod("buscarArchivoRecursivo", File.class, String.class);
+                File raiz = new File(archivo);
+                return () -> {
+                    if (buscar.invoke(null, raiz, GeneradorDatos.ARCHIVO_BUSCADO) == null) {
+                        throw new IllegalStateException("No se encontró " + GeneradorDatos.ARCHIVO_BUSCADO);
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Operación desconocida: " + nombre);
+        }
+    }
+
+    // Las versiones que devuelven si terminaron bien no deben medirse cuando fallan
+    private static void verificar(Object resultado, String operacion) {
+        if (Boolean.FALSE.equals(resultado)) {
+            throw new IllegalStateException("La operación " + operacion + " falló");
+        }
+    }
+
+    // Borra lo que la operación escribió en el directorio de trabajo, excepto el archivo de datos
+    private static void limpiar(File directorio, String conservar) throws IOException {
+        File[] contenido = directorio.listFiles();
+        if (contenido == null) {
+            return;
+        }
+        for (File archivo : contenido) {
+            if (!archivo.getName().equals(conservar)) {
+                borrar(archivo.toPath());
+            }
+        }
+    }
+
+    static void borrar(Path ruta) throws IOException {
+        if (Files.isSymbolicLink(ruta) || !Files.isDirectory(ruta)) {
+            Files.deleteIfExists(ruta);
+            return;
+        }
+        Files.walkFileTree(ruta, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path archivo, BasicFileAttributes atributos) throws IOException {
+                Files.delete(archivo);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directorio, IOException e) throws IOException {
+                Files.delete(directorio);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
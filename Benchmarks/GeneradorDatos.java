@@ -0,0 +1,187 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+/**
+ * Genera los datos de prueba del banco de pruebas: archivos CSV sintéticos con
+ * las mismas columnas que los archivos de listas de Spotify y un árbol de
+ * directorios para las búsquedas. Los datos dependen solo de sus parámetros
+ * (la semilla es fija), de modo que dos ejecuciones en commits distintos miden
+ * exactamente los mismos archivos.
+ */
+public class GeneradorDatos {
+
+    static final String ENCABEZADO = "title,rank,date,artist,url,region,chart,trend,streams,danceability,energy,"
+            + "valence,tempo";
+
+    /** Nombre del archivo que se busca en el árbol de directorios. */
+    static final String ARCHIVO_BUSCADO = "objetivo_busqueda.csv";
+
+    private static final long SEMILLA = 20240101L;
+
+    private static final String[] REGIONES = { "Argentina", "Australia", "Austria", "Belgium", "Bolivia", "Brazil",
+            "Bulgaria", "Canada", "Chile", "Colombia", "Costa Rica", "Czech Republic", "Denmark", "Ecuador",
+            "El Salvador", "Estonia", "Finland", "France", "Germany", "Global", "Greece", "Guatemala", "Honduras",
+            "Hong Kong", "Hungary", "Iceland", "Indonesia", "Ireland", "Italy", "Japan", "Latvia", "Lithuania",
+            "Malaysia", "Mexico", "Netherlands", "New Zealand", "Nicaragua", "Norway", "Panama", "Paraguay", "Peru",
+            "Philippines", "Poland", "Portugal", "Singapore", "Slovakia", "Spain", "Sweden", "Switzerland", "Taiwan",
+            "Turkey", "United Kingdom", "United States", "Uruguay" };
+
+    private static final String[] TENDENCIAS = { "MOVE_UP", "MOVE_DOWN", "SAME_POSITION", "NEW_ENTRY" };
+
+    private static final char[] LETRAS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+
+    /**
+     * Ancho de los renglones: cambia la longitud de las columnas de texto, y
+     * con ello la proporción entre bytes leídos y renglones procesados.
+     */
+    enum Ancho {
+        /** Renglones de unos 150 bytes, como los archivos originales. */
+        ANGOSTO(6, 30, 6, 20),
+        /** Renglones de más de 600 bytes, con títulos y artistas largos. */
+        ANCHO(150, 400, 60, 200);
+
+        final int tituloMinimo;
+        final int tituloMaximo;
+        final int artistaMinimo;
+        final int artistaMaximo;
+
+        Ancho(int tituloMinimo, int tituloMaximo, int artistaMinimo, int artistaMaximo) {
+            this.tituloMinimo = tituloMinimo;
+            this.tituloMaximo = tituloMaximo;
+            this.artistaMinimo = artistaMinimo;
+            this.artistaMaximo = artistaMaximo;
+        }
+    }
+
+    /**
+     * Obtiene el archivo CSV sintético con el tamaño y ancho indicados,
+     * generándolo si todavía no existe en la carpeta de datos.
+     *
+     * @param carpeta La carpeta de datos.
+     * @param tamano  El tamaño mínimo del archivo, en bytes.
+     * @param ancho   El ancho de los renglones.
+     * @return El archivo.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    static File obtenerCSV(File carpeta, long tamano, Ancho ancho) throws IOException {
+        File archivo = new File(carpeta, "sintetico_" + Benchmark.formatearTamano(tamano) + "_"
+                + ancho.name().toLowerCase() + ".csv");
+        if (archivo.isFile() && archivo.length() >= tamano) {
+            return archivo; // Generado en una ejecución anterior
+        }
+
+        System.out.println("Generando " + archivo.getName() + "...");
+        carpeta.mkdirs();
+        File temporal = new File(carpeta, archivo.getName() + ".tmp");
+        SplittableRandom aleatorio = new SplittableRandom(SEMILLA ^ tamano ^ ancho.ordinal());
+        StringBuilder renglon = new StringBuilder(1024);
+
+        try (OutputStream salida = new BufferedOutputStream(new FileOutputStream(temporal), 1024 * 1024)) {
+            byte[] encabezado = (ENCABEZADO + "\n").getBytes(StandardCharsets.UTF_8);
+            salida.write(encabezado);
+            long escritos = encabezado.length;
+            long numero = 0;
+            while (escritos < tamano) {
+                renglon.setLength(0);
+                escribirRenglon(renglon, numero++, aleatorio, ancho);
+                byte[] bytes = renglon.toString().getBytes(StandardCharsets.UTF_8);
+                salida.write(bytes);
+                escritos += bytes.length;
+            }
+        }
+        Files.move(temporal.toPath(), archivo.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return archivo;
+    }
+
+    /**
+     * Obtiene el árbol de directorios de las búsquedas, generándolo si no
+     * existe. Tiene {@code ramas} subdirectorios por nivel y diez archivos por
+     * directorio; el archivo buscado está en un directorio del último nivel,
+     * para que la búsqueda tenga que recorrer buena parte del árbol.
+     *
+     * @param carpeta La carpeta de datos.
+     * @param niveles La profundidad del árbol.
+     * @param ramas   El número de subdirectorios de cada directorio.
+     * @return La raíz del árbol.
+     * @throws IOException Si ocurre un error al crear los archivos.
+     */
+    static File obtenerArbol(File carpeta, int niveles, int ramas) throws IOException {
+        File raiz = new File(carpeta, "arbol_" + niveles + "x" + ramas);
+        File marca = new File(raiz, ".completo");
+        if (marca.isFile()) {
+            return raiz;
+        }
+
+        System.out.println("Generando " + raiz.getName() + "...");
+        File ultimo = crearNivel(raiz, niveles, ramas);
+        Files.write(new File(ultimo, ARCHIVO_BUSCADO).toPath(), (ENCABEZADO + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.createFile(marca.toPath());
+        return raiz;
+    }
+
+    // Crea un directorio con sus archivos y subdirectorios; devuelve el último directorio hoja
+    private static File crearNivel(File directorio, int nivelesRestantes, int ramas) throws IOException {
+        directorio.mkdirs();
+        for (int i = 0; i < 10; i++) {
+            File archivo = new File(directorio, "archivo_" + i + ".txt");
+            if (!archivo.exists()) {
+                Files.createFile(archivo.toPath());
+            }
+        }
+        File ultimo = directorio;
+        if (nivelesRestantes > 0) {
+            for (int i = 0; i < ramas; i++) {
+                ultimo = crearNivel(new File(directorio, "dir_" + i), nivelesRestantes - 1, ramas);
+            }
+        }
+        return ultimo;
+    }
+
+    private static void escribirRenglon(StringBuilder renglon, long numero, SplittableRandom aleatorio, Ancho ancho) {
+        boolean top200 = aleatorio.nextInt(4) != 0;
+        texto(renglon, aleatorio, ancho.tituloMinimo, ancho.tituloMaximo);
+        renglon.append(',').append(1 + aleatorio.nextInt(top200 ? 200 : 50));
+        renglon.append(",20").append(17 + numero % 5).append('-');
+        dosDigitos(renglon, 1 + (int) (numero / 31 % 12));
+        renglon.append('-');
+        dosDigitos(renglon, 1 + (int) (numero % 28));
+        renglon.append(',');
+        texto(renglon, aleatorio, ancho.artistaMinimo, ancho.artistaMaximo);
+        renglon.append(",https://open.spotify.com/track/");
+        texto(renglon, aleatorio, 22, 22);
+        renglon.append(',').append(REGIONES[aleatorio.nextInt(REGIONES.length)]);
+        renglon.append(',').append(top200 ? "top200" : "viral50");
+        renglon.append(',').append(TENDENCIAS[aleatorio.nextInt(TENDENCIAS.length)]);
+        renglon.append(',');
+        if (top200) {
+            renglon.append(1000 + aleatorio.nextInt(5_000_000));
+        }
+        for (int i = 0; i < 3; i++) {
+            renglon.append(",0.").append(100 + aleatorio.nextInt(900));
+        }
+        renglon.append(',').append(60 + aleatorio.nextInt(140)).append('.').append(aleatorio.nextInt(1000));
+        renglon.append('\n');
+    }
+
+    // Texto sin comas, para que ambas implementaciones separen los campos igual
+    private static void texto(StringBuilder renglon, SplittableRandom aleatorio, int minimo, int maximo) {
+        int longitud = minimo + aleatorio.nextInt(maximo - minimo + 1);
+        for (int i = 0; i < longitud; i++) {
+            renglon.append(i % 7 == 6 ? ' ' : LETRAS[aleatorio.nextInt(LETRAS.length)]);
+        }
+    }
+
+    private static void dosDigitos(StringBuilder renglon, int valor) {
+        if (valor < 10) {
+            renglon.append('0');
+        }
+        renglon.append(valor);
+    }
+}
@@ -0,0 +1,565 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Clase que agrupa los renglones de un archivo CSV por el valor de una columna
+ * y calcula, en un solo recorrido paralelo, el conteo, la suma, el mínimo, el
+ * máximo y el promedio de una columna numérica, además de una aproximación del
+ * número de valores distintos de otra columna (HyperLogLog).
+ *
+ * <p>
+ * Cada hilo acumula en su propia tabla de grupos con direccionamiento abierto
+ * y arreglos primitivos, y al final las tablas se combinan. Los rangos del
+ * archivo toman prestada una tabla de una {@link ReservaTablas}, de modo que
+ * hay a lo más una tabla por hilo: la memoria depende del número de grupos y
+ * de hilos, no del número de renglones ni de rangos.
+ * </p>
+ */
+public class Agregacion {
+
+    // Bits de precisión del HyperLogLog: 2^10 registros, error típico ~3%
+    private static final int BITS_HLL = 10;
+    private static final int REGISTROS_HLL = 1 << BITS_HLL;
+
+    /**
+     * Agrupa un archivo CSV y escribe una fila por grupo en el archivo de
+     * salida con las columnas
+     * {@code clave,conteo,suma,minimo,maximo,promedio,distintos}.
+     *
+     * @param archivoEntrada   El archivo CSV a agrupar.
+     * @param columnaClave     La columna cuyo valor define el grupo (por ejemplo
+     *                         {@code region}).
+     * @param columnaValor     La columna numérica a resumir (por ejemplo
+     *                         {@code streams}), o {@code null} para solo contar.
+     * @param columnaDistintos La columna cuyos valores distintos se estiman por
+     *                         grupo (por ejemplo {@code title}), o {@code null}.
+     * @param archivoSalida    El archivo donde se guarda el resultado.
+     * @return {@code true} si se escribió el resultado, o {@code false} si no se
+     *         pudo agrupar; el motivo ya se informó.
+     */
+    public static boolean agrupar(String archivoEntrada, String columnaClave, String columnaValor,
+            String columnaDistintos, File archivoSalida) {
+
+        int numHilos = NumeroCPUs.numeroCPUs();
+        ExecutorService executor = Executors.newFixedThreadPool(numHilos);
+
+        try (FileChannel canal = FileChannel.open(Paths.get(archivoEntrada), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            LectorRenglones lectorEncabezado = new LectorRenglones(canal, 0, tamano, 64 * 1024);
+            if (!lectorEncabezado.siguiente()) {
+                System.out.println("El archivo está vacío.");
+                return false;
+            }
+
+            // Resolver los índices de las columnas una sola vez
+            TokenizadorCSV tokenizador = new TokenizadorCSV();
+            tokenizador.tokenizar(lectorEncabezado.buffer(), lectorEncabezado.inicio(), lectorEncabezado.fin());
+            String[] columnas = tokenizador.campos();
+            int indiceClave = resolverColumna(columnas, columnaClave);
+            int indiceValor = resolverColumna(columnas, columnaValor);
+            int indiceDistintos = resolverColumna(columnas, columnaDistintos);
+            if (indiceClave < 0 || indiceValor == -1 || indiceDistintos == -1) {
+                return false;
+            }
+
+            // Con una caché columnar vigente basta leer las columnas que se usan
+            TablaGrupos desdeCache = agruparConCache(archivoEntrada, indiceClave, indiceValor, indiceDistintos);
+            if (desdeCache != null) {
+                escribirResultado(desdeCache, archivoSalida);
+                System.out.println("Agregación completada con la caché columnar: " + desdeCache.numGrupos
+                        + " grupos. Archivo de salida: " + archivoSalida);
+                return true;
+            }
+
+            // Agrupar cada rango en la tabla libre de la reserva; como solo corren
+            // numHilos rangos a la vez, no se crean más de numHilos tablas
+            long[] limites = RangosArchivo.calcularLimites(canal, lectorEncabezado.posicionSiguiente(), tamano,
+                    numHilos * 4);
+            ReservaTablas reserva = new ReservaTablas(indiceDistintos >= 0);
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i + 1 < limites.length; i++) {
+                long desde = limites[i];
+                long hasta = limites[i + 1];
+                tareas.add(executor.submit(() -> {
+                    TablaGrupos tabla = reserva.tomar();
+                    try {
+                        agruparRango(new LectorRenglones(canal, desde, hasta), indiceClave, indiceValor,
+                                indiceDistintos, tabla);
+                    } finally {
+                        reserva.devolver(tabla);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+
+            // Combinar las tablas parciales
+            TablaGrupos total = reserva.combinar();
+
+            escribirResultado(total, archivoSalida);
+            System.out.println("Agregación completada: " + total.numGrupos + " grupos. Archivo de salida: "
+                    + archivoSalida);
+            return true;
+
+        } catch (IOException e) {
+            System.err.println("Error al procesar el archivo: " + e.getMessage());
+        } catch (ExecutionException e) {
+            System.err.println("Error al agrupar un fragmento del archivo: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Agregación interrumpida: " + archivoEntrada);
+        } finally {
+            executor.shutdownNow();
+        }
+        return false;
+    }
+
+    /**
+     * Agrupa con la caché columnar del archivo, si existe y guardó las columnas
+     * con tipos que lo permiten.
+     *
+     * @return La tabla con todos los grupos, o {@code null} si hay que recorrer
+     *         el texto.
+     */
+    private static TablaGrupos agruparConCache(String archivoEntrada, int indiceClave, int indiceValor,
+            int indiceDistintos) {
+        CacheColumnar cache = CacheColumnar.abrir(archivoEntrada);
+        if (cache == null) {
+            return null;
+        }
+        try {
+            return cache.agrupar(indiceClave, indiceValor, indiceDistintos);
+        } catch (IOException e) {
+            System.err.println("No se pudo usar la caché columnar: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene el índice de una columna opcional.
+     *
+     * @return El índice, -2 si no se pidió la columna, o -1 si no existe.
+     */
+    static int resolverColumna(String[] columnas, String nombreColumna) {
+        if (nombreColumna == null || nombreColumna.trim().isEmpty()) {
+            return -2;
+        }
+        int indice = Filtrar.obtenerIndiceColumna(columnas, nombreColumna);
+        if (indice == -1) {
+            System.err.println("La columna '" + nombreColumna + "' no existe en el archivo.");
+        }
+        return indice;
+    }
+
+    /**
+     * Acumula en la tabla los renglones de un rango.
+     */
+    private static void agruparRango(LectorRenglones lector, int indiceClave, int indiceValor, int indiceDistintos,
+            TablaGrupos tabla) throws IOException {
+        TokenizadorCSV tokenizador = new TokenizadorCSV();
+        while (lector.siguiente()) {
+            tokenizador.tokenizar(lector.buffer(), lector.inicio(), lector.fin());
+            agruparRenglon(tokenizador, indiceClave, indiceValor, indiceDistintos, tabla);
+        }
+    }
+
+    /**
+     * Acumula en la tabla un renglón ya separado en campos; lo usa también
+     * {@link Tuberia}, que separa cada renglón una sola vez para todas sus
+     * etapas.
+     */
+    static void agruparRenglon(TokenizadorCSV tokenizador, int indiceClave, int indiceValor, int indiceDistintos,
+            TablaGrupos tabla) {
+        int numCampos = tokenizador.numCampos();
+        if (indiceClave >= numCampos) {
+            return;
+        }
+        int grupo;
+        if (tokenizador.conEscapes(indiceClave)) {
+            // Guardar la clave con una sola comilla por cada par, para que al escribirla
+            // el resultado se escape una sola vez
+            int longitud = tabla.quitarEscapes(tokenizador.buffer(), tokenizador.inicio(indiceClave),
+                    tokenizador.fin(indiceClave));
+            grupo = tabla.grupo(tabla.claveSinEscapes, 0, longitud);
+        } else {
+            grupo = tabla.grupo(tokenizador.buffer(), tokenizador.inicio(indiceClave), tokenizador.fin(indiceClave));
+        }
+        tabla.conteos[grupo]++;
+
+        if (indiceValor >= 0) {
+            double valor = tokenizador.numero(indiceValor);
+            if (!Double.isNaN(valor)) {
+                tabla.acumular(grupo, valor);
+            }
+        }
+        if (indiceDistintos >= 0 && indiceDistintos < numCampos) {
+            tabla.observar(grupo, hash(tokenizador.buffer(), tokenizador.inicio(indiceDistintos),
+                    tokenizador.fin(indiceDistintos)));
+        }
+    }
+
+    /**
+     * Escribe una fila por grupo, ordenadas por clave.
+     */
+    static void escribirResultado(TablaGrupos tabla, File archivoSalida) throws IOException {
+        Integer[] orden = new Integer[tabla.numGrupos];
+        for (int i = 0; i < orden.length; i++) {
+            orden[i] = i;
+        }
+        Arrays.sort(orden, Comparator.comparing(tabla::clave));
+
+        try (OutputStream archivo = new BufferedOutputStream(new FileOutputStream(archivoSalida));
+                PrintStream salida = new PrintStream(archivo, false, StandardCharsets.UTF_8.name())) {
+            salida.print("clave,conteo,suma,minimo,maximo,promedio,distintos\n");
+            for (int g : orden) {
+                boolean conValores = tabla.numValores[g] > 0;
+                String clave = tabla.clave(g);
+                // Volver a poner comillas si la clave las necesita para ser CSV válido
+                if (clave.indexOf(',') >= 0 || clave.indexOf('"') >= 0) {
+                    clave = "\"" + clave.replace("\"", "\"\"") + "\"";
+                }
+                salida.print(clave);
+                salida.print(',');
+                salida.print(tabla.conteos[g]);
+                salida.print(',');
+                salida.print(conValores ? formatear(tabla.sumas[g]) : "");
+                salida.print(',');
+                salida.print(conValores ? formatear(tabla.minimos[g]) : "");
+                salida.print(',');
+                salida.print(conValores ? formatear(tabla.maximos[g]) : "");
+                salida.print(',');
+                salida.print(conValores ? formatear(tabla.sumas[g] / tabla.numValores[g]) : "");
+                salida.print(',');
+                salida.print(tabla.registros != null ? Long.toString(tabla.estimarDistintos(g)) : "");
+                salida.print('\n');
+            }
+        }
+    }
+
+    private static String formatear(double valor) {
+        return valor == Math.rint(valor) && Math.abs(valor) < 1e15 ? Long.toString((long) valor) : Double.toString(valor);
+    }
+
+    /**
+     * Calcula un hash de 64 bits de un intervalo de bytes (FNV-1a seguido de la
+     * mezcla final de MurmurHash3).
+     */
+    static long hash(byte[] buffer, int desde, int hasta) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = desde; i < hasta; i++) {
+            h ^= buffer[i];
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Tabla de grupos con direccionamiento abierto. Cada clave distinta se
+     * copia una sola vez a un arreglo de bytes compartido y recibe un número de
+     * grupo; los acumuladores de cada grupo viven en arreglos primitivos
+     * indexados por ese número.
+     */
+    static class TablaGrupos {
+        // Ranuras de la tabla hash: número de grupo + 1, o 0 si está libre
+        int[] ranuras = new int[64];
+        long[] hashes = new long[32];
+
+        // Claves copiadas de forma contigua
+        byte[] claves = new byte[1024];
+        int[] inicioClave = new int[33];
+        int numGrupos;
+
+        long[] conteos = new long[32];
+        long[] numValores = new long[32];
+        double[] sumas = new double[32];
+        double[] minimos = new double[32];
+        double[] maximos = new double[32];
+        byte[] registros; // REGISTROS_HLL registros por grupo, o null
+
+        // Espacio para copiar una clave entre comillas sin sus comillas duplicadas
+        byte[] claveSinEscapes = new byte[64];
+
+        TablaGrupos(boolean conDistintos) {
+            if (conDistintos) {
+                registros = new byte[32 * REGISTROS_HLL];
+            }
+        }
+
+        /**
+         * Devuelve el número de grupo de la clave, creándolo si no existe.
+         */
+        int grupo(byte[] buffer, int desde, int hasta) {
+            long h = hash(buffer, desde, hasta);
+            int mascara = ranuras.length - 1;
+            int r = (int) h & mascara;
+            while (true) {
+                int g = ranuras[r] - 1;
+                if (g < 0) {
+                    return nuevoGrupo(r, h, buffer, desde, hasta);
+                }
+                if (hashes[g] == h && mismaClave(g, buffer, desde, hasta)) {
+                    return g;
+                }
+                r = (r + 1) & mascara;
+            }
+        }
+
+        /**
+         * Copia a {@link #claveSinEscapes} el valor de un campo dejando una
+         * comilla por cada par.
+         *
+         * @return La longitud de la clave copiada.
+         */
+        int quitarEscapes(byte[] buffer, int desde, int hasta) {
+            if (claveSinEscapes.length < hasta - desde) {
+                claveSinEscapes = new byte[Math.max(claveSinEscapes.length * 2, hasta - desde)];
+            }
+            int longitud = 0;
+            for (int p = desde; p < hasta; p++) {
+                claveSinEscapes[longitud++] = buffer[p];
+                if (buffer[p] == '"' && p + 1 < hasta && buffer[p + 1] == '"') {
+                    p++;
+                }
+            }
+            return longitud;
+        }
+
+        private boolean mismaClave(int g, byte[] buffer, int desde, int hasta) {
+            int inicio = inicioClave[g];
+            int longitud = inicioClave[g + 1] - inicio;
+            if (longitud != hasta - desde) {
+                return false;
+            }
+            for (int i = 0; i < longitud; i++) {
+                if (claves[inicio + i] != buffer[desde + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int nuevoGrupo(int ranura, long h, byte[] buffer, int desde, int hasta) {
+            int g = numGrupos++;
+            if (g == conteos.length) {
+                ampliarAcumuladores();
+            }
+            int longitud = hasta - desde;
+            int inicio = inicioClave[g];
+            if (inicio + longitud > claves.length) {
+                claves = Arrays.copyOf(claves, Math.max(claves.length * 2, inicio + longitud));
+            }
+            System.arraycopy(buffer, desde, claves, inicio, longitud);
+            inicioClave[g + 1] = inicio + longitud;
+
+            hashes[g] = h;
+            minimos[g] = Double.POSITIVE_INFINITY;
+            maximos[g] = Double.NEGATIVE_INFINITY;
+            ranuras[ranura] = g + 1;
+
+            // Mantener la tabla a menos de la mitad de su capacidad
+            if (numGrupos * 2 > ranuras.length) {
+                rehacer();
+            }
+            return g;
+        }
+
+        private void ampliarAcumuladores() {
+            int nuevo = conteos.length * 2;
+            hashes = Arrays.copyOf(hashes, nuevo);
+            inicioClave = Arrays.copyOf(inicioClave, nuevo + 1);
+            conteos = Arrays.copyOf(conteos, nuevo);
+            numValores = Arrays.copyOf(numValores, nuevo);
+            sumas = Arrays.copyOf(sumas, nuevo);
+            minimos = Arrays.copyOf(minimos, nuevo);
+            maximos = Arrays.copyOf(maximos, nuevo);
+            if (registros != null) {
+                registros = Arrays.copyOf(registros, nuevo * REGISTROS_HLL);
+            }
+        }
+
+        private void rehacer() {
+            ranuras = new int[ranuras.length * 2];
+            int mascara = ranuras.length - 1;
+            for (int g = 0; g < numGrupos; g++) {
+                int r = (int) hashes[g] & mascara;
+                while (ranuras[r] != 0) {
+                    r = (r + 1) & mascara;
+                }
+                ranuras[r] = g + 1;
+            }
+        }
+
+        void acumular(int g, double valor) {
+            numValores[g]++;
+            sumas[g] += valor;
+            if (valor < minimos[g]) {
+                minimos[g] = valor;
+            }
+            if (valor > maximos[g]) {
+                maximos[g] = valor;
+            }
+        }
+
+        /**
+         * Registra el hash de un valor en el HyperLogLog del grupo.
+         */
+        void observar(int g, long h) {
+            int registro = (int) (h >>> (64 - BITS_HLL));
+            // Posición del primer bit encendido en los bits restantes
+            byte rango = (byte) (Long.numberOfLeadingZeros((h << BITS_HLL) | (1L << (BITS_HLL - 1))) + 1);
+            int i = g * REGISTROS_HLL + registro;
+            if (rango > registros[i]) {
+                registros[i] = rango;
+            }
+        }
+
+        long estimarDistintos(int g) {
+            double suma = 0;
+            int ceros = 0;
+            int base = g * REGISTROS_HLL;
+            for (int i = 0; i < REGISTROS_HLL; i++) {
+                suma += 1.0 / (1L << registros[base + i]);
+                if (registros[base + i] == 0) {
+                    ceros++;
+                }
+            }
+            double alfa = 0.7213 / (1 + 1.079 / REGISTROS_HLL);
+            double estimado = alfa * REGISTROS_HLL * REGISTROS_HLL / suma;
+            // Corrección para conteos pequeños (conteo lineal)
+            if (estimado <= 2.5 * REGISTROS_HLL && ceros > 0) {
+                estimado = REGISTROS_HLL * Math.log((double) REGISTROS_HLL / ceros);
+            }
+            return Math.round(estimado);
+        }
+
+        /**
+         * Suma a esta tabla los acumuladores de otra.
+         */
+        void combinar(TablaGrupos otra) {
+            for (int o = 0; o < otra.numGrupos; o++) {
+                int g = grupo(otra.claves, otra.inicioClave[o], otra.inicioClave[o + 1]);
+                conteos[g] += otra.conteos[o];
+                numValores[g] += otra.numValores[o];
+                sumas[g] += otra.sumas[o];
+                minimos[g] = Math.min(minimos[g], otra.minimos[o]);
+                maximos[g] = Math.max(maximos[g], otra.maximos[o]);
+                if (registros != null) {
+                    int base = g * REGISTROS_HLL;
+                    int baseOtra = o * REGISTROS_HLL;
+                    for (int i = 0; i < REGISTROS_HLL; i++) {
+                        if (otra.registros[baseOtra + i] > registros[base + i]) {
+                            registros[base + i] = otra.registros[baseOtra + i];
+                        }
+                    }
+                }
+            }
+        }
+
+        String clave(int g) {
+            return new String(claves, inicioClave[g], inicioClave[g + 1] - inicioClave[g], StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Tablas de grupos que los rangos toman prestadas mientras se procesan y
+     * devuelven al terminar. Un rango solo corre en un hilo, así que nunca hay
+     * más tablas que hilos trabajando a la vez, por muchos rangos que tenga el
+     * archivo.
+     */
+    static class ReservaTablas {
+        private final boolean conDistintos;
+        private final ConcurrentLinkedQueue<TablaGrupos> libres = new ConcurrentLinkedQueue<>();
+
+        ReservaTablas(boolean conDistintos) {
+            this.conDistintos = conDistintos;
+        }
+
+        /**
+         * @return Una tabla libre, o una nueva si todas están en uso.
+         */
+        TablaGrupos tomar() {
+            TablaGrupos tabla = libres.poll();
+            return tabla != null ? tabla : new TablaGrupos(conDistintos);
+        }
+
+        void devolver(TablaGrupos tabla) {
+            libres.add(tabla);
+        }
+
+        /**
+         * Combina todas las tablas en una. Debe llamarse cuando ya no hay
+         * rangos en proceso.
+         *
+         * @return La tabla con todos los grupos.
+         */
+        TablaGrupos combinar() {
+            TablaGrupos total = tomar();
+            TablaGrupos tabla;
+            while ((tabla = libres.poll()) != null) {
+                total.combinar(tabla);
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Método interactivo que solicita un archivo mediante la clase
+     * {@link Buscar} y las columnas a agrupar y resumir.
+     */
+    public static void agregar() {
+        System.out.println("=====================================================");
+        System.out.println("               AGREGACIÓN POR GRUPOS                 ");
+        System.out.println("=====================================================");
+
+        // Obtener el archivo desde la clase Buscar
+        String archivoEncontrado = Buscar.buscarArchivo();
+        if (archivoEncontrado == null) {
+            System.out.println("\nNo se pudo encontrar el archivo. El proceso se detendrá.");
+            return;
+        }
+
+        System.out.println("\nIngresa la columna por la que deseas agrupar (ejemplo: region):");
+        String columnaClave = Consola.leerRenglon();
+        System.out.println("\nIngresa la columna numérica a resumir (ejemplo: streams), o deja vacío para solo contar:");
+        String columnaValor = Consola.leerRenglon();
+        System.out.println("\nIngresa la columna cuyos valores distintos deseas estimar (ejemplo: title), o deja vacío:");
+        String columnaDistintos = Consola.leerRenglon();
+
+        File entrada = new File(archivoEncontrado);
+        File archivoSalida = new File(entrada.getParentFile(), "agregado_" + entrada.getName());
+
+        System.out.println("\nProcesando el archivo... Por favor, espera.");
+
+        // Método para iniciar el temporizador
+        Tiempo.iniciar();
+        agrupar(archivoEncontrado, columnaClave, columnaValor, columnaDistintos, archivoSalida);
+        // Método para detener el temporizador
+        Tiempo.detener();
+
+        System.out.println("=====================================================");
+    }
+}
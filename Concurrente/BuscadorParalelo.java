@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Clase que busca archivos por nombre en un árbol de directorios recorriendo
+ * los subdirectorios en paralelo con fork/join. Los atributos de cada entrada
+ * se leen una sola vez con {@link BasicFileAttributes}, en lugar de consultar
+ * por separado si es archivo o directorio.
+ *
+ * <p>
+ * Tiene dos modos: la primera coincidencia, que cancela el resto del recorrido
+ * en cuanto encuentra un archivo, y todas las coincidencias. En el primer modo
+ * se devuelve el primer archivo encontrado por cualquiera de los hilos, que no
+ * es necesariamente el primero en orden de recorrido en profundidad.
+ * </p>
+ */
+public class BuscadorParalelo {
+
+    private final String nombreBuscado;
+    private final boolean soloPrimera;
+    private final AtomicBoolean terminado = new AtomicBoolean(false);
+    private final Queue<Path> coincidencias = new ConcurrentLinkedQueue<>();
+
+    private BuscadorParalelo(String nombreArchivo, boolean soloPrimera) {
+        this.nombreBuscado = nombreArchivo.toLowerCase();
+        this.soloPrimera = soloPrimera;
+    }
+
+    /**
+     * Busca un archivo cuyo nombre contenga el texto indicado, sin distinguir
+     * mayúsculas, y detiene la búsqueda al encontrar el primero.
+     *
+     * @param carpeta       El directorio donde se inicia la búsqueda.
+     * @param nombreArchivo El texto que debe contener el nombre del archivo.
+     * @return La ruta del archivo encontrado, o {@code null} si no hay ninguno.
+     */
+    public static Path primeraCoincidencia(Path carpeta, String nombreArchivo) {
+        BuscadorParalelo buscador = new BuscadorParalelo(nombreArchivo, true);
+        buscador.recorrer(carpeta);
+        return buscador.coincidencias.peek();
+    }
+
+    /**
+     * Busca todos los archivos cuyo nombre contenga el texto indicado, sin
+     * distinguir mayúsculas.
+     *
+     * @param carpeta       El directorio donde se inicia la búsqueda.
+     * @param nombreArchivo El texto que debe contener el nombre del archivo.
+     * @return Las rutas de todos los archivos encontrados, en orden no
+     *         determinado.
+     */
+    public static List<Path> todasLasCoincidencias(Path carpeta, String nombreArchivo) {
+        BuscadorParalelo buscador = new BuscadorParalelo(nombreArchivo, false);
+        buscador.recorrer(carpeta);
+        return new ArrayList<>(buscador.coincidencias);
+    }
+
+    private void recorrer(Path carpeta) {
+        ForkJoinPool pool = new ForkJoinPool(NumeroCPUs.numeroCPUs());
+        try {
+            pool.invoke(new TareaDirectorio(carpeta));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tarea que revisa las entradas de un directorio y crea una subtarea por
+     * cada subdirectorio.
+     */
+    @SuppressWarnings("serial") // Las tareas nunca se serializan
+    private class TareaDirectorio extends RecursiveAction {
+        private final Path directorio;
+
+        TareaDirectorio(Path directorio) {
+            this.directorio = directorio;
+        }
+
+        @Override
+        protected void compute() {
+            List<TareaDirectorio> subdirectorios = new ArrayList<>();
+
+            try (DirectoryStream<Path> entradas = Files.newDirectoryStream(directorio)) {
+                for (Path entrada : entradas) {
+                    if (terminado.get()) {
+                        break;
+                    }
+
+                    BasicFileAttributes atributos;
+                    try {
+                        // Una sola consulta al sistema de archivos por entrada
+                        atributos = Files.readAttributes(entrada, BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException e) {
+                        continue; // La entrada desapareció o no se puede leer
+                    }
+
+                    // Un enlace simbólico cuenta como archivo si apunta a uno, pero no se
+                    // sigue hacia directorios para evitar ciclos
+                    if (atributos.isSymbolicLink()) {
+                        try {
+                            atributos = Files.readAttributes(entrada, BasicFileAttributes.class);
+                        } catch (IOException e) {
+                            continue; // Enlace roto
+                        }
+                        if (!atributos.isRegularFile()) {
+                            continue;
+                        }
+                    }
+
+                    if (atributos.isRegularFile()) {
+                        if (entrada.getFileName().toString().toLowerCase().contains(nombreBuscado)) {
+                            coincidencias.add(entrada.toAbsolutePath());
+                            if (soloPrimera) {
+                                terminado.set(true);
+                                break;
+                            }
+                        }
+                    } else if (atributos.isDirectory()) {
+                        TareaDirectorio subtarea = new TareaDirectorio(entrada);
+                        subtarea.fork();
+                        subdirectorios.add(subtarea);
+                    }
+                }
+            } catch (IOException e) {
+                // Directorio sin permisos de lectura: se omite, igual que listFiles() == null
+            }
+
+            for (TareaDirectorio subtarea : subdirectorios) {
+                subtarea.join();
+            }
+        }
+    }
+}
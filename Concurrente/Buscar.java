@@ -1,5 +1,8 @@
 import java.io.File;
-import java.util.Scanner;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Clase que contiene métodos para buscar un archivo en un directorio y
@@ -16,38 +19,40 @@ public class Buscar {
      * @return El path absoluto del archivo encontrado, o null si no se encuentra.
      */
     public static String buscarArchivo() {
-        try (Scanner sc = new Scanner(System.in)) {
-            // Se pide al usuario el nombre del archivo
-            System.out.println("\nPor favor ingresa el nombre del archivo que deseas buscar:");
-            String nombreArchivoIntroducido = sc.nextLine();
+        // Se pide al usuario el nombre del archivo; la entrada es compartida y no se cierra
+        System.out.println("\nPor favor ingresa el nombre del archivo que deseas buscar:");
+        String nombreArchivoIntroducido = Consola.leerRenglon();
 
-            // Se pide al usuario la ruta del directorio
-            System.out.println("Por favor ingresa la ruta del directorio donde deseas buscar:");
-            String nombreCarpetaIntroducido = sc.nextLine();
+        // Se pide al usuario la ruta del directorio
+        System.out.println("Por favor ingresa la ruta del directorio donde deseas buscar:");
+        String nombreCarpetaIntroducido = Consola.leerRenglon();
 
-            // Crear un objeto File para la ruta del directorio
-            File carpeta = new File(nombreCarpetaIntroducido);
+        // Crear un objeto File para la ruta del directorio
+        File carpeta = new File(nombreCarpetaIntroducido);
 
-            // Método para iniciar el temporizador
-            Tiempo.iniciar();
+        // Método para iniciar el temporizador
+        Tiempo.iniciar();
 
-            // Llamada a la función recursiva para buscar el archivo
-            String resultado = buscarArchivoRecursivo(carpeta, nombreArchivoIntroducido);
-            // Método para iniciar el temporizador
+        // Llamada a la función recursiva para buscar el archivo
+        String resultado = buscarArchivoRecursivo(carpeta, nombreArchivoIntroducido);
+        // Método para iniciar el temporizador
 
-            if (resultado == null) {
-                System.out.println("\nNo se encontró el archivo, revisa si está bien escrito.");
-            }
+        if (resultado == null) {
+            System.out.println("\nNo se encontró el archivo, revisa si está bien escrito.");
+        }
 
-            // Método para detener el temporizador
-            Tiempo.detener();
+        // Método para detener el temporizador
+        Tiempo.detener();
 
-            return resultado;
-        }
+        return resultado;
     }
 
     /**
-     * Método recursivo que busca el archivo en el directorio y sus subdirectorios.
+     * Método que busca el archivo en el directorio y sus subdirectorios. Si hay
+     * un {@link CatalogoArchivos} del directorio, o si los catálogos están
+     * activados, la búsqueda se responde con él; en otro caso los
+     * subdirectorios se recorren en paralelo con {@link BuscadorParalelo} y la
+     * búsqueda se detiene en cuanto algún hilo encuentra una coincidencia.
      *
      * @param carpeta       El directorio donde se iniciará la búsqueda.
      * @param nombreArchivo El nombre del archivo que se desea buscar.
@@ -55,33 +60,69 @@ public class Buscar {
      */
     public static String buscarArchivoRecursivo(File carpeta, String nombreArchivo) {
         // Verificar si la carpeta es válida
-        if (carpeta.exists() && carpeta.isDirectory()) {
-            // Listar los archivos y directorios dentro de la carpeta
-            File[] archivos = carpeta.listFiles();
+        if (!carpeta.isDirectory()) {
+            System.out.println("\nLa carpeta no existe o no es un directorio válido.");
+            return null;
+        }
 
-            // Si hay archivos en la carpeta
-            if (archivos != null) {
-                // Iterar sobre todos los archivos y subdirectorios
-                for (File archivo : archivos) {
-                    // Si es un archivo y contiene el nombre buscado
-                    if (archivo.isFile() && archivo.getName().toLowerCase().contains(nombreArchivo.toLowerCase())) {
-                        System.out.println("\nArchivo encontrado en:\n " + archivo.getAbsolutePath());
-                        return archivo.getAbsolutePath();
-                    }
+        Path encontrado = buscarEnCatalogo(carpeta.toPath(), nombreArchivo);
+        if (encontrado == null) {
+            // Retornar null si no se encuentra el archivo
+            return null;
+        }
+
+        System.out.println("\nArchivo encontrado en:\n " + encontrado);
+        return encontrado.toString();
+    }
 
-                    // Si es un subdirectorio, hacer la búsqueda recursiva
-                    else if (archivo.isDirectory()) {
-                        String resultado = buscarArchivoRecursivo(archivo, nombreArchivo);
-                        if (resultado != null) {
-                            return resultado;
-                        }
-                    }
-                }
+    // Consultar el catálogo del directorio. Mientras solo se tenga la instantánea
+    // de una ejecución anterior, un resultado se comprueba en disco y, si no hay
+    // resultado, se recorre el árbol como antes.
+    private static Path buscarEnCatalogo(Path carpeta, String nombreArchivo) {
+        CatalogoArchivos catalogo = CatalogoArchivos.activado() ? CatalogoArchivos.para(carpeta)
+                : CatalogoArchivos.existente(carpeta);
+        if (catalogo == null) {
+            return BuscadorParalelo.primeraCoincidencia(carpeta, nombreArchivo);
+        }
+        if (!catalogo.disponible()) {
+            // Catálogo nuevo sin instantánea: esperar su recorrido en lugar de recorrer el árbol dos veces
+            try {
+                catalogo.esperarConstruccion();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        if (catalogo.disponible()) {
+            CatalogoArchivos.Entrada entrada = catalogo.primeraCoincidencia(carpeta, nombreArchivo);
+            if (catalogo.listo()) {
+                return entrada == null ? null : entrada.ruta;
             }
-        } else {
+            if (entrada != null && Files.isRegularFile(entrada.ruta)) {
+                return entrada.ruta;
+            }
+        }
+        return BuscadorParalelo.primeraCoincidencia(carpeta, nombreArchivo);
+    }
+
+    /**
+     * Método que busca todos los archivos cuyo nombre contiene el texto dado en
+     * el directorio y sus subdirectorios.
+     *
+     * @param carpeta       El directorio donde se iniciará la búsqueda.
+     * @param nombreArchivo El texto que debe contener el nombre de los archivos.
+     * @return Los paths absolutos de los archivos encontrados.
+     */
+    public static List<String> buscarTodosLosArchivos(File carpeta, String nombreArchivo) {
+        List<String> resultado = new ArrayList<>();
+        if (!carpeta.isDirectory()) {
             System.out.println("\nLa carpeta no existe o no es un directorio válido.");
+            return resultado;
+        }
+
+        for (Path encontrado : BuscadorParalelo.todasLasCoincidencias(carpeta.toPath(), nombreArchivo)) {
+            resultado.add(encontrado.toString());
         }
-        // Retornar null si no se encuentra el archivo
-        return null;
+        return resultado;
     }
 }
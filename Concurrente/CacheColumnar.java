@@ -0,0 +1,1189 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copia columnar binaria de un archivo CSV, para que las consultas y las
+ * agregaciones posteriores lean solo las columnas que usan en lugar de volver
+ * a separar el texto de cada renglón.
+ *
+ * <p>
+ * La caché se guarda en un archivo auxiliar junto al CSV
+ * ({@code archivo.csv.col}), de modo que la de cada archivo procesado queda en
+ * {@code resultados_concurrentes}. Cada columna del encabezado se guarda con
+ * un tipo fijo deducido de sus valores: {@code int} o {@code long} si todos son
+ * enteros, {@code double} si todos son números, y el código {@code int} de un
+ * diccionario si es texto con pocos valores distintos, como {@code region}.
+ * Las columnas de texto con demasiados valores distintos o con comillas
+ * duplicadas no se guardan. Además se guarda la posición en bytes de cada
+ * renglón, para copiar del CSV los que cumplen una consulta.
+ * </p>
+ *
+ * <p>
+ * Los renglones se reparten en grupos de tamaño fijo y por cada grupo se
+ * guardan el mínimo y el máximo de cada columna; una consulta omite sin
+ * leerlos los grupos que no pueden cumplirla, y de los demás mapea en memoria
+ * solo las columnas que necesita. Como {@link IndiceColumna}, la caché guarda
+ * el tamaño y la fecha de modificación del CSV y se descarta si alguno cambia.
+ * </p>
+ *
+ * <p>
+ * Formato del archivo: una cabecera con la posición de los metadatos, la
+ * posición de cada renglón como {@code long}, los valores de cada columna uno
+ * tras otro y, al final, los metadatos: nombre, tipo y posición de cada
+ * columna, los diccionarios y las estadísticas de cada grupo.
+ * </p>
+ */
+public class CacheColumnar {
+
+    private static final int MAGIA = 0x434F4C53; // "COLS"
+    private static final int VERSION = 1;
+    private static final String EXTENSION = ".col";
+
+    // Magia, versión, tamaño y fecha del CSV y posición de los metadatos
+    private static final int CABECERA = 32;
+
+    // Renglones por grupo de estadísticas
+    static final int RENGLONES_POR_GRUPO = 64 * 1024;
+
+    // Valores distintos que puede tener una columna de texto para guardarse con diccionario
+    static final int MAX_VALORES_DICCIONARIO = 1 << 16;
+
+    // Tamaño aproximado de cada rango del CSV que se procesa en paralelo al construir
+    private static final long TAMANO_RANGO = 32L * 1024 * 1024;
+
+    // Renglones que se acumulan por columna antes de escribirlos al construir
+    private static final int RENGLONES_POR_ESCRITURA = 8 * 1024;
+
+    // Valores que representan un campo vacío o no numérico en las columnas enteras
+    private static final int ENTERO_VACIO = Integer.MIN_VALUE;
+    private static final long LARGO_VACIO = Long.MIN_VALUE;
+
+    // Mayor entero que un double representa sin perder precisión
+    private static final double MAX_LARGO_EXACTO = 1L << 53;
+
+    /**
+     * Tipo con que se guarda una columna, con los bytes de cada valor.
+     */
+    enum Tipo {
+        /** La columna no se guarda. */
+        NINGUNO(0),
+        ENTERO(4),
+        LARGO(8),
+        REAL(8),
+        /** Código del valor en el diccionario de la columna, o -1 si falta el campo. */
+        DICCIONARIO(4);
+
+        final int ancho;
+
+        Tipo(int ancho) {
+            this.ancho = ancho;
+        }
+    }
+
+    private final File archivoCache;
+    private final long numRenglones;
+    private final int renglonesPorGrupo;
+    private final String[] columnas;
+    private final Tipo[] tipos;
+    private final long posicionRenglones;
+    private final long[] posicionesColumna;
+
+    // Por columna con diccionario: los valores (en bytes, tal como aparecen en el
+    // CSV), su valor numérico y el código de cada valor (texto ISO-8859-1, que
+    // conserva cada byte)
+    private final byte[][][] diccionarios;
+    private final double[][] numerosDiccionario;
+    private final List<Map<String, Integer>> codigos;
+
+    // Mínimo y máximo de cada columna por grupo: [columna][grupo]. En las
+    // columnas con diccionario son los de los códigos
+    private final double[][] minimos;
+    private final double[][] maximos;
+
+    private CacheColumnar(File archivoCache, long numRenglones, int renglonesPorGrupo, String[] columnas,
+            Tipo[] tipos, long posicionRenglones, long[] posicionesColumna, byte[][][] diccionarios,
+            double[][] numerosDiccionario, double[][] minimos, double[][] maximos) {
+        this.archivoCache = archivoCache;
+        this.numRenglones = numRenglones;
+        this.renglonesPorGrupo = renglonesPorGrupo;
+        this.columnas = columnas;
+        this.tipos = tipos;
+        this.posicionRenglones = posicionRenglones;
+        this.posicionesColumna = posicionesColumna;
+        this.diccionarios = diccionarios;
+        this.numerosDiccionario = numerosDiccionario;
+        this.minimos = minimos;
+        this.maximos = maximos;
+
+        codigos = new ArrayList<>();
+        for (byte[][] diccionario : diccionarios) {
+            Map<String, Integer> codigosColumna = new HashMap<>();
+            if (diccionario != null) {
+                for (int i = 0; i < diccionario.length; i++) {
+                    codigosColumna.put(new String(diccionario[i], StandardCharsets.ISO_8859_1), i);
+                }
+            }
+            codigos.add(codigosColumna);
+        }
+    }
+
+    /**
+     * Obtiene la caché de un archivo CSV, cargándola del archivo auxiliar si
+     * está vigente o construyéndola (y guardándola) en caso contrario.
+     *
+     * @param archivoCSV La ruta del archivo CSV.
+     * @return La caché, o {@code null} si el archivo está vacío.
+     * @throws IOException Si ocurre un error al leer o escribir los archivos.
+     */
+    public static CacheColumnar obtener(String archivoCSV) throws IOException {
+        return obtener(archivoCSV, RENGLONES_POR_GRUPO);
+    }
+
+    static CacheColumnar obtener(String archivoCSV, int renglonesPorGrupo) throws IOException {
+        CacheColumnar cache = abrir(archivoCSV);
+        if (cache != null && cache.renglonesPorGrupo == renglonesPorGrupo) {
+            return cache;
+        }
+        File csv = new File(archivoCSV);
+        if (!construir(csv, archivoCache(csv), renglonesPorGrupo)) {
+            return null;
+        }
+        return abrir(archivoCSV);
+    }
+
+    /**
+     * Abre la caché de un archivo CSV sin construirla.
+     *
+     * @param archivoCSV La ruta del archivo CSV.
+     * @return La caché, o {@code null} si no existe, está dañada o el CSV
+     *         cambió desde que se construyó.
+     */
+    public static CacheColumnar abrir(String archivoCSV) {
+        File csv = new File(archivoCSV);
+        File archivoCache = archivoCache(csv);
+        if (!archivoCache.exists()) {
+            return null;
+        }
+        try {
+            return cargar(csv, archivoCache);
+        } catch (IOException | RuntimeException e) {
+            // Una caché dañada o incompleta se descarta
+            return null;
+        }
+    }
+
+    /**
+     * @param archivoCSV El archivo CSV.
+     * @return El archivo auxiliar donde se guarda su caché.
+     */
+    static File archivoCache(File archivoCSV) {
+        return new File(archivoCSV.getAbsoluteFile().getParentFile(), archivoCSV.getName() + EXTENSION);
+    }
+
+    /**
+     * @return Los nombres de las columnas del encabezado del CSV.
+     */
+    public String[] columnas() {
+        return columnas.clone();
+    }
+
+    /**
+     * @param columna El índice de la columna.
+     * @return El tipo con que se guardó la columna.
+     */
+    Tipo tipo(int columna) {
+        return tipos[columna];
+    }
+
+    /**
+     * @return El número de renglones de datos.
+     */
+    public long numRenglones() {
+        return numRenglones;
+    }
+
+    /**
+     * @return El número de grupos de renglones.
+     */
+    public int numGrupos() {
+        return (int) ((numRenglones + renglonesPorGrupo - 1) / renglonesPorGrupo);
+    }
+
+    // ---------------------------------------------------------------------
+    // Construcción
+    // ---------------------------------------------------------------------
+
+    /**
+     * Valores distintos de una columna de texto, compartidos por los rangos
+     * mientras no pasen de {@link #MAX_VALORES_DICCIONARIO}.
+     */
+    private static class ValoresColumna {
+        final ConcurrentHashMap<String, Double> valores = new ConcurrentHashMap<>();
+        volatile boolean descartada;
+
+        void agregar(String valor, double numero) {
+            if (descartada || valores.containsKey(valor)) {
+                return;
+            }
+            valores.putIfAbsent(valor, numero);
+            if (valores.size() > MAX_VALORES_DICCIONARIO) {
+                descartada = true;
+                valores.clear();
+            }
+        }
+    }
+
+    /**
+     * Lo que la primera pasada averigua de un rango: sus renglones y qué
+     * valores tiene cada columna.
+     */
+    private static class Inferencia {
+        long renglones;
+        final boolean[] noNumerica;
+        final boolean[] noLarga;
+        final boolean[] noEntera;
+
+        Inferencia(int numColumnas) {
+            noNumerica = new boolean[numColumnas];
+            noLarga = new boolean[numColumnas];
+            noEntera = new boolean[numColumnas];
+        }
+    }
+
+    /**
+     * Mínimos y máximos de los grupos que toca un rango, desde el grupo
+     * {@code primerGrupo}.
+     */
+    private static class EstadisticasRango {
+        final int primerGrupo;
+        final double[][] minimos;
+        final double[][] maximos;
+
+        EstadisticasRango(int primerGrupo, int numGrupos, int numColumnas) {
+            this.primerGrupo = primerGrupo;
+            minimos = new double[numColumnas][numGrupos];
+            maximos = new double[numColumnas][numGrupos];
+            for (int c = 0; c < numColumnas; c++) {
+                Arrays.fill(minimos[c], Double.POSITIVE_INFINITY);
+                Arrays.fill(maximos[c], Double.NEGATIVE_INFINITY);
+            }
+        }
+    }
+
+    /**
+     * Tarea que procesa un rango del CSV al construir la caché.
+     */
+    private interface TareaRango<T> {
+        T ejecutar(int rango, long desde, long hasta) throws IOException;
+    }
+
+    /**
+     * Recorre el CSV dos veces en paralelo sobre los mismos rangos: la primera
+     * deduce el tipo de cada columna, sus diccionarios y los renglones de cada
+     * rango; la segunda escribe los valores de cada rango en su lugar del
+     * archivo y calcula las estadísticas. Se escribe en un temporal que al final
+     * reemplaza la caché, para no dejar una a medias.
+     *
+     * @return {@code false} si el archivo está vacío.
+     */
+    private static boolean construir(File csv, File archivoCache, int renglonesPorGrupo) throws IOException {
+        // Tomar los atributos antes de leer, para que un cambio durante la lectura invalide la caché
+        long tamano = csv.length();
+        long fechaModificacion = csv.lastModified();
+
+        int numHilos = NumeroCPUs.numeroCPUs();
+        ExecutorService executor = Executors.newFixedThreadPool(numHilos);
+        File temporal = new File(archivoCache.getPath() + ".tmp");
+
+        try (FileChannel canal = FileChannel.open(csv.toPath(), StandardOpenOption.READ)) {
+            long fin = Math.min(tamano, canal.size());
+            LectorRenglones lectorEncabezado = new LectorRenglones(canal, 0, fin, 64 * 1024);
+            if (!lectorEncabezado.siguiente()) {
+                return false;
+            }
+            TokenizadorCSV tokenizador = new TokenizadorCSV();
+            tokenizador.tokenizar(lectorEncabezado.buffer(), lectorEncabezado.inicio(), lectorEncabezado.fin());
+            String[] columnas = tokenizador.campos();
+            int numColumnas = columnas.length;
+
+            long inicioDatos = lectorEncabezado.posicionSiguiente();
+            int numRangos = (int) Math.max(numHilos * 4L, (fin - inicioDatos) / TAMANO_RANGO + 1);
+            long[] limites = RangosArchivo.calcularLimites(canal, inicioDatos, fin, numRangos);
+
+            // Primera pasada: tipos, diccionarios y renglones por rango
+            ValoresColumna[] valores = new ValoresColumna[numColumnas];
+            for (int c = 0; c < numColumnas; c++) {
+                valores[c] = new ValoresColumna();
+            }
+            List<Inferencia> inferencias = porRangos(executor, limites,
+                    (rango, desde, hasta) -> inferir(new LectorRenglones(canal, desde, hasta), valores));
+
+            long[] primerRenglon = new long[inferencias.size() + 1];
+            Inferencia total = new Inferencia(numColumnas);
+            for (int r = 0; r < inferencias.size(); r++) {
+                Inferencia inferencia = inferencias.get(r);
+                primerRenglon[r + 1] = primerRenglon[r] + inferencia.renglones;
+                for (int c = 0; c < numColumnas; c++) {
+                    total.noNumerica[c] |= inferencia.noNumerica[c];
+                    total.noLarga[c] |= inferencia.noLarga[c];
+                    total.noEntera[c] |= inferencia.noEntera[c];
+                }
+            }
+            long numRenglones = primerRenglon[inferencias.size()];
+
+            Tipo[] tipos = new Tipo[numColumnas];
+            byte[][][] diccionarios = new byte[numColumnas][][];
+            double[][] numerosDiccionario = new double[numColumnas][];
+            List<Map<String, Integer>> codigos = new ArrayList<>();
+            for (int c = 0; c < numColumnas; c++) {
+                Map<String, Integer> codigosColumna = new HashMap<>();
+                if (!total.noNumerica[c]) {
+                    tipos[c] = !total.noEntera[c] ? Tipo.ENTERO : !total.noLarga[c] ? Tipo.LARGO : Tipo.REAL;
+                } else if (!valores[c].descartada) {
+                    tipos[c] = Tipo.DICCIONARIO;
+                    // Códigos en el orden de los bytes de cada valor
+                    String[] ordenados = valores[c].valores.keySet().toArray(new String[0]);
+                    Arrays.sort(ordenados);
+                    diccionarios[c] = new byte[ordenados.length][];
+                    numerosDiccionario[c] = new double[ordenados.length];
+                    for (int i = 0; i < ordenados.length; i++) {
+                        diccionarios[c][i] = ordenados[i].getBytes(StandardCharsets.ISO_8859_1);
+                        numerosDiccionario[c][i] = valores[c].valores.get(ordenados[i]);
+                        codigosColumna.put(ordenados[i], i);
+                    }
+                } else {
+                    tipos[c] = Tipo.NINGUNO;
+                }
+                valores[c].valores.clear();
+                codigos.add(codigosColumna);
+            }
+
+            // Posiciones de los datos en el archivo
+            long posicionRenglones = CABECERA;
+            long[] posicionesColumna = new long[numColumnas];
+            long posicion = posicionRenglones + numRenglones * Long.BYTES;
+            for (int c = 0; c < numColumnas; c++) {
+                posicionesColumna[c] = posicion;
+                posicion += numRenglones * tipos[c].ancho;
+            }
+            long posicionMetadatos = posicion;
+
+            int numGrupos = (int) ((numRenglones + renglonesPorGrupo - 1) / renglonesPorGrupo);
+            double[][] minimos = new double[numColumnas][numGrupos];
+            double[][] maximos = new double[numColumnas][numGrupos];
+            for (int c = 0; c < numColumnas; c++) {
+                Arrays.fill(minimos[c], Double.POSITIVE_INFINITY);
+                Arrays.fill(maximos[c], Double.NEGATIVE_INFINITY);
+            }
+
+            try (FileChannel destino = FileChannel.open(temporal.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+                // Segunda pasada: cada rango escribe sus renglones a partir de su primer renglón
+                List<EstadisticasRango> estadisticas = porRangos(executor, limites,
+                        (rango, desde, hasta) -> escribirRango(new LectorRenglones(canal, desde, hasta),
+                                primerRenglon[rango], primerRenglon[rango + 1], renglonesPorGrupo, tipos, codigos,
+                                posicionRenglones, posicionesColumna, destino));
+                for (EstadisticasRango rango : estadisticas) {
+                    for (int c = 0; c < numColumnas; c++) {
+                        for (int g = 0; g < rango.minimos[c].length; g++) {
+                            int grupo = rango.primerGrupo + g;
+                            minimos[c][grupo] = Math.min(minimos[c][grupo], rango.minimos[c][g]);
+                            maximos[c][grupo] = Math.max(maximos[c][grupo], rango.maximos[c][g]);
+                        }
+                    }
+                }
+
+                DataOutputStream salida = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(destino.position(posicionMetadatos)),
+                                64 * 1024));
+                salida.writeLong(numRenglones);
+                salida.writeInt(renglonesPorGrupo);
+                salida.writeLong(posicionRenglones);
+                salida.writeInt(numColumnas);
+                for (int c = 0; c < numColumnas; c++) {
+                    salida.writeUTF(columnas[c]);
+                    salida.writeByte(tipos[c].ordinal());
+                    salida.writeLong(posicionesColumna[c]);
+                    if (tipos[c] == Tipo.DICCIONARIO) {
+                        salida.writeInt(diccionarios[c].length);
+                        for (int i = 0; i < diccionarios[c].length; i++) {
+                            salida.writeInt(diccionarios[c][i].length);
+                            salida.write(diccionarios[c][i]);
+                            salida.writeDouble(numerosDiccionario[c][i]);
+                        }
+                    }
+                }
+                for (int c = 0; c < numColumnas; c++) {
+                    if (tipos[c] != Tipo.NINGUNO) {
+                        for (int g = 0; g < numGrupos; g++) {
+                            salida.writeDouble(minimos[c][g]);
+                            salida.writeDouble(maximos[c][g]);
+                        }
+                    }
+                }
+                salida.flush();
+
+                ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+                cabecera.putInt(MAGIA).putInt(VERSION).putLong(tamano).putLong(fechaModificacion)
+                        .putLong(posicionMetadatos).flip();
+                while (cabecera.hasRemaining()) {
+                    destino.write(cabecera, cabecera.position());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            temporal.delete();
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+        Files.move(temporal.toPath(), archivoCache.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * Ejecuta una tarea por rango y devuelve sus resultados en el orden de los
+     * rangos.
+     */
+    private static <T> List<T> porRangos(ExecutorService executor, long[] limites, TareaRango<T> tarea)
+            throws IOException {
+        List<Future<T>> futuros = new ArrayList<>();
+        for (int i = 0; i + 1 < limites.length; i++) {
+            int rango = i;
+            long desde = limites[i];
+            long hasta = limites[i + 1];
+            futuros.add(executor.submit(() -> tarea.ejecutar(rango, desde, hasta)));
+        }
+        return esperar(futuros);
+    }
+
+    private static <T> List<T> esperar(List<Future<T>> futuros) throws IOException {
+        List<T> resultados = new ArrayList<>();
+        try {
+            for (Future<T> futuro : futuros) {
+                resultados.add(futuro.get());
+            }
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof IOException) {
+                throw (IOException) causa;
+            }
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            throw new IOException(causa);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Caché columnar interrumpida");
+        }
+        return resultados;
+    }
+
+    // Primera pasada sobre un rango
+    private static Inferencia inferir(LectorRenglones lector, ValoresColumna[] valores) throws IOException {
+        int numColumnas = valores.length;
+        Inferencia inferencia = new Inferencia(numColumnas);
+        TokenizadorCSV tokenizador = new TokenizadorCSV();
+        while (lector.siguiente()) {
+            inferencia.renglones++;
+            int numCampos = tokenizador.tokenizar(lector.buffer(), lector.inicio(), lector.fin());
+            for (int c = 0; c < Math.min(numCampos, numColumnas); c++) {
+                double numero = tokenizador.numero(c);
+                if (Double.isNaN(numero)) {
+                    // Un campo vacío no impide guardar la columna como números
+                    if (tokenizador.fin(c) > tokenizador.inicio(c)) {
+                        inferencia.noNumerica[c] = true;
+                    }
+                } else if (numero != Math.rint(numero) || Math.abs(numero) > MAX_LARGO_EXACTO) {
+                    inferencia.noLarga[c] = true;
+                    inferencia.noEntera[c] = true;
+                } else if (numero <= ENTERO_VACIO || numero > Integer.MAX_VALUE) {
+                    inferencia.noEntera[c] = true;
+                }
+
+                // Con comillas duplicadas el valor no coincide con sus bytes, que es lo que se compara
+                if (tokenizador.conEscapes(c)) {
+                    valores[c].descartada = true;
+                } else if (!valores[c].descartada) {
+                    valores[c].agregar(new String(tokenizador.buffer(), tokenizador.inicio(c),
+                            tokenizador.fin(c) - tokenizador.inicio(c), StandardCharsets.ISO_8859_1), numero);
+                }
+            }
+        }
+        return inferencia;
+    }
+
+    // Segunda pasada sobre un rango: escribe sus valores y calcula sus estadísticas
+    private static EstadisticasRango escribirRango(LectorRenglones lector, long primerRenglon, long finRenglones,
+            int renglonesPorGrupo, Tipo[] tipos, List<Map<String, Integer>> codigos, long posicionRenglones,
+            long[] posicionesColumna, FileChannel destino) throws IOException {
+        int numColumnas = tipos.length;
+        int primerGrupo = (int) (primerRenglon / renglonesPorGrupo);
+        int numGrupos = finRenglones == primerRenglon ? 0
+                : (int) ((finRenglones - 1) / renglonesPorGrupo) - primerGrupo + 1;
+        EstadisticasRango estadisticas = new EstadisticasRango(primerGrupo, numGrupos, numColumnas);
+
+        ByteBuffer renglones = ByteBuffer.allocate(RENGLONES_POR_ESCRITURA * Long.BYTES);
+        ByteBuffer[] valores = new ByteBuffer[numColumnas];
+        for (int c = 0; c < numColumnas; c++) {
+            valores[c] = ByteBuffer.allocate(RENGLONES_POR_ESCRITURA * tipos[c].ancho);
+        }
+
+        TokenizadorCSV tokenizador = new TokenizadorCSV();
+        long renglon = primerRenglon;
+        long escritos = primerRenglon;
+        while (renglon < finRenglones && lector.siguiente()) {
+            int numCampos = tokenizador.tokenizar(lector.buffer(), lector.inicio(), lector.fin());
+            int grupo = (int) (renglon / renglonesPorGrupo) - primerGrupo;
+            renglones.putLong(lector.posicionRenglon());
+
+            for (int c = 0; c < numColumnas; c++) {
+                double valor;
+                switch (tipos[c]) {
+                    case ENTERO: {
+                        valor = tokenizador.numero(c);
+                        valores[c].putInt(Double.isNaN(valor) ? ENTERO_VACIO : (int) valor);
+                        break;
+                    }
+                    case LARGO: {
+                        valor = tokenizador.numero(c);
+                        valores[c].putLong(Double.isNaN(valor) ? LARGO_VACIO : (long) valor);
+                        break;
+                    }
+                    case REAL: {
+                        valor = tokenizador.numero(c);
+                        valores[c].putDouble(valor);
+                        break;
+                    }
+                    case DICCIONARIO: {
+                        int codigo = -1;
+                        if (c < numCampos) {
+                            Integer encontrado = codigos.get(c).get(new String(tokenizador.buffer(),
+                                    tokenizador.inicio(c), tokenizador.fin(c) - tokenizador.inicio(c),
+                                    StandardCharsets.ISO_8859_1));
+                            if (encontrado == null) {
+                                throw new IOException("El archivo cambió mientras se construía la caché columnar");
+                            }
+                            codigo = encontrado;
+                        }
+                        valores[c].putInt(codigo);
+                        valor = codigo < 0 ? Double.NaN : codigo;
+                        break;
+                    }
+                    default:
+                        continue;
+                }
+                if (!Double.isNaN(valor)) {
+                    estadisticas.minimos[c][grupo] = Math.min(estadisticas.minimos[c][grupo], valor);
+                    estadisticas.maximos[c][grupo] = Math.max(estadisticas.maximos[c][grupo], valor);
+                }
+            }
+
+            renglon++;
+            if (!renglones.hasRemaining()) {
+                vaciar(renglones, valores, escritos, tipos, posicionRenglones, posicionesColumna, destino);
+                escritos = renglon;
+            }
+        }
+        if (renglon != finRenglones) {
+            throw new IOException("El archivo cambió mientras se construía la caché columnar");
+        }
+        vaciar(renglones, valores, escritos, tipos, posicionRenglones, posicionesColumna, destino);
+        return estadisticas;
+    }
+
+    // Escribe los renglones acumulados, que empiezan en el renglón indicado, en su lugar de cada columna
+    private static void vaciar(ByteBuffer renglones, ByteBuffer[] valores, long primerRenglon, Tipo[] tipos,
+            long posicionRenglones, long[] posicionesColumna, FileChannel destino) throws IOException {
+        escribir(renglones, posicionRenglones + primerRenglon * Long.BYTES, destino);
+        for (int c = 0; c < tipos.length; c++) {
+            if (tipos[c] != Tipo.NINGUNO) {
+                escribir(valores[c], posicionesColumna[c] + primerRenglon * tipos[c].ancho, destino);
+            }
+        }
+    }
+
+    private static void escribir(ByteBuffer datos, long posicion, FileChannel destino) throws IOException {
+        datos.flip();
+        while (datos.hasRemaining()) {
+            destino.write(datos, posicion + datos.position());
+        }
+        datos.clear();
+    }
+
+    /**
+     * Carga los metadatos de la caché si corresponde al tamaño y la fecha de
+     * modificación actuales del CSV.
+     */
+    private static CacheColumnar cargar(File csv, File archivoCache) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivoCache.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA);
+            while (cabecera.hasRemaining()) {
+                if (canal.read(cabecera, cabecera.position()) < 0) {
+                    return null;
+                }
+            }
+            cabecera.flip();
+            if (cabecera.getInt() != MAGIA || cabecera.getInt() != VERSION) {
+                return null;
+            }
+            // Verificar que el CSV no haya cambiado desde que se construyó la caché
+            if (cabecera.getLong() != csv.length() || cabecera.getLong() != csv.lastModified()) {
+                return null;
+            }
+            long posicionMetadatos = cabecera.getLong();
+            if (posicionMetadatos < CABECERA || posicionMetadatos >= canal.size()) {
+                return null;
+            }
+
+            DataInputStream entrada = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(canal.position(posicionMetadatos)), 64 * 1024));
+            long numRenglones = entrada.readLong();
+            int renglonesPorGrupo = entrada.readInt();
+            long posicionRenglones = entrada.readLong();
+            int numColumnas = entrada.readInt();
+            String[] columnas = new String[numColumnas];
+            Tipo[] tipos = new Tipo[numColumnas];
+            long[] posicionesColumna = new long[numColumnas];
+            byte[][][] diccionarios = new byte[numColumnas][][];
+            double[][] numerosDiccionario = new double[numColumnas][];
+            for (int c = 0; c < numColumnas; c++) {
+                columnas[c] = entrada.readUTF();
+                tipos[c] = Tipo.values()[entrada.readByte()];
+                posicionesColumna[c] = entrada.readLong();
+                if (tipos[c] == Tipo.DICCIONARIO) {
+                    int numValores = entrada.readInt();
+                    diccionarios[c] = new byte[numValores][];
+                    numerosDiccionario[c] = new double[numValores];
+                    for (int i = 0; i < numValores; i++) {
+                        diccionarios[c][i] = new byte[entrada.readInt()];
+                        entrada.readFully(diccionarios[c][i]);
+                        numerosDiccionario[c][i] = entrada.readDouble();
+                    }
+                }
+            }
+
+            int numGrupos = (int) ((numRenglones + renglonesPorGrupo - 1) / renglonesPorGrupo);
+            double[][] minimos = new double[numColumnas][];
+            double[][] maximos = new double[numColumnas][];
+            for (int c = 0; c < numColumnas; c++) {
+                if (tipos[c] != Tipo.NINGUNO) {
+                    minimos[c] = new double[numGrupos];
+                    maximos[c] = new double[numGrupos];
+                    for (int g = 0; g < numGrupos; g++) {
+                        minimos[c][g] = entrada.readDouble();
+                        maximos[c][g] = entrada.readDouble();
+                    }
+                }
+            }
+            return new CacheColumnar(archivoCache, numRenglones, renglonesPorGrupo, columnas, tipos,
+                    posicionRenglones, posicionesColumna, diccionarios, numerosDiccionario, minimos, maximos);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Consultas
+    // ---------------------------------------------------------------------
+
+    /**
+     * Busca los renglones que cumplen una consulta. Los grupos cuyas
+     * estadísticas muestran que ningún renglón puede cumplirla no se leen.
+     *
+     * @param consulta La consulta analizada contra las columnas de la caché
+     *                 (ver {@link Consulta#analizar}).
+     * @return Las posiciones en bytes del inicio de cada renglón que cumple, en
+     *         orden, o {@code null} si la consulta usa una columna que no se
+     *         guardó o la compara de una forma que su tipo no permite.
+     * @throws IOException Si ocurre un error al leer la caché.
+     */
+    public long[] filtrar(Consulta.Nodo consulta) throws IOException {
+        Condicion condicion = condicion(consulta);
+        if (condicion == null) {
+            return null;
+        }
+
+        LongAdder omitidos = Metricas.contador(Metricas.GRUPOS_OMITIDOS);
+        ExecutorService executor = Executors.newFixedThreadPool(NumeroCPUs.numeroCPUs());
+        try (FileChannel canal = FileChannel.open(archivoCache.toPath(), StandardOpenOption.READ)) {
+            List<Future<long[]>> tareas = new ArrayList<>();
+            for (int g = 0; g < numGrupos(); g++) {
+                int grupo = g;
+                tareas.add(executor.submit(() -> {
+                    if (!condicion.puedeCumplir(grupo)) {
+                        omitidos.increment();
+                        return new long[0];
+                    }
+                    Grupo datos = new Grupo(canal, grupo);
+                    boolean[] cumple = condicion.evaluar(datos);
+                    return datos.posiciones(cumple);
+                }));
+            }
+
+            // Unir las posiciones de los grupos en orden
+            List<long[]> porGrupo = esperar(tareas);
+            int total = 0;
+            for (long[] posiciones : porGrupo) {
+                total += posiciones.length;
+            }
+            long[] resultado = new long[total];
+            int siguiente = 0;
+            for (long[] posiciones : porGrupo) {
+                System.arraycopy(posiciones, 0, resultado, siguiente, posiciones.length);
+                siguiente += posiciones.length;
+            }
+            return resultado;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Agrupa los renglones igual que {@link Agregacion#agrupar}, leyendo solo
+     * las columnas de la clave, el valor y los distintos.
+     *
+     * @param clave     El índice de la columna que define el grupo.
+     * @param valor     El índice de la columna numérica a resumir, o negativo.
+     * @param distintos El índice de la columna cuyos valores distintos se
+     *                  estiman, o negativo.
+     * @return La tabla con todos los grupos, o {@code null} si la clave o los
+     *         distintos no se guardaron con diccionario o el valor no se
+     *         guardó.
+     * @throws IOException Si ocurre un error al leer la caché.
+     */
+    Agregacion.TablaGrupos agrupar(int clave, int valor, int distintos) throws IOException {
+        if (tipos[clave] != Tipo.DICCIONARIO || (valor >= 0 && tipos[valor] == Tipo.NINGUNO)
+                || (distintos >= 0 && tipos[distintos] != Tipo.DICCIONARIO)) {
+            return null;
+        }
+
+        // Hash de cada valor distinto, el mismo que calcula Agregacion sobre el campo
+        long[] hashes = null;
+        if (distintos >= 0) {
+            byte[][] diccionario = diccionarios[distintos];
+            hashes = new long[diccionario.length];
+            for (int i = 0; i < diccionario.length; i++) {
+                hashes[i] = Agregacion.hash(diccionario[i], 0, diccionario[i].length);
+            }
+        }
+        long[] hashesDistintos = hashes;
+        byte[][] claves = diccionarios[clave];
+
+        Agregacion.ReservaTablas reserva = new Agregacion.ReservaTablas(distintos >= 0);
+        ExecutorService executor = Executors.newFixedThreadPool(NumeroCPUs.numeroCPUs());
+        try (FileChannel canal = FileChannel.open(archivoCache.toPath(), StandardOpenOption.READ)) {
+            List<Future<Void>> tareas = new ArrayList<>();
+            for (int g = 0; g < numGrupos(); g++) {
+                int grupo = g;
+                tareas.add(executor.submit(() -> {
+                    Grupo datos = new Grupo(canal, grupo);
+                    int[] codigosClave = datos.codigos(clave);
+                    double[] valores = valor >= 0 ? datos.numeros(valor) : null;
+                    int[] codigosDistintos = distintos >= 0 ? datos.codigos(distintos) : null;
+
+                    Agregacion.TablaGrupos tabla = reserva.tomar();
+                    try {
+                        // Grupo de la tabla de cada código de la clave, más uno
+                        int[] grupos = new int[claves.length];
+                        for (int i = 0; i < codigosClave.length; i++) {
+                            int codigo = codigosClave[i];
+                            if (codigo < 0) {
+                                continue;
+                            }
+                            if (grupos[codigo] == 0) {
+                                grupos[codigo] = tabla.grupo(claves[codigo], 0, claves[codigo].length) + 1;
+                            }
+                            int g2 = grupos[codigo] - 1;
+                            tabla.conteos[g2]++;
+                            if (valores != null && !Double.isNaN(valores[i])) {
+                                tabla.acumular(g2, valores[i]);
+                            }
+                            if (codigosDistintos != null && codigosDistintos[i] >= 0) {
+                                tabla.observar(g2, hashesDistintos[codigosDistintos[i]]);
+                            }
+                        }
+                    } finally {
+                        reserva.devolver(tabla);
+                    }
+                    return null;
+                }));
+            }
+            esperar(tareas);
+            return reserva.combinar();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Condición de una consulta evaluada sobre las columnas de un grupo a la
+     * vez.
+     */
+    private abstract static class Condicion {
+        /**
+         * @return {@code false} si las estadísticas muestran que ningún renglón
+         *         del grupo cumple la condición.
+         */
+        abstract boolean puedeCumplir(int grupo);
+
+        /**
+         * @return Si cada renglón del grupo cumple la condición.
+         */
+        abstract boolean[] evaluar(Grupo grupo) throws IOException;
+    }
+
+    // Convierte el árbol de la consulta en condiciones sobre las columnas, o null si alguna no se puede evaluar
+    private Condicion condicion(Consulta.Nodo nodo) {
+        if (nodo instanceof Consulta.Y || nodo instanceof Consulta.O) {
+            boolean y = nodo instanceof Consulta.Y;
+            Condicion a = condicion(y ? ((Consulta.Y) nodo).izquierdo : ((Consulta.O) nodo).izquierdo);
+            Condicion b = condicion(y ? ((Consulta.Y) nodo).derecho : ((Consulta.O) nodo).derecho);
+            if (a == null || b == null) {
+                return null;
+            }
+            return y ? new Conjuncion(a, b) : new Disyuncion(a, b);
+        }
+        if (nodo instanceof Consulta.No) {
+            Condicion negada = condicion(((Consulta.No) nodo).negado);
+            return negada == null ? null : new Negacion(negada);
+        }
+
+        Consulta.Comparacion comparacion = (Consulta.Comparacion) nodo;
+        Tipo tipo = tipos[comparacion.columna];
+        if (comparacion.operador == Consulta.Operador.EN_TEXTOS) {
+            if (tipo != Tipo.DICCIONARIO) {
+                return null;
+            }
+            // Los textos que no aparecen en el archivo no tienen código y nunca se cumplen
+            boolean[] buscados = new boolean[diccionarios[comparacion.columna].length];
+            Map<String, Integer> codigosColumna = codigos.get(comparacion.columna);
+            List<Integer> codigosBuscados = new ArrayList<>();
+            for (byte[] texto : comparacion.textos) {
+                Integer codigo = codigosColumna.get(new String(texto, StandardCharsets.ISO_8859_1));
+                if (codigo != null) {
+                    buscados[codigo] = true;
+                    codigosBuscados.add(codigo);
+                }
+            }
+            return new Pertenencia(comparacion.columna, buscados, codigosBuscados);
+        }
+        return tipo == Tipo.NINGUNO ? null : new Numerica(comparacion);
+    }
+
+    private static final class Conjuncion extends Condicion {
+        private final Condicion a;
+        private final Condicion b;
+
+        Conjuncion(Condicion a, Condicion b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        boolean puedeCumplir(int grupo) {
+            return a.puedeCumplir(grupo) && b.puedeCumplir(grupo);
+        }
+
+        @Override
+        boolean[] evaluar(Grupo grupo) throws IOException {
+            boolean[] cumple = a.evaluar(grupo);
+            boolean alguno = false;
+            for (boolean valor : cumple) {
+                alguno |= valor;
+            }
+            // Sin ningún renglón que cumpla la primera no hace falta leer las columnas de la segunda
+            if (!alguno) {
+                return cumple;
+            }
+            boolean[] otra = b.evaluar(grupo);
+            for (int i = 0; i < cumple.length; i++) {
+                cumple[i] &= otra[i];
+            }
+            return cumple;
+        }
+    }
+
+    private static final class Disyuncion extends Condicion {
+        private final Condicion a;
+        private final Condicion b;
+
+        Disyuncion(Condicion a, Condicion b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        boolean puedeCumplir(int grupo) {
+            return a.puedeCumplir(grupo) || b.puedeCumplir(grupo);
+        }
+
+        @Override
+        boolean[] evaluar(Grupo grupo) throws IOException {
+            // Una de las dos puede descartarse por las estadísticas sin leer sus columnas
+            if (!a.puedeCumplir(grupo.numero)) {
+                return b.evaluar(grupo);
+            }
+            boolean[] cumple = a.evaluar(grupo);
+            if (b.puedeCumplir(grupo.numero)) {
+                boolean[] otra = b.evaluar(grupo);
+                for (int i = 0; i < cumple.length; i++) {
+                    cumple[i] |= otra[i];
+                }
+            }
+            return cumple;
+        }
+    }
+
+    private static final class Negacion extends Condicion {
+        private final Condicion negada;
+
+        Negacion(Condicion negada) {
+            this.negada = negada;
+        }
+
+        @Override
+        boolean puedeCumplir(int grupo) {
+            // Los campos vacíos cumplen la negación de cualquier comparación
+            return true;
+        }
+
+        @Override
+        boolean[] evaluar(Grupo grupo) throws IOException {
+            boolean[] cumple = negada.puedeCumplir(grupo.numero) ? negada.evaluar(grupo) : new boolean[grupo.filas];
+            for (int i = 0; i < cumple.length; i++) {
+                cumple[i] = !cumple[i];
+            }
+            return cumple;
+        }
+    }
+
+    /**
+     * Pertenencia a una lista de textos en una columna con diccionario.
+     */
+    private final class Pertenencia extends Condicion {
+        private final int columna;
+        private final boolean[] buscados;
+        private final List<Integer> codigosBuscados;
+
+        Pertenencia(int columna, boolean[] buscados, List<Integer> codigosBuscados) {
+            this.columna = columna;
+            this.buscados = buscados;
+            this.codigosBuscados = codigosBuscados;
+        }
+
+        @Override
+        boolean puedeCumplir(int grupo) {
+            for (int codigo : codigosBuscados) {
+                if (codigo >= minimos[columna][grupo] && codigo <= maximos[columna][grupo]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        boolean[] evaluar(Grupo grupo) throws IOException {
+            int[] valores = grupo.codigos(columna);
+            boolean[] cumple = new boolean[valores.length];
+            for (int i = 0; i < valores.length; i++) {
+                cumple[i] = valores[i] >= 0 && buscados[valores[i]];
+            }
+            return cumple;
+        }
+    }
+
+    /**
+     * Comparación numérica. En una columna con diccionario se compara el valor
+     * numérico de cada código, y sus estadísticas no sirven para omitir grupos.
+     */
+    private final class Numerica extends Condicion {
+        private final Consulta.Comparacion comparacion;
+
+        Numerica(Consulta.Comparacion comparacion) {
+            this.comparacion = comparacion;
+        }
+
+        @Override
+        boolean puedeCumplir(int grupo) {
+            int c = comparacion.columna;
+            if (tipos[c] == Tipo.DICCIONARIO) {
+                return true;
+            }
+            double minimo = minimos[c][grupo];
+            double maximo = maximos[c][grupo];
+            double[] numeros = comparacion.numeros;
+            switch (comparacion.operador) {
+                case EN_NUMEROS:
+                    for (double numero : numeros) {
+                        if (numero >= minimo && numero <= maximo) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case MENOR:
+                    return minimo < numeros[0];
+                case MENOR_IGUAL:
+                    return minimo <= numeros[0];
+                case MAYOR:
+                    return maximo > numeros[0];
+                case MAYOR_IGUAL:
+                    return maximo >= numeros[0];
+                default:
+                    return maximo >= numeros[0] && minimo <= numeros[1];
+            }
+        }
+
+        @Override
+        boolean[] evaluar(Grupo grupo) throws IOException {
+            double[] valores = grupo.numeros(comparacion.columna);
+            double[] numeros = comparacion.numeros;
+            boolean[] cumple = new boolean[valores.length];
+            switch (comparacion.operador) {
+                case EN_NUMEROS:
+                    for (int i = 0; i < valores.length; i++) {
+                        for (double numero : numeros) {
+                            if (valores[i] == numero) {
+                                cumple[i] = true;
+                                break;
+                            }
+                        }
+                    }
+                    break;
+                case MENOR:
+                    for (int i = 0; i < valores.length; i++) {
+                        cumple[i] = valores[i] < numeros[0];
+                    }
+                    break;
+                case MENOR_IGUAL:
+                    for (int i = 0; i < valores.length; i++) {
+                        cumple[i] = valores[i] <= numeros[0];
+                    }
+                    break;
+                case MAYOR:
+                    for (int i = 0; i < valores.length; i++) {
+                        cumple[i] = valores[i] > numeros[0];
+                    }
+                    break;
+                case MAYOR_IGUAL:
+                    for (int i = 0; i < valores.length; i++) {
+                        cumple[i] = valores[i] >= numeros[0];
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < valores.length; i++) {
+                        cumple[i] = valores[i] >= numeros[0] && valores[i] <= numeros[1];
+                    }
+            }
+            return cumple;
+        }
+    }
+
+    /**
+     * Columnas de un grupo de renglones, mapeadas en memoria la primera vez
+     * que se piden. Lo usa un solo hilo.
+     */
+    private final class Grupo {
+        final int numero;
+        final int filas;
+        private final FileChannel canal;
+        private final double[][] numeros = new double[columnas.length][];
+        private final int[][] codigosLeidos = new int[columnas.length][];
+
+        Grupo(FileChannel canal, int numero) {
+            this.canal = canal;
+            this.numero = numero;
+            this.filas = (int) Math.min(renglonesPorGrupo, numRenglones - (long) numero * renglonesPorGrupo);
+        }
+
+        private ByteBuffer mapear(long posicion, int ancho) throws IOException {
+            long bytes = (long) filas * ancho;
+            Metricas.contador(Metricas.BYTES_LEIDOS).add(bytes);
+            return canal.map(FileChannel.MapMode.READ_ONLY, posicion + (long) numero * renglonesPorGrupo * ancho,
+                    bytes);
+        }
+
+        // Valores numéricos de una columna; los campos vacíos o no numéricos son NaN
+        double[] numeros(int c) throws IOException {
+            if (numeros[c] != null) {
+                return numeros[c];
+            }
+            double[] valores = new double[filas];
+            if (tipos[c] == Tipo.DICCIONARIO) {
+                int[] codigosColumna = codigos(c);
+                for (int i = 0; i < filas; i++) {
+                    valores[i] = codigosColumna[i] < 0 ? Double.NaN : numerosDiccionario[c][codigosColumna[i]];
+                }
+            } else {
+                ByteBuffer datos = mapear(posicionesColumna[c], tipos[c].ancho);
+                for (int i = 0; i < filas; i++) {
+                    if (tipos[c] == Tipo.ENTERO) {
+                        int valor = datos.getInt(i * 4);
+                        valores[i] = valor == ENTERO_VACIO ? Double.NaN : valor;
+                    } else if (tipos[c] == Tipo.LARGO) {
+                        long valor = datos.getLong(i * 8);
+                        valores[i] = valor == LARGO_VACIO ? Double.NaN : valor;
+                    } else {
+                        valores[i] = datos.getDouble(i * 8);
+                    }
+                }
+            }
+            numeros[c] = valores;
+            return valores;
+        }
+
+        // Códigos de una columna con diccionario; -1 si falta el campo
+        int[] codigos(int c) throws IOException {
+            if (codigosLeidos[c] == null) {
+                int[] valores = new int[filas];
+                mapear(posicionesColumna[c], Integer.BYTES).asIntBuffer().get(valores);
+                codigosLeidos[c] = valores;
+            }
+            return codigosLeidos[c];
+        }
+
+        // Posiciones de los renglones que cumplen
+        long[] posiciones(boolean[] cumple) throws IOException {
+            int total = 0;
+            for (boolean valor : cumple) {
+                if (valor) {
+                    total++;
+                }
+            }
+            long[] posiciones = new long[total];
+            if (total == 0) {
+                return posiciones;
+            }
+            ByteBuffer renglones = mapear(posicionRenglones, Long.BYTES);
+            int siguiente = 0;
+            for (int i = 0; i < cumple.length; i++) {
+                if (cumple[i]) {
+                    posiciones[siguiente++] = renglones.getLong(i * 8);
+                }
+            }
+            return posiciones;
+        }
+    }
+}
@@ -0,0 +1,645 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase que mantiene en memoria un catálogo de los archivos y carpetas de un
+ * árbol de directorios (nombre, ruta, tamaño y fecha de modificación), para que
+ * {@link Buscar} y {@link Mostrar} respondan sin recorrer el disco cada vez.
+ *
+ * <p>
+ * El catálogo se guarda en una instantánea binaria compacta en el directorio
+ * temporal del sistema, de modo que una ejecución posterior lo carga sin
+ * recorrer el árbol. Mientras la JVM está activa, un hilo en segundo plano lo
+ * mantiene al día con los eventos de {@link WatchService} y, al cargarlo de una
+ * instantánea, lo concilia una vez con el disco. Los cambios se guardan en la
+ * instantánea cuando el árbol deja de cambiar unos segundos, no tras cada
+ * evento.
+ * </p>
+ *
+ * <p>
+ * Catalogar recorre el árbol completo y registra una vigilancia por carpeta,
+ * así que no se hace de forma implícita: se activa con
+ * {@link #activar(boolean)} o con la propiedad {@code -Dconcurrente.catalogo=true}.
+ * </p>
+ */
+public class CatalogoArchivos {
+
+    private static final int MAGIA = 0x43415441; // "CATA"
+    private static final int VERSION = 1;
+
+    // Tiempo sin eventos antes de guardar la instantánea, y máximo sin guardarla
+    // mientras los eventos no se detienen
+    private static final long ESPERA_GUARDADO_MS = 2_000;
+    private static final long MAX_SIN_GUARDAR_MS = 30_000;
+
+    // Orden de los resultados: por nombre y luego por ruta
+    private static final Comparator<Entrada> ORDEN = (a, b) -> {
+        int orden = a.nombreMinusculas.compareTo(b.nombreMinusculas);
+        return orden != 0 ? orden : a.ruta.toString().compareTo(b.ruta.toString());
+    };
+
+    private static volatile boolean activado = Boolean.getBoolean("concurrente.catalogo");
+
+    // Catálogos abiertos en esta JVM, por directorio raíz
+    private static final Map<Path, CatalogoArchivos> CATALOGOS = new ConcurrentHashMap<>();
+
+    /**
+     * Datos de un archivo o carpeta del catálogo.
+     */
+    public static class Entrada {
+        public final Path ruta;
+        public final String nombre;
+        final String nombreMinusculas;
+        public final long tamano;
+        public final long fechaModificacion;
+        public final boolean directorio;
+
+        Entrada(Path ruta, long tamano, long fechaModificacion, boolean directorio) {
+            this.ruta = ruta;
+            this.nombre = ruta.getFileName() == null ? ruta.toString() : ruta.getFileName().toString();
+            this.nombreMinusculas = nombre.toLowerCase();
+            this.tamano = tamano;
+            this.fechaModificacion = fechaModificacion;
+            this.directorio = directorio;
+        }
+
+        // Clave del índice por nombre: nombre en minúsculas seguido de la ruta para que sea única
+        String claveNombre() {
+            return nombreMinusculas + '\u0000' + ruta;
+        }
+    }
+
+    private final Path raiz;
+    private final File archivoInstantanea;
+    private final Map<Path, Entrada> porRuta = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Entrada> porNombre = new ConcurrentSkipListMap<>();
+    private final Map<Path, Set<Path>> hijos = new ConcurrentHashMap<>();
+    private final IndiceTrigramas<Entrada> trigramas = new IndiceTrigramas<>();
+    private final Map<WatchKey, Path> directoriosVigilados = new ConcurrentHashMap<>();
+    private volatile boolean disponible;
+    private volatile boolean listo;
+    // Falso si alguna carpeta no se pudo vigilar; entonces el catálogo puede quedar desactualizado
+    private volatile boolean vigilanciaCompleta = true;
+    private final CountDownLatch construido = new CountDownLatch(1);
+    private volatile WatchService vigilante;
+
+    private CatalogoArchivos(Path raiz) {
+        this.raiz = raiz;
+        this.archivoInstantanea = new File(System.getProperty("java.io.tmpdir"),
+                "catalogo_" + Integer.toHexString(raiz.toString().hashCode()) + ".bin");
+    }
+
+    /**
+     * Activa o desactiva la creación de catálogos. Los catálogos ya abiertos
+     * se siguen usando.
+     *
+     * @param activar {@code true} para que las búsquedas cataloguen los
+     *                directorios.
+     */
+    public static void activar(boolean activar) {
+        activado = activar;
+    }
+
+    /**
+     * @return {@code true} si las búsquedas deben crear catálogos.
+     */
+    public static boolean activado() {
+        return activado;
+    }
+
+    /**
+     * Obtiene el catálogo que cubre un directorio. Si ya hay uno abierto para
+     * ese directorio o para uno de sus ancestros, se reutiliza. En caso
+     * contrario se crea: se carga su instantánea si existe, o se construye en
+     * segundo plano.
+     *
+     * @param directorio El directorio a catalogar.
+     * @return El catálogo que contiene al directorio.
+     */
+    public static CatalogoArchivos para(Path directorio) {
+        CatalogoArchivos existente = existente(directorio);
+        if (existente != null) {
+            return existente;
+        }
+        Path normalizado = directorio.toAbsolutePath().normalize();
+        return CATALOGOS.computeIfAbsent(normalizado, raiz -> {
+            CatalogoArchivos catalogo = new CatalogoArchivos(raiz);
+            catalogo.iniciar();
+            return catalogo;
+        });
+    }
+
+    /**
+     * Obtiene el catálogo abierto que cubre un directorio, sin crear uno nuevo.
+     *
+     * @param directorio El directorio.
+     * @return El catálogo que contiene al directorio, o {@code null} si no hay.
+     */
+    public static CatalogoArchivos existente(Path directorio) {
+        Path normalizado = directorio.toAbsolutePath().normalize();
+        for (CatalogoArchivos catalogo : CATALOGOS.values()) {
+            if (normalizado.startsWith(catalogo.raiz)) {
+                return catalogo;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code true} si el catálogo tiene datos, aunque vengan de una
+     *         instantánea que todavía no se ha conciliado con el disco.
+     */
+    public boolean disponible() {
+        return disponible;
+    }
+
+    /**
+     * @return {@code true} si el catálogo ya se concilió con el disco y se
+     *         mantiene al día con los eventos del sistema de archivos. Es
+     *         {@code false} si alguna carpeta no se pudo vigilar (por ejemplo,
+     *         al alcanzar el límite de vigilancias del sistema).
+     */
+    public boolean listo() {
+        return listo && vigilanciaCompleta;
+    }
+
+    /**
+     * Espera a que termine el primer recorrido del árbol, con éxito o no.
+     *
+     * @throws InterruptedException Si el hilo se interrumpe mientras espera.
+     */
+    public void esperarConstruccion() throws InterruptedException {
+        construido.await();
+    }
+
+    /**
+     * Busca la primera entrada (en orden alfabético) de un archivo dentro de un
+     * directorio cuyo nombre contenga el texto dado, sin distinguir mayúsculas.
+     *
+     * @param directorio El directorio donde se busca (incluye subdirectorios).
+     * @param texto      El texto que debe contener el nombre.
+     * @return La entrada encontrada, o {@code null} si no hay ninguna.
+     */
+    public Entrada primeraCoincidencia(Path directorio, String texto) {
+        List<Entrada> encontradas = buscar(directorio, texto, 1);
+        return encontradas.isEmpty() ? null : encontradas.get(0);
+    }
+
+    /**
+     * Busca los archivos de un directorio cuyo nombre contenga el texto dado, sin
+     * distinguir mayúsculas. Con tres o más caracteres se usa el
+     * {@link IndiceTrigramas}; con menos se revisan todos los nombres.
+     *
+     * @param directorio El directorio donde se busca (incluye subdirectorios).
+     * @param texto      El texto que debe contener el nombre.
+     * @param limite     El número máximo de resultados.
+     * @return Las entradas encontradas, ordenadas por nombre.
+     */
+    public List<Entrada> buscar(Path directorio, String texto, int limite) {
+        Path dentroDe = directorio.toAbsolutePath().normalize();
+        String buscado = texto.toLowerCase();
+        List<Entrada> resultado = new ArrayList<>();
+
+        if (buscado.length() >= 3) {
+            List<Entrada> candidatos = trigramas.buscar(buscado);
+            if (limite == 1) {
+                // Solo se necesita la menor: basta una pasada, sin ordenar
+                Entrada menor = null;
+                for (Entrada entrada : candidatos) {
+                    if (!entrada.directorio && entrada.ruta.startsWith(dentroDe)
+                            && (menor == null || ORDEN.compare(entrada, menor) < 0)) {
+                        menor = entrada;
+                    }
+                }
+                if (menor != null) {
+                    resultado.add(menor);
+                }
+                return resultado;
+            }
+            for (Entrada entrada : candidatos) {
+                if (!entrada.directorio && entrada.ruta.startsWith(dentroDe)) {
+                    resultado.add(entrada);
+                }
+            }
+            // Mismo orden que el recorrido del índice por nombre
+            resultado.sort(ORDEN);
+            return resultado.size() > limite ? new ArrayList<>(resultado.subList(0, limite)) : resultado;
+        }
+
+        for (Entrada entrada : porNombre.values()) {
+            if (!entrada.directorio && entrada.nombreMinusculas.contains(buscado)
+                    && entrada.ruta.startsWith(dentroDe)) {
+                resultado.add(entrada);
+                if (resultado.size() >= limite) {
+                    break;
+                }
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca los archivos y carpetas cuyo nombre empieza con el prefijo dado, sin
+     * distinguir mayúsculas.
+     *
+     * @param prefijo El prefijo del nombre.
+     * @return Las entradas encontradas, ordenadas por nombre.
+     */
+    public List<Entrada> buscarPorPrefijo(String prefijo) {
+        String desde = prefijo.toLowerCase();
+        return new ArrayList<>(porNombre.subMap(desde, true, desde + Character.MAX_VALUE, true).values());
+    }
+
+    /**
+     * Devuelve el contenido inmediato de un directorio.
+     *
+     * @param directorio El directorio.
+     * @return Las entradas de sus archivos y subcarpetas, o una lista vacía si
+     *         el directorio no está en el catálogo.
+     */
+    public List<Entrada> contenido(Path directorio) {
+        Set<Path> rutas = hijos.get(directorio.toAbsolutePath().normalize());
+        if (rutas == null) {
+            return Collections.emptyList();
+        }
+        List<Entrada> resultado = new ArrayList<>();
+        for (Path ruta : rutas) {
+            Entrada entrada = porRuta.get(ruta);
+            if (entrada != null) {
+                resultado.add(entrada);
+            }
+        }
+        resultado.sort((a, b) -> a.nombre.compareTo(b.nombre));
+        return resultado;
+    }
+
+    /**
+     * @return El número de archivos y carpetas en el catálogo.
+     */
+    public int tamano() {
+        return porRuta.size();
+    }
+
+    /**
+     * Deja de vigilar el árbol y descarta el catálogo, de modo que la siguiente
+     * llamada a {@link #para} crea uno nuevo a partir de la instantánea. Los
+     * cambios que aún no se guardaban en la instantánea se pierden.
+     *
+     * @throws IOException Si ocurre un error al cerrar el vigilante.
+     */
+    void cerrar() throws IOException {
+        CATALOGOS.remove(raiz, this);
+        if (vigilante != null) {
+            vigilante.close();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Construcción y mantenimiento
+    // ---------------------------------------------------------------------
+
+    private void iniciar() {
+        disponible = cargarInstantanea();
+
+        Thread hilo = new Thread(() -> {
+            try {
+                vigilante = FileSystems.getDefault().newWatchService();
+                // Recorrer el disco: construye el catálogo o concilia la instantánea
+                conciliar();
+                disponible = true;
+                listo = true;
+                construido.countDown();
+                if (!vigilanciaCompleta) {
+                    System.err.println("No se pudieron vigilar todas las carpetas de " + raiz
+                            + "; las búsquedas se comprobarán en disco.");
+                }
+                guardarInstantanea();
+                procesarEventos();
+            } catch (IOException e) {
+                System.err.println("No se pudo mantener el catálogo de " + raiz + ": " + e.getMessage());
+            } finally {
+                construido.countDown();
+            }
+        }, "catalogo-" + raiz.getFileName());
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Recorre el árbol, agrega o actualiza cada entrada, registra cada
+     * directorio en el vigilante y elimina del catálogo lo que ya no existe.
+     */
+    private void conciliar() throws IOException {
+        Set<Path> vistas = new HashSet<>();
+        agregarArbol(raiz, vistas);
+
+        for (Path ruta : new ArrayList<>(porRuta.keySet())) {
+            if (!vistas.contains(ruta)) {
+                quitar(ruta);
+            }
+        }
+    }
+
+    private void agregarArbol(Path inicio, Set<Path> vistas) throws IOException {
+        Files.walkFileTree(inicio, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes atributos) {
+                agregar(dir, atributos);
+                if (vistas != null) {
+                    vistas.add(dir);
+                }
+                vigilar(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path archivo, BasicFileAttributes atributos) {
+                if (atributos.isSymbolicLink()) {
+                    atributos = seguirEnlace(archivo);
+                    if (atributos == null) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                }
+                agregar(archivo, atributos);
+                if (vistas != null) {
+                    vistas.add(archivo);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path archivo, IOException e) {
+                return FileVisitResult.CONTINUE; // Sin permisos o eliminado durante el recorrido
+            }
+        });
+    }
+
+    // Un enlace simbólico se cataloga con los atributos de su destino, pero nunca
+    // se recorre, para evitar ciclos; null si el enlace está roto
+    private static BasicFileAttributes seguirEnlace(Path enlace) {
+        try {
+            return Files.readAttributes(enlace, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void vigilar(Path dir) {
+        try {
+            WatchKey clave = dir.register(vigilante, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            directoriosVigilados.put(clave, dir);
+        } catch (IOException e) {
+            // Límite de vigilancias del sistema alcanzado: el directorio se catalogó, pero
+            // sus cambios no se verán, así que el catálogo deja de considerarse al día
+            vigilanciaCompleta = false;
+        }
+    }
+
+    private void agregar(Path ruta, BasicFileAttributes atributos) {
+        Entrada nueva = new Entrada(ruta, atributos.size(), atributos.lastModifiedTime().toMillis(),
+                atributos.isDirectory());
+        Entrada anterior = porRuta.put(ruta, nueva);
+        if (anterior != null) {
+            porNombre.remove(anterior.claveNombre());
+            trigramas.quitar(anterior);
+        }
+        porNombre.put(nueva.claveNombre(), nueva);
+        trigramas.agregar(nueva.nombreMinusculas, nueva);
+
+        Path padre = ruta.getParent();
+        if (padre != null && !ruta.equals(raiz)) {
+            hijos.computeIfAbsent(padre, p -> ConcurrentHashMap.newKeySet()).add(ruta);
+        }
+    }
+
+    private void quitar(Path ruta) {
+        Entrada anterior = porRuta.remove(ruta);
+        if (anterior == null) {
+            return;
+        }
+        porNombre.remove(anterior.claveNombre());
+        trigramas.quitar(anterior);
+        Path padre = ruta.getParent();
+        if (padre != null) {
+            Set<Path> hermanos = hijos.get(padre);
+            if (hermanos != null) {
+                hermanos.remove(ruta);
+            }
+        }
+
+        // Al quitar una carpeta se quita también su contenido
+        Set<Path> contenido = hijos.remove(ruta);
+        if (contenido != null) {
+            for (Path hijo : contenido) {
+                quitar(hijo);
+            }
+        }
+    }
+
+    /**
+     * Aplica los eventos del vigilante al catálogo hasta que termine la JVM. La
+     * instantánea se guarda cuando pasan {@link #ESPERA_GUARDADO_MS} sin
+     * eventos, o cada {@link #MAX_SIN_GUARDAR_MS} si no dejan de llegar.
+     */
+    private void procesarEventos() {
+        long primerCambioSinGuardar = -1;
+        while (true) {
+            WatchKey clave;
+            try {
+                clave = primerCambioSinGuardar < 0 ? vigilante.take()
+                        : vigilante.poll(ESPERA_GUARDADO_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            if (clave == null) {
+                // El árbol dejó de cambiar
+                guardarInstantanea();
+                primerCambioSinGuardar = -1;
+                continue;
+            }
+
+            Path dir = directoriosVigilados.get(clave);
+            boolean cambios = false;
+            for (WatchEvent<?> evento : clave.pollEvents()) {
+                if (evento.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Se perdieron eventos: volver a conciliar con el disco
+                    try {
+                        conciliar();
+                    } catch (IOException e) {
+                        System.err.println("Error al actualizar el catálogo: " + e.getMessage());
+                    }
+                    cambios = true;
+                    continue;
+                }
+                if (dir == null) {
+                    continue;
+                }
+
+                Path ruta = dir.resolve((Path) evento.context());
+                if (evento.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    quitar(ruta);
+                } else {
+                    try {
+                        BasicFileAttributes atributos = Files.readAttributes(ruta, BasicFileAttributes.class,
+                                LinkOption.NOFOLLOW_LINKS);
+                        if (atributos.isSymbolicLink()) {
+                            atributos = seguirEnlace(ruta);
+                            if (atributos == null) {
+                                quitar(ruta); // Enlace roto
+                            } else {
+                                agregar(ruta, atributos);
+                            }
+                        } else if (atributos.isDirectory() && evento.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                            agregarArbol(ruta, null);
+                        } else {
+                            agregar(ruta, atributos);
+                        }
+                    } catch (IOException e) {
+                        quitar(ruta); // Se eliminó antes de leer sus atributos
+                    }
+                }
+                cambios = true;
+            }
+
+            if (!clave.reset()) {
+                directoriosVigilados.remove(clave);
+            }
+            if (cambios) {
+                long ahora = System.currentTimeMillis();
+                if (primerCambioSinGuardar < 0) {
+                    primerCambioSinGuardar = ahora;
+                } else if (ahora - primerCambioSinGuardar >= MAX_SIN_GUARDAR_MS) {
+                    guardarInstantanea();
+                    primerCambioSinGuardar = -1;
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Instantánea en disco
+    // ---------------------------------------------------------------------
+
+    /**
+     * Escribe el catálogo ordenado por ruta. Cada ruta se guarda relativa a la
+     * raíz y solo con la parte que difiere de la ruta anterior.
+     */
+    private synchronized void guardarInstantanea() {
+        List<String> rutas = new ArrayList<>();
+        Map<String, Entrada> entradas = new HashMap<>();
+        for (Entrada entrada : porRuta.values()) {
+            String relativa = raiz.relativize(entrada.ruta).toString();
+            rutas.add(relativa);
+            entradas.put(relativa, entrada);
+        }
+        Collections.sort(rutas);
+
+        File temporal = new File(archivoInstantanea.getPath() + ".tmp");
+        try (DataOutputStream salida = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporal)))) {
+            salida.writeInt(MAGIA);
+            salida.writeInt(VERSION);
+            salida.writeUTF(raiz.toString());
+            salida.writeInt(rutas.size());
+
+            String anterior = "";
+            for (String ruta : rutas) {
+                int comun = 0;
+                int maximo = Math.min(anterior.length(), ruta.length());
+                while (comun < maximo && anterior.charAt(comun) == ruta.charAt(comun)) {
+                    comun++;
+                }
+                Entrada entrada = entradas.get(ruta);
+                salida.writeShort(Math.min(comun, Short.MAX_VALUE));
+                salida.writeUTF(ruta.substring(Math.min(comun, Short.MAX_VALUE)));
+                salida.writeLong(entrada.tamano);
+                salida.writeLong(entrada.fechaModificacion);
+                salida.writeBoolean(entrada.directorio);
+                anterior = ruta;
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar el catálogo: " + e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(temporal.toPath(), archivoInstantanea.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            temporal.delete();
+        }
+    }
+
+    private boolean cargarInstantanea() {
+        if (!archivoInstantanea.exists()) {
+            return false;
+        }
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(archivoInstantanea)))) {
+            if (entrada.readInt() != MAGIA || entrada.readInt() != VERSION
+                    || !entrada.readUTF().equals(raiz.toString())) {
+                return false;
+            }
+            int total = entrada.readInt();
+            String anterior = "";
+            for (int i = 0; i < total; i++) {
+                int comun = entrada.readShort();
+                String ruta = anterior.substring(0, comun) + entrada.readUTF();
+                long tamano = entrada.readLong();
+                long fechaModificacion = entrada.readLong();
+                boolean directorio = entrada.readBoolean();
+
+                Path absoluta = ruta.isEmpty() ? raiz : raiz.resolve(Paths.get(ruta));
+                Entrada nueva = new Entrada(absoluta, tamano, fechaModificacion, directorio);
+                porRuta.put(absoluta, nueva);
+                porNombre.put(nueva.claveNombre(), nueva);
+                trigramas.agregar(nueva.nombreMinusculas, nueva);
+                if (!absoluta.equals(raiz)) {
+                    hijos.computeIfAbsent(absoluta.getParent(), p -> ConcurrentHashMap.newKeySet()).add(absoluta);
+                }
+                anterior = ruta;
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Instantánea dañada: se descarta y se reconstruye
+            porRuta.clear();
+            porNombre.clear();
+            hijos.clear();
+            trigramas.limpiar();
+            return false;
+        }
+    }
+}
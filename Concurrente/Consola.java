@@ -0,0 +1,54 @@
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+/**
+ * Lectura de la entrada estándar compartida por todo el programa. Un solo
+ * {@link Scanner} lee {@code System.in}: si cada clase creara el suyo, el
+ * primero podría guardar en su buffer renglones destinados a otro, y al
+ * cerrarlo se cerraría {@code System.in} para todos.
+ *
+ * <p>
+ * Todo se lee por renglones completos, de modo que después de leer un número
+ * no queda un salto de línea pendiente para la siguiente pregunta.
+ * </p>
+ */
+public class Consola {
+
+    private static final Scanner ENTRADA = new Scanner(System.in);
+
+    /**
+     * Lee el siguiente renglón.
+     *
+     * @return El renglón sin el salto de línea, o una cadena vacía si la
+     *         entrada terminó.
+     */
+    public static synchronized String leerRenglon() {
+        try {
+            return ENTRADA.nextLine();
+        } catch (NoSuchElementException e) {
+            return "";
+        }
+    }
+
+    /**
+     * Lee un renglón que contiene un número entero.
+     *
+     * @return El número, o -1 si el renglón no es un número.
+     */
+    public static int leerEntero() {
+        try {
+            return Integer.parseInt(leerRenglon().trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Lee una respuesta de sí o no.
+     *
+     * @return {@code true} si la respuesta es "s" (sin importar mayúsculas).
+     */
+    public static boolean leerSiNo() {
+        return leerRenglon().trim().equalsIgnoreCase("s");
+    }
+}
@@ -0,0 +1,464 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Clase que compila una consulta escrita en un lenguaje pequeño de predicados a
+ * un árbol de {@link Predicado}s tipados, listo para evaluarse sobre cada
+ * renglón en una sola pasada del archivo.
+ *
+ * <p>
+ * Ejemplo:
+ * {@code streams > 1000000 AND region IN (mx, ar) AND danceability BETWEEN 0.6 AND 0.9}
+ * </p>
+ *
+ * <p>
+ * Gramática (las palabras clave no distinguen mayúsculas):
+ * </p>
+ *
+ * <pre>
+ * expresion   := termino ( OR termino )*
+ * termino     := factor ( AND factor )*
+ * factor      := NOT factor | '(' expresion ')' | comparacion
+ * comparacion := columna ( '=' | '!=' | '&lt;&gt;' | '&lt;' | '&lt;=' | '&gt;' | '&gt;=' ) valor
+ *              | columna [NOT] IN '(' valor ( ',' valor )* ')'
+ *              | columna [NOT] BETWEEN numero AND numero
+ * valor       := numero | palabra | 'texto' | "texto"
+ * </pre>
+ *
+ * <p>
+ * Las comparaciones de orden y {@code BETWEEN} son numéricas. {@code =},
+ * {@code !=} e {@code IN} son numéricas cuando todos los valores son números
+ * sin comillas, y de texto en caso contrario. Los números se leen
+ * directamente de los bytes del campo con {@link TokenizadorCSV#numero(int)}.
+ * </p>
+ *
+ * <p>
+ * La consulta se analiza primero a un árbol de {@link Nodo}s que usan solo
+ * cuatro comparaciones: pertenencia a una lista de números, pertenencia a una
+ * lista de textos, un intervalo numérico y sus negaciones. Con él se construye
+ * el predicado sobre el texto, y {@link CacheColumnar} lo evalúa sobre sus
+ * columnas.
+ * </p>
+ */
+public class Consulta {
+
+    // Números decimales que acepta TokenizadorCSV#numero; Double.parseDouble aceptaría
+    // también NaN, Infinity, sufijos como 1d y hexadecimales como 0x1p3
+    private static final Pattern NUMERO = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
+    private final List<String> simbolos;
+    private final String[] columnas;
+    private int pos;
+
+    private Consulta(List<String> simbolos, String[] columnas) {
+        this.simbolos = simbolos;
+        this.columnas = columnas;
+    }
+
+    /**
+     * Compila una consulta contra el encabezado de un archivo CSV.
+     *
+     * @param consulta El texto de la consulta.
+     * @param columnas Los nombres de las columnas del encabezado.
+     * @return El predicado equivalente a la consulta.
+     * @throws IllegalArgumentException Si la consulta tiene un error de sintaxis
+     *                                  o menciona una columna inexistente.
+     */
+    public static Predicado compilar(String consulta, String[] columnas) {
+        return predicado(analizar(consulta, columnas));
+    }
+
+    /**
+     * Analiza una consulta contra el encabezado de un archivo CSV sin
+     * convertirla todavía en predicado.
+     *
+     * @param consulta El texto de la consulta.
+     * @param columnas Los nombres de las columnas del encabezado.
+     * @return La raíz del árbol de la consulta.
+     * @throws IllegalArgumentException Si la consulta tiene un error de sintaxis
+     *                                  o menciona una columna inexistente.
+     */
+    static Nodo analizar(String consulta, String[] columnas) {
+        Consulta compilador = new Consulta(separarSimbolos(consulta), columnas);
+        Nodo raiz = compilador.expresion();
+        if (compilador.pos < compilador.simbolos.size()) {
+            throw new IllegalArgumentException("Símbolo inesperado: " + compilador.simbolos.get(compilador.pos));
+        }
+        return raiz;
+    }
+
+    /**
+     * Crea el predicado de igualdad de texto sobre una columna, equivalente a la
+     * condición de {@link Filtrar#filtrarPorColumna}.
+     *
+     * @param indiceColumna El índice de la columna.
+     * @param valor         El valor que debe tener la columna.
+     * @return El predicado de igualdad.
+     */
+    public static Predicado igual(int indiceColumna, String valor) {
+        byte[] valorBytes = valor.getBytes(StandardCharsets.UTF_8);
+        return campos -> campos.igual(indiceColumna, valorBytes);
+    }
+
+    // ---------------------------------------------------------------------
+    // Árbol de la consulta
+    // ---------------------------------------------------------------------
+
+    /**
+     * Comparaciones a las que se reduce cualquier condición de la consulta.
+     */
+    enum Operador {
+        /** El campo es un número igual a alguno de {@link Comparacion#numeros}. */
+        EN_NUMEROS,
+        /** El valor del campo es igual a alguno de {@link Comparacion#textos}. */
+        EN_TEXTOS,
+        MENOR,
+        MENOR_IGUAL,
+        MAYOR,
+        MAYOR_IGUAL,
+        /** El campo es un número dentro de {@code [numeros[0], numeros[1]]}. */
+        ENTRE
+    }
+
+    /**
+     * Nodo del árbol de una consulta: una comparación o una combinación de
+     * otros nodos.
+     */
+    abstract static class Nodo {
+    }
+
+    static final class Y extends Nodo {
+        final Nodo izquierdo;
+        final Nodo derecho;
+
+        Y(Nodo izquierdo, Nodo derecho) {
+            this.izquierdo = izquierdo;
+            this.derecho = derecho;
+        }
+    }
+
+    static final class O extends Nodo {
+        final Nodo izquierdo;
+        final Nodo derecho;
+
+        O(Nodo izquierdo, Nodo derecho) {
+            this.izquierdo = izquierdo;
+            this.derecho = derecho;
+        }
+    }
+
+    static final class No extends Nodo {
+        final Nodo negado;
+
+        No(Nodo negado) {
+            this.negado = negado;
+        }
+    }
+
+    /**
+     * Comparación de una columna. Las de orden usan el único valor de
+     * {@link #numeros}; un campo que no es número nunca las cumple.
+     */
+    static final class Comparacion extends Nodo {
+        final int columna;
+        final Operador operador;
+        final double[] numeros;
+        final byte[][] textos;
+
+        Comparacion(int columna, Operador operador, double[] numeros, byte[][] textos) {
+            this.columna = columna;
+            this.operador = operador;
+            this.numeros = numeros;
+            this.textos = textos;
+        }
+    }
+
+    /**
+     * Convierte el árbol de una consulta en un predicado sobre los campos de
+     * un renglón.
+     *
+     * @param nodo La raíz del árbol.
+     * @return El predicado equivalente.
+     */
+    static Predicado predicado(Nodo nodo) {
+        if (nodo instanceof Y) {
+            Predicado a = predicado(((Y) nodo).izquierdo);
+            Predicado b = predicado(((Y) nodo).derecho);
+            return campos -> a.evaluar(campos) && b.evaluar(campos);
+        }
+        if (nodo instanceof O) {
+            Predicado a = predicado(((O) nodo).izquierdo);
+            Predicado b = predicado(((O) nodo).derecho);
+            return campos -> a.evaluar(campos) || b.evaluar(campos);
+        }
+        if (nodo instanceof No) {
+            Predicado negado = predicado(((No) nodo).negado);
+            return campos -> !negado.evaluar(campos);
+        }
+
+        Comparacion comparacion = (Comparacion) nodo;
+        int indice = comparacion.columna;
+        double[] numeros = comparacion.numeros;
+        switch (comparacion.operador) {
+            case EN_NUMEROS:
+                if (numeros.length == 1) {
+                    double valor = numeros[0];
+                    return campos -> campos.numero(indice) == valor;
+                }
+                return campos -> {
+                    double v = campos.numero(indice);
+                    for (double valor : numeros) {
+                        if (v == valor) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            case EN_TEXTOS: {
+                byte[][] textos = comparacion.textos;
+                if (textos.length == 1) {
+                    byte[] valor = textos[0];
+                    return campos -> campos.igual(indice, valor);
+                }
+                return campos -> {
+                    for (byte[] valor : textos) {
+                        if (campos.igual(indice, valor)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                };
+            }
+            case MENOR: {
+                double valor = numeros[0];
+                return campos -> campos.numero(indice) < valor;
+            }
+            case MENOR_IGUAL: {
+                double valor = numeros[0];
+                return campos -> campos.numero(indice) <= valor;
+            }
+            case MAYOR: {
+                double valor = numeros[0];
+                return campos -> campos.numero(indice) > valor;
+            }
+            case MAYOR_IGUAL: {
+                double valor = numeros[0];
+                return campos -> campos.numero(indice) >= valor;
+            }
+            default: {
+                double minimo = numeros[0];
+                double maximo = numeros[1];
+                return campos -> {
+                    double v = campos.numero(indice);
+                    return v >= minimo && v <= maximo;
+                };
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Análisis sintáctico (descenso recursivo)
+    // ---------------------------------------------------------------------
+
+    private Nodo expresion() {
+        Nodo izquierdo = termino();
+        while (aceptar("OR")) {
+            izquierdo = new O(izquierdo, termino());
+        }
+        return izquierdo;
+    }
+
+    private Nodo termino() {
+        Nodo izquierdo = factor();
+        while (aceptar("AND")) {
+            izquierdo = new Y(izquierdo, factor());
+        }
+        return izquierdo;
+    }
+
+    private Nodo factor() {
+        if (aceptar("NOT")) {
+            return new No(factor());
+        }
+        if (aceptar("(")) {
+            Nodo interno = expresion();
+            esperar(")");
+            return interno;
+        }
+        return comparacion();
+    }
+
+    private Nodo comparacion() {
+        String nombreColumna = siguiente("un nombre de columna");
+        int indice = Filtrar.obtenerIndiceColumna(columnas, nombreColumna);
+        if (indice == -1) {
+            throw new IllegalArgumentException("La columna '" + nombreColumna + "' no existe en el archivo.");
+        }
+
+        boolean negar = aceptar("NOT");
+        if (aceptar("IN")) {
+            Nodo pertenencia = pertenencia(indice);
+            return negar ? new No(pertenencia) : pertenencia;
+        }
+        if (aceptar("BETWEEN")) {
+            double minimo = numero(siguiente("un número"));
+            esperar("AND");
+            double maximo = numero(siguiente("un número"));
+            Nodo entre = new Comparacion(indice, Operador.ENTRE, new double[] { minimo, maximo }, null);
+            return negar ? new No(entre) : entre;
+        }
+        if (negar) {
+            throw new IllegalArgumentException("Se esperaba IN o BETWEEN después de NOT");
+        }
+
+        String operador = siguiente("un operador");
+        String literal = siguiente("un valor");
+        boolean esNumero = !esTexto(literal) && esNumero(literal);
+
+        switch (operador) {
+            case "=":
+                return igualdad(indice, literal, esNumero);
+            case "!=":
+            case "<>":
+                // Un campo no numérico también es distinto de un valor numérico
+                return new No(igualdad(indice, literal, esNumero));
+            case "<":
+                return new Comparacion(indice, Operador.MENOR, new double[] { numero(literal) }, null);
+            case "<=":
+                return new Comparacion(indice, Operador.MENOR_IGUAL, new double[] { numero(literal) }, null);
+            case ">":
+                return new Comparacion(indice, Operador.MAYOR, new double[] { numero(literal) }, null);
+            case ">=":
+                return new Comparacion(indice, Operador.MAYOR_IGUAL, new double[] { numero(literal) }, null);
+            default:
+                throw new IllegalArgumentException("Operador desconocido: " + operador);
+        }
+    }
+
+    private static Nodo igualdad(int indice, String literal, boolean esNumero) {
+        if (esNumero) {
+            return new Comparacion(indice, Operador.EN_NUMEROS, new double[] { numero(literal) }, null);
+        }
+        return new Comparacion(indice, Operador.EN_TEXTOS, null,
+                new byte[][] { texto(literal).getBytes(StandardCharsets.UTF_8) });
+    }
+
+    private Nodo pertenencia(int indice) {
+        esperar("(");
+        List<String> literales = new ArrayList<>();
+        do {
+            literales.add(siguiente("un valor"));
+        } while (aceptar(","));
+        esperar(")");
+
+        boolean todosNumeros = true;
+        for (String literal : literales) {
+            todosNumeros &= !esTexto(literal) && esNumero(literal);
+        }
+
+        if (todosNumeros) {
+            double[] valores = new double[literales.size()];
+            for (int i = 0; i < valores.length; i++) {
+                valores[i] = numero(literales.get(i));
+            }
+            return new Comparacion(indice, Operador.EN_NUMEROS, valores, null);
+        }
+
+        byte[][] valores = new byte[literales.size()][];
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] = texto(literales.get(i)).getBytes(StandardCharsets.UTF_8);
+        }
+        return new Comparacion(indice, Operador.EN_TEXTOS, null, valores);
+    }
+
+    // ---------------------------------------------------------------------
+    // Manejo de símbolos
+    // ---------------------------------------------------------------------
+
+    private boolean aceptar(String esperado) {
+        if (pos < simbolos.size() && simbolos.get(pos).equalsIgnoreCase(esperado)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void esperar(String esperado) {
+        if (!aceptar(esperado)) {
+            throw new IllegalArgumentException("Se esperaba '" + esperado + "'"
+                    + (pos < simbolos.size() ? " en lugar de '" + simbolos.get(pos) + "'" : " al final de la consulta"));
+        }
+    }
+
+    private String siguiente(String descripcion) {
+        if (pos >= simbolos.size()) {
+            throw new IllegalArgumentException("Se esperaba " + descripcion + " al final de la consulta");
+        }
+        return simbolos.get(pos++);
+    }
+
+    /**
+     * Separa la consulta en símbolos: palabras, números, textos entre comillas,
+     * paréntesis, comas y operadores.
+     */
+    private static List<String> separarSimbolos(String consulta) {
+        List<String> simbolos = new ArrayList<>();
+        int i = 0;
+        int n = consulta.length();
+        while (i < n) {
+            char c = consulta.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')' || c == ',') {
+                simbolos.add(String.valueOf(c));
+                i++;
+            } else if (c == '\'' || c == '"') {
+                // Texto entre comillas; se conservan para distinguirlo de un número
+                int fin = consulta.indexOf(c, i + 1);
+                if (fin == -1) {
+                    throw new IllegalArgumentException("Falta cerrar las comillas en la consulta");
+                }
+                simbolos.add(consulta.substring(i, fin + 1));
+                i = fin + 1;
+            } else if (c == '<' || c == '>' || c == '=' || c == '!') {
+                int fin = i + 1;
+                if (fin < n && (consulta.charAt(fin) == '=' || (c == '<' && consulta.charAt(fin) == '>'))) {
+                    fin++;
+                }
+                simbolos.add(consulta.substring(i, fin));
+                i = fin;
+            } else {
+                int fin = i;
+                while (fin < n && !Character.isWhitespace(consulta.charAt(fin))
+                        && "(),'\"<>=!".indexOf(consulta.charAt(fin)) == -1) {
+                    fin++;
+                }
+                simbolos.add(consulta.substring(i, fin));
+                i = fin;
+            }
+        }
+        return simbolos;
+    }
+
+    private static boolean esTexto(String literal) {
+        return literal.length() >= 2 && (literal.charAt(0) == '\'' || literal.charAt(0) == '"');
+    }
+
+    private static String texto(String literal) {
+        return esTexto(literal) ? literal.substring(1, literal.length() - 1) : literal;
+    }
+
+    private static boolean esNumero(String literal) {
+        return NUMERO.matcher(literal).matches();
+    }
+
+    private static double numero(String literal) {
+        String valor = texto(literal);
+        if (!esNumero(valor)) {
+            throw new IllegalArgumentException("Se esperaba un número en lugar de '" + literal + "'");
+        }
+        return Double.parseDouble(valor);
+    }
+}
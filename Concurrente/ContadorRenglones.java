@@ -0,0 +1,130 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Clase que cuenta los renglones de un archivo directamente sobre sus bytes,
+ * sin decodificarlos a cadenas. El archivo se proyecta en memoria por
+ * segmentos ({@link MappedByteBuffer}) que se reparten entre los núcleos con
+ * fork/join, y cada segmento cuenta los saltos de línea de ocho en ocho bytes
+ * (técnica SWAR: "SIMD dentro de un registro").
+ */
+public class ContadorRenglones {
+
+    // Tamaño máximo de un segmento que cuenta un solo hilo
+    private static final long TAMANO_SEGMENTO = 32L * 1024 * 1024;
+
+    // Constantes para la búsqueda SWAR del byte '\n' (0x0A) en una palabra de 64 bits
+    private static final long PATRON_SALTO = 0x0A0A0A0A0A0A0A0AL;
+    private static final long BITS_BAJOS = 0x7F7F7F7F7F7F7F7FL;
+
+    /**
+     * Cuenta el número de renglones de un archivo. Un último renglón sin salto
+     * de línea final también se cuenta, igual que con
+     * {@code BufferedReader.readLine()}.
+     *
+     * @param rutaArchivo La ruta del archivo.
+     * @return El número total de renglones del archivo.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public static long contarRenglones(String rutaArchivo) throws IOException {
+        Path ruta = Paths.get(rutaArchivo);
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano == 0) {
+                return 0;
+            }
+
+            // Repartir los segmentos entre todos los núcleos disponibles
+            ForkJoinPool pool = new ForkJoinPool(NumeroCPUs.numeroCPUs());
+            long saltos;
+            try {
+                saltos = pool.invoke(new TareaConteo(canal, 0, tamano));
+            } finally {
+                pool.shutdown();
+            }
+
+            // Si el archivo no termina en salto de línea, el último renglón también cuenta
+            MappedByteBuffer ultimo = canal.map(FileChannel.MapMode.READ_ONLY, tamano - 1, 1);
+            if (ultimo.get(0) != '\n') {
+                saltos++;
+            }
+            Metricas.contador(Metricas.BYTES_LEIDOS).add(tamano);
+            Metricas.contador(Metricas.RENGLONES_LEIDOS).add(saltos);
+            return saltos;
+        }
+    }
+
+    /**
+     * Cuenta los saltos de línea contenidos en un segmento proyectado en
+     * memoria, procesando ocho bytes por iteración.
+     *
+     * @param segmento El segmento del archivo proyectado en memoria.
+     * @return El número de bytes '\n' en el segmento.
+     */
+    static long contarSaltos(MappedByteBuffer segmento) {
+        segmento.order(ByteOrder.nativeOrder());
+        int limite = segmento.limit();
+        int i = 0;
+        long total = 0;
+
+        // Palabras completas de 8 bytes
+        for (; i + Long.BYTES <= limite; i += Long.BYTES) {
+            long x = segmento.getLong(i) ^ PATRON_SALTO; // Los bytes '\n' quedan en cero
+            // El bit alto de cada byte queda encendido solo si el byte era cero
+            long y = ~(((x & BITS_BAJOS) + BITS_BAJOS) | x | BITS_BAJOS);
+            total += Long.bitCount(y);
+        }
+
+        // Bytes restantes al final del segmento
+        for (; i < limite; i++) {
+            if (segmento.get(i) == '\n') {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Tarea fork/join que divide la región del archivo a la mitad hasta que
+     * cada parte cabe en un segmento, y suma los saltos de línea de ambas
+     * mitades.
+     */
+    @SuppressWarnings("serial") // Las tareas nunca se serializan
+    private static class TareaConteo extends RecursiveTask<Long> {
+        private final FileChannel canal;
+        private final long desde;
+        private final long hasta;
+
+        TareaConteo(FileChannel canal, long desde, long hasta) {
+            this.canal = canal;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected Long compute() {
+            long tamano = hasta - desde;
+            if (tamano <= TAMANO_SEGMENTO) {
+                try {
+                    return Metricas.medir("contar.segmento",
+                            () -> contarSaltos(canal.map(FileChannel.MapMode.READ_ONLY, desde, tamano)));
+                } catch (IOException e) {
+                    throw new RuntimeException("Error al proyectar el archivo en memoria: " + e.getMessage(), e);
+                }
+            }
+
+            long mitad = desde + tamano / 2;
+            TareaConteo izquierda = new TareaConteo(canal, desde, mitad);
+            TareaConteo derecha = new TareaConteo(canal, mitad, hasta);
+            izquierda.fork();
+            return derecha.compute() + izquierda.join();
+        }
+    }
+}
@@ -1,6 +1,7 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Clase que proporciona métodos para determinar las dimensiones de un archivo
@@ -11,30 +12,22 @@ import java.io.IOException;
 public class Dimensionar {
 
     /**
-     * Cuenta el número de renglones en un archivo CSV especificado.
+     * Cuenta el número de renglones en un archivo CSV especificado. El conteo se
+     * hace sobre los bytes del archivo proyectado en memoria y en paralelo,
+     * mediante {@link ContadorRenglones}.
      *
      * @param rutaArchivo La ruta del archivo CSV cuya cantidad de renglones se
      *                    desea contar.
      * @return El número total de renglones en el archivo.
      */
-    public static int contarRenglonesCSV(String rutaArchivo) {
-        int numeroRenglones = 0; // Inicializar el contador de renglones
-
-        // Intentar leer el archivo usando BufferedReader
-        try (FileReader objeto = new FileReader(rutaArchivo);
-                BufferedReader br = new BufferedReader(objeto)) {
-
-            // Leer cada línea del archivo y aumentar el contador
-            while (br.readLine() != null) {
-                numeroRenglones++;
-            }
+    public static long contarRenglonesCSV(String rutaArchivo) {
+        try {
+            return ContadorRenglones.contarRenglones(rutaArchivo);
         } catch (IOException e) {
             // En caso de error, imprimir el stack trace
             e.printStackTrace();
+            return 0;
         }
-
-        // Retornar el total de renglones contados
-        return numeroRenglones;
     }
 
     /**
@@ -48,17 +41,13 @@ public class Dimensionar {
     public static int contarColumnasCSV(String rutaArchivo) {
         int numeroColumnas = 0; // Inicializar el contador de columnas
 
-        // Intentar leer el archivo usando BufferedReader
-        try (FileReader objeto = new FileReader(rutaArchivo);
-                BufferedReader br = new BufferedReader(objeto)) {
-
-            // Leer la primera línea del archivo
-            String primeraLinea = br.readLine();
+        // Intentar leer solo el primer renglón del archivo
+        try (FileChannel canal = FileChannel.open(Paths.get(rutaArchivo), StandardOpenOption.READ)) {
+            LectorRenglones lector = new LectorRenglones(canal, 0, canal.size(), 64 * 1024);
 
-            // Si la primera línea no es nula, contar las columnas separadas por comas
-            if (primeraLinea != null) {
-                String[] nombreColumnas = primeraLinea.split(","); // Dividir por comas
-                numeroColumnas = nombreColumnas.length; // Contar el número de elementos
+            // Si hay un primer renglón, contar sus campos respetando las comillas
+            if (lector.siguiente()) {
+                numeroColumnas = new TokenizadorCSV().tokenizar(lector.buffer(), lector.inicio(), lector.fin());
             }
         } catch (IOException e) {
             // En caso de error, imprimir el stack trace
@@ -81,7 +70,7 @@ public class Dimensionar {
         // Método para iniciar el temporizador
         Tiempo.iniciar();
         // Contar renglones y columnas en el archivo
-        int numeroRenglones = contarRenglonesCSV(rutaArchivo);
+        long numeroRenglones = contarRenglonesCSV(rutaArchivo);
         int numeroColumnas = contarColumnasCSV(rutaArchivo);
         // Método para detener el temporizador
         Tiempo.detener();
@@ -1,42 +1,93 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.Scanner;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Clase que implementa la interfaz IArchivo y proporciona métodos para dividir
  * un archivo CSV
- * en varias partes y copiar un rango de líneas a subarchivos.
+ * en varias partes y copiar un rango de bytes a subarchivos.
  */
 public class Dividir implements IArchivo {
 
+    // Máximo de subarchivos de una división
+    static final int MAX_PARTES = 100_000;
+
+    // Bytes que se copian por bloque, para que el progreso avance durante la copia
+    private static final long TAMANO_BLOQUE_COPIA = 64L * 1024 * 1024;
+
     /**
-     * Método para dividir un archivo CSV en varias partes. Calcula el número de
-     * líneas por parte
-     * y crea subarchivos con las líneas correspondientes.
+     * Método para dividir un archivo CSV en varias partes. Solo la primera parte
+     * conserva el renglón de encabezado.
      *
      * @param origen    El nombre del archivo CSV de origen que se va a dividir.
      * @param numPartes El número de partes en las que se dividirá el archivo.
+     * @return {@code true} si se escribieron todas las partes, o {@code false}
+     *         si no se pudo dividir; el motivo ya se informó.
      */
-    public void dividirCSV(String origen, int numPartes) {
-        // Crear un objeto File para el archivo de origen con la ruta completa
-        File archivoOrigen = new File(origen);
+    public boolean dividirCSV(String origen, int numPartes) {
+        return dividirCSV(origen, numPartes, false);
+    }
 
-        // // Verificar si el archivo existe
-        // if (!verificarExistencia(archivoOrigen)) {
-        // System.out.printf("Archivo %s no existe.\n", origen);
-        // return;
-        // }
+    /**
+     * Método para dividir un archivo CSV en varias partes. Calcula una sola vez
+     * los límites en bytes de cada parte, alineados a saltos de línea, y
+     * escribe todos los subarchivos en paralelo, cada uno desde su propio
+     * desplazamiento en el archivo de origen. Los bytes se copian con
+     * {@link FileChannel#transferTo}, sin pasar por la memoria de la JVM.
+     *
+     * @param origen            El nombre del archivo CSV de origen que se va a
+     *                          dividir.
+     * @param numPartes         El número de partes en las que se dividirá el
+     *                          archivo.
+     * @param repetirEncabezado {@code true} para escribir el renglón de
+     *                          encabezado al inicio de cada parte, de modo que
+     *                          cada una sea un CSV válido por sí misma.
+     * @return {@code true} si se escribieron todas las partes, o {@code false}
+     *         si no se pudo dividir; el motivo ya se informó.
+     */
+    public boolean dividirCSV(String origen, int numPartes, boolean repetirEncabezado) {
+        return dividirCSV(origen, numPartes, repetirEncabezado, false);
+    }
 
-        // Contar el número total de renglones en el archivo CSV
-        int totalRenglones = Dimensionar.contarRenglonesCSV(archivoOrigen.getAbsolutePath());
+    /**
+     * Método para dividir un archivo CSV en varias partes y, si se pide,
+     * mostrar la suma de verificación XXH64 de cada parte. Calcular las sumas
+     * vuelve a leer todas las partes, así que solo se hace a petición.
+     *
+     * @param origen            El nombre del archivo CSV de origen que se va a
+     *                          dividir.
+     * @param numPartes         El número de partes en las que se dividirá el
+     *                          archivo.
+     * @param repetirEncabezado {@code true} para escribir el renglón de
+     *                          encabezado al inicio de cada parte.
+     * @param calcularSumas     {@code true} para calcular y mostrar el XXH64 de
+     *                          cada parte.
+     * @return {@code true} si se escribieron todas las partes, o {@code false}
+     *         si no se pudo dividir; el motivo ya se informó.
+     */
+    public boolean dividirCSV(String origen, int numPartes, boolean repetirEncabezado, boolean calcularSumas) {
+        if (numPartes < 1 || numPartes > MAX_PARTES) {
+            System.err.printf("Número de partes no válido para %s: %d (entre 1 y %d)\n", origen, numPartes,
+                    MAX_PARTES);
+            return false;
+        }
 
-        // Calcular cuántos renglones debe tener cada subarchivo
-        int renglonesPorParte = (int) Math.ceil((double) totalRenglones / numPartes);
+        // Crear un objeto File para el archivo de origen con la ruta completa
+        File archivoOrigen = new File(origen);
 
         // Crear subdirectorio "resultados" si no existe
         // La carpeta se crea en donde se encuentra el archivo
-        File directorioResultados = new File(archivoOrigen.getParent(), "resultados");
+        File directorioResultados = new File(archivoOrigen.getAbsoluteFile().getParent(), "resultados");
         if (!directorioResultados.exists()) {
             directorioResultados.mkdirs();
         }
@@ -44,70 +95,173 @@ public class Dividir implements IArchivo {
         // Obtener la fecha actual solo una vez para nombrar todos los archivos
         String fechaActual = new SimpleDateFormat("yyyyMMdd_HHmm").format(new Date());
 
-        // Crear subarchivos y copiar las líneas correspondientes a cada uno
-        for (int i = 0; i < numPartes; i++) {
-            // Inicia un bucle para procesar y crear cada subarchivo, de acuerdo al número
-            // total de partes.
+        ExecutorService executor = Executors.newFixedThreadPool(NumeroCPUs.numeroCPUs());
+
+        try (FileChannel canalOrigen = FileChannel.open(archivoOrigen.toPath(), StandardOpenOption.READ)) {
+            // Calcular los límites de todas las partes en una sola pasada
+            long[] limites = RangosArchivo.calcularLimites(canalOrigen, 0, canalOrigen.size(), numPartes);
+
+            // La primera parte ya contiene el encabezado; las demás lo copian si se pidió
+            ByteBuffer encabezado = repetirEncabezado && limites.length > 2 ? leerEncabezado(canalOrigen) : null;
+
+            // Enviar una tarea por subarchivo; todas comparten el canal de origen
+            // porque las lecturas posicionales no modifican su posición
+            List<Future<?>> tareas = new ArrayList<>();
+            File[] destinos = new File[limites.length - 1];
+            for (int i = 0; i < destinos.length; i++) {
+                String nombreSubarchivo = generarNombreArchivo(archivoOrigen.getName(), fechaActual, i + 1);
+                destinos[i] = new File(directorioResultados, nombreSubarchivo);
+
+                long inicio = limites[i];
+                long fin = limites[i + 1];
+                File destino = destinos[i];
+                ByteBuffer encabezadoParte = i > 0 ? encabezado : null;
+                tareas.add(executor.submit(() -> {
+                    copiarPorRango(canalOrigen, destino, encabezadoParte, inicio, fin);
+                    return null;
+                }));
+            }
 
-            int inicio = i * renglonesPorParte + 1;
-            // Calcula el número de la primera línea que debe copiarse al subarchivo actual.
-            // Por ejemplo, si `i` es 0, `inicio` será 1 (la primera línea).
+            // Esperar a que terminen todas las partes e informar en orden
+            for (int i = 0; i < destinos.length; i++) {
+                tareas.get(i).get();
+                System.out.printf("Subarchivo creado: %s (Bytes: %d a %d)\n", destinos[i].getName(), limites[i],
+                        limites[i + 1]);
+            }
 
-            int fin = Math.min((i + 1) * renglonesPorParte, totalRenglones);
-            // Calcula el número de la última línea que debe copiarse al subarchivo actual.
-            // Usa `Math.min` para evitar que el rango exceda el número total de líneas.
+            // Sumas de verificación de las partes, calculadas en paralelo
+            if (calcularSumas) {
+                String[] sumas = ServicioHash.hashearTodos(destinos, ServicioHash.Algoritmo.XXH64);
+                for (int i = 0; i < destinos.length; i++) {
+                    System.out.printf("XXH64 %s: %s\n", destinos[i].getName(), sumas[i]);
+                }
+            }
+            return true;
 
-            String nombreSubarchivo = generarNombreArchivo(archivoOrigen.getName(), fechaActual, i + 1);
-            // Genera el nombre del subarchivo, incluyendo el número de parte y la fecha
-            // actual.
+        } catch (IOException e) {
+            System.err.printf("Error al dividir el archivo %s: %s\n", origen, e.getMessage());
+        } catch (ExecutionException e) {
+            System.err.printf("Error al escribir un subarchivo de %s: %s\n", origen, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.printf("División interrumpida: %s\n", origen);
+        } finally {
+            executor.shutdownNow();
+        }
+        return false;
+    }
 
-            File archivoDestino = new File(directorioResultados, nombreSubarchivo);
-            // Crea un objeto `File` que apunta al subarchivo que se guardará en el
-            // directorio `resultados`.
+    /**
+     * Método para dividir un archivo CSV en partes de un tamaño objetivo en
+     * bytes, por ejemplo 128 MB, sin contar antes sus renglones. El número de
+     * partes es el mínimo necesario para que ninguna supere el tamaño objetivo,
+     * y el archivo se reparte en partes de tamaño similar, con cada límite
+     * ajustado al siguiente salto de línea; por eso una parte puede exceder el
+     * objetivo en, a lo más, la longitud de un renglón (más el encabezado, si se
+     * repite).
+     *
+     * @param origen            El nombre del archivo CSV de origen que se va a
+     *                          dividir.
+     * @param tamanoParte       El tamaño objetivo de cada parte, en bytes.
+     * @param repetirEncabezado {@code true} para escribir el renglón de
+     *                          encabezado al inicio de cada parte.
+     * @return {@code true} si se escribieron todas las partes, o {@code false}
+     *         si no se pudo dividir; el motivo ya se informó.
+     */
+    public boolean dividirCSVPorTamano(String origen, long tamanoParte, boolean repetirEncabezado) {
+        return dividirCSVPorTamano(origen, tamanoParte, repetirEncabezado, false);
+    }
 
-            copiarPorRango(archivoOrigen.getAbsolutePath(), archivoDestino.getAbsolutePath(), inicio, fin);
-            // Llama al método `copiarPorRango` para copiar las líneas del rango
-            // especificado (`inicio` a `fin`)
-            // desde el archivo de origen al subarchivo destino.
+    /**
+     * Igual que {@link #dividirCSVPorTamano(String, long, boolean)}, pero si se
+     * pide muestra además el XXH64 de cada parte.
+     *
+     * @param origen            El nombre del archivo CSV de origen.
+     * @param tamanoParte       El tamaño objetivo de cada parte, en bytes.
+     * @param repetirEncabezado {@code true} para repetir el encabezado.
+     * @param calcularSumas     {@code true} para calcular y mostrar el XXH64 de
+     *                          cada parte.
+     * @return {@code true} si se escribieron todas las partes, o {@code false}
+     *         si no se pudo dividir; el motivo ya se informó.
+     * @throws IllegalArgumentException Si el tamaño no es positivo o daría más
+     *                                  de {@link #MAX_PARTES} partes.
+     */
+    public boolean dividirCSVPorTamano(String origen, long tamanoParte, boolean repetirEncabezado,
+            boolean calcularSumas) {
+        return dividirCSV(origen, calcularNumPartes(new File(origen).length(), tamanoParte), repetirEncabezado,
+                calcularSumas);
+    }
 
-            System.out.printf("Subarchivo creado: %s (Líneas: %d a %d)\n", archivoDestino.getName(), inicio, fin);
-            // Imprime en consola un mensaje confirmando la creación del subarchivo,
-            // incluyendo su nombre y el rango de líneas copiadas.
+    /**
+     * Calcula cuántas partes se necesitan para que ninguna supere el tamaño
+     * objetivo.
+     *
+     * @param tamanoArchivo El tamaño del archivo, en bytes.
+     * @param tamanoParte   El tamaño objetivo de cada parte, en bytes.
+     * @return El número de partes, al menos 1.
+     * @throws IllegalArgumentException Si el tamaño no es positivo o es tan
+     *                                  pequeño que daría más partes de las que
+     *                                  se pueden crear.
+     */
+    static int calcularNumPartes(long tamanoArchivo, long tamanoParte) {
+        if (tamanoParte <= 0) {
+            throw new IllegalArgumentException("El tamaño de las partes debe ser positivo: " + tamanoParte);
         }
+        long numPartes = (tamanoArchivo + tamanoParte - 1) / tamanoParte;
+        if (numPartes > MAX_PARTES) {
+            throw new IllegalArgumentException("El tamaño de parte " + tamanoParte + " daría " + numPartes
+                    + " partes; el máximo es " + MAX_PARTES);
+        }
+        return (int) Math.max(1, numPartes);
     }
 
     /**
-     * Método que copia las líneas de un archivo de acuerdo a un rango especificado.
+     * Método que copia un rango de bytes del archivo de origen a un subarchivo.
+     * La copia la hace el sistema operativo de un archivo a otro (en Linux, con
+     * {@code sendfile}), por lo que no se leen los bytes en la JVM.
      *
-     * @param origen  La ruta del archivo de origen desde donde se copiarán las
-     *                líneas.
-     * @param destino La ruta del archivo de destino donde se copiarán las líneas.
-     * @param inicio  El número de la primera línea a copiar.
-     * @param fin     El número de la última línea a copiar.
+     * @param canalOrigen El canal del archivo de origen.
+     * @param destino     El subarchivo donde se copiarán los bytes.
+     * @param encabezado  El renglón que se escribe antes del rango, o
+     *                    {@code null}.
+     * @param inicio      El primer byte a copiar.
+     * @param fin         El byte (exclusivo) donde termina la copia.
+     * @throws IOException Si ocurre un error al leer o escribir.
      */
-    private void copiarPorRango(String origen, String destino, int inicio, int fin) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(origen));
-                BufferedWriter writer = new BufferedWriter(new FileWriter(destino))) {
-
-            int contador = 0;
-            String linea;
-
-            // Leer las líneas del archivo de origen y escribir las líneas dentro del rango
-            while ((linea = reader.readLine()) != null) {
-                contador++;
-                // Si la línea está dentro del rango, escribirla en el archivo de destino
-                if (contador >= inicio && contador <= fin) {
-                    writer.write(linea);
-                    writer.newLine();
+    private void copiarPorRango(FileChannel canalOrigen, File destino, ByteBuffer encabezado, long inicio, long fin)
+            throws IOException {
+        Metricas.medir("dividir.parte", () -> {
+            try (FileChannel canalDestino = FileChannel.open(destino.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                if (encabezado != null) {
+                    // Cada hilo usa su propia vista del buffer compartido
+                    ByteBuffer copia = encabezado.duplicate();
+                    while (copia.hasRemaining()) {
+                        canalDestino.write(copia);
+                    }
+                }
+
+                // Copiar por bloques para que el progreso avance durante la copia
+                LongAdder bytesLeidos = Metricas.contador(Metricas.BYTES_LEIDOS);
+                for (long posicion = inicio; posicion < fin; posicion += TAMANO_BLOQUE_COPIA) {
+                    long finBloque = Math.min(fin, posicion + TAMANO_BLOQUE_COPIA);
+                    RangosArchivo.copiar(canalOrigen, posicion, finBloque, canalDestino);
+                    bytesLeidos.add(finBloque - posicion);
                 }
-                // Salir del bucle cuando se hayan copiado todas las líneas del rango
-                if (contador > fin)
-                    break;
+                Metricas.contador(Metricas.BYTES_ESCRITOS).add(canalDestino.size());
             }
+        });
+    }
 
-        } catch (IOException e) {
-            System.err.printf("Error al copiar líneas %d a %d: %s\n", inicio, fin, e.getMessage());
+    // Lee el primer renglón del archivo, incluido su salto de línea
+    private static ByteBuffer leerEncabezado(FileChannel canal) throws IOException {
+        long fin = RangosArchivo.siguienteRenglon(canal, 0, canal.size());
+        ByteBuffer encabezado = ByteBuffer.allocate((int) fin);
+        while (encabezado.hasRemaining() && canal.read(encabezado, encabezado.position()) > 0) {
+            // Repetir hasta leer todo el renglón
         }
+        encabezado.flip();
+        return encabezado;
     }
 
     /**
@@ -117,7 +271,7 @@ public class Dividir implements IArchivo {
      * @param parte  El número de la parte actual.
      * @return El nombre del archivo con la fecha actual en el formato requerido.
      */
-    private String generarNombreArchivo(String origen, String fechaActual, int parte) {
+    String generarNombreArchivo(String origen, String fechaActual, int parte) {
         // Obtener el nombre base del archivo origen
         String nombreBase = obtenerNombreBase(origen);
 
@@ -158,9 +312,6 @@ public class Dividir implements IArchivo {
      * la división del archivo.
      */
     public void dividir() {
-        // Crear un objeto Scanner para leer los datos del usuario
-        // Scanner sc = new Scanner(System.in);
-
         // Buscar el archivo en el directorio dado
         String archivoEncontrado = Buscar.buscarArchivo(); // Maneja la búsqueda en el directorio
                                                            // proporcionado
@@ -179,22 +330,46 @@ public class Dividir implements IArchivo {
         // Obtener el número de CPUs disponibles en la arquitectura actual
         int numCPUs = NumeroCPUs.numeroCPUs();
 
+        // Preguntar el tamaño deseado de cada parte; sin respuesta se usa el número de CPUs
+        System.out.println("Ingresa el tamaño de cada subarchivo en MB (Enter para dividir según los CPUs):");
+        String respuestaTamano = Consola.leerRenglon().trim();
+
         // Calcular el número de partes en las que se dividirá el archivo
         int numPartes = 4 * numCPUs; // Dividir el archivo en al menos 4 veces el número de CPUs
+        if (!respuestaTamano.isEmpty()) {
+            try {
+                long tamanoParte = Math.multiplyExact(Long.parseLong(respuestaTamano), 1024L * 1024);
+                numPartes = calcularNumPartes(new File(archivoEncontrado).length(), tamanoParte);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Tamaño no válido (" + e.getMessage() + "), se dividirá según los CPUs.");
+            } catch (ArithmeticException e) {
+                System.out.println("Tamaño no válido (demasiado grande), se dividirá según los CPUs.");
+            }
+        }
 
         // Mostrar información sobre las divisiones
         System.out.println("---------------------------------------------");
         System.out.println("Número de CPU's detectados por la JVM: " + numCPUs);
-        System.out.println("Multiplicando por 4 para aprovechar concurrencia: " + (numCPUs * 4));
+        if (respuestaTamano.isEmpty()) {
+            System.out.println("Multiplicando por 4 para aprovechar concurrencia: " + (numCPUs * 4));
+        }
         System.out.println("El archivo se dividirá en " + numPartes + " subarchivos.");
         System.out.println("---------------------------------------------\n");
+
+        // Preguntar si cada subarchivo debe ser un CSV completo, con su encabezado
+        System.out.println("¿Deseas repetir el encabezado en cada subarchivo? (s/n):");
+        boolean repetirEncabezado = Consola.leerSiNo();
+        System.out.println("¿Deseas calcular la suma XXH64 de cada subarchivo? (s/n):");
+        boolean calcularSumas = Consola.leerSiNo();
         System.out.println("\nProcesando el archivo... Por favor, espera.");
         System.out.println("---------------------------------------------\n");
 
         // Método para iniciar el temporizador
         Tiempo.iniciar();
         // Llamar al método dividirCSV para realizar la división del archivo
-        dividirCSV(archivoEncontrado, numPartes);
+        int partes = numPartes;
+        Progreso.mostrar("División", new File(archivoEncontrado).length(),
+                () -> dividirCSV(archivoEncontrado, partes, repetirEncabezado, calcularSumas));
         // Método para detener el temporizador
         Tiempo.detener();
     }
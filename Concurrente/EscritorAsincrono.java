@@ -0,0 +1,323 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Flujo de salida que escribe a disco en segundo plano. El hilo que produce los
+ * datos (por ejemplo, el que separa los renglones de un CSV) llena buffers
+ * directos y los entrega, por una cola acotada, a un hilo escritor compartido
+ * por todos los flujos. El escritor los escribe con
+ * {@link FileChannel#write(ByteBuffer[])}, juntando en una sola llamada los
+ * buffers pendientes de un mismo archivo, mientras el productor sigue llenando
+ * el siguiente.
+ *
+ * <p>
+ * Cada flujo tiene un número fijo de buffers. Si el disco es más lento que el
+ * productor y todos sus buffers están esperando a escribirse, el productor se
+ * detiene hasta que el escritor libere uno; así la memoria usada no crece sin
+ * límite.
+ * </p>
+ *
+ * <p>
+ * Un flujo no debe usarse desde varios hilos a la vez, igual que
+ * {@link java.io.BufferedOutputStream}. Los errores de escritura se informan en
+ * la siguiente llamada a {@code write}, {@code flush} o {@code close}.
+ * </p>
+ */
+public class EscritorAsincrono extends OutputStream {
+
+    private static final int TAMANO_BUFFER = 1024 * 1024;
+
+    // Buffers por flujo: uno se llena mientras los demás se escriben
+    private static final int BUFFERS_POR_FLUJO = 4;
+
+    // Buffers directos liberados por flujos cerrados, para no volver a reservarlos
+    private static final int MAXIMO_RESERVA = 64;
+    private static final ConcurrentLinkedQueue<ByteBuffer> RESERVA = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger TAMANO_RESERVA = new AtomicInteger();
+
+    /**
+     * Trabajo para el hilo escritor: un buffer lleno, o una marca que avisa
+     * cuando se escribió todo lo anterior del flujo.
+     */
+    private static class Bloque {
+        final EscritorAsincrono flujo;
+        final ByteBuffer buffer;
+        final CountDownLatch marca;
+
+        Bloque(EscritorAsincrono flujo, ByteBuffer buffer, CountDownLatch marca) {
+            this.flujo = flujo;
+            this.buffer = buffer;
+            this.marca = marca;
+        }
+    }
+
+    private static final BlockingQueue<Bloque> COLA = new ArrayBlockingQueue<>(256);
+
+    private static final LongAdder BYTES_ESCRITOS = Metricas.contador(Metricas.BYTES_ESCRITOS);
+
+    static {
+        Thread escritor = new Thread(EscritorAsincrono::escribirPendientes, "escritor-asincrono");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    private final FileChannel canal;
+    private final File archivo;
+    private final BlockingQueue<ByteBuffer> libres = new ArrayBlockingQueue<>(BUFFERS_POR_FLUJO);
+    private ByteBuffer actual;
+    private volatile IOException error;
+    private boolean cerrado;
+
+    /**
+     * Crea el archivo, o lo trunca si ya existe.
+     *
+     * @param archivo El archivo de salida.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    public EscritorAsincrono(File archivo) throws IOException {
+        this(archivo, false);
+    }
+
+    /**
+     * @param archivo El archivo de salida.
+     * @param agregar {@code true} para escribir al final del archivo existente.
+     * @throws IOException Si no se puede abrir el archivo.
+     */
+    public EscritorAsincrono(File archivo, boolean agregar) throws IOException {
+        this.archivo = archivo;
+        this.canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                agregar ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        for (int i = 0; i < BUFFERS_POR_FLUJO; i++) {
+            libres.add(reservarBuffer());
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (actual == null || !actual.hasRemaining()) {
+            siguienteBuffer();
+        }
+        actual.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] datos, int desde, int longitud) throws IOException {
+        while (longitud > 0) {
+            if (actual == null || !actual.hasRemaining()) {
+                siguienteBuffer();
+            }
+            int cantidad = Math.min(longitud, actual.remaining());
+            actual.put(datos, desde, cantidad);
+            desde += cantidad;
+            longitud -= cantidad;
+        }
+    }
+
+    /**
+     * Espera a que todo lo escrito hasta ahora llegue al archivo.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (cerrado) {
+            return;
+        }
+        entregarActual();
+        CountDownLatch marca = new CountDownLatch(1);
+        encolar(new Bloque(this, null, marca));
+        try {
+            marca.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Escritura interrumpida: " + archivo);
+        }
+        verificarError();
+    }
+
+    /**
+     * Espera a que se escriban todos los bloques entregados y cierra el
+     * archivo. Si el hilo se interrumpe, se sigue esperando, porque cerrar el
+     * canal con bloques en la cola los haría fallar sin aviso; al terminar se
+     * restablece la interrupción.
+     */
+    @Override
+    public void close() throws IOException {
+        if (cerrado) {
+            return;
+        }
+        boolean interrumpido = false;
+        try {
+            if (actual != null && actual.position() > 0) {
+                actual.flip();
+                interrumpido |= encolarSinInterrupcion(new Bloque(this, actual, null));
+            } else if (actual != null) {
+                libres.add(actual);
+            }
+            actual = null;
+
+            CountDownLatch marca = new CountDownLatch(1);
+            interrumpido |= encolarSinInterrupcion(new Bloque(this, null, marca));
+            while (true) {
+                try {
+                    marca.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                }
+            }
+        } finally {
+            cerrado = true;
+            canal.close();
+            ByteBuffer buffer;
+            while ((buffer = libres.poll()) != null) {
+                devolverBuffer(buffer);
+            }
+            if (interrumpido) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        verificarError();
+    }
+
+    // Entrega el buffer lleno al escritor y toma uno libre, esperando si no hay
+    private void siguienteBuffer() throws IOException {
+        if (cerrado) {
+            throw new IOException("El flujo ya se cerró: " + archivo);
+        }
+        entregarActual();
+        try {
+            actual = libres.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Escritura interrumpida: " + archivo);
+        }
+        verificarError();
+    }
+
+    private void entregarActual() throws IOException {
+        if (actual == null) {
+            return;
+        }
+        if (actual.position() == 0) {
+            libres.add(actual);
+        } else {
+            actual.flip();
+            encolar(new Bloque(this, actual, null));
+        }
+        actual = null;
+    }
+
+    private void encolar(Bloque bloque) throws IOException {
+        try {
+            COLA.put(bloque);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Escritura interrumpida: " + archivo);
+        }
+    }
+
+    // Encola aunque el hilo se interrumpa; devuelve true si se interrumpió mientras esperaba
+    private static boolean encolarSinInterrupcion(Bloque bloque) {
+        boolean interrumpido = false;
+        while (true) {
+            try {
+                COLA.put(bloque);
+                return interrumpido;
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+    }
+
+    private void verificarError() throws IOException {
+        if (error != null) {
+            throw new IOException("Error al escribir " + archivo + ": " + error.getMessage(), error);
+        }
+    }
+
+    // Ciclo del hilo escritor
+    private static void escribirPendientes() {
+        List<Bloque> lote = new ArrayList<>();
+        Map<EscritorAsincrono, List<ByteBuffer>> porFlujo = new LinkedHashMap<>();
+        while (true) {
+            try {
+                lote.add(COLA.take());
+            } catch (InterruptedException e) {
+                continue; // El escritor no termina mientras viva la aplicación
+            }
+            COLA.drainTo(lote);
+
+            // Agrupar los buffers de cada flujo, respetando su orden, para escribirlos juntos
+            for (Bloque bloque : lote) {
+                if (bloque.buffer != null) {
+                    porFlujo.computeIfAbsent(bloque.flujo, f -> new ArrayList<>()).add(bloque.buffer);
+                } else {
+                    List<ByteBuffer> anteriores = porFlujo.remove(bloque.flujo);
+                    if (anteriores != null) {
+                        bloque.flujo.escribir(anteriores);
+                    }
+                    bloque.marca.countDown();
+                }
+            }
+            for (Map.Entry<EscritorAsincrono, List<ByteBuffer>> entrada : porFlujo.entrySet()) {
+                entrada.getKey().escribir(entrada.getValue());
+            }
+            porFlujo.clear();
+            lote.clear();
+        }
+    }
+
+    // Escritura con varios buffers en una sola llamada; se ejecuta en el hilo escritor
+    private void escribir(List<ByteBuffer> buffers) {
+        if (error == null) {
+            try {
+                ByteBuffer[] arreglo = buffers.toArray(new ByteBuffer[0]);
+                ByteBuffer ultimo = arreglo[arreglo.length - 1];
+                while (ultimo.hasRemaining()) {
+                    BYTES_ESCRITOS.add(canal.write(arreglo));
+                }
+            } catch (IOException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                error = new IOException(e);
+            }
+        }
+        // Devolver los buffers al flujo aunque haya fallado, para que el productor no se quede esperando
+        for (ByteBuffer buffer : buffers) {
+            buffer.clear();
+            libres.add(buffer);
+        }
+    }
+
+    private static ByteBuffer reservarBuffer() {
+        ByteBuffer buffer = RESERVA.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(TAMANO_BUFFER);
+        }
+        TAMANO_RESERVA.decrementAndGet();
+        return buffer;
+    }
+
+    private static void devolverBuffer(ByteBuffer buffer) {
+        if (TAMANO_RESERVA.incrementAndGet() <= MAXIMO_RESERVA) {
+            buffer.clear();
+            RESERVA.add(buffer);
+        } else {
+            TAMANO_RESERVA.decrementAndGet();
+        }
+    }
+}
@@ -1,9 +1,19 @@
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 /**
  * La clase {@code Filtrar} proporciona métodos para filtrar los renglones de un
@@ -13,69 +23,509 @@ import java.util.Scanner;
  */
 public class Filtrar {
 
+    // Número de rangos por hilo en el modo paralelo, para que los hilos que
+    // terminan antes tomen más trabajo
+    private static final int FRAGMENTOS_POR_HILO = 4;
+
+    // Tamaño de la ventana de lectura al copiar renglones señalados por un índice
+    private static final int TAMANO_VENTANA_INDICE = 256 * 1024;
+
     /**
      * Filtra las líneas de un archivo CSV y escribe en un nuevo archivo solo
      * aquellas líneas
      * donde el valor en la columna especificada coincide con el valor de filtro
-     * dado.
+     * dado. El archivo se recorre en un solo hilo.
      * 
      * @param archivoEntrada El nombre del archivo de entrada CSV a procesar.
-     * @param archivoSalida  El nombre del archivo de salida donde se guardarán las
-     *                       líneas filtradas.
      * @param nombreColumna  El nombre de la columna en la que se desea filtrar.
      * @param valorFiltro    El valor que debe coincidir en la columna indicada para
      *                       que la línea sea incluida.
      */
     public static void filtrarPorColumna(String archivoEntrada, String nombreColumna, String valorFiltro) {
 
-        String archivoSalida = nombreColumna + valorFiltro + archivoEntrada;
+        File archivoSalida = obtenerArchivoSalida(archivoEntrada, nombreColumna, valorFiltro);
 
         try (
-                BufferedReader brEntrada = new BufferedReader(new FileReader(archivoEntrada));
-                BufferedWriter bwSalida = new BufferedWriter(new FileWriter(archivoSalida))) {
-            // Leer el encabezado y determinar el índice de la columna a filtrar
-            String encabezado = brEntrada.readLine();
-            if (encabezado == null) {
-                System.out.println("El archivo está vacío.");
-                return;
-            }
-
-            String[] columnas = encabezado.split(",");
-            int indiceColumna = obtenerIndiceColumna(columnas, nombreColumna);
+                FileChannel canalEntrada = FileChannel.open(Paths.get(archivoEntrada), StandardOpenOption.READ);
+                OutputStream salida = new EscritorAsincrono(archivoSalida)) {
+            LectorRenglones lector = new LectorRenglones(canalEntrada, 0, canalEntrada.size());
 
+            // Leer el encabezado y determinar el índice de la columna a filtrar
+            int indiceColumna = leerEncabezado(lector, nombreColumna);
             if (indiceColumna == -1) {
-                System.out.println("La columna '" + nombreColumna + "' no existe en el archivo.");
                 return;
             }
 
             // Escribir el encabezado en el archivo de salida
-            bwSalida.write(encabezado); // Escribe la primera línea del archivo CSV (el encabezado) en el archivo de
-                                        // salida.
-            bwSalida.newLine(); // Agrega un salto de línea después del encabezado, lo que asegura que las
-                                // líneas nuevas comienzan en una nueva línea en el archivo.
+            escribirRenglon(lector, salida);
 
             // Leer el resto del archivo y filtrar las líneas
-            String linea;
-            while ((linea = brEntrada.readLine()) != null) { // Lee línea por línea el archivo de entrada hasta llegar
-                                                             // al final del archivo.
-                String[] valores = linea.split(","); // Divide la línea en partes separadas por comas y las almacena en
-                                                     // un arreglo de cadenas llamado 'valores'.
-
-                // Verificar si el valor en la columna específica coincide con el valor de
-                // filtro
-                if (valores[indiceColumna].equals(valorFiltro)) { // Si el valor en la columna especificada coincide con
-                                                                  // el valor de filtro proporcionado:
-                    bwSalida.write(linea); // Escribe la línea original en el archivo de salida.
-                    bwSalida.newLine(); // Agrega un salto de línea después de escribir la línea para separar los
-                                        // registros correctamente.
+            filtrarRango(lector, Consulta.igual(indiceColumna, valorFiltro), salida);
+
+            System.out.println("Filtrado completado. Archivo de salida: " + archivoSalida);
+
+        } catch (IOException e) {
+            System.err.println("Error al procesar el archivo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Filtra un archivo CSV igual que {@link #filtrarPorColumna}, pero divide los
+     * renglones en rangos de bytes alineados a saltos de línea y filtra cada
+     * rango en un hilo distinto. Cada rango escribe sus coincidencias en un
+     * archivo temporal, y al final los temporales se concatenan en el orden del
+     * archivo de entrada.
+     *
+     * @param archivoEntrada El nombre del archivo de entrada CSV a procesar.
+     * @param nombreColumna  El nombre de la columna en la que se desea filtrar.
+     * @param valorFiltro    El valor que debe coincidir en la columna indicada para
+     *                       que la línea sea incluida.
+     * @return {@code true} si se escribió el archivo de salida, o {@code false}
+     *         si no se pudo filtrar; el motivo ya se informó.
+     */
+    public static boolean filtrarPorColumnaParalelo(String archivoEntrada, String nombreColumna,
+            String valorFiltro) {
+        return filtrarEnParalelo(archivoEntrada, obtenerArchivoSalida(archivoEntrada, nombreColumna, valorFiltro),
+                columnas -> {
+                    int indiceColumna = obtenerIndiceColumna(columnas, nombreColumna);
+                    if (indiceColumna == -1) {
+                        System.err.println("La columna '" + nombreColumna + "' no existe en el archivo.");
+                        return null;
+                    }
+                    return Consulta.igual(indiceColumna, valorFiltro);
+                });
+    }
+
+    /**
+     * Filtra un archivo CSV con una consulta compuesta (ver {@link Consulta}),
+     * por ejemplo
+     * {@code streams > 1000000 AND region IN (mx, ar) AND danceability BETWEEN 0.6 AND 0.9}.
+     * Todas las condiciones se evalúan en un solo recorrido paralelo del archivo,
+     * sin generar archivos intermedios. Si el archivo tiene una
+     * {@link CacheColumnar} vigente que puede responder la consulta, se usa en
+     * su lugar y solo se leen del CSV los renglones que la cumplen.
+     *
+     * @param archivoEntrada El nombre del archivo de entrada CSV a procesar.
+     * @param consulta       El texto de la consulta.
+     * @param archivoSalida  El archivo donde se guardarán las líneas que cumplen
+     *                       la consulta.
+     * @return {@code true} si se escribió el archivo de salida, o {@code false}
+     *         si no se pudo filtrar; el motivo ya se informó.
+     */
+    public static boolean filtrarPorConsulta(String archivoEntrada, String consulta, File archivoSalida) {
+        if (filtrarConCache(archivoEntrada, consulta, archivoSalida)) {
+            return true;
+        }
+        return filtrarEnParalelo(archivoEntrada, archivoSalida, columnas -> {
+            try {
+                return Consulta.compilar(consulta, columnas);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Consulta no válida: " + e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Filtra con la caché columnar del archivo, si existe y puede evaluar la
+     * consulta: la caché da las posiciones de los renglones que la cumplen y
+     * solo esos se copian del CSV.
+     *
+     * @return {@code true} si se escribió el archivo de salida, o {@code false}
+     *         si hay que recorrer el texto; una consulta no válida también
+     *         devuelve {@code false}, para que el recorrido informe el error.
+     */
+    private static boolean filtrarConCache(String archivoEntrada, String consulta, File archivoSalida) {
+        CacheColumnar cache = CacheColumnar.abrir(archivoEntrada);
+        if (cache == null) {
+            return false;
+        }
+        try (FileChannel canalEntrada = FileChannel.open(Paths.get(archivoEntrada), StandardOpenOption.READ)) {
+            long[] posiciones;
+            try {
+                posiciones = cache.filtrar(Consulta.analizar(consulta, cache.columnas()));
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            if (posiciones == null) {
+                return false;
+            }
+
+            LectorRenglones lector = new LectorRenglones(canalEntrada, 0, canalEntrada.size(), 64 * 1024);
+            if (!lector.siguiente()) {
+                return false;
+            }
+            try (OutputStream salida = new EscritorAsincrono(archivoSalida)) {
+                escribirRenglon(lector, salida);
+                copiarRenglones(canalEntrada, posiciones, salida);
+            }
+
+            System.out.println("Filtrado completado con la caché columnar. Archivo de salida: " + archivoSalida);
+            return true;
+
+        } catch (IOException e) {
+            System.err.println("No se pudo usar la caché columnar: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Filtra con una consulta solo los renglones agregados al archivo desde la
+     * última llamada, y agrega las coincidencias al final del archivo de salida
+     * (ver {@link Seguimiento}). La primera vez, o si el archivo se reemplazó,
+     * se filtra completo.
+     *
+     * @param archivoEntrada El nombre del archivo CSV que va creciendo.
+     * @param consulta       El texto de la consulta.
+     * @param archivoSalida  El archivo donde se acumulan las coincidencias.
+     * @return El número de bytes nuevos filtrados, o -1 si no se pudo filtrar.
+     */
+    public static long filtrarSiguiendo(String archivoEntrada, String consulta, File archivoSalida) {
+        try {
+            return crearSeguimiento(consulta).actualizar(new File(archivoEntrada), archivoSalida);
+        } catch (IOException e) {
+            System.err.println("Error al procesar el archivo: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // Seguimiento que filtra con la consulta los renglones nuevos; si la consulta
+    // cambia entre dos actualizaciones, la salida se vuelve a generar
+    static Seguimiento crearSeguimiento(String consulta) {
+        return new Seguimiento() {
+            private Predicado predicado;
+
+            @Override
+            protected String configuracion() {
+                return consulta;
+            }
+
+            @Override
+            protected boolean leerEncabezado(LectorRenglones lector, OutputStream salida) throws IOException {
+                String[] columnas = leerColumnas(lector);
+                if (columnas == null) {
+                    return false;
+                }
+                try {
+                    predicado = Consulta.compilar(consulta, columnas);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Consulta no válida: " + e.getMessage());
+                    return false;
+                }
+                if (salida != null) {
+                    escribirRenglon(lector, salida);
+                }
+                return true;
+            }
+
+            @Override
+            protected void procesarRango(LectorRenglones lector, OutputStream salida) throws IOException {
+                filtrarRango(lector, predicado, salida);
+            }
+        };
+    }
+
+    /**
+     * Recorre los renglones de datos en paralelo y escribe los que cumplen el
+     * predicado, conservando el orden del archivo de entrada.
+     *
+     * @param archivoEntrada El nombre del archivo de entrada CSV a procesar.
+     * @param archivoSalida  El archivo donde se guardarán las coincidencias.
+     * @param compilador     Función que construye el predicado a partir de los
+     *                       nombres de columna del encabezado, o devuelve
+     *                       {@code null} si no se puede filtrar.
+     * @return {@code true} si se escribió el archivo de salida.
+     */
+    private static boolean filtrarEnParalelo(String archivoEntrada, File archivoSalida,
+            Function<String[], Predicado> compilador) {
+
+        int numHilos = NumeroCPUs.numeroCPUs();
+        ExecutorService executor = Executors.newFixedThreadPool(numHilos);
+        List<File> temporales = new ArrayList<>();
+
+        try (FileChannel canalEntrada = FileChannel.open(Paths.get(archivoEntrada), StandardOpenOption.READ)) {
+            long tamano = canalEntrada.size();
+            LectorRenglones lectorEncabezado = new LectorRenglones(canalEntrada, 0, tamano, 64 * 1024);
+
+            // Leer el encabezado y construir el predicado con sus columnas
+            String[] columnas = leerColumnas(lectorEncabezado);
+            if (columnas == null) {
+                return false;
+            }
+            Predicado predicado = compilador.apply(columnas);
+            if (predicado == null) {
+                return false;
+            }
+            byte[] encabezado = Arrays.copyOfRange(lectorEncabezado.buffer(), lectorEncabezado.inicio(),
+                    lectorEncabezado.fin());
+
+            // Dividir los renglones de datos en más rangos que hilos para equilibrar la carga
+            long inicioDatos = lectorEncabezado.posicionSiguiente();
+            long[] limites = RangosArchivo.calcularLimites(canalEntrada, inicioDatos, tamano,
+                    numHilos * FRAGMENTOS_POR_HILO);
+
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i + 1 < limites.length; i++) {
+                File temporal = File.createTempFile("filtro_", ".parte", archivoSalida.getAbsoluteFile().getParentFile());
+                temporales.add(temporal);
+
+                long desde = limites[i];
+                long hasta = limites[i + 1];
+                tareas.add(executor.submit(() -> {
+                    try (OutputStream salida = new EscritorAsincrono(temporal)) {
+                        filtrarRango(new LectorRenglones(canalEntrada, desde, hasta), predicado, salida);
+                    }
+                    return null;
+                }));
+            }
+
+            // Esperar a que todos los rangos terminen
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+
+            // Unir el encabezado y los resultados parciales en el orden original
+            try (FileChannel canalSalida = FileChannel.open(archivoSalida.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                canalSalida.write(ByteBuffer.wrap(encabezado));
+                canalSalida.write(ByteBuffer.wrap(new byte[] { '\n' }));
+                for (File temporal : temporales) {
+                    try (FileChannel canalParcial = FileChannel.open(temporal.toPath(), StandardOpenOption.READ)) {
+                        RangosArchivo.copiar(canalParcial, 0, canalParcial.size(), canalSalida);
+                    }
                 }
             }
 
             System.out.println("Filtrado completado. Archivo de salida: " + archivoSalida);
+            return true;
 
         } catch (IOException e) {
             System.err.println("Error al procesar el archivo: " + e.getMessage());
+        } catch (ExecutionException e) {
+            System.err.println("Error al filtrar un fragmento del archivo: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Filtrado interrumpido: " + archivoEntrada);
+        } finally {
+            executor.shutdownNow();
+            for (File temporal : temporales) {
+                temporal.delete();
+            }
         }
+        return false;
+    }
+
+    /**
+     * Filtra un archivo CSV usando el índice en disco de la columna
+     * ({@link IndiceColumna}). La primera vez se construye el índice con un
+     * recorrido completo; las siguientes consultas sobre la misma columna solo
+     * leen los renglones que coinciden, mientras el archivo no cambie.
+     *
+     * @param archivoEntrada El nombre del archivo de entrada CSV a procesar.
+     * @param nombreColumna  El nombre de la columna en la que se desea filtrar.
+     * @param valorFiltro    El valor que debe coincidir en la columna indicada para
+     *                       que la línea sea incluida.
+     * @return {@code true} si se escribió el archivo de salida, o {@code false}
+     *         si no se pudo filtrar; el motivo ya se informó.
+     */
+    public static boolean filtrarPorColumnaIndexado(String archivoEntrada, String nombreColumna,
+            String valorFiltro) {
+
+        File archivoSalida = obtenerArchivoSalida(archivoEntrada, nombreColumna, valorFiltro);
+
+        try (FileChannel canalEntrada = FileChannel.open(Paths.get(archivoEntrada), StandardOpenOption.READ)) {
+            LectorRenglones lector = new LectorRenglones(canalEntrada, 0, canalEntrada.size(), 64 * 1024);
+
+            // Validar la columna y obtener el índice antes de crear la salida, para no
+            // truncar un resultado anterior si la consulta no se puede hacer
+            if (leerEncabezado(lector, nombreColumna) == -1) {
+                return false;
+            }
+            IndiceColumna indice = IndiceColumna.obtener(archivoEntrada, nombreColumna);
+            if (indice == null) {
+                return false;
+            }
+
+            try (OutputStream salida = new EscritorAsincrono(archivoSalida)) {
+                // Copiar el encabezado y únicamente los renglones que el índice señala
+                escribirRenglon(lector, salida);
+                copiarRenglones(canalEntrada, indice.renglones(valorFiltro), salida);
+            }
+
+            System.out.println("Filtrado completado. Archivo de salida: " + archivoSalida);
+            return true;
+
+        } catch (IOException e) {
+            System.err.println("Error al procesar el archivo: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Copia a la salida los renglones que inician en las posiciones indicadas.
+     * Se lee una ventana del archivo a la vez, de modo que los renglones
+     * cercanos entre sí se obtienen de una sola lectura.
+     *
+     * @param canal      El canal del archivo CSV.
+     * @param posiciones Las posiciones de inicio de los renglones, en orden
+     *                   creciente.
+     * @param salida     El flujo donde se escriben los renglones.
+     * @throws IOException Si ocurre un error al leer o escribir.
+     */
+    static void copiarRenglones(FileChannel canal, long[] posiciones, OutputStream salida)
+            throws IOException {
+        long tamano = canal.size();
+        byte[] ventana = new byte[TAMANO_VENTANA_INDICE];
+        long inicioVentana = 0;
+        int longitudVentana = 0;
+        LongAdder bytesLeidos = Metricas.contador(Metricas.BYTES_LEIDOS);
+        Metricas.contador(Metricas.RENGLONES_COINCIDENTES).add(posiciones.length);
+
+        for (long posicion : posiciones) {
+            int desde = 0;
+            int fin = -1;
+
+            // Buscar el fin del renglón dentro de la ventana actual; la comparación se
+            // hace en long porque en archivos de más de 2 GB la diferencia no cabe en un int
+            if (posicion >= inicioVentana && posicion - inicioVentana < longitudVentana) {
+                desde = (int) (posicion - inicioVentana);
+                fin = buscarSalto(ventana, desde, longitudVentana);
+            }
+
+            // Si el renglón no está completo en la ventana, leer una nueva desde su inicio
+            if (fin == -1) {
+                inicioVentana = posicion;
+                longitudVentana = canal.read(ByteBuffer.wrap(ventana), posicion);
+                if (longitudVentana <= 0) {
+                    break;
+                }
+                bytesLeidos.add(longitudVentana);
+                desde = 0;
+                fin = buscarSalto(ventana, 0, longitudVentana);
+
+                if (fin == -1) {
+                    if (posicion + longitudVentana >= tamano) {
+                        // Último renglón del archivo sin salto de línea final
+                        fin = longitudVentana;
+                    } else {
+                        // Renglón más largo que la ventana: leerlo por separado
+                        LectorRenglones lector = new LectorRenglones(canal, posicion, tamano);
+                        lector.siguiente();
+                        escribirRenglon(lector, salida);
+                        continue;
+                    }
+                }
+            }
+
+            int finSinRetorno = (fin > desde && ventana[fin - 1] == '\r') ? fin - 1 : fin;
+            salida.write(ventana, desde, finSinRetorno - desde);
+            salida.write('\n');
+        }
+    }
+
+    private static int buscarSalto(byte[] buffer, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lee el encabezado del archivo y obtiene el índice de la columna a filtrar.
+     * Informa al usuario si el archivo está vacío o si la columna no existe.
+     *
+     * @param lector        El lector posicionado al inicio del archivo.
+     * @param nombreColumna El nombre de la columna a filtrar.
+     * @return El índice de la columna, o -1 si no se puede filtrar.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    private static int leerEncabezado(LectorRenglones lector, String nombreColumna) throws IOException {
+        String[] columnas = leerColumnas(lector);
+        if (columnas == null) {
+            return -1;
+        }
+
+        int indiceColumna = obtenerIndiceColumna(columnas, nombreColumna);
+        if (indiceColumna == -1) {
+            System.err.println("La columna '" + nombreColumna + "' no existe en el archivo.");
+        }
+        return indiceColumna;
+    }
+
+    /**
+     * Lee el encabezado del archivo y lo separa en nombres de columna.
+     *
+     * @param lector El lector posicionado al inicio del archivo.
+     * @return Los nombres de las columnas, o {@code null} si el archivo está
+     *         vacío.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    private static String[] leerColumnas(LectorRenglones lector) throws IOException {
+        if (!lector.siguiente()) {
+            System.out.println("El archivo está vacío.");
+            return null;
+        }
+
+        TokenizadorCSV tokenizador = new TokenizadorCSV();
+        tokenizador.tokenizar(lector.buffer(), lector.inicio(), lector.fin());
+        return tokenizador.campos();
+    }
+
+    /**
+     * Escribe en la salida los renglones restantes del lector que cumplen el
+     * predicado.
+     *
+     * @param lector    El lector del rango a filtrar.
+     * @param predicado La condición que deben cumplir los renglones.
+     * @param salida    El flujo donde se escriben las coincidencias.
+     * @throws IOException Si ocurre un error al leer o escribir.
+     */
+    private static void filtrarRango(LectorRenglones lector, Predicado predicado, OutputStream salida)
+            throws IOException {
+        TokenizadorCSV tokenizador = new TokenizadorCSV();
+        long coincidentes = Metricas.medir("filtrar.rango", () -> {
+            long encontrados = 0;
+            while (lector.siguiente()) {
+                tokenizador.tokenizar(lector.buffer(), lector.inicio(), lector.fin());
+
+                // Verificar si el renglón cumple la condición; los renglones sin las
+                // columnas necesarias se descartan
+                if (predicado.evaluar(tokenizador)) {
+                    escribirRenglon(lector, salida); // Escribe la línea original en el archivo de salida.
+                    encontrados++;
+                }
+            }
+            return encontrados;
+        });
+        Metricas.contador(Metricas.RENGLONES_COINCIDENTES).add(coincidentes);
+    }
+
+    /**
+     * Escribe el renglón actual del lector seguido de un salto de línea.
+     *
+     * @param lector El lector posicionado en el renglón a escribir.
+     * @param salida El flujo de salida.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    private static void escribirRenglon(LectorRenglones lector, OutputStream salida) throws IOException {
+        salida.write(lector.buffer(), lector.inicio(), lector.fin() - lector.inicio());
+        salida.write('\n');
+    }
+
+    /**
+     * Construye el archivo de salida del filtrado, ubicado junto al archivo de
+     * entrada y con el nombre de la columna y el valor como prefijo.
+     *
+     * @param archivoEntrada La ruta del archivo de entrada.
+     * @param nombreColumna  El nombre de la columna filtrada.
+     * @param valorFiltro    El valor de filtro.
+     * @return El archivo donde se guardará el resultado.
+     */
+    static File obtenerArchivoSalida(String archivoEntrada, String nombreColumna, String valorFiltro) {
+        File entrada = new File(archivoEntrada);
+        return new File(entrada.getParentFile(), nombreColumna + valorFiltro + entrada.getName());
     }
 
     /**
@@ -85,7 +535,7 @@ public class Filtrar {
      * @param nombreColumna El nombre de la columna cuya posición se desea obtener.
      * @return El índice de la columna, o -1 si no se encuentra.
      */
-    private static int obtenerIndiceColumna(String[] columnas, String nombreColumna) {
+    static int obtenerIndiceColumna(String[] columnas, String nombreColumna) {
         String nombreColumnaLimpiado = nombreColumna.trim().toLowerCase(); // Limpia espacios y convierte a minúsculas
         for (int i = 0; i < columnas.length; i++) {
             String columnaLimpiada = columnas[i].replace("\"", "").trim().toLowerCase(); // Limpia comillas y espacios
@@ -97,9 +547,6 @@ public class Filtrar {
     }
 
     public static void filtrar() {
-        // Crear un objeto Scanner para leer los datos del usuario
-        Scanner sc = new Scanner(System.in);
-
         // Mostrar un mensaje inicial
         System.out.println("=====================================================");
         System.out.println("                 FILTRADO DE ARCHIVOS                ");
@@ -115,21 +562,32 @@ public class Filtrar {
 
         // Solicitar el nombre de la columna a filtrar
         System.out.println("\nIngresa el nombre de la columna que deseas filtrar:");
-        String nombreColumnaIntroducida = sc.nextLine();
+        String nombreColumnaIntroducida = Consola.leerRenglon();
 
         // Solicitar el valor del filtro
         System.out.println("\nIngresa el valor que deseas buscar en la columna '" + nombreColumnaIntroducida + "':");
-        String nombreValorFiltroIntroducido = sc.nextLine();
+        String nombreValorFiltroIntroducido = Consola.leerRenglon();
+
+        // Preguntar si se desea usar el índice de la columna
+        System.out.println("\n¿Deseas usar el índice de la columna para consultas repetidas? (s/n):");
+        boolean usarIndice = Consola.leerSiNo();
 
         // Formatear el nombre del archivo de salida
-        String archivoSalida = nombreColumnaIntroducida + nombreValorFiltroIntroducido + "_" + archivoEncontrado;
+        File archivoSalida = obtenerArchivoSalida(archivoEncontrado, nombreColumnaIntroducida,
+                nombreValorFiltroIntroducido);
 
         // Llamar al método para filtrar
         System.out.println("\nProcesando el archivo... Por favor, espera.");
 
         // Método para iniciar el temporizador
         Tiempo.iniciar();
-        filtrarPorColumna(archivoEncontrado, nombreColumnaIntroducida, nombreValorFiltroIntroducido);
+        Progreso.mostrar("Filtrado", new File(archivoEncontrado).length(), () -> {
+            if (usarIndice) {
+                filtrarPorColumnaIndexado(archivoEncontrado, nombreColumnaIntroducida, nombreValorFiltroIntroducido);
+            } else {
+                filtrarPorColumnaParalelo(archivoEncontrado, nombreColumnaIntroducida, nombreValorFiltroIntroducido);
+            }
+        });
         // Método para detener el temporizador
         Tiempo.detener();
 
@@ -139,4 +597,43 @@ public class Filtrar {
         System.out.println("=====================================================");
     }
 
-}
\ No newline at end of file
+    /**
+     * Método interactivo que filtra un archivo con una consulta compuesta, por
+     * ejemplo {@code streams > 1000000 AND region IN (mx, ar)}, en lugar de
+     * encadenar varios filtrados por columna.
+     */
+    public static void filtrarConConsulta() {
+        // Mostrar un mensaje inicial
+        System.out.println("=====================================================");
+        System.out.println("             FILTRADO CON CONSULTA                   ");
+        System.out.println("=====================================================");
+
+        // Obtener el archivo desde la clase Buscar
+        String archivoEncontrado = Buscar.buscarArchivo();
+
+        if (archivoEncontrado == null) {
+            System.out.println("\nNo se pudo encontrar el archivo. El proceso se detendrá.");
+            return; // Salir si no se encuentra el archivo
+        }
+
+        // Solicitar la consulta
+        System.out.println("\nIngresa la consulta (ejemplo: streams > 1000000 AND region IN (mx, ar)):");
+        String consulta = Consola.leerRenglon();
+
+        // El resultado se guarda junto al archivo de entrada
+        File entrada = new File(archivoEncontrado);
+        File archivoSalida = new File(entrada.getParentFile(), "consulta_" + entrada.getName());
+
+        System.out.println("\nProcesando el archivo... Por favor, espera.");
+
+        // Método para iniciar el temporizador
+        Tiempo.iniciar();
+        Progreso.mostrar("Filtrado", entrada.length(),
+                () -> filtrarPorConsulta(archivoEncontrado, consulta, archivoSalida));
+        // Método para detener el temporizador
+        Tiempo.detener();
+
+        System.out.println("=====================================================");
+    }
+
+}
@@ -1,8 +1,6 @@
 
 import java.io.*;
 import java.io.IOException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 
 interface IArchivo {
@@ -59,35 +57,13 @@ interface IArchivo {
 	}
 
 	default String obtenerMD5(File archivo) {
-		StringBuffer cadenaMD5 = new StringBuffer();
-		FileInputStream archivoLectura;
-		MessageDigest instanciaMD5;
-		byte[] bloqueFirmado;
-		byte[] bloqueBytes = new byte[512];
-		int byteActual = 0;
-
+		// Lectura con buffer grande y cierre garantizado del archivo
 		try {
-			instanciaMD5 = MessageDigest.getInstance("MD5");
-
-			archivoLectura = new FileInputStream(archivo);
-
-			while ((byteActual = archivoLectura.read(bloqueBytes)) != -1) {
-				instanciaMD5.update(bloqueBytes, 0, byteActual);
-			}
-
-			archivoLectura.close();
-
-			bloqueFirmado = instanciaMD5.digest();
-
-			for (int i = 0; i < bloqueFirmado.length; i++) {
-
-				cadenaMD5.append(Integer.toString((bloqueFirmado[i] & 0XFF) + 0x100, 16).substring(1));
-			}
-
-		} catch (NoSuchAlgorithmException | IOException e) {
+			return ServicioHash.hashear(archivo.toPath(), ServicioHash.Algoritmo.MD5);
+		} catch (IOException e) {
 			System.err.println(e);
+			return "";
 		}
-		return cadenaMD5.toString();
 	}
 
 	static void faltoNombre() {
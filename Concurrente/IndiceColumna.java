@@ -0,0 +1,310 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Clase que mantiene un índice secundario en disco para una columna de un
+ * archivo CSV. El índice se guarda en un archivo auxiliar junto al CSV
+ * ({@code archivo.csv.columna.idx}) y asocia cada valor distinto de la columna
+ * con la lista de posiciones (en bytes) de los renglones que lo contienen.
+ *
+ * <p>
+ * El índice guarda el tamaño y la fecha de modificación del CSV con que se
+ * construyó; si alguno cambia, se considera vencido y se reconstruye.
+ * </p>
+ *
+ * <p>
+ * Formato del archivo: encabezado, los bloques de posiciones de cada valor uno
+ * tras otro, el directorio (valor, número de renglones, posición y longitud de
+ * su bloque) y, en los últimos 8 bytes, la posición del directorio. Los bloques
+ * se escriben directamente al archivo conforme se codifican y todas las
+ * posiciones son {@code long}, de modo que el índice no tiene el límite de
+ * 2 GB de un arreglo de bytes.
+ * </p>
+ */
+public class IndiceColumna {
+
+    private static final int MAGIA = 0x49445843; // "IDXC"
+    private static final int VERSION = 2;
+    private static final String EXTENSION = ".idx";
+
+    private final File archivoIndice;
+    private final Map<String, Entrada> directorio;
+
+    /**
+     * Entrada del directorio del índice: dónde están las posiciones de un valor.
+     */
+    private static class Entrada {
+        final int numRenglones;
+        final long posicionBloque;
+
+        Entrada(int numRenglones, long posicionBloque) {
+            this.numRenglones = numRenglones;
+            this.posicionBloque = posicionBloque;
+        }
+    }
+
+    private IndiceColumna(File archivoIndice, Map<String, Entrada> directorio) {
+        this.archivoIndice = archivoIndice;
+        this.directorio = directorio;
+    }
+
+    /**
+     * Obtiene el índice de una columna, cargándolo del archivo auxiliar si está
+     * vigente o construyéndolo (y guardándolo) en caso contrario.
+     *
+     * @param archivoCSV    La ruta del archivo CSV.
+     * @param nombreColumna El nombre de la columna a indexar.
+     * @return El índice de la columna, o {@code null} si la columna no existe o
+     *         el archivo está vacío.
+     * @throws IOException Si ocurre un error al leer o escribir los archivos.
+     */
+    public static IndiceColumna obtener(String archivoCSV, String nombreColumna) throws IOException {
+        File csv = new File(archivoCSV);
+        File archivoIndice = archivoIndice(csv, nombreColumna);
+
+        IndiceColumna indice = cargar(csv, archivoIndice);
+        if (indice != null) {
+            return indice;
+        }
+        if (!construir(csv, nombreColumna, archivoIndice)) {
+            return null;
+        }
+        return cargar(csv, archivoIndice);
+    }
+
+    /**
+     * @param archivoCSV    El archivo CSV.
+     * @param nombreColumna El nombre de la columna.
+     * @return El archivo auxiliar donde se guarda el índice de esa columna.
+     */
+    static File archivoIndice(File archivoCSV, String nombreColumna) {
+        String columna = nombreColumna.trim().toLowerCase();
+        return new File(archivoCSV.getAbsoluteFile().getParentFile(), archivoCSV.getName() + "." + columna + EXTENSION);
+    }
+
+    /**
+     * Devuelve las posiciones de los renglones cuyo valor en la columna es igual
+     * al indicado, en el orden en que aparecen en el archivo.
+     *
+     * @param valor El valor buscado.
+     * @return Las posiciones en bytes del inicio de cada renglón.
+     * @throws IOException Si ocurre un error al leer el índice.
+     */
+    public long[] renglones(String valor) throws IOException {
+        Entrada entrada = directorio.get(valor);
+        if (entrada == null) {
+            return new long[0];
+        }
+
+        // Leer solo el bloque de posiciones de este valor
+        try (FileChannel canal = FileChannel.open(archivoIndice.toPath(), StandardOpenOption.READ)) {
+            canal.position(entrada.posicionBloque);
+            return ListaPosiciones.decodificar(new BufferedInputStream(Channels.newInputStream(canal)),
+                    entrada.numRenglones);
+        }
+    }
+
+    /**
+     * @return El número de valores distintos de la columna.
+     */
+    public int numValores() {
+        return directorio.size();
+    }
+
+    /**
+     * Carga el directorio del índice si el archivo auxiliar existe y corresponde
+     * al tamaño y la fecha de modificación actuales del CSV.
+     */
+    private static IndiceColumna cargar(File csv, File archivoIndice) throws IOException {
+        if (!archivoIndice.exists()) {
+            return null;
+        }
+
+        try (FileChannel canal = FileChannel.open(archivoIndice.toPath(), StandardOpenOption.READ)) {
+            DataInputStream entrada = new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal)));
+            if (entrada.readInt() != MAGIA || entrada.readInt() != VERSION) {
+                return null;
+            }
+            // Verificar que el CSV no haya cambiado desde que se construyó el índice
+            if (entrada.readLong() != csv.length() || entrada.readLong() != csv.lastModified()) {
+                return null;
+            }
+
+            // La posición del directorio está en los últimos 8 bytes
+            long tamano = canal.size();
+            canal.position(tamano - Long.BYTES);
+            long posicionDirectorio = new DataInputStream(Channels.newInputStream(canal)).readLong();
+            if (posicionDirectorio < 0 || posicionDirectorio > tamano - Long.BYTES) {
+                return null;
+            }
+
+            canal.position(posicionDirectorio);
+            entrada = new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal)));
+            int numValores = entrada.readInt();
+            Map<String, Entrada> directorio = new HashMap<>(numValores * 2);
+            for (int i = 0; i < numValores; i++) {
+                String valor = entrada.readUTF();
+                directorio.put(valor, new Entrada(entrada.readInt(), entrada.readLong()));
+            }
+            return new IndiceColumna(archivoIndice, directorio);
+        } catch (IOException e) {
+            // Un índice dañado o incompleto se reconstruye
+            return null;
+        }
+    }
+
+    /**
+     * Recorre el CSV una vez y escribe el archivo auxiliar del índice.
+     *
+     * @return {@code false} si el archivo está vacío o la columna no existe.
+     */
+    private static boolean construir(File csv, String nombreColumna, File archivoIndice) throws IOException {
+        // Tomar los atributos antes de leer, para que un cambio durante la lectura invalide el índice
+        long tamano = csv.length();
+        long fechaModificacion = csv.lastModified();
+
+        Map<String, ListaPosiciones> valores = new HashMap<>();
+        try (FileChannel canal = FileChannel.open(csv.toPath(), StandardOpenOption.READ)) {
+            LectorRenglones lector = new LectorRenglones(canal, 0, Math.min(tamano, canal.size()));
+            TokenizadorCSV tokenizador = new TokenizadorCSV();
+
+            if (!lector.siguiente()) {
+                return false;
+            }
+            tokenizador.tokenizar(lector.buffer(), lector.inicio(), lector.fin());
+            int indiceColumna = Filtrar.obtenerIndiceColumna(tokenizador.campos(), nombreColumna);
+            if (indiceColumna == -1) {
+                return false;
+            }
+
+            while (lector.siguiente()) {
+                int numCampos = tokenizador.tokenizar(lector.buffer(), lector.inicio(), lector.fin());
+                if (indiceColumna >= numCampos) {
+                    continue;
+                }
+                valores.computeIfAbsent(tokenizador.campo(indiceColumna), v -> new ListaPosiciones())
+                        .agregar(lector.posicionRenglon());
+            }
+        }
+
+        // Escribir en un temporal y reemplazar el índice al final, para no dejar uno a medias
+        File temporal = new File(archivoIndice.getPath() + ".tmp");
+        try (DataOutputStream salida = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporal), 64 * 1024))) {
+            salida.writeInt(MAGIA);
+            salida.writeInt(VERSION);
+            salida.writeLong(tamano);
+            salida.writeLong(fechaModificacion);
+            salida.writeUTF(nombreColumna.trim().toLowerCase());
+
+            // Los bloques se escriben al archivo conforme se codifican; size() de
+            // DataOutputStream es un int, así que la posición se lleva aparte
+            String[] claves = valores.keySet().toArray(new String[0]);
+            long[] posicionesBloque = new long[claves.length];
+            long posicion = salida.size();
+            for (int i = 0; i < claves.length; i++) {
+                posicionesBloque[i] = posicion;
+                posicion += valores.get(claves[i]).codificar(salida);
+            }
+
+            // Directorio y, al final, su posición
+            long posicionDirectorio = posicion;
+            salida.writeInt(claves.length);
+            for (int i = 0; i < claves.length; i++) {
+                salida.writeUTF(claves[i]);
+                salida.writeInt(valores.get(claves[i]).tamano);
+                salida.writeLong(posicionesBloque[i]);
+            }
+            salida.writeLong(posicionDirectorio);
+        } catch (IOException e) {
+            temporal.delete();
+            throw e;
+        }
+        Files.move(temporal.toPath(), archivoIndice.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /**
+     * Lista creciente de posiciones de renglones sin envolver cada una en un
+     * {@code Long}.
+     */
+    static class ListaPosiciones {
+        long[] posiciones = new long[8];
+        int tamano;
+
+        void agregar(long posicion) {
+            if (tamano == posiciones.length) {
+                posiciones = Arrays.copyOf(posiciones, tamano * 2);
+            }
+            posiciones[tamano++] = posicion;
+        }
+
+        /**
+         * Escribe las diferencias entre posiciones consecutivas con 7 bits por
+         * byte.
+         *
+         * @return El número de bytes escritos.
+         */
+        long codificar(OutputStream salida) throws IOException {
+            long escritos = 0;
+            long anterior = 0;
+            for (int i = 0; i < tamano; i++) {
+                long delta = posiciones[i] - anterior;
+                anterior = posiciones[i];
+                while ((delta & ~0x7FL) != 0) {
+                    salida.write((int) ((delta & 0x7F) | 0x80));
+                    delta >>>= 7;
+                    escritos++;
+                }
+                salida.write((int) delta);
+                escritos++;
+            }
+            return escritos;
+        }
+
+        /**
+         * Lee las posiciones escritas por {@link #codificar}.
+         *
+         * @param entrada      El flujo posicionado al inicio del bloque.
+         * @param numRenglones El número de posiciones del bloque.
+         * @return Las posiciones.
+         */
+        static long[] decodificar(InputStream entrada, int numRenglones) throws IOException {
+            long[] posiciones = new long[numRenglones];
+            long anterior = 0;
+            for (int i = 0; i < posiciones.length; i++) {
+                long delta = 0;
+                int desplazamiento = 0;
+                int b;
+                do {
+                    b = entrada.read();
+                    if (b < 0) {
+                        throw new EOFException("Bloque de posiciones incompleto");
+                    }
+                    delta |= (long) (b & 0x7F) << desplazamiento;
+                    desplazamiento += 7;
+                } while ((b & 0x80) != 0);
+                anterior += delta;
+                posiciones[i] = anterior;
+            }
+            return posiciones;
+        }
+    }
+}
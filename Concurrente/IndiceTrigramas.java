@@ -0,0 +1,231 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Índice invertido de trigramas para buscar subcadenas en muchos nombres sin
+ * revisar cada uno. Cada nombre (ya en minúsculas) se descompone en todas sus
+ * secuencias de tres caracteres, y cada trigrama guarda la lista de
+ * identificadores de los nombres que lo contienen.
+ *
+ * <p>
+ * Una consulta intersecta las listas de sus trigramas, empezando por la más
+ * corta, y después comprueba con {@link String#contains} los pocos candidatos
+ * que quedan. Las listas se guardan comprimidas: los identificadores se asignan
+ * en orden creciente, así que cada lista es una secuencia de diferencias
+ * codificadas como enteros de longitud variable.
+ * </p>
+ *
+ * <p>
+ * Los métodos están sincronizados porque el catálogo modifica el índice desde el
+ * hilo que procesa los eventos del sistema de archivos.
+ * </p>
+ *
+ * @param <T> El tipo de elemento asociado a cada nombre.
+ */
+public class IndiceTrigramas<T> {
+
+    // Con tan pocos candidatos ya es más barato comprobarlos que seguir intersectando
+    private static final int CANDIDATOS_SUFICIENTES = 64;
+
+    private final Map<Long, ListaPosiciones> listas = new HashMap<>();
+    private final List<String> nombres = new ArrayList<>();
+    private final List<T> elementos = new ArrayList<>();
+    private final Map<T, Integer> ids = new HashMap<>();
+    private int eliminados;
+
+    /**
+     * Agrega un nombre al índice.
+     *
+     * @param nombreMinusculas El nombre, ya en minúsculas.
+     * @param elemento         El elemento que se devuelve en las búsquedas.
+     */
+    public synchronized void agregar(String nombreMinusculas, T elemento) {
+        int id = nombres.size();
+        nombres.add(nombreMinusculas);
+        elementos.add(elemento);
+        ids.put(elemento, id);
+
+        for (int i = 0; i + 3 <= nombreMinusculas.length(); i++) {
+            // Un trigrama repetido en el mismo nombre se agrega una sola vez
+            listas.computeIfAbsent(trigrama(nombreMinusculas, i), t -> new ListaPosiciones()).agregar(id);
+        }
+    }
+
+    /**
+     * Quita un elemento del índice. Su identificador queda vacío y no vuelve a
+     * aparecer en las búsquedas; cuando la mitad de los identificadores están
+     * vacíos, el índice se reconstruye.
+     *
+     * @param elemento El elemento a quitar.
+     */
+    public synchronized void quitar(T elemento) {
+        Integer id = ids.remove(elemento);
+        if (id == null) {
+            return;
+        }
+        nombres.set(id, null);
+        elementos.set(id, null);
+        eliminados++;
+
+        if (eliminados > 1024 && eliminados * 2 > nombres.size()) {
+            compactar();
+        }
+    }
+
+    /**
+     * Vacía el índice.
+     */
+    public synchronized void limpiar() {
+        listas.clear();
+        nombres.clear();
+        elementos.clear();
+        ids.clear();
+        eliminados = 0;
+    }
+
+    // Volver a agregar los elementos vigentes para descartar los identificadores vacíos
+    private void compactar() {
+        List<String> nombresVigentes = new ArrayList<>(ids.size());
+        List<T> elementosVigentes = new ArrayList<>(ids.size());
+        for (int id = 0; id < nombres.size(); id++) {
+            if (nombres.get(id) != null) {
+                nombresVigentes.add(nombres.get(id));
+                elementosVigentes.add(elementos.get(id));
+            }
+        }
+        limpiar();
+        for (int i = 0; i < nombresVigentes.size(); i++) {
+            agregar(nombresVigentes.get(i), elementosVigentes.get(i));
+        }
+    }
+
+    /**
+     * Busca los elementos cuyo nombre contiene el texto dado.
+     *
+     * @param textoMinusculas El texto buscado, ya en minúsculas; debe tener al
+     *                        menos tres caracteres.
+     * @return Los elementos encontrados, en el orden en que se agregaron.
+     */
+    public synchronized List<T> buscar(String textoMinusculas) {
+        List<T> resultado = new ArrayList<>();
+        int numTrigramas = textoMinusculas.length() - 2;
+        if (numTrigramas <= 0) {
+            throw new IllegalArgumentException("La búsqueda por trigramas requiere al menos 3 caracteres");
+        }
+
+        // Reunir las listas de los trigramas de la consulta; si falta alguno no hay resultados
+        ListaPosiciones[] consulta = new ListaPosiciones[numTrigramas];
+        for (int i = 0; i < numTrigramas; i++) {
+            ListaPosiciones lista = listas.get(trigrama(textoMinusculas, i));
+            if (lista == null) {
+                return resultado;
+            }
+            consulta[i] = lista;
+        }
+        Arrays.sort(consulta, (a, b) -> Integer.compare(a.tamano, b.tamano));
+
+        // Intersectar de la lista más corta a la más larga
+        int[] candidatos = consulta[0].decodificar();
+        int numCandidatos = candidatos.length;
+        for (int i = 1; i < consulta.length && numCandidatos > CANDIDATOS_SUFICIENTES; i++) {
+            if (consulta[i] == consulta[i - 1]) {
+                continue; // Trigrama repetido en la consulta
+            }
+            numCandidatos = consulta[i].intersectar(candidatos, numCandidatos);
+        }
+
+        // Comprobar los candidatos: los trigramas no garantizan que estén contiguos
+        for (int i = 0; i < numCandidatos; i++) {
+            String nombre = nombres.get(candidatos[i]);
+            if (nombre != null && nombre.contains(textoMinusculas)) {
+                resultado.add(elementos.get(candidatos[i]));
+            }
+        }
+        return resultado;
+    }
+
+    // Tres caracteres de 16 bits empaquetados en un long
+    private static long trigrama(String texto, int i) {
+        return ((long) texto.charAt(i) << 32) | ((long) texto.charAt(i + 1) << 16) | texto.charAt(i + 2);
+    }
+
+    /**
+     * Lista creciente de identificadores guardada como diferencias en enteros de
+     * longitud variable (7 bits por byte).
+     */
+    static class ListaPosiciones {
+        private byte[] datos = new byte[8];
+        private int longitud;
+        private int tamano;
+        private int ultimo = -1;
+
+        void agregar(int id) {
+            if (id == ultimo) {
+                return;
+            }
+            int delta = id - ultimo;
+            ultimo = id;
+            tamano++;
+            if (longitud + 5 > datos.length) {
+                datos = Arrays.copyOf(datos, datos.length * 2);
+            }
+            while ((delta & ~0x7F) != 0) {
+                datos[longitud++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            datos[longitud++] = (byte) delta;
+        }
+
+        int[] decodificar() {
+            int[] ids = new int[tamano];
+            int posicion = 0;
+            int id = -1;
+            for (int i = 0; i < tamano; i++) {
+                int delta = 0;
+                int desplazamiento = 0;
+                byte b;
+                do {
+                    b = datos[posicion++];
+                    delta |= (b & 0x7F) << desplazamiento;
+                    desplazamiento += 7;
+                } while (b < 0);
+                id += delta;
+                ids[i] = id;
+            }
+            return ids;
+        }
+
+        // Deja en candidatos solo los que también están en esta lista; devuelve cuántos quedan
+        int intersectar(int[] candidatos, int numCandidatos) {
+            int posicion = 0;
+            int id = -1;
+            int leidos = 0;
+            int quedan = 0;
+            for (int i = 0; i < numCandidatos; i++) {
+                int buscado = candidatos[i];
+                // Avanzar en la lista hasta alcanzar o pasar al candidato
+                while (id < buscado && leidos < tamano) {
+                    int delta = 0;
+                    int desplazamiento = 0;
+                    byte b;
+                    do {
+                        b = datos[posicion++];
+                        delta |= (b & 0x7F) << desplazamiento;
+                        desplazamiento += 7;
+                    } while (b < 0);
+                    id += delta;
+                    leidos++;
+                }
+                if (id == buscado) {
+                    candidatos[quedan++] = buscado;
+                } else if (id < buscado) {
+                    break; // Se terminó la lista
+                }
+            }
+            return quedan;
+        }
+    }
+}
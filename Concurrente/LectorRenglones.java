@@ -0,0 +1,214 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Clase que lee los renglones de un rango de bytes de un archivo sin
+ * convertirlos a {@code String}. Cada renglón se expone como un intervalo
+ * {@code [inicio(), fin())} dentro de un buffer de bytes reutilizable, sin el
+ * salto de línea ni el retorno de carro final.
+ *
+ * <p>
+ * Las lecturas son posicionales, por lo que varios lectores pueden compartir
+ * el mismo {@link FileChannel} desde hilos distintos.
+ * </p>
+ */
+public class LectorRenglones {
+
+    // Tamaño inicial del buffer de lectura; crece si un renglón no cabe
+    private static final int TAMANO_BUFFER = 1024 * 1024;
+
+    private final FileChannel canal;
+    private final long hasta;
+
+    private byte[] buffer;
+    private int pos; // Primer byte aún no entregado
+    private int lim; // Fin de los bytes válidos en el buffer
+    private long baseArchivo; // Posición en el archivo de buffer[0]
+    private long siguienteLectura; // Posición en el archivo de la próxima lectura
+
+    private int inicio;
+    private int fin;
+    private long posicionRenglon;
+
+    // Renglones entregados que aún no se suman a las métricas
+    private int renglonesPendientes;
+
+    private static final LongAdder RENGLONES_LEIDOS = Metricas.contador(Metricas.RENGLONES_LEIDOS);
+    private static final LongAdder BYTES_LEIDOS = Metricas.contador(Metricas.BYTES_LEIDOS);
+
+    /**
+     * Crea un lector para los renglones contenidos en {@code [desde, hasta)}.
+     * Se asume que {@code desde} es el inicio de un renglón.
+     *
+     * @param canal El canal del archivo a leer.
+     * @param desde El primer byte del rango.
+     * @param hasta El byte (exclusivo) donde termina el rango.
+     */
+    public LectorRenglones(FileChannel canal, long desde, long hasta) {
+        this(canal, desde, hasta, TAMANO_BUFFER);
+    }
+
+    /**
+     * Crea un lector con un tamaño de buffer inicial específico.
+     *
+     * @param canal        El canal del archivo a leer.
+     * @param desde        El primer byte del rango.
+     * @param hasta        El byte (exclusivo) donde termina el rango.
+     * @param tamanoBuffer El tamaño inicial del buffer de lectura.
+     */
+    public LectorRenglones(FileChannel canal, long desde, long hasta, int tamanoBuffer) {
+        this.canal = canal;
+        this.hasta = hasta;
+        this.buffer = new byte[(int) Math.max(64, Math.min(tamanoBuffer, hasta - desde))];
+        this.baseArchivo = desde;
+        this.siguienteLectura = desde;
+    }
+
+    /**
+     * Crea un lector sobre bytes que ya están en memoria, por ejemplo un
+     * fragmento leído previamente por otro hilo.
+     *
+     * @param datos          Los bytes del fragmento, que debe iniciar al
+     *                       principio de un renglón.
+     * @param longitud       El número de bytes válidos en {@code datos}.
+     * @param posicionInicio La posición en el archivo del primer byte de
+     *                       {@code datos}.
+     */
+    public LectorRenglones(byte[] datos, int longitud, long posicionInicio) {
+        this.canal = null;
+        this.hasta = posicionInicio + longitud;
+        this.buffer = datos;
+        this.lim = longitud;
+        this.baseArchivo = posicionInicio;
+        this.siguienteLectura = hasta; // No hay nada más que leer
+    }
+
+    /**
+     * Avanza al siguiente renglón del rango.
+     *
+     * @return {@code true} si hay un renglón disponible, {@code false} al llegar
+     *         al final del rango.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public boolean siguiente() throws IOException {
+        int busqueda = pos;
+        while (true) {
+            // Buscar el salto de línea en los bytes ya cargados
+            for (int i = busqueda; i < lim; i++) {
+                if (buffer[i] == '\n') {
+                    entregar(i, i + 1);
+                    return true;
+                }
+            }
+            busqueda = lim;
+
+            if (siguienteLectura >= hasta) {
+                // Último renglón sin salto de línea
+                if (pos < lim) {
+                    entregar(lim, lim);
+                    return true;
+                }
+                RENGLONES_LEIDOS.add(renglonesPendientes);
+                renglonesPendientes = 0;
+                return false;
+            }
+
+            busqueda -= pos;
+            cargar();
+        }
+    }
+
+    /**
+     * Desplaza los bytes pendientes al inicio del buffer (ampliándolo si está
+     * lleno) y lee el siguiente bloque del archivo.
+     */
+    private void cargar() throws IOException {
+        // Sumar los renglones por bloque y no por renglón, para no competir entre hilos
+        RENGLONES_LEIDOS.add(renglonesPendientes);
+        renglonesPendientes = 0;
+
+        int pendientes = lim - pos;
+        if (pendientes == buffer.length) {
+            byte[] mayor = new byte[buffer.length * 2];
+            System.arraycopy(buffer, pos, mayor, 0, pendientes);
+            buffer = mayor;
+        } else if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, pendientes);
+        }
+        baseArchivo += pos;
+        pos = 0;
+        lim = pendientes;
+
+        ByteBuffer destino = ByteBuffer.wrap(buffer, lim, (int) Math.min(buffer.length - lim, hasta - siguienteLectura));
+        int leidos = canal.read(destino, siguienteLectura);
+        if (leidos < 0) {
+            // El archivo se acortó mientras se leía: tratarlo como fin del rango
+            siguienteLectura = hasta;
+            return;
+        }
+        siguienteLectura += leidos;
+        lim += leidos;
+        BYTES_LEIDOS.add(leidos);
+    }
+
+    private void entregar(int finSinSalto, int siguiente) {
+        inicio = pos;
+        fin = finSinSalto;
+        // Quitar el retorno de carro de los finales de línea "\r\n"
+        if (fin > inicio && buffer[fin - 1] == '\r') {
+            fin--;
+        }
+        posicionRenglon = baseArchivo + pos;
+        pos = siguiente;
+        renglonesPendientes++;
+    }
+
+    /**
+     * @return El buffer que contiene el renglón actual.
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * @return La posición del primer byte del renglón actual en el buffer.
+     */
+    public int inicio() {
+        return inicio;
+    }
+
+    /**
+     * @return La posición (exclusiva) del último byte del renglón actual en el
+     *         buffer, sin contar el salto de línea.
+     */
+    public int fin() {
+        return fin;
+    }
+
+    /**
+     * @return La posición en el archivo donde inicia el renglón actual.
+     */
+    public long posicionRenglon() {
+        return posicionRenglon;
+    }
+
+    /**
+     * @return La posición en el archivo del primer byte que aún no se entrega.
+     */
+    public long posicionSiguiente() {
+        return baseArchivo + pos;
+    }
+
+    /**
+     * Convierte el renglón actual a {@code String}. Pensado para encabezados y
+     * mensajes, no para el ciclo principal.
+     *
+     * @return El renglón actual como cadena.
+     */
+    public String renglon() {
+        return new String(buffer, inicio, fin - inicio, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,481 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ejecuta sin preguntas una lista de operaciones descrita en un archivo de
+ * trabajos, en lugar de elegirlas una por una en el {@link Menu}. Todas las
+ * operaciones corren una tras otra en la misma JVM, por lo que a partir de la
+ * segunda ya se aprovecha el código compilado por el JIT y los archivos ya
+ * leídos siguen en la caché del sistema operativo.
+ *
+ * <p>
+ * El archivo tiene un trabajo por bloque de renglones {@code clave=valor}; los
+ * bloques se separan con un renglón vacío y los renglones que empiezan con
+ * {@code #} se ignoran:
+ * </p>
+ *
+ * <pre>
+ * operacion=filtrar
+ * entrada=charts.csv
+ * columna=region
+ * valor=Mexico
+ *
+ * operacion=consulta
+ * entrada=charts.csv
+ * consulta=streams &gt; 1000000 AND region IN (Mexico, Argentina)
+ * hilos=4
+ * </pre>
+ *
+ * <p>
+ * Operaciones y sus claves: {@code contar}, {@code dimensionar} y {@code hash}
+ * ({@code entrada}, {@code algoritmo}); {@code dividir} ({@code partes} o
+ * {@code tamanoParte} en MB, {@code encabezado}, {@code sumas}); {@code filtrar}
+ * ({@code columna}, {@code valor}, {@code indice}); {@code consulta}
+ * ({@code consulta}, {@code salida}); {@code procesar} ({@code carpeta},
+ * {@code modo} forkjoin o es, {@code columnas}, {@code todos},
+ * {@code columnar}); {@code agrupar} ({@code clave}, {@code valor},
+ * {@code distintos}, {@code salida}); {@code columnar} ({@code entrada})
+ * construye la {@link CacheColumnar} que usan después {@code consulta} y
+ * {@code agrupar}; {@code buscar} ({@code carpeta}, {@code nombre});
+ * {@code seguir} ({@code consulta} o {@code columnas}, {@code salida},
+ * {@code veces}, {@code intervalo} en segundos) procesa solo los renglones
+ * agregados desde la vez anterior (ver {@link Seguimiento}), una vez o
+ * {@code veces} veces, o sin fin con {@code veces=0}. La operación
+ * {@code tuberia} combina en un solo recorrido (ver {@link Tuberia}) las que
+ * se pidan de {@code contar}, {@code consulta} con {@code guardar},
+ * {@code columnas}, {@code clave} y {@code partes}. Cualquier trabajo acepta
+ * {@code hilos}.
+ * </p>
+ *
+ * <p>
+ * Uso: {@code java Lote trabajos.txt [--hilos=N]}, o {@code -} en lugar del
+ * archivo para leer los trabajos de la entrada estándar. Un trabajo que falla
+ * se informa y el lote continúa con el siguiente; al final se muestra un
+ * resumen con el resultado y la duración de cada trabajo.
+ * </p>
+ */
+public class Lote {
+
+    // Paralelismo de todo el lote (--hilos); 0 para usar los CPUs detectados
+    private static int hilosLote;
+
+    /**
+     * Resultado de un trabajo para el resumen final.
+     */
+    private static class Resultado {
+        final int numero;
+        final String operacion;
+        final String estado;
+        final long milisegundos;
+
+        Resultado(int numero, String operacion, String estado, long milisegundos) {
+            this.numero = numero;
+            this.operacion = operacion;
+            this.estado = estado;
+            this.milisegundos = milisegundos;
+        }
+    }
+
+    public static void main(String[] args) {
+        String archivoTrabajos = null;
+        int hilos = 0;
+        for (String argumento : args) {
+            if (argumento.startsWith("--hilos=")) {
+                try {
+                    hilos = Integer.parseInt(argumento.substring("--hilos=".length()));
+                } catch (NumberFormatException e) {
+                    hilos = -1;
+                }
+                if (hilos < 0) {
+                    System.err.println("Número de hilos no válido: " + argumento);
+                    System.err.println("Uso: java Lote <archivo de trabajos | -> [--hilos=N]");
+                    System.exit(2);
+                }
+            } else {
+                archivoTrabajos = argumento;
+            }
+        }
+        if (archivoTrabajos == null) {
+            System.err.println("Uso: java Lote <archivo de trabajos | -> [--hilos=N]");
+            System.exit(2);
+        }
+
+        List<Map<String, String>> trabajos;
+        try {
+            trabajos = leerTrabajos(archivoTrabajos);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("No se pudo leer el archivo de trabajos: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        hilosLote = Math.max(0, hilos);
+        NumeroCPUs.establecerParalelismo(hilosLote);
+        List<Resultado> resultados = ejecutarTodos(trabajos);
+        mostrarResumen(resultados);
+
+        for (Resultado resultado : resultados) {
+            if (!resultado.estado.equals("ok")) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Lee los trabajos de un archivo, o de la entrada estándar si la ruta es
+     * {@code -}.
+     *
+     * @param ruta La ruta del archivo de trabajos.
+     * @return Los trabajos en orden, cada uno como un mapa de claves a valores.
+     * @throws IOException              Si el archivo no se puede leer.
+     * @throws IllegalArgumentException Si un renglón no tiene la forma
+     *                                  {@code clave=valor}.
+     */
+    public static List<Map<String, String>> leerTrabajos(String ruta) throws IOException {
+        if (ruta.equals("-")) {
+            // La entrada estándar se lee completa; ninguna operación del lote pregunta nada
+            BufferedReader lector = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            return leerTrabajos(lector);
+        }
+        if (!new File(ruta).isFile()) {
+            throw new FileNotFoundException(ruta);
+        }
+        try (BufferedReader lector = Files.newBufferedReader(Paths.get(ruta), StandardCharsets.UTF_8)) {
+            return leerTrabajos(lector);
+        }
+    }
+
+    private static List<Map<String, String>> leerTrabajos(BufferedReader lector) throws IOException {
+        List<Map<String, String>> trabajos = new ArrayList<>();
+        Map<String, String> actual = new LinkedHashMap<>();
+        int numeroRenglon = 0;
+        String renglon;
+        while ((renglon = lector.readLine()) != null) {
+            numeroRenglon++;
+            String texto = renglon.trim();
+            if (texto.isEmpty()) {
+                // Fin del bloque
+                if (!actual.isEmpty()) {
+                    trabajos.add(actual);
+                    actual = new LinkedHashMap<>();
+                }
+                continue;
+            }
+            if (texto.startsWith("#")) {
+                continue;
+            }
+            int igual = texto.indexOf('=');
+            if (igual <= 0) {
+                throw new IllegalArgumentException("renglón " + numeroRenglon + ": se esperaba clave=valor");
+            }
+            actual.put(texto.substring(0, igual).trim(), texto.substring(igual + 1).trim());
+        }
+        if (!actual.isEmpty()) {
+            trabajos.add(actual);
+        }
+        return trabajos;
+    }
+
+    /**
+     * Ejecuta los trabajos en orden. Cada trabajo se mide con {@link Tiempo};
+     * un error se informa y no detiene a los siguientes.
+     *
+     * @param trabajos Los trabajos a ejecutar.
+     * @return El resultado de cada trabajo.
+     */
+    private static List<Resultado> ejecutarTodos(List<Map<String, String>> trabajos) {
+        List<Resultado> resultados = new ArrayList<>();
+        int numero = 0;
+        for (Map<String, String> trabajo : trabajos) {
+            numero++;
+            String operacion = trabajo.getOrDefault("operacion", "?");
+            System.out.println("\n=====================================================");
+            System.out.println("Trabajo " + numero + ": " + operacion + " " + trabajo.getOrDefault("entrada", ""));
+            System.out.println("=====================================================");
+
+            String estado = "ok";
+            Tiempo.iniciar();
+            try {
+                ejecutar(trabajo);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error en el trabajo " + numero + " (" + operacion + "): " + e.getMessage());
+                estado = "error";
+            } finally {
+                Tiempo.detener();
+            }
+            if (estado.equals("ok")) {
+                Tiempo.mostrarTiempo();
+            }
+            resultados.add(new Resultado(numero, operacion, estado, Metricas.duracionNanos() / 1_000_000));
+        }
+        return resultados;
+    }
+
+    /**
+     * Ejecuta un trabajo. La clave {@code hilos} limita el paralelismo solo
+     * durante este trabajo.
+     *
+     * @param trabajo Las claves del trabajo.
+     * @throws IOException              Si la operación no puede leer o escribir
+     *                                  sus archivos.
+     * @throws IllegalArgumentException Si falta una clave o su valor no es
+     *                                  válido.
+     */
+    public static void ejecutar(Map<String, String> trabajo) throws IOException {
+        if (trabajo.containsKey("hilos")) {
+            NumeroCPUs.establecerParalelismo(entero(trabajo, "hilos"));
+        }
+        try {
+            ejecutarOperacion(trabajo);
+        } finally {
+            NumeroCPUs.establecerParalelismo(hilosLote);
+        }
+    }
+
+    private static void ejecutarOperacion(Map<String, String> trabajo) throws IOException {
+        String operacion = requerida(trabajo, "operacion").toLowerCase(Locale.ROOT);
+        switch (operacion) {
+            case "contar": {
+                String entrada = entrada(trabajo);
+                System.out.println("Número de renglones: " + ContadorRenglones.contarRenglones(entrada));
+                break;
+            }
+            case "dimensionar": {
+                String entrada = entrada(trabajo);
+                System.out.println("Número de renglones: " + Dimensionar.contarRenglonesCSV(entrada));
+                System.out.println("Número de columnas: " + Dimensionar.contarColumnasCSV(entrada));
+                break;
+            }
+            case "dividir": {
+                String entrada = entrada(trabajo);
+                boolean repetirEncabezado = siNo(trabajo, "encabezado");
+                boolean calcularSumas = siNo(trabajo, "sumas");
+                boolean dividido = Progreso.mostrar("División", new File(entrada).length(), () -> {
+                    if (trabajo.containsKey("tamanoParte")) {
+                        long tamanoParte = entero(trabajo, "tamanoParte") * 1024L * 1024L;
+                        return new Dividir().dividirCSVPorTamano(entrada, tamanoParte, repetirEncabezado,
+                                calcularSumas);
+                    }
+                    int partes = trabajo.containsKey("partes") ? entero(trabajo, "partes")
+                            : 4 * NumeroCPUs.numeroCPUs();
+                    return new Dividir().dividirCSV(entrada, partes, repetirEncabezado, calcularSumas);
+                });
+                if (!dividido) {
+                    throw new IOException("no se pudo dividir " + entrada);
+                }
+                break;
+            }
+            case "filtrar": {
+                String entrada = entrada(trabajo);
+                String columna = requerida(trabajo, "columna");
+                String valor = requerida(trabajo, "valor");
+                boolean filtrado = Progreso.mostrar("Filtrado", new File(entrada).length(),
+                        () -> siNo(trabajo, "indice") ? Filtrar.filtrarPorColumnaIndexado(entrada, columna, valor)
+                                : Filtrar.filtrarPorColumnaParalelo(entrada, columna, valor));
+                if (!filtrado) {
+                    throw new IOException("no se pudo filtrar " + entrada);
+                }
+                break;
+            }
+            case "consulta": {
+                String entrada = entrada(trabajo);
+                File archivoSalida = salida(trabajo, "consulta_");
+                String consulta = requerida(trabajo, "consulta");
+                boolean filtrado = Progreso.mostrar("Filtrado", new File(entrada).length(),
+                        () -> Filtrar.filtrarPorConsulta(entrada, consulta, archivoSalida));
+                if (!filtrado) {
+                    throw new IOException("no se pudo aplicar la consulta a " + entrada);
+                }
+                break;
+            }
+            case "procesar": {
+                File directorio = new File(trabajo.getOrDefault("carpeta", "."));
+                ProcesamientoConHilos.Modo modo = trabajo.getOrDefault("modo", "forkjoin").equalsIgnoreCase("es")
+                        ? ProcesamientoConHilos.Modo.ENTRADA_SALIDA
+                        : ProcesamientoConHilos.Modo.FORK_JOIN;
+                Proyeccion proyeccion = Proyeccion.desdeTexto(trabajo.getOrDefault("columnas", ""));
+                // Con todos=s se procesan también los archivos que no cambiaron
+                if (!ProcesamientoConHilos.procesarArchivos(directorio, modo, !siNo(trabajo, "todos"), proyeccion,
+                        siNo(trabajo, "columnar"))) {
+                    throw new IOException("no se pudieron procesar los archivos de " + directorio.getPath());
+                }
+                break;
+            }
+            case "seguir": {
+                String entrada = entrada(trabajo);
+                String consulta = opcional(trabajo, "consulta");
+                Seguimiento seguimiento;
+                File archivoSalida;
+                if (consulta != null) {
+                    seguimiento = Filtrar.crearSeguimiento(consulta);
+                    archivoSalida = salida(trabajo, "consulta_");
+                } else {
+                    seguimiento = ProcesarArchivo
+                            .crearSeguimiento(Proyeccion.desdeTexto(trabajo.getOrDefault("columnas", "")));
+                    if (trabajo.containsKey("salida")) {
+                        archivoSalida = new File(trabajo.get("salida"));
+                    } else if (ProcesarArchivo.prepararCarpetaSalida()) {
+                        archivoSalida = ProcesarArchivo.obtenerArchivoSalida(entrada);
+                    } else {
+                        throw new IOException("no se pudo crear la carpeta de salida");
+                    }
+                }
+                int veces = trabajo.containsKey("veces") ? entero(trabajo, "veces") : 1;
+                long intervalo = (trabajo.containsKey("intervalo") ? entero(trabajo, "intervalo") : 5) * 1000L;
+                for (int i = 0; veces == 0 || i < veces; i++) {
+                    if (i > 0) {
+                        try {
+                            Thread.sleep(intervalo);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("seguimiento interrumpido");
+                        }
+                    }
+                    long procesados = seguimiento.actualizar(new File(entrada), archivoSalida);
+                    if (procesados < 0) {
+                        throw new IOException("no se pudo procesar " + entrada);
+                    }
+                    System.out.println("Bytes nuevos procesados de " + entrada + ": " + procesados);
+                }
+                break;
+            }
+            case "agrupar": {
+                String entrada = entrada(trabajo);
+                if (!Agregacion.agrupar(entrada, requerida(trabajo, "clave"), opcional(trabajo, "valor"),
+                        opcional(trabajo, "distintos"), salida(trabajo, "agregado_"))) {
+                    throw new IOException("no se pudo agrupar " + entrada);
+                }
+                break;
+            }
+            case "columnar": {
+                String entrada = entrada(trabajo);
+                CacheColumnar cache = CacheColumnar.obtener(entrada);
+                if (cache == null) {
+                    throw new IOException("no se pudo crear la caché columnar de " + entrada);
+                }
+                System.out.println("Caché columnar: " + cache.numRenglones() + " renglones en "
+                        + cache.numGrupos() + " grupos");
+                break;
+            }
+            case "buscar": {
+                File carpeta = new File(trabajo.getOrDefault("carpeta", "."));
+                List<String> encontrados = Buscar.buscarTodosLosArchivos(carpeta, requerida(trabajo, "nombre"));
+                if (encontrados.isEmpty()) {
+                    System.out.println("No se encontró el archivo.");
+                }
+                for (String ruta : encontrados) {
+                    System.out.println(ruta);
+                }
+                break;
+            }
+            case "hash": {
+                String entrada = entrada(trabajo);
+                ServicioHash.Algoritmo algoritmo = ServicioHash.Algoritmo
+                        .valueOf(trabajo.getOrDefault("algoritmo", "XXH64").toUpperCase(Locale.ROOT));
+                System.out.println(algoritmo + ": " + ServicioHash.hashear(Paths.get(entrada), algoritmo));
+                break;
+            }
+            case "tuberia": {
+                String entrada = entrada(trabajo);
+                File archivo = new File(entrada);
+                Tuberia tuberia = Tuberia.desde(entrada);
+                if (siNo(trabajo, "contar")) {
+                    tuberia.contar();
+                }
+                if (trabajo.containsKey("consulta")) {
+                    tuberia.filtrar(requerida(trabajo, "consulta")).contar();
+                    if (siNo(trabajo, "guardar")) {
+                        tuberia.guardar(new File(archivo.getParentFile(), "consulta_" + archivo.getName()));
+                    }
+                }
+                if (trabajo.containsKey("columnas")) {
+                    tuberia.proyectar(Proyeccion.desdeTexto(trabajo.get("columnas")),
+                            new File(archivo.getParentFile(), "proyeccion_" + archivo.getName()));
+                }
+                if (trabajo.containsKey("clave")) {
+                    tuberia.agrupar(requerida(trabajo, "clave"), opcional(trabajo, "valor"),
+                            opcional(trabajo, "distintos"),
+                            new File(archivo.getParentFile(), "agregado_" + archivo.getName()));
+                }
+                if (trabajo.containsKey("partes")) {
+                    tuberia.dividir(entero(trabajo, "partes"), siNo(trabajo, "encabezado"));
+                }
+                Progreso.mostrar("Recorrido", archivo.length(), tuberia::ejecutar);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("operación desconocida: " + operacion);
+        }
+    }
+
+    private static void mostrarResumen(List<Resultado> resultados) {
+        System.out.println("\n=====================================================");
+        System.out.println("                 RESUMEN DEL LOTE                    ");
+        System.out.println("=====================================================");
+        System.out.printf("%-8s %-14s %-8s %12s%n", "trabajo", "operación", "estado", "ms");
+        long total = 0;
+        for (Resultado resultado : resultados) {
+            System.out.printf("%-8d %-14s %-8s %12d%n", resultado.numero, resultado.operacion, resultado.estado,
+                    resultado.milisegundos);
+            total += resultado.milisegundos;
+        }
+        System.out.printf("%-8s %-14s %-8s %12d%n", "total", "", "", total);
+    }
+
+    // Archivo de entrada del trabajo; debe existir
+    private static String entrada(Map<String, String> trabajo) throws FileNotFoundException {
+        String entrada = requerida(trabajo, "entrada");
+        if (!new File(entrada).isFile()) {
+            throw new FileNotFoundException("no existe el archivo " + entrada);
+        }
+        return entrada;
+    }
+
+    // Archivo de salida del trabajo; si no se indica, junto a la entrada con el prefijo dado
+    private static File salida(Map<String, String> trabajo, String prefijo) {
+        if (trabajo.containsKey("salida")) {
+            return new File(trabajo.get("salida"));
+        }
+        File entrada = new File(trabajo.get("entrada"));
+        return new File(entrada.getParentFile(), prefijo + entrada.getName());
+    }
+
+    private static String requerida(Map<String, String> trabajo, String clave) {
+        String valor = trabajo.get(clave);
+        if (valor == null || valor.isEmpty()) {
+            throw new IllegalArgumentException("falta la clave '" + clave + "'");
+        }
+        return valor;
+    }
+
+    // Valor de una clave opcional, o null si no se indicó
+    private static String opcional(Map<String, String> trabajo, String clave) {
+        String valor = trabajo.get(clave);
+        return valor == null || valor.isEmpty() ? null : valor;
+    }
+
+    private static int entero(Map<String, String> trabajo, String clave) {
+        try {
+            return Integer.parseInt(requerida(trabajo, clave));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("la clave '" + clave + "' debe ser un número entero");
+        }
+    }
+
+    private static boolean siNo(Map<String, String> trabajo, String clave) {
+        String valor = trabajo.getOrDefault(clave, "no").toLowerCase(Locale.ROOT);
+        return valor.equals("s") || valor.equals("si") || valor.equals("sí") || valor.equals("true");
+    }
+}
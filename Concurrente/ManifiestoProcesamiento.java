@@ -0,0 +1,271 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de los archivos que ya se procesaron, para que una nueva ejecución
+ * de {@link ProcesamientoConHilos} solo procese los archivos nuevos o
+ * modificados.
+ *
+ * <p>
+ * Por cada archivo de entrada se guarda su tamaño, su fecha de modificación, su
+ * hash XXH64 (calculado con {@link ServicioHash}), el archivo de salida que
+ * produjo y la configuración usada (el encabezado de salida). Un archivo se
+ * omite si su tamaño y fecha no cambiaron y su salida sigue existiendo; si solo
+ * cambió la fecha, se compara el hash del contenido antes de volver a
+ * procesarlo. El hash de los archivos procesados se calcula al guardar el
+ * manifiesto, no antes de procesarlos.
+ * </p>
+ *
+ * <p>
+ * El manifiesto es un archivo de texto con un registro por renglón y los campos
+ * separados por tabuladores.
+ * </p>
+ */
+public class ManifiestoProcesamiento {
+
+    static final String NOMBRE_ARCHIVO = ".manifiesto";
+
+    /**
+     * Datos registrados de un archivo de entrada.
+     */
+    private static class Registro {
+        final long tamano;
+        final long fechaModificacion;
+        final String hash;
+        final String salida;
+        final long tamanoSalida;
+        final String configuracion;
+
+        Registro(long tamano, long fechaModificacion, String hash, String salida, long tamanoSalida,
+                String configuracion) {
+            this.tamano = tamano;
+            this.fechaModificacion = fechaModificacion;
+            this.hash = hash;
+            this.salida = salida;
+            this.tamanoSalida = tamanoSalida;
+            this.configuracion = configuracion;
+        }
+    }
+
+    private final File archivo;
+    private final Map<String, Registro> registros = new ConcurrentHashMap<>();
+
+    // Atributos de los archivos pendientes, tomados antes de procesarlos. El hash es
+    // null si debe calcularse al guardar y vacío si no se calculará
+    private final Map<String, Registro> pendientes = new ConcurrentHashMap<>();
+
+    private ManifiestoProcesamiento(File archivo) {
+        this.archivo = archivo;
+    }
+
+    /**
+     * Carga el manifiesto de una carpeta de salida. Si no existe o no se puede
+     * leer, se empieza con un manifiesto vacío y todos los archivos se procesan.
+     *
+     * @param carpetaSalida La carpeta donde se guardan los resultados.
+     * @return El manifiesto.
+     */
+    public static ManifiestoProcesamiento cargar(String carpetaSalida) {
+        ManifiestoProcesamiento manifiesto = new ManifiestoProcesamiento(new File(carpetaSalida, NOMBRE_ARCHIVO));
+        if (!manifiesto.archivo.exists()) {
+            return manifiesto;
+        }
+
+        try (BufferedReader lector = new BufferedReader(new FileReader(manifiesto.archivo))) {
+            String renglon;
+            while ((renglon = lector.readLine()) != null) {
+                String[] campos = renglon.split("\t", -1);
+                if (campos.length != 7) {
+                    continue; // Renglón incompleto
+                }
+                manifiesto.registros.put(campos[0], new Registro(Long.parseLong(campos[1]),
+                        Long.parseLong(campos[2]), campos[3], campos[4], Long.parseLong(campos[5]), campos[6]));
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("No se pudo leer el manifiesto, se procesarán todos los archivos: " + e.getMessage());
+            manifiesto.registros.clear();
+        }
+        return manifiesto;
+    }
+
+    /**
+     * Selecciona los archivos que deben procesarse: los que no están en el
+     * manifiesto, los que cambiaron y aquellos cuya salida ya no existe. Solo se
+     * calcula ahora el hash de los archivos con el mismo tamaño y otra fecha,
+     * para decidir si su contenido cambió; de los demás se toman el tamaño y la
+     * fecha, para registrarlos cuando terminen de procesarse.
+     *
+     * @param archivos      Los archivos de entrada.
+     * @param configuracion La configuración con la que se procesarán.
+     * @param todos         {@code true} para procesar todos los archivos aunque
+     *                      no hayan cambiado; en ese caso no se calcula ningún
+     *                      hash.
+     * @return Los archivos a procesar, en el mismo orden.
+     */
+    public List<File> seleccionarPendientes(File[] archivos, String configuracion, boolean todos) {
+        List<File> seleccionados = new ArrayList<>();
+        List<File> porComparar = new ArrayList<>();
+
+        for (File entrada : archivos) {
+            Registro registro = registros.get(clave(entrada));
+            if (todos || registro == null || !registro.configuracion.equals(configuracion)
+                    || registro.tamano != entrada.length() || !salidaIntacta(registro)) {
+                seleccionados.add(entrada);
+            } else if (registro.fechaModificacion != entrada.lastModified()) {
+                porComparar.add(entrada); // Mismo tamaño pero otra fecha: decide el contenido
+            }
+        }
+
+        // Con todos, el hash queda vacío; en otro caso se calcula al guardar
+        String hashPendiente = todos ? "" : null;
+        for (File entrada : seleccionados) {
+            pendientes.put(clave(entrada), new Registro(entrada.length(), entrada.lastModified(), hashPendiente, null,
+                    0, configuracion));
+        }
+
+        // Calcular en paralelo los hashes de los candidatos a omitir
+        String[] hashes;
+        try {
+            hashes = ServicioHash.hashearTodos(porComparar.toArray(new File[0]), ServicioHash.Algoritmo.XXH64);
+        } catch (IOException e) {
+            System.err.println("No se pudo calcular el hash de los archivos: " + e.getMessage());
+            // Sin hashes no se puede comparar: procesar también todos los candidatos
+            hashes = new String[porComparar.size()];
+        }
+
+        for (int i = 0; i < porComparar.size(); i++) {
+            File entrada = porComparar.get(i);
+            Registro registro = registros.get(clave(entrada));
+            Registro actual = new Registro(entrada.length(), entrada.lastModified(), hashes[i], null, 0, configuracion);
+
+            if (registro.hash.equals(hashes[i])) {
+                // Solo cambió la fecha: actualizarla y omitir el archivo
+                registros.put(clave(entrada), new Registro(actual.tamano, actual.fechaModificacion, actual.hash,
+                        registro.salida, registro.tamanoSalida, configuracion));
+            } else {
+                pendientes.put(clave(entrada), actual);
+                seleccionados.add(entrada);
+            }
+        }
+
+        // Conservar el orden original
+        Set<File> elegidos = new HashSet<>(seleccionados);
+        List<File> resultado = new ArrayList<>();
+        for (File entrada : archivos) {
+            if (elegidos.contains(entrada)) {
+                resultado.add(entrada);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Registra que un archivo se procesó correctamente. Puede llamarse desde
+     * varios hilos a la vez.
+     *
+     * @param entrada El archivo de entrada.
+     * @param salida  El archivo de salida que produjo.
+     */
+    public void registrar(File entrada, File salida) {
+        Registro pendiente = pendientes.remove(clave(entrada));
+        if (pendiente == null) {
+            return; // No se seleccionó en esta ejecución
+        }
+        registros.put(clave(entrada), new Registro(pendiente.tamano, pendiente.fechaModificacion, pendiente.hash,
+                clave(salida), salida.length(), pendiente.configuracion));
+    }
+
+    /**
+     * Escribe el manifiesto. Antes se calcula en paralelo el hash de los
+     * archivos registrados en esta ejecución. Se escribe primero a un archivo
+     * temporal y luego se reemplaza, para no dejar un manifiesto a medias si el
+     * proceso termina.
+     */
+    public void guardar() {
+        calcularHashesPendientes();
+
+        File temporal = new File(archivo.getPath() + ".tmp");
+        try (BufferedWriter escritor = new BufferedWriter(new FileWriter(temporal))) {
+            for (Map.Entry<String, Registro> entrada : registros.entrySet()) {
+                Registro registro = entrada.getValue();
+                escritor.write(entrada.getKey() + "\t" + registro.tamano + "\t" + registro.fechaModificacion + "\t"
+                        + registro.hash + "\t" + registro.salida + "\t" + registro.tamanoSalida + "\t"
+                        + registro.configuracion);
+                escritor.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar el manifiesto: " + e.getMessage());
+            return;
+        }
+
+        try {
+            Files.move(temporal.toPath(), archivo.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar el manifiesto: " + e.getMessage());
+            temporal.delete();
+        }
+    }
+
+    /**
+     * Calcula el hash de los archivos registrados sin hash. Un archivo que
+     * cambió después de seleccionarse, o cuyo hash no se pudo calcular, se
+     * quita del manifiesto para procesarlo de nuevo la próxima vez.
+     */
+    private void calcularHashesPendientes() {
+        List<String> claves = new ArrayList<>();
+        List<File> porHashear = new ArrayList<>();
+        for (Map.Entry<String, Registro> entrada : registros.entrySet()) {
+            Registro registro = entrada.getValue();
+            if (registro.hash != null) {
+                continue;
+            }
+            File archivo = new File(entrada.getKey());
+            if (archivo.length() != registro.tamano || archivo.lastModified() != registro.fechaModificacion) {
+                registros.remove(entrada.getKey());
+            } else {
+                claves.add(entrada.getKey());
+                porHashear.add(archivo);
+            }
+        }
+        if (porHashear.isEmpty()) {
+            return;
+        }
+
+        try {
+            String[] hashes = ServicioHash.hashearTodos(porHashear.toArray(new File[0]),
+                    ServicioHash.Algoritmo.XXH64);
+            for (int i = 0; i < hashes.length; i++) {
+                Registro registro = registros.get(claves.get(i));
+                registros.put(claves.get(i), new Registro(registro.tamano, registro.fechaModificacion, hashes[i],
+                        registro.salida, registro.tamanoSalida, registro.configuracion));
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo calcular el hash de los archivos: " + e.getMessage());
+            registros.keySet().removeAll(claves);
+        }
+    }
+
+    private static String clave(File archivo) {
+        return archivo.toPath().toAbsolutePath().normalize().toString();
+    }
+
+    // La salida registrada debe existir y no haber sido modificada
+    private static boolean salidaIntacta(Registro registro) {
+        Path salida = new File(registro.salida).toPath();
+        return Files.isRegularFile(salida) && salida.toFile().length() == registro.tamanoSalida;
+    }
+}
@@ -1,5 +1,3 @@
-import java.util.Scanner;
-
 public class Menu {
 
     /**
@@ -19,14 +17,15 @@ public class Menu {
         System.out.println("4. Dividir un archivo en subarchivos");
         System.out.println("5. Filtrar un archivo");
         System.out.println("6. Procesar archivos con hilos (extraer columnas específicas)");
+        System.out.println("7. Filtrar un archivo con una consulta");
+        System.out.println("8. Agrupar un archivo y resumir una columna");
+        System.out.println("9. Contar, filtrar, extraer, agrupar y dividir en un solo recorrido");
         System.out.println("=========================\n ");
 
-        // Crear un objeto Scanner para leer la entrada del usuario
-        Scanner sc = new Scanner(System.in);
-
-        // Solicitar al usuario que ingrese la opción deseada
+        // Solicitar al usuario que ingrese la opción deseada; la entrada se lee
+        // con Consola, que comparten todas las clases
         System.out.print("Por favor ingresa el número de la opción que deseas elegir: \n");
-        int opcionSeleccionada = sc.nextInt();
+        int opcionSeleccionada = Consola.leerEntero();
 
         // Lógica para ejecutar la opción seleccionada
         switch (opcionSeleccionada) {
@@ -54,19 +53,49 @@ public class Menu {
                 Tiempo.mostrarTiempo();
                 break;
             case 6:
+                // Elegir el modo de ejecución
+                System.out.println("Modo de ejecución: 1. CPU (fork/join)  2. E/S intensiva (almacenamiento de red)");
+                ProcesamientoConHilos.Modo modo = Consola.leerEntero() == 2 ? ProcesamientoConHilos.Modo.ENTRADA_SALIDA
+                        : ProcesamientoConHilos.Modo.FORK_JOIN;
+
+                // Columnas a extraer; Enter para las siete columnas predeterminadas
+                System.out.println("Columnas a extraer separadas por comas (Enter para: "
+                        + Proyeccion.POR_DEFECTO.encabezado() + "):");
+                Proyeccion proyeccion;
+                try {
+                    proyeccion = Proyeccion.desdeTexto(Consola.leerRenglon());
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                    break;
+                }
+
+                // La caché columnar acelera las consultas y agregaciones posteriores sobre las salidas
+                System.out.println("¿Generar también la caché columnar? (s/n)");
+                boolean columnar = Consola.leerSiNo();
+
                 // Llamar al método para procesar los archivos con hilos
                 System.out.println("Iniciando procesamiento de archivos con hilos...");
                 Tiempo.iniciar();
-                ProcesamientoConHilos.procesarArchivos();
+                ProcesamientoConHilos.procesarArchivos(modo, true, proyeccion, columnar);
                 Tiempo.detener();
                 Tiempo.mostrarTiempo();
                 break;
+            case 7:
+                Filtrar.filtrarConConsulta();
+                Tiempo.mostrarTiempo();
+                break;
+            case 8:
+                Agregacion.agregar();
+                Tiempo.mostrarTiempo();
+                break;
+            case 9:
+                Tuberia.tuberia();
+                Tiempo.mostrarTiempo();
+                break;
             default:
                 // Mensaje de despedida si se ingresa una opción inválida
                 System.out.println("\n¡Hasta luego! Opción no válida.");
                 break;
         }
-
-        sc.close(); // Cerrar el Scanner para evitar fugas de recursos
     }
 }
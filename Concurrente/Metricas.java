@@ -0,0 +1,320 @@
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registro de métricas compartido por todos los hilos: contadores (renglones y
+ * bytes leídos, bytes escritos, renglones que cumplen un filtro) y
+ * temporizadores por etapa que guardan un histograma de duraciones. Los
+ * contadores usan {@link LongAdder} y los histogramas, arreglos atómicos, de
+ * modo que varios hilos pueden registrar a la vez sin bloquearse.
+ *
+ * <p>
+ * Las mediciones cubren una ventana de trabajo que se abre con
+ * {@link #iniciar()} y se cierra con {@link #detener()} (lo hace
+ * {@link Tiempo}); el reporte calcula con ella el rendimiento en MB/s y
+ * renglones/s.
+ * </p>
+ *
+ * <pre>
+ * long coincidentes = Metricas.medir("filtrar.rango", () -&gt; filtrar(lector));
+ * Metricas.medir("proyectar.rango", () -&gt; {
+ *     // trabajo de la etapa
+ * });
+ * </pre>
+ */
+public class Metricas {
+
+    /** Renglones entregados por {@link LectorRenglones}. */
+    public static final String RENGLONES_LEIDOS = "renglones leídos";
+    /** Bytes leídos de los archivos de entrada. */
+    public static final String BYTES_LEIDOS = "bytes leídos";
+    /**
+     * Bytes leídos para calcular sumas de verificación; van aparte de
+     * {@link #BYTES_LEIDOS} porque suelen ser las salidas de la propia tarea.
+     */
+    public static final String BYTES_HASHEADOS = "bytes hasheados";
+    /** Bytes escritos en los archivos de salida. */
+    public static final String BYTES_ESCRITOS = "bytes escritos";
+    /** Renglones que cumplieron la condición de un filtro. */
+    public static final String RENGLONES_COINCIDENTES = "renglones coincidentes";
+    /** Grupos de renglones de {@link CacheColumnar} que una consulta omitió sin leer. */
+    public static final String GRUPOS_OMITIDOS = "grupos omitidos";
+
+    private static final Map<String, LongAdder> CONTADORES = new ConcurrentHashMap<>();
+    private static final Map<String, Temporizador> TEMPORIZADORES = new ConcurrentHashMap<>();
+
+    // Etapas que se están midiendo en este momento, una por hilo trabajador
+    private static final AtomicInteger ETAPAS_ACTIVAS = new AtomicInteger();
+
+    // Ventana de trabajo, en nanosegundos; fin == 0 mientras sigue abierta
+    private static volatile long inicio = System.nanoTime();
+    private static volatile long fin;
+
+    /**
+     * Histograma de duraciones de una etapa. Las duraciones se agrupan en
+     * intervalos cuyo ancho crece con el valor (16 intervalos por cada potencia
+     * de dos), por lo que los percentiles tienen un error relativo de a lo más
+     * 4% con un arreglo de tamaño fijo.
+     */
+    public static class Temporizador {
+
+        private static final int BITS_SUBINTERVALO = 4;
+        private static final int SUBINTERVALOS = 1 << BITS_SUBINTERVALO;
+
+        private final AtomicLongArray intervalos = new AtomicLongArray((64 - BITS_SUBINTERVALO) * SUBINTERVALOS);
+        private final LongAdder cuenta = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Registra una duración.
+         *
+         * @param nanos La duración en nanosegundos.
+         */
+        public void registrar(long nanos) {
+            long valor = Math.max(0, nanos);
+            intervalos.incrementAndGet(indice(valor));
+            cuenta.increment();
+            total.add(valor);
+            maximo.accumulate(valor);
+        }
+
+        /** @return El número de duraciones registradas. */
+        public long cuenta() {
+            return cuenta.sum();
+        }
+
+        /** @return La suma de las duraciones, en nanosegundos. */
+        public long totalNanos() {
+            return total.sum();
+        }
+
+        /** @return La mayor duración registrada, en nanosegundos. */
+        public long maximoNanos() {
+            return maximo.get();
+        }
+
+        /**
+         * @param percentil El percentil, entre 0 y 100.
+         * @return La duración aproximada de ese percentil, en nanosegundos, o 0
+         *         si no hay registros.
+         */
+        public long percentilNanos(double percentil) {
+            long registros = 0;
+            for (int i = 0; i < intervalos.length(); i++) {
+                registros += intervalos.get(i);
+            }
+            if (registros == 0) {
+                return 0;
+            }
+            long objetivo = Math.max(1, (long) Math.ceil(registros * percentil / 100.0));
+            long acumulado = 0;
+            for (int i = 0; i < intervalos.length(); i++) {
+                acumulado += intervalos.get(i);
+                if (acumulado >= objetivo) {
+                    return Math.min(valorRepresentativo(i), maximoNanos());
+                }
+            }
+            return maximoNanos();
+        }
+
+        void reiniciar() {
+            for (int i = 0; i < intervalos.length(); i++) {
+                intervalos.set(i, 0);
+            }
+            cuenta.reset();
+            total.reset();
+            maximo.reset();
+        }
+
+        // Los valores menores a 16 tienen su propio intervalo; los demás se agrupan
+        // por su bit más alto y los 4 bits siguientes
+        private static int indice(long valor) {
+            if (valor < SUBINTERVALOS) {
+                return (int) valor;
+            }
+            int exponente = 63 - Long.numberOfLeadingZeros(valor);
+            int mantisa = (int) (valor >>> (exponente - BITS_SUBINTERVALO)) & (SUBINTERVALOS - 1);
+            return (exponente - BITS_SUBINTERVALO + 1) * SUBINTERVALOS + mantisa;
+        }
+
+        // Punto medio del intervalo
+        private static long valorRepresentativo(int indice) {
+            if (indice < SUBINTERVALOS) {
+                return indice;
+            }
+            int exponente = indice / SUBINTERVALOS + BITS_SUBINTERVALO - 1;
+            long mantisa = indice % SUBINTERVALOS;
+            long ancho = 1L << (exponente - BITS_SUBINTERVALO);
+            return ((SUBINTERVALOS + mantisa) << (exponente - BITS_SUBINTERVALO)) + ancho / 2;
+        }
+    }
+
+    /**
+     * Trabajo de una etapa que produce un resultado.
+     *
+     * @param <T> El tipo del resultado.
+     * @param <E> La excepción que puede lanzar.
+     */
+    @FunctionalInterface
+    public interface Calculo<T, E extends Exception> {
+        T calcular() throws E;
+    }
+
+    /**
+     * Trabajo de una etapa sin resultado.
+     *
+     * @param <E> La excepción que puede lanzar.
+     */
+    @FunctionalInterface
+    public interface Trabajo<E extends Exception> {
+        void ejecutar() throws E;
+    }
+
+    /**
+     * Obtiene un contador por su nombre, creándolo si no existe. Conviene
+     * guardar la referencia en lugar de buscarla en cada uso.
+     *
+     * @param nombre El nombre del contador, por ejemplo {@link #BYTES_LEIDOS}.
+     * @return El contador.
+     */
+    public static LongAdder contador(String nombre) {
+        return CONTADORES.computeIfAbsent(nombre, n -> new LongAdder());
+    }
+
+    /**
+     * Obtiene el temporizador de una etapa, creándolo si no existe.
+     *
+     * @param etapa El nombre de la etapa, por ejemplo {@code "filtrar.rango"}.
+     * @return El temporizador.
+     */
+    public static Temporizador temporizador(String etapa) {
+        return TEMPORIZADORES.computeIfAbsent(etapa, e -> new Temporizador());
+    }
+
+    /**
+     * Ejecuta una vez el trabajo de una etapa y registra su duración, aunque
+     * termine con una excepción.
+     *
+     * @param <T>     El tipo del resultado.
+     * @param <E>     La excepción que puede lanzar el trabajo.
+     * @param etapa   El nombre de la etapa.
+     * @param calculo El trabajo.
+     * @return El resultado del trabajo.
+     * @throws E La excepción que lance el trabajo.
+     */
+    public static <T, E extends Exception> T medir(String etapa, Calculo<T, E> calculo) throws E {
+        Temporizador temporizador = temporizador(etapa);
+        long comienzo = System.nanoTime();
+        ETAPAS_ACTIVAS.incrementAndGet();
+        try {
+            return calculo.calcular();
+        } finally {
+            temporizador.registrar(System.nanoTime() - comienzo);
+            ETAPAS_ACTIVAS.decrementAndGet();
+        }
+    }
+
+    /**
+     * Igual que {@link #medir(String, Calculo)}, para un trabajo sin resultado.
+     *
+     * @param <E>     La excepción que puede lanzar el trabajo.
+     * @param etapa   El nombre de la etapa.
+     * @param trabajo El trabajo.
+     * @throws E La excepción que lance el trabajo.
+     */
+    public static <E extends Exception> void medir(String etapa, Trabajo<E> trabajo) throws E {
+        medir(etapa, () -> {
+            trabajo.ejecutar();
+            return null;
+        });
+    }
+
+    /**
+     * @return El número de etapas que se están midiendo en este momento, es
+     *         decir, de hilos trabajando dentro de una etapa.
+     */
+    public static int etapasActivas() {
+        return ETAPAS_ACTIVAS.get();
+    }
+
+    /**
+     * Pone en cero todas las métricas y abre una nueva ventana de trabajo.
+     */
+    public static void iniciar() {
+        for (LongAdder contador : CONTADORES.values()) {
+            contador.reset();
+        }
+        for (Temporizador temporizador : TEMPORIZADORES.values()) {
+            temporizador.reiniciar();
+        }
+        fin = 0;
+        inicio = System.nanoTime();
+    }
+
+    /**
+     * Cierra la ventana de trabajo.
+     */
+    public static void detener() {
+        fin = System.nanoTime();
+    }
+
+    /**
+     * @return La duración de la ventana de trabajo en nanosegundos; si sigue
+     *         abierta, hasta este momento.
+     */
+    public static long duracionNanos() {
+        long termino = fin;
+        return (termino == 0 ? System.nanoTime() : termino) - inicio;
+    }
+
+    /**
+     * Construye el reporte de la ventana de trabajo: los contadores con su
+     * rendimiento y, por etapa, el número de ejecuciones y los percentiles de
+     * su duración.
+     *
+     * @return El reporte, o una cadena vacía si no se registró nada.
+     */
+    public static String reporte() {
+        double segundos = Math.max(1e-9, duracionNanos() / 1e9);
+        StringBuilder reporte = new StringBuilder();
+
+        for (Map.Entry<String, LongAdder> entrada : new TreeMap<>(CONTADORES).entrySet()) {
+            long valor = entrada.getValue().sum();
+            if (valor == 0) {
+                continue;
+            }
+            if (entrada.getKey().startsWith("bytes")) {
+                reporte.append(String.format(Locale.ROOT, "%-24s %14.1f MB %12.1f MB/s%n", entrada.getKey(),
+                        valor / (1024.0 * 1024.0), valor / (1024.0 * 1024.0) / segundos));
+            } else {
+                reporte.append(String.format(Locale.ROOT, "%-24s %14d    %12.0f /s%n", entrada.getKey(), valor,
+                        valor / segundos));
+            }
+        }
+
+        boolean encabezado = false;
+        for (Map.Entry<String, Temporizador> entrada : new TreeMap<>(TEMPORIZADORES).entrySet()) {
+            Temporizador temporizador = entrada.getValue();
+            if (temporizador.cuenta() == 0) {
+                continue;
+            }
+            if (!encabezado) {
+                reporte.append(String.format("%n%-24s %8s %12s %10s %10s %10s %10s%n", "etapa", "n", "total ms",
+                        "p50 ms", "p90 ms", "p99 ms", "max ms"));
+                encabezado = true;
+            }
+            reporte.append(String.format(Locale.ROOT, "%-24s %8d %12.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    entrada.getKey(), temporizador.cuenta(), temporizador.totalNanos() / 1e6,
+                    temporizador.percentilNanos(50) / 1e6, temporizador.percentilNanos(90) / 1e6,
+                    temporizador.percentilNanos(99) / 1e6, temporizador.maximoNanos() / 1e6));
+        }
+        return reporte.toString();
+    }
+}
@@ -1,5 +1,4 @@
 import java.io.File;
-import java.util.Scanner;
 
 /**
  * Clase que contiene un método para leer y mostrar los archivos y carpetas
@@ -16,16 +15,11 @@ public class Mostrar {
      */
     public static void mostrarCarpeta() {
 
-        // Se crea un objeto de tipo Scanner para la lectura de la ruta del archivo
-        // Se crea el lector para capturar la entrada del usuario
-        Scanner sc = new Scanner(System.in);
-
         // Se pide un dato al usuario, el nombre de la carpeta a leer
         System.out.println("\n Por favor ingresa la ruta de la carpeta \n");
 
-        // Se lee el nombre de la carpeta utilizando nextLine() que retorna un String
-        // con el dato
-        String nombreCarpeta = sc.nextLine();
+        // Se lee el nombre de la carpeta de la entrada compartida
+        String nombreCarpeta = Consola.leerRenglon();
 
         // Ruta de la carpeta que se desea leer, se obtiene del nombre ingresado por el
         // usuario
@@ -33,6 +27,15 @@ public class Mostrar {
 
         // Verificar si la carpeta existe y si es un directorio
         if (carpeta.exists() && carpeta.isDirectory()) {
+            // Si una búsqueda previa ya catalogó la carpeta, se lista desde memoria
+            CatalogoArchivos catalogo = CatalogoArchivos.existente(carpeta.toPath());
+            if (catalogo != null && catalogo.listo()) {
+                for (CatalogoArchivos.Entrada entrada : catalogo.contenido(carpeta.toPath())) {
+                    System.out.println((entrada.directorio ? "Carpeta: " : "Archivo: ") + entrada.nombre);
+                }
+                return;
+            }
+
             // Lista todos los archivos y carpetas dentro de la carpeta
             File[] archivos = carpeta.listFiles();
 
@@ -58,9 +61,5 @@ public class Mostrar {
             // Si la carpeta no existe o no es un directorio, se imprime un mensaje
             System.out.println("\n La carpeta no existe o no es un directorio. \n");
         }
-
-        // Se cierra el objeto Scanner para liberar los recursos
-        sc.close();
-
     }
 }
@@ -5,15 +5,30 @@ import java.lang.Runtime;
 /**
  * Clase que proporciona un método para obtener el número de CPUs disponibles
  * en la arquitectura del sistema donde se está ejecutando el programa.
+ *
+ * <p>
+ * Todas las clases dimensionan sus hilos con {@link #numeroCPUs()}, por lo que
+ * el paralelismo puede limitarse para todo el programa con
+ * {@link #establecerParalelismo(int)} o con la propiedad del sistema
+ * {@code concurrente.hilos} (por ejemplo {@code java -Dconcurrente.hilos=4}).
+ * </p>
  */
 public class NumeroCPUs {
 
+    // Número de hilos fijado por el usuario; 0 para usar los CPUs detectados
+    private static volatile int paralelismo = Integer.getInteger("concurrente.hilos", 0);
+
     /**
-     * Método que obtiene el número de CPUs disponibles en el sistema.
+     * Método que obtiene el número de CPUs disponibles en el sistema, o el
+     * paralelismo fijado si se estableció uno.
      *
      * @return El número de CPUs disponibles en el sistema.
      */
     public static int numeroCPUs() {
+        if (paralelismo > 0) {
+            return paralelismo;
+        }
+
         // Obtener el número de CPUs disponibles utilizando el método de Runtime
         int CPUs = Runtime.getRuntime().availableProcessors();
 
@@ -21,4 +36,18 @@ public class NumeroCPUs {
         return CPUs;
     }
 
+    /**
+     * Fija el número de hilos que usarán las operaciones que se inicien a
+     * partir de ahora.
+     *
+     * @param hilos El número de hilos, o 0 para volver a usar el número de
+     *              CPUs detectados.
+     */
+    public static void establecerParalelismo(int hilos) {
+        if (hilos < 0) {
+            throw new IllegalArgumentException("El número de hilos no puede ser negativo: " + hilos);
+        }
+        paralelismo = hilos;
+    }
+
 }
@@ -0,0 +1,17 @@
+/**
+ * Interfaz funcional que representa una condición sobre los campos de un
+ * renglón CSV ya tokenizado. Las implementaciones no guardan estado, por lo que
+ * un mismo predicado puede evaluarse desde varios hilos a la vez, cada uno con
+ * su propio {@link TokenizadorCSV}.
+ */
+@FunctionalInterface
+public interface Predicado {
+
+    /**
+     * Evalúa la condición sobre el renglón actual del tokenizador.
+     *
+     * @param campos El tokenizador con los campos del renglón.
+     * @return {@code true} si el renglón cumple la condición.
+     */
+    boolean evaluar(TokenizadorCSV campos);
+}
@@ -1,39 +1,529 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 
 public class ProcesamientoConHilos {
 
-    private static final int NUM_HILOS = 8; // Número de hilos (ajustar según tu máquina)
     private static final String DIRECTORIO_ARCHIVOS = ".";
 
-    // Método que procesa los archivos con hilos
-    public static void procesarArchivos() {
-        // Crear un ExecutorService con un número fijo de hilos
-        ExecutorService executor = Executors.newFixedThreadPool(NUM_HILOS);
+    // Tamaño aproximado de cada fragmento en que se divide un archivo grande
+    private static final long TAMANO_FRAGMENTO = 16L * 1024 * 1024;
 
-        // Obtener los archivos a procesar (asegurarse de que estén en un directorio
-        // conocido)
-        File directorio = new File(DIRECTORIO_ARCHIVOS);
+    // Límites del modo de entrada/salida: archivos abiertos a la vez, lecturas
+    // de fragmentos en curso y kilobytes leídos que aún no se escriben
+    private static final int MAX_ARCHIVOS_ABIERTOS = 32;
+    private static final int MAX_LECTURAS = 64;
+    private static final int MAX_KB_EN_VUELO = 512 * 1024;
+
+    /**
+     * Modos de ejecución disponibles.
+     */
+    public enum Modo {
+        /** Un ForkJoinPool con un hilo por CPU hace la lectura y el procesamiento. */
+        FORK_JOIN,
+        /**
+         * Las lecturas corren en un grupo fijo de hilos, más numeroso que los
+         * CPUs, y el procesamiento en un ForkJoinPool con un hilo por CPU.
+         * Pensado para almacenamiento de red con mucha latencia.
+         */
+        ENTRADA_SALIDA
+    }
+
+    // Método que procesa los archivos con hilos en el modo por defecto
+    public static boolean procesarArchivos() {
+        return procesarArchivos(Modo.FORK_JOIN);
+    }
+
+    // Método que procesa con hilos, en el modo indicado, solo los archivos nuevos o modificados
+    public static boolean procesarArchivos(Modo modo) {
+        return procesarArchivos(modo, true);
+    }
+
+    /**
+     * Procesa los archivos CSV del directorio. En modo incremental se consulta
+     * el {@link ManifiestoProcesamiento} de la carpeta de salida y se omiten los
+     * archivos que no cambiaron desde la última ejecución.
+     *
+     * @param modo        El modo de ejecución.
+     * @param incremental {@code false} para procesar todos los archivos.
+     * @return {@code true} si ningún archivo falló.
+     */
+    public static boolean procesarArchivos(Modo modo, boolean incremental) {
+        return procesarArchivos(modo, incremental, Proyeccion.POR_DEFECTO);
+    }
+
+    /**
+     * Procesa los archivos CSV del directorio extrayendo las columnas indicadas.
+     * Un archivo al que le falte alguna de las columnas se informa y se omite
+     * sin crear su salida.
+     *
+     * @param modo        El modo de ejecución.
+     * @param incremental {@code false} para procesar todos los archivos.
+     * @param proyeccion  Las columnas a extraer.
+     * @return {@code true} si ningún archivo falló.
+     */
+    public static boolean procesarArchivos(Modo modo, boolean incremental, Proyeccion proyeccion) {
+        return procesarArchivos(modo, incremental, proyeccion, false);
+    }
+
+    /**
+     * Procesa los archivos CSV del directorio y, si se pide, construye la
+     * {@link CacheColumnar} de cada archivo de salida para que las consultas y
+     * agregaciones posteriores sobre ellos lean solo las columnas que usan.
+     *
+     * @param modo        El modo de ejecución.
+     * @param incremental {@code false} para procesar todos los archivos.
+     * @param proyeccion  Las columnas a extraer.
+     * @param columnar    {@code true} para construir la caché columnar de las
+     *                    salidas.
+     * @return {@code true} si ningún archivo falló.
+     */
+    public static boolean procesarArchivos(Modo modo, boolean incremental, Proyeccion proyeccion,
+            boolean columnar) {
+        return procesarArchivos(new File(DIRECTORIO_ARCHIVOS), modo, incremental, proyeccion, columnar);
+    }
+
+    /**
+     * Procesa los archivos CSV de un directorio dado en lugar del directorio de
+     * trabajo; la salida se guarda igualmente en la carpeta de salida.
+     *
+     * @param directorio  El directorio con los archivos CSV.
+     * @param modo        El modo de ejecución.
+     * @param incremental {@code false} para procesar todos los archivos.
+     * @param proyeccion  Las columnas a extraer.
+     * @return {@code true} si se pudo leer el directorio y ningún archivo
+     *         falló; un archivo vacío no cuenta como falla.
+     */
+    public static boolean procesarArchivos(File directorio, Modo modo, boolean incremental, Proyeccion proyeccion) {
+        return procesarArchivos(directorio, modo, incremental, proyeccion, false);
+    }
+
+    /**
+     * Procesa los archivos CSV de un directorio dado y, si se pide, construye
+     * la caché columnar de cada archivo de salida, incluidos los que se
+     * omitieron por no haber cambiado; una caché vigente no se reconstruye.
+     *
+     * @param directorio  El directorio con los archivos CSV.
+     * @param modo        El modo de ejecución.
+     * @param incremental {@code false} para procesar todos los archivos.
+     * @param proyeccion  Las columnas a extraer.
+     * @param columnar    {@code true} para construir la caché columnar de las
+     *                    salidas.
+     * @return {@code true} si se pudo leer el directorio y ningún archivo ni
+     *         caché falló.
+     */
+    public static boolean procesarArchivos(File directorio, Modo modo, boolean incremental, Proyeccion proyeccion,
+            boolean columnar) {
+        // Obtener los archivos a procesar
         File[] archivos = directorio.listFiles((dir, name) -> name.endsWith(".csv"));
+        if (archivos == null) {
+            System.err.println("No se pudo leer el directorio: " + directorio.getPath());
+            return false;
+        }
+        if (!ProcesarArchivo.prepararCarpetaSalida()) {
+            return false;
+        }
 
-        if (archivos != null) {
-            // Asignar a cada archivo un hilo en el pool
-            for (File archivo : archivos) {
-                ProcesarArchivo tarea = new ProcesarArchivo(archivo.getAbsolutePath());
-                executor.submit(tarea);
+        ManifiestoProcesamiento manifiesto = ManifiestoProcesamiento.cargar(ProcesarArchivo.CARPETA_SALIDA);
+        List<File> pendientes = manifiesto.seleccionarPendientes(archivos, proyeccion.encabezado(),
+                !incremental);
+        if (pendientes.size() < archivos.length) {
+            System.out.println("Archivos sin cambios omitidos: " + (archivos.length - pendientes.size()));
+        }
+
+        // Mostrar el avance sobre el total de bytes de los archivos pendientes
+        long bytesTotales = 0;
+        for (File archivo : pendientes) {
+            bytesTotales += archivo.length();
+        }
+        int fallidos = Progreso.mostrar("Procesamiento", bytesTotales,
+                () -> modo == Modo.ENTRADA_SALIDA ? procesarArchivosEntradaSalida(pendientes, manifiesto, proyeccion)
+                        : procesarArchivosForkJoin(pendientes, manifiesto, proyeccion));
+        manifiesto.guardar();
+        if (columnar) {
+            fallidos += crearCachesColumnares(archivos);
+        }
+        if (fallidos > 0) {
+            System.err.println("Archivos que no se pudieron procesar: " + fallidos);
+        }
+        return fallidos == 0;
+    }
+
+    /**
+     * Construye la caché columnar de la salida de cada archivo, si existe.
+     *
+     * @return El número de cachés que no se pudieron construir.
+     */
+    private static int crearCachesColumnares(File[] archivos) {
+        int fallidos = 0;
+        for (File archivo : archivos) {
+            File salida = ProcesarArchivo.obtenerArchivoSalida(archivo.getPath());
+            if (!salida.exists()) {
+                continue;
+            }
+            try {
+                CacheColumnar.obtener(salida.getPath());
+            } catch (IOException e) {
+                System.err.println("Error al crear la caché columnar de " + salida + ": " + e.getMessage());
+                fallidos++;
+            }
+        }
+        return fallidos;
+    }
+
+    /**
+     * Procesa los archivos en un ForkJoinPool.
+     *
+     * @return El número de archivos que fallaron.
+     */
+    private static int procesarArchivosForkJoin(List<File> archivos, ManifiestoProcesamiento manifiesto,
+            Proyeccion proyeccion) {
+        // Crear un ForkJoinPool con un hilo por CPU; los hilos desocupados roban
+        // fragmentos pendientes de los archivos grandes
+        ForkJoinPool pool = new ForkJoinPool(NumeroCPUs.numeroCPUs());
+
+        // Enviar una tarea por archivo; cada una se divide en fragmentos
+        List<ForkJoinTask<Boolean>> tareas = new ArrayList<>();
+        for (File archivo : archivos) {
+            tareas.add(pool.submit(new TareaArchivo(archivo.getAbsolutePath(), proyeccion)));
+        }
+
+        // Esperar hasta que todas las tareas terminen y registrar las exitosas
+        int fallidos = 0;
+        for (int i = 0; i < tareas.size(); i++) {
+            try {
+                if (tareas.get(i).get()) {
+                    manifiesto.registrar(archivos.get(i),
+                            ProcesarArchivo.obtenerArchivoSalida(archivos.get(i).getAbsolutePath()));
+                }
+            } catch (ExecutionException e) {
+                System.err.println("Error al procesar el archivo " + archivos.get(i).getAbsolutePath() + ": "
+                        + e.getCause().getMessage());
+                fallidos++;
+            } catch (InterruptedException e) {
+                // Los archivos que no se esperaron cuentan como fallidos
+                Thread.currentThread().interrupt();
+                fallidos += tareas.size() - i;
+                break;
             }
         }
 
-        // Apagar el executor después de que todas las tareas se hayan completado
-        executor.shutdown();
+        pool.shutdownNow();
+        return fallidos;
+    }
+
+    /**
+     * Procesa varios archivos a la vez, hasta {@link #MAX_ARCHIVOS_ABIERTOS},
+     * repartiendo la lectura de sus fragmentos entre {@link #MAX_LECTURAS}
+     * hilos para que muchas lecturas esperen a la vez sobre almacenamiento
+     * lento. El análisis de cada fragmento se hace en un ForkJoinPool acotado
+     * al número de CPUs. Un semáforo limita los archivos enviados y otro los
+     * bytes leídos que aún no se escriben.
+     *
+     * @return El número de archivos que fallaron.
+     */
+    private static int procesarArchivosEntradaSalida(List<File> archivos, ManifiestoProcesamiento manifiesto,
+            Proyeccion proyeccion) {
+        ExecutorService hilosArchivos = crearGrupoHilos(MAX_ARCHIVOS_ABIERTOS, "archivo");
+        ExecutorService hilosLectura = crearGrupoHilos(MAX_LECTURAS, "lectura");
+        ForkJoinPool poolCPU = new ForkJoinPool(NumeroCPUs.numeroCPUs());
+        Semaphore archivosAbiertos = new Semaphore(MAX_ARCHIVOS_ABIERTOS);
+        Semaphore kbEnVuelo = new Semaphore(MAX_KB_EN_VUELO);
 
+        List<Future<?>> tareas = new ArrayList<>();
+        int fallidos = 0;
         try {
+            for (File archivo : archivos) {
+                // Esperar a que otro archivo termine antes de enviar el siguiente
+                archivosAbiertos.acquire();
+                tareas.add(hilosArchivos.submit(() -> {
+                    try {
+                        // Registrar solo los archivos que produjeron una salida
+                        if (procesarArchivoEntradaSalida(archivo.getAbsolutePath(), proyeccion, hilosLectura,
+                                poolCPU, kbEnVuelo)) {
+                            manifiesto.registrar(archivo,
+                                    ProcesarArchivo.obtenerArchivoSalida(archivo.getAbsolutePath()));
+                        }
+                    } finally {
+                        archivosAbiertos.release();
+                    }
+                    return null;
+                }));
+            }
+
             // Esperar hasta que todas las tareas terminen
-            if (!executor.awaitTermination(60, TimeUnit.MINUTES)) {
-                executor.shutdownNow();
+            for (int i = 0; i < tareas.size(); i++) {
+                try {
+                    tareas.get(i).get();
+                } catch (ExecutionException e) {
+                    System.err.println("Error al procesar el archivo " + archivos.get(i).getAbsolutePath() + ": "
+                            + e.getCause().getMessage());
+                    fallidos++;
+                }
             }
         } catch (InterruptedException e) {
-            executor.shutdownNow();
+            // Los archivos que no se esperaron cuentan como fallidos
+            Thread.currentThread().interrupt();
+            fallidos += archivos.size() - tareas.size();
+            for (Future<?> tarea : tareas) {
+                if (!tarea.isDone()) {
+                    fallidos++;
+                }
+            }
+        } finally {
+            hilosArchivos.shutdownNow();
+            hilosLectura.shutdownNow();
+            poolCPU.shutdownNow();
+        }
+        return fallidos;
+    }
+
+    /**
+     * Crea un grupo fijo de hilos demonio con el nombre indicado.
+     */
+    private static ExecutorService crearGrupoHilos(int numHilos, String nombre) {
+        return Executors.newFixedThreadPool(numHilos, tarea -> {
+            Thread hilo = new Thread(tarea, nombre);
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Fragmento enviado a leer y procesar, junto con los permisos de memoria que
+     * reservó.
+     */
+    private static class Pendiente {
+        final Future<byte[]> resultado;
+        final int permisos;
+
+        Pendiente(Future<byte[]> resultado, int permisos) {
+            this.resultado = resultado;
+            this.permisos = permisos;
+        }
+    }
+
+    /**
+     * Procesa un archivo en el modo de entrada/salida. Los fragmentos se leen en
+     * paralelo en los hilos de lectura, se analizan en el pool de CPU y se
+     * escriben en orden conforme terminan de procesarse.
+     *
+     * @return {@code true} si se escribió el archivo de salida, {@code false}
+     *         si el archivo de entrada está vacío.
+     */
+    private static boolean procesarArchivoEntradaSalida(String archivoEntrada, Proyeccion proyeccion,
+            ExecutorService hilosLectura, ForkJoinPool poolCPU, Semaphore kbEnVuelo)
+            throws IOException, InterruptedException {
+
+        File archivoSalida = ProcesarArchivo.obtenerArchivoSalida(archivoEntrada);
+        ArrayDeque<Pendiente> pendientes = new ArrayDeque<>();
+
+        try (FileChannel canal = FileChannel.open(new File(archivoEntrada).toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            LectorRenglones lectorEncabezado = new LectorRenglones(canal, 0, tamano, 64 * 1024);
+            int[] indices = ProcesarArchivo.leerEncabezado(lectorEncabezado, proyeccion);
+            if (indices == null) {
+                System.out.println("Archivo vacío: " + archivoEntrada);
+                return false;
+            }
+
+            // La salida se crea solo después de validar las columnas del encabezado
+            try (FileChannel canalSalida = FileChannel.open(archivoSalida.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                escribir(canalSalida, (proyeccion.encabezado() + "\n").getBytes(StandardCharsets.UTF_8));
+
+                long inicioDatos = lectorEncabezado.posicionSiguiente();
+                int numFragmentos = (int) Math.max(1, (tamano - inicioDatos + TAMANO_FRAGMENTO - 1) / TAMANO_FRAGMENTO);
+                long[] limites = RangosArchivo.calcularLimites(canal, inicioDatos, tamano, numFragmentos);
+
+                for (int i = 0; i + 1 < limites.length; i++) {
+                    long desde = limites[i];
+                    int longitud = (int) (limites[i + 1] - desde);
+                    int permisos = Math.min(MAX_KB_EN_VUELO, Math.max(1, longitud / 1024));
+
+                    // Si no hay memoria disponible, escribir el siguiente fragmento en orden
+                    // para liberar la suya antes de leer otro
+                    while (!kbEnVuelo.tryAcquire(permisos)) {
+                        if (pendientes.isEmpty()) {
+                            kbEnVuelo.acquire(permisos);
+                            break;
+                        }
+                        escribirSiguiente(pendientes.poll(), canalSalida, kbEnVuelo);
+                    }
+
+                    // Leer el fragmento completo en un hilo de lectura y, al terminar,
+                    // proyectar sus columnas en el pool de CPU sin bloquear al lector
+                    Future<byte[]> resultado = CompletableFuture.supplyAsync(() -> {
+                        ByteBuffer destino = ByteBuffer.wrap(new byte[longitud]);
+                        try {
+                            while (destino.hasRemaining() && canal.read(destino, desde + destino.position()) >= 0) {
+                                // Repetir hasta llenar el fragmento
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        Metricas.contador(Metricas.BYTES_LEIDOS).add(destino.position());
+                        return destino;
+                    }, hilosLectura).thenApplyAsync(destino -> {
+                        ByteArrayOutputStream salida = new ByteArrayOutputStream(longitud / 2 + 16);
+                        try {
+                            ProcesarArchivo.procesarRango(
+                                    new LectorRenglones(destino.array(), destino.position(), desde), indices, salida);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return salida.toByteArray();
+                    }, poolCPU);
+                    pendientes.add(new Pendiente(resultado, permisos));
+
+                    // Escribir en orden los fragmentos que ya terminaron
+                    while (!pendientes.isEmpty() && pendientes.peek().resultado.isDone()) {
+                        escribirSiguiente(pendientes.poll(), canalSalida, kbEnVuelo);
+                    }
+                }
+
+                // Escribir los fragmentos restantes en orden
+                while (!pendientes.isEmpty()) {
+                    escribirSiguiente(pendientes.poll(), canalSalida, kbEnVuelo);
+                }
+                System.out.println("Archivo procesado: " + archivoEntrada);
+                return true;
+            }
+        } finally {
+            // Liberar la memoria reservada por fragmentos que no llegaron a escribirse
+            for (Pendiente pendiente : pendientes) {
+                pendiente.resultado.cancel(true);
+                kbEnVuelo.release(pendiente.permisos);
+            }
+        }
+    }
+
+    /**
+     * Espera a que termine un fragmento, lo escribe y libera su memoria.
+     */
+    private static void escribirSiguiente(Pendiente pendiente, FileChannel canalSalida, Semaphore kbEnVuelo)
+            throws IOException, InterruptedException {
+        try {
+            escribir(canalSalida, pendiente.resultado.get());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            kbEnVuelo.release(pendiente.permisos);
+        }
+    }
+
+    private static void escribir(FileChannel canalSalida, byte[] datos) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(datos);
+        while (buffer.hasRemaining()) {
+            canalSalida.write(buffer);
+        }
+    }
+
+    /**
+     * Tarea que procesa un archivo completo: lee su encabezado, lo divide en
+     * fragmentos alineados a renglones, procesa los fragmentos como subtareas
+     * y une sus resultados en orden.
+     */
+    @SuppressWarnings("serial") // Las tareas nunca se serializan
+    private static class TareaArchivo extends RecursiveTask<Boolean> {
+        private final String archivoEntrada;
+        private final Proyeccion proyeccion;
+
+        TareaArchivo(String archivoEntrada, Proyeccion proyeccion) {
+            this.archivoEntrada = archivoEntrada;
+            this.proyeccion = proyeccion;
+        }
+
+        @Override
+        protected Boolean compute() {
+            File archivoSalida = ProcesarArchivo.obtenerArchivoSalida(archivoEntrada);
+            List<File> temporales = new ArrayList<>();
+
+            try (FileChannel canal = FileChannel.open(new File(archivoEntrada).toPath(), StandardOpenOption.READ)) {
+                long tamano = canal.size();
+                LectorRenglones lectorEncabezado = new LectorRenglones(canal, 0, tamano, 64 * 1024);
+                int[] indices = ProcesarArchivo.leerEncabezado(lectorEncabezado, proyeccion);
+                if (indices == null) {
+                    System.out.println("Archivo vacío: " + archivoEntrada);
+                    return false;
+                }
+
+                // Calcular los fragmentos según el tamaño del archivo
+                long inicioDatos = lectorEncabezado.posicionSiguiente();
+                int numFragmentos = (int) Math.max(1, (tamano - inicioDatos + TAMANO_FRAGMENTO - 1) / TAMANO_FRAGMENTO);
+                long[] limites = RangosArchivo.calcularLimites(canal, inicioDatos, tamano, numFragmentos);
+
+                // Crear una subtarea por fragmento, cada una con su archivo temporal
+                List<TareaFragmento> fragmentos = new ArrayList<>();
+                for (int i = 0; i + 1 < limites.length; i++) {
+                    File temporal = File.createTempFile("fragmento_", ".parte", new File(ProcesarArchivo.CARPETA_SALIDA));
+                    temporales.add(temporal);
+                    fragmentos.add(new TareaFragmento(canal, limites[i], limites[i + 1], indices, temporal));
+                }
+
+                // Los fragmentos quedan en la cola de este hilo y los demás pueden robarlos
+                invokeAll(fragmentos);
+
+                // Unir el encabezado y los fragmentos en el orden del archivo
+                try (FileChannel canalSalida = FileChannel.open(archivoSalida.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    canalSalida.write(ByteBuffer.wrap(
+                            (proyeccion.encabezado() + "\n").getBytes(StandardCharsets.UTF_8)));
+                    for (File temporal : temporales) {
+                        try (FileChannel canalParcial = FileChannel.open(temporal.toPath(), StandardOpenOption.READ)) {
+                            RangosArchivo.copiar(canalParcial, 0, canalParcial.size(), canalSalida);
+                        }
+                    }
+                }
+                System.out.println("Archivo procesado: " + archivoEntrada);
+                return true;
+
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            } finally {
+                for (File temporal : temporales) {
+                    temporal.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Subtarea que proyecta las columnas de un fragmento del archivo a un
+     * archivo temporal.
+     */
+    @SuppressWarnings("serial") // Las tareas nunca se serializan
+    private static class TareaFragmento extends RecursiveAction {
+        private final FileChannel canal;
+        private final long desde;
+        private final long hasta;
+        private final int[] indices;
+        private final File temporal;
+
+        TareaFragmento(FileChannel canal, long desde, long hasta, int[] indices, File temporal) {
+            this.canal = canal;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.indices = indices;
+            this.temporal = temporal;
+        }
+
+        @Override
+        protected void compute() {
+            try (OutputStream salida = new EscritorAsincrono(temporal)) {
+                ProcesarArchivo.procesarRango(new LectorRenglones(canal, desde, hasta), indices, salida);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
         }
     }
 }
@@ -1,63 +1,56 @@
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.Callable;
 
 public class ProcesarArchivo implements Callable<Void> {
     private final String archivoEntrada; // El archivo a procesar
-    private static final String CARPETA_SALIDA = "./resultados_concurrentes"; // Ruta de la carpeta de salida
+    private final Proyeccion proyeccion; // Las columnas a extraer
+    static final String CARPETA_SALIDA = "./resultados_concurrentes"; // Ruta de la carpeta de salida
 
-    // Constructor
+    // Constructor con las columnas por defecto
     public ProcesarArchivo(String archivoEntrada) {
+        this(archivoEntrada, Proyeccion.POR_DEFECTO);
+    }
+
+    // Constructor con las columnas a extraer
+    public ProcesarArchivo(String archivoEntrada, Proyeccion proyeccion) {
         this.archivoEntrada = archivoEntrada;
+        this.proyeccion = proyeccion;
     }
 
     @Override
     public Void call() throws Exception {
 
         // Crear la carpeta de salida si no existe
-        File carpetaSalida = new File(CARPETA_SALIDA);
-        if (!carpetaSalida.exists()) {
-            if (carpetaSalida.mkdir()) {
-                System.out.println("Carpeta de salida creada: " + CARPETA_SALIDA);
-            } else {
-                System.err.println("No se pudo crear la carpeta de salida.");
-                return null;
-            }
+        if (!prepararCarpetaSalida()) {
+            return null;
         }
 
+        // Crear el archivo de salida en la carpeta especificada
+        File archivoSalida = obtenerArchivoSalida(archivoEntrada);
+
         // Lógica para procesar el archivo
-        try (BufferedReader br = new BufferedReader(new FileReader(archivoEntrada))) {
-
-            // Obtener el nombre del archivo de entrada
-            String nombreArchivo = new File(archivoEntrada).getName();
-            // Crear el archivo de salida en la carpeta especificada
-            File archivoSalida = new File(CARPETA_SALIDA, "resultado_" + nombreArchivo);
-            try (BufferedWriter bw = new BufferedWriter(new FileWriter(archivoSalida))) {
-
-                // Leer el encabezado y obtener el índice de las columnas de interés
-                String encabezado = br.readLine();
-                if (encabezado == null) {
-                    System.out.println("Archivo vacío: " + archivoEntrada);
-                    return null;
-                }
+        try (FileChannel canal = FileChannel.open(Paths.get(archivoEntrada), StandardOpenOption.READ)) {
+            LectorRenglones lector = new LectorRenglones(canal, 0, canal.size());
 
-                String[] columnas = encabezado.split(",");
-                int[] indices = obtenerIndicesColumnas(columnas);
+            // Leer el encabezado y obtener el índice de las columnas de interés antes
+            // de crear la salida, para fallar de inmediato si falta alguna columna
+            int[] indices = leerEncabezado(lector, proyeccion);
+            if (indices == null) {
+                System.out.println("Archivo vacío: " + archivoEntrada);
+                return null;
+            }
+
+            try (OutputStream salida = new EscritorAsincrono(archivoSalida)) {
 
                 // Escribir el encabezado en el archivo de salida
-                bw.write("rank,region,streams,danceability,energy,valence,tempo");
-                bw.newLine();
+                salida.write((proyeccion.encabezado() + "\n").getBytes(StandardCharsets.UTF_8));
 
                 // Procesar cada línea del archivo
-                String linea;
-                while ((linea = br.readLine()) != null) {
-                    String[] valores = linea.split(",");
-                    // Extraer solo las columnas que necesitamos
-                    String filaFiltrada = String.format("%s,%s,%s,%s,%s,%s,%s",
-                            valores[indices[0]], valores[indices[1]], valores[indices[2]],
-                            valores[indices[3]], valores[indices[4]], valores[indices[5]], valores[indices[6]]);
-                    bw.write(filaFiltrada);
-                    bw.newLine();
-                }
+                procesarRango(lector, indices, salida);
                 System.out.println("Archivo procesado: " + archivoEntrada);
 
             } catch (IOException e) {
@@ -72,19 +65,107 @@ public class ProcesarArchivo implements Callable<Void> {
         return null;
     }
 
-    // Obtener los índices de las columnas de interés
-    private int[] obtenerIndicesColumnas(String[] columnas) {
-        int[] indices = new int[7];
-        String[] columnasDeseadas = { "rank", "region", "streams", "danceability", "energy", "valence", "tempo" };
+    /**
+     * Procesa solo los renglones agregados al archivo desde la última llamada y
+     * los agrega al final de su archivo de resultados (ver {@link Seguimiento}).
+     * La primera vez, o si el archivo se reemplazó, se procesa completo.
+     *
+     * @param archivoEntrada El archivo CSV que va creciendo.
+     * @param proyeccion     Las columnas a extraer.
+     * @return El número de bytes nuevos procesados, o -1 si no se pudo procesar.
+     */
+    public static long actualizar(String archivoEntrada, Proyeccion proyeccion) {
+        if (!prepararCarpetaSalida()) {
+            return -1;
+        }
+        File archivoSalida = obtenerArchivoSalida(archivoEntrada);
+
+        try {
+            return crearSeguimiento(proyeccion).actualizar(new File(archivoEntrada), archivoSalida);
+        } catch (IOException e) {
+            System.err.println("Error al procesar el archivo " + archivoEntrada + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // Procesar los renglones nuevos con las columnas por defecto
+    public static long actualizar(String archivoEntrada) {
+        return actualizar(archivoEntrada, Proyeccion.POR_DEFECTO);
+    }
+
+    // Seguimiento que proyecta las columnas de interés de los renglones nuevos
+    static Seguimiento crearSeguimiento(Proyeccion proyeccion) {
+        return new Seguimiento() {
+            private int[] indices;
+
+            @Override
+            protected String configuracion() {
+                return proyeccion.encabezado();
+            }
 
-        for (int i = 0; i < columnasDeseadas.length; i++) {
-            for (int j = 0; j < columnas.length; j++) {
-                if (columnas[j].equalsIgnoreCase(columnasDeseadas[i])) {
-                    indices[i] = j;
-                    break;
+            @Override
+            protected boolean leerEncabezado(LectorRenglones lector, OutputStream salida) throws IOException {
+                indices = ProcesarArchivo.leerEncabezado(lector, proyeccion);
+                if (indices == null) {
+                    return false;
                 }
+                if (salida != null) {
+                    salida.write((proyeccion.encabezado() + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+                return true;
+            }
+
+            @Override
+            protected void procesarRango(LectorRenglones lector, OutputStream salida) throws IOException {
+                ProcesarArchivo.procesarRango(lector, indices, salida);
+            }
+        };
+    }
+
+    // Crear la carpeta de salida si no existe; devuelve false si no se pudo crear
+    static synchronized boolean prepararCarpetaSalida() {
+        File carpetaSalida = new File(CARPETA_SALIDA);
+        if (!carpetaSalida.exists()) {
+            if (carpetaSalida.mkdir()) {
+                System.out.println("Carpeta de salida creada: " + CARPETA_SALIDA);
+            } else {
+                System.err.println("No se pudo crear la carpeta de salida.");
+                return false;
             }
         }
-        return indices;
+        return true;
+    }
+
+    // Obtener el archivo de salida correspondiente a un archivo de entrada
+    static File obtenerArchivoSalida(String archivoEntrada) {
+        String nombreArchivo = new File(archivoEntrada).getName();
+        return new File(CARPETA_SALIDA, "resultado_" + nombreArchivo);
+    }
+
+    // Leer el encabezado y obtener los índices de las columnas; null si el archivo está vacío.
+    // Si falta alguna columna se lanza una IOException con los nombres que faltan
+    static int[] leerEncabezado(LectorRenglones lector, Proyeccion proyeccion) throws IOException {
+        if (!lector.siguiente()) {
+            return null;
+        }
+        TokenizadorCSV tokenizador = new TokenizadorCSV();
+        tokenizador.tokenizar(lector.buffer(), lector.inicio(), lector.fin());
+        try {
+            return proyeccion.resolver(tokenizador.campos());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    // Escribir las columnas de interés de cada renglón restante del lector
+    static void procesarRango(LectorRenglones lector, int[] indices, OutputStream salida) throws IOException {
+        TokenizadorCSV tokenizador = new TokenizadorCSV();
+        Metricas.medir("proyectar.rango", () -> {
+            while (lector.siguiente()) {
+                tokenizador.tokenizar(lector.buffer(), lector.inicio(), lector.fin());
+                // Extraer solo las columnas que necesitamos, copiando los bytes de cada campo
+                Proyeccion.escribir(tokenizador, indices, salida);
+            }
+        });
     }
 }
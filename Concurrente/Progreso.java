@@ -0,0 +1,222 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Muestra el avance de una tarea larga mientras se ejecuta. Un hilo toma cada
+ * segundo una muestra de los contadores de {@link Metricas} que actualizan los
+ * hilos trabajadores (bytes y renglones leídos) y escribe un renglón con el
+ * porcentaje completado, los MB/s y renglones/s del último intervalo, los hilos
+ * activos y el tiempo restante estimado. Los trabajadores no hacen nada
+ * adicional, por lo que el costo es el de leer los contadores una vez por
+ * segundo.
+ *
+ * <p>
+ * Los mismos datos se publican como MBean ({@link ProgresoMBean}) mientras la
+ * tarea está en curso, con un nombre propio por tarea para que dos tareas
+ * simultáneas no se reemplacen.
+ * </p>
+ *
+ * <pre>
+ * Progreso.mostrar("Filtrado", archivo.length(), () -&gt; {
+ *     // tarea
+ * });
+ * </pre>
+ */
+public class Progreso implements ProgresoMBean {
+
+    private static final long INTERVALO_MILLIS = 1000;
+
+    private static final String NOMBRE_MBEAN = "Concurrente:type=Progreso";
+
+    // Distingue los MBean de tareas con la misma descripción
+    private static final AtomicInteger SIGUIENTE_ID = new AtomicInteger(1);
+
+    private final String tarea;
+    private final long bytesTotales;
+    private final long inicio = System.nanoTime();
+    private final LongAdder bytesLeidos = Metricas.contador(Metricas.BYTES_LEIDOS);
+    private final LongAdder renglonesLeidos = Metricas.contador(Metricas.RENGLONES_LEIDOS);
+
+    // Valores de los contadores al iniciar, para medir solo esta tarea
+    private final long bytesBase = bytesLeidos.sum();
+    private final long renglonesBase = renglonesLeidos.sum();
+
+    private final ScheduledExecutorService muestreo;
+    private ObjectName nombreMBean;
+
+    // Última muestra; la escribe el hilo de muestreo y la leen JMX y la consola
+    private volatile long ultimoInstante = inicio;
+    private volatile long bytesProcesados;
+    private volatile long renglonesProcesados;
+    private volatile double megabytesPorSegundo;
+    private volatile double renglonesPorSegundo;
+    private volatile boolean mostrado;
+
+    private Progreso(String tarea, long bytesTotales) {
+        this.tarea = tarea;
+        this.bytesTotales = Math.max(0, bytesTotales);
+        this.muestreo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "progreso");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Ejecuta una tarea mostrando su avance mientras dura.
+     *
+     * @param <T>          El tipo del resultado.
+     * @param <E>          La excepción que puede lanzar la tarea.
+     * @param tarea        La descripción de la tarea.
+     * @param bytesTotales Los bytes de entrada que leerá la tarea.
+     * @param calculo      La tarea.
+     * @return El resultado de la tarea.
+     * @throws E La excepción que lance la tarea.
+     */
+    public static <T, E extends Exception> T mostrar(String tarea, long bytesTotales, Metricas.Calculo<T, E> calculo)
+            throws E {
+        Progreso progreso = new Progreso(tarea, bytesTotales);
+        progreso.registrarMBean();
+        progreso.muestreo.scheduleAtFixedRate(progreso::muestrear, INTERVALO_MILLIS, INTERVALO_MILLIS,
+                TimeUnit.MILLISECONDS);
+        try {
+            return calculo.calcular();
+        } finally {
+            progreso.terminar();
+        }
+    }
+
+    /**
+     * Igual que {@link #mostrar(String, long, Metricas.Calculo)}, para una
+     * tarea sin resultado.
+     *
+     * @param <E>          La excepción que puede lanzar la tarea.
+     * @param tarea        La descripción de la tarea.
+     * @param bytesTotales Los bytes de entrada que leerá la tarea.
+     * @param trabajo      La tarea.
+     * @throws E La excepción que lance la tarea.
+     */
+    public static <E extends Exception> void mostrar(String tarea, long bytesTotales, Metricas.Trabajo<E> trabajo)
+            throws E {
+        mostrar(tarea, bytesTotales, () -> {
+            trabajo.ejecutar();
+            return null;
+        });
+    }
+
+    // Detiene el muestreo, escribe el avance final si ya se había mostrado alguno y retira el MBean
+    private void terminar() {
+        muestreo.shutdownNow();
+        try {
+            muestreo.awaitTermination(INTERVALO_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (mostrado) {
+            muestrear();
+        }
+        retirarMBean();
+    }
+
+    @Override
+    public String getTarea() {
+        return tarea;
+    }
+
+    @Override
+    public long getBytesProcesados() {
+        return bytesProcesados;
+    }
+
+    @Override
+    public long getBytesTotales() {
+        return bytesTotales;
+    }
+
+    @Override
+    public double getPorcentaje() {
+        return bytesTotales == 0 ? 0 : Math.min(100.0, 100.0 * bytesProcesados / bytesTotales);
+    }
+
+    @Override
+    public double getMegabytesPorSegundo() {
+        return megabytesPorSegundo;
+    }
+
+    @Override
+    public double getRenglonesPorSegundo() {
+        return renglonesPorSegundo;
+    }
+
+    @Override
+    public int getHilosActivos() {
+        return Metricas.etapasActivas();
+    }
+
+    @Override
+    public long getSegundosRestantes() {
+        // Con el promedio desde el inicio, que varía menos que la velocidad del último intervalo
+        double segundos = (ultimoInstante - inicio) / 1e9;
+        if (bytesProcesados <= 0 || segundos <= 0 || bytesTotales == 0) {
+            return -1;
+        }
+        double promedio = bytesProcesados / segundos;
+        return (long) Math.ceil(Math.max(0, bytesTotales - bytesProcesados) / promedio);
+    }
+
+    // Toma una muestra de los contadores y la escribe en la consola
+    private synchronized void muestrear() {
+        long instante = System.nanoTime();
+        long bytes = Math.max(0, bytesLeidos.sum() - bytesBase);
+        long renglones = Math.max(0, renglonesLeidos.sum() - renglonesBase);
+        double segundos = Math.max(1e-9, (instante - ultimoInstante) / 1e9);
+
+        megabytesPorSegundo = (bytes - bytesProcesados) / (1024.0 * 1024.0) / segundos;
+        renglonesPorSegundo = (renglones - renglonesProcesados) / segundos;
+        bytesProcesados = bytes;
+        renglonesProcesados = renglones;
+        ultimoInstante = instante;
+
+        long restantes = getSegundosRestantes();
+        String eta = restantes < 0 ? "--:--" : String.format("%02d:%02d", restantes / 60, restantes % 60);
+        System.out.println(String.format(Locale.ROOT,
+                "%s: %5.1f%% | %8.1f MB/s | %10.0f renglones/s | %2d hilos | ETA %s", tarea, getPorcentaje(),
+                megabytesPorSegundo, renglonesPorSegundo, getHilosActivos(), eta));
+        mostrado = true;
+    }
+
+    private void registrarMBean() {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(NOMBRE_MBEAN + ",tarea=" + ObjectName.quote(tarea) + ",id="
+                    + SIGUIENTE_ID.getAndIncrement());
+            servidor.registerMBean(this, nombre);
+            nombreMBean = nombre;
+        } catch (JMException e) {
+            System.err.println("No se pudo publicar el progreso por JMX: " + e.getMessage());
+        }
+    }
+
+    private void retirarMBean() {
+        if (nombreMBean == null) {
+            return;
+        }
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            if (servidor.isRegistered(nombreMBean)) {
+                servidor.unregisterMBean(nombreMBean);
+            }
+        } catch (JMException e) {
+            System.err.println("No se pudo retirar el MBean de progreso: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Interfaz JMX de {@link Progreso}: expone el avance de la tarea en curso para
+ * consultarlo con herramientas como JConsole o VisualVM. Cada tarea se publica
+ * como {@code Concurrente:type=Progreso,tarea="<descripción>",id=<n>}, con un
+ * {@code id} que distingue tareas simultáneas con la misma descripción.
+ */
+public interface ProgresoMBean {
+
+    /** @return La descripción de la tarea en curso. */
+    String getTarea();
+
+    /** @return Los bytes de entrada procesados hasta ahora. */
+    long getBytesProcesados();
+
+    /** @return Los bytes de entrada de toda la tarea. */
+    long getBytesTotales();
+
+    /** @return El porcentaje completado, entre 0 y 100. */
+    double getPorcentaje();
+
+    /** @return Los MB por segundo leídos en el último intervalo. */
+    double getMegabytesPorSegundo();
+
+    /** @return Los renglones por segundo leídos en el último intervalo. */
+    double getRenglonesPorSegundo();
+
+    /** @return El número de hilos trabajando dentro de una etapa medida. */
+    int getHilosActivos();
+
+    /** @return Los segundos que se estima que faltan, o -1 si aún no se sabe. */
+    long getSegundosRestantes();
+}
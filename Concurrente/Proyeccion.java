@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lista de columnas que se extraen de un archivo CSV. Los índices de las
+ * columnas se resuelven una sola vez a partir del encabezado y, si falta alguna
+ * columna, se informa antes de procesar cualquier renglón. Cada renglón se
+ * escribe copiando directamente los bytes de los campos seleccionados, sin
+ * crear cadenas intermedias.
+ */
+public class Proyeccion {
+
+    /** Las siete columnas que se extraen si no se indica otra lista. */
+    public static final Proyeccion POR_DEFECTO = new Proyeccion("rank", "region", "streams", "danceability",
+            "energy", "valence", "tempo");
+
+    private final String[] columnas;
+
+    /**
+     * Crea una proyección con las columnas indicadas, en el orden en que se
+     * escribirán.
+     *
+     * @param columnas Los nombres de las columnas.
+     */
+    public Proyeccion(String... columnas) {
+        if (columnas.length == 0) {
+            throw new IllegalArgumentException("La proyección debe tener al menos una columna");
+        }
+        this.columnas = new String[columnas.length];
+        for (int i = 0; i < columnas.length; i++) {
+            this.columnas[i] = columnas[i].trim();
+            if (this.columnas[i].isEmpty()) {
+                throw new IllegalArgumentException("Nombre de columna vacío en la proyección");
+            }
+        }
+    }
+
+    /**
+     * Crea una proyección a partir de una lista separada por comas, por ejemplo
+     * {@code "rank, region, streams"}.
+     *
+     * @param lista La lista de columnas; si está vacía se usa
+     *              {@link #POR_DEFECTO}.
+     * @return La proyección.
+     */
+    public static Proyeccion desdeTexto(String lista) {
+        if (lista == null || lista.trim().isEmpty()) {
+            return POR_DEFECTO;
+        }
+        return new Proyeccion(lista.split(","));
+    }
+
+    /**
+     * @return El renglón de encabezado de la salida, sin salto de línea.
+     */
+    public String encabezado() {
+        return String.join(",", columnas);
+    }
+
+    /**
+     * Obtiene la posición de cada columna de la proyección en el encabezado del
+     * archivo. Los nombres se comparan sin distinguir mayúsculas ni comillas.
+     *
+     * @param encabezado Los nombres de columna del archivo.
+     * @return Los índices, en el orden de la proyección.
+     * @throws IllegalArgumentException Si alguna columna no existe en el
+     *                                  archivo; el mensaje las enumera todas.
+     */
+    public int[] resolver(String[] encabezado) {
+        int[] indices = new int[columnas.length];
+        List<String> faltantes = new ArrayList<>();
+        for (int i = 0; i < columnas.length; i++) {
+            indices[i] = Filtrar.obtenerIndiceColumna(encabezado, columnas[i]);
+            if (indices[i] == -1) {
+                faltantes.add(columnas[i]);
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            throw new IllegalArgumentException("Columnas que no existen en el archivo: " + faltantes);
+        }
+        return indices;
+    }
+
+    /**
+     * Escribe los campos seleccionados del renglón ya separado, seguidos de un
+     * salto de línea. Un campo que no existe en el renglón se deja vacío.
+     *
+     * @param tokenizador El renglón separado en campos.
+     * @param indices     Los índices devueltos por {@link #resolver}.
+     * @param salida      El flujo de salida.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public static void escribir(TokenizadorCSV tokenizador, int[] indices, OutputStream salida) throws IOException {
+        int numCampos = tokenizador.numCampos();
+        for (int i = 0; i < indices.length; i++) {
+            if (i > 0) {
+                salida.write(',');
+            }
+            if (indices[i] < numCampos) {
+                tokenizador.escribirCampo(indices[i], salida);
+            }
+        }
+        salida.write('\n');
+    }
+}
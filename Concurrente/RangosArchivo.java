@@ -0,0 +1,171 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Clase que calcula rangos de bytes de un archivo de texto alineados a saltos
+ * de línea, de modo que cada rango contenga únicamente renglones completos y
+ * pueda procesarse de forma independiente por un hilo distinto.
+ */
+public class RangosArchivo {
+
+    // Tamaño del bloque que se lee al buscar el siguiente salto de línea
+    private static final int TAMANO_BLOQUE_BUSQUEDA = 8 * 1024;
+
+    /**
+     * Divide la región {@code [desde, hasta)} del archivo en {@code numPartes}
+     * rangos de tamaño similar, ajustando cada límite al inicio del siguiente
+     * renglón.
+     *
+     * @param canal     El canal del archivo a dividir.
+     * @param desde     El byte donde inicia la región a dividir.
+     * @param hasta     El byte (exclusivo) donde termina la región a dividir.
+     * @param numPartes El número de partes deseadas.
+     * @return Un arreglo de límites de longitud {@code k + 1}, donde la parte
+     *         {@code i} ocupa los bytes {@code [limites[i], limites[i + 1])}. Si
+     *         hay menos renglones que partes, {@code k} puede ser menor que
+     *         {@code numPartes}; nunca hay más partes que renglones.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public static long[] calcularLimites(FileChannel canal, long desde, long hasta, int numPartes)
+            throws IOException {
+        if (numPartes < 1) {
+            throw new IllegalArgumentException("El número de partes debe ser positivo: " + numPartes);
+        }
+
+        // El arreglo crece conforme se encuentran límites: un numPartes enorme con
+        // pocos renglones no debe reservar numPartes + 1 posiciones
+        long[] limites = new long[Math.min(numPartes, 1024) + 1];
+        int total = 0;
+        limites[total] = desde;
+
+        long tamanoParte = Math.max(1, (hasta - desde) / numPartes);
+        ByteBuffer bloque = ByteBuffer.allocate(TAMANO_BLOQUE_BUSQUEDA);
+
+        for (int i = 1; i < numPartes; i++) {
+            // Posición tentativa del límite, nunca antes del límite anterior
+            long tentativo = Math.max(desde + i * tamanoParte, limites[total] + 1);
+            if (tentativo >= hasta) {
+                break;
+            }
+
+            // Ajustar el límite al byte siguiente al próximo salto de línea
+            long limite = siguienteRenglon(canal, tentativo - 1, hasta, bloque);
+            if (limite >= hasta) {
+                break;
+            }
+            if (limite > limites[total]) {
+                limites = ampliar(limites, total + 1, numPartes);
+                limites[++total] = limite;
+            }
+        }
+
+        // El último límite siempre es el final de la región
+        if (hasta > limites[total] || total == 0) {
+            limites = ampliar(limites, total + 1, numPartes);
+            limites[++total] = hasta;
+        }
+
+        return Arrays.copyOf(limites, total + 1);
+    }
+
+    // Asegura espacio para el índice dado, sin pasar de numPartes + 1 posiciones
+    private static long[] ampliar(long[] limites, int indice, int numPartes) {
+        if (indice < limites.length) {
+            return limites;
+        }
+        return Arrays.copyOf(limites, (int) Math.min(numPartes + 1L, limites.length * 2L));
+    }
+
+    /**
+     * Busca el primer salto de línea a partir de {@code posicion} y devuelve la
+     * posición del byte que le sigue.
+     *
+     * @param canal    El canal del archivo.
+     * @param posicion El byte desde el que se inicia la búsqueda.
+     * @param hasta    El byte (exclusivo) donde se detiene la búsqueda.
+     * @return La posición del inicio del siguiente renglón, o {@code hasta} si
+     *         no hay más saltos de línea en la región.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public static long siguienteRenglon(FileChannel canal, long posicion, long hasta) throws IOException {
+        return siguienteRenglon(canal, posicion, hasta, ByteBuffer.allocate(TAMANO_BLOQUE_BUSQUEDA));
+    }
+
+    /**
+     * Busca hacia atrás el último salto de línea de la región y devuelve la
+     * posición del byte que le sigue, es decir, el final del último renglón
+     * completo. Sirve para no procesar un renglón que todavía se está
+     * escribiendo.
+     *
+     * @param canal El canal del archivo.
+     * @param desde El byte donde inicia la región.
+     * @param hasta El byte (exclusivo) donde termina la región.
+     * @return El final del último renglón completo, o {@code desde} si la región
+     *         no tiene saltos de línea.
+     * @throws IOException Si ocurre un error al leer el archivo.
+     */
+    public static long finUltimoRenglon(FileChannel canal, long desde, long hasta) throws IOException {
+        ByteBuffer bloque = ByteBuffer.allocate(TAMANO_BLOQUE_BUSQUEDA);
+        long fin = hasta;
+        while (fin > desde) {
+            long inicioBloque = Math.max(desde, fin - TAMANO_BLOQUE_BUSQUEDA);
+            bloque.clear();
+            bloque.limit((int) (fin - inicioBloque));
+            while (bloque.hasRemaining() && canal.read(bloque, inicioBloque + bloque.position()) > 0) {
+                // Repetir hasta llenar el bloque
+            }
+            for (int i = bloque.position() - 1; i >= 0; i--) {
+                if (bloque.get(i) == '\n') {
+                    return inicioBloque + i + 1;
+                }
+            }
+            fin = inicioBloque;
+        }
+        return desde;
+    }
+
+    /**
+     * Copia con {@link FileChannel#transferTo} los bytes {@code [desde, hasta)}
+     * de un canal a otro. Como {@code transferTo} puede copiar menos bytes de
+     * los pedidos, la copia se repite hasta el final; si una llamada no copia
+     * nada (por ejemplo, porque el origen se truncó) se lanza un error en lugar
+     * de repetir sin fin o dejar la copia incompleta.
+     *
+     * @param origen  El canal de origen.
+     * @param desde   El primer byte a copiar.
+     * @param hasta   El byte (exclusivo) donde termina la copia.
+     * @param destino El canal de destino, a partir de su posición actual.
+     * @throws IOException Si ocurre un error o la copia deja de avanzar.
+     */
+    public static void copiar(FileChannel origen, long desde, long hasta, FileChannel destino) throws IOException {
+        while (desde < hasta) {
+            long copiados = origen.transferTo(desde, hasta - desde, destino);
+            if (copiados <= 0) {
+                throw new IOException("La copia se detuvo en el byte " + desde + " de " + hasta
+                        + "; el archivo de origen pudo haberse truncado");
+            }
+            desde += copiados;
+        }
+    }
+
+    private static long siguienteRenglon(FileChannel canal, long posicion, long hasta, ByteBuffer bloque)
+            throws IOException {
+        while (posicion < hasta) {
+            bloque.clear();
+            // Lectura posicional: no modifica la posición del canal y es segura entre hilos
+            int leidos = canal.read(bloque, posicion);
+            if (leidos <= 0) {
+                break;
+            }
+            for (int i = 0; i < leidos && posicion + i < hasta; i++) {
+                if (bloque.get(i) == '\n') {
+                    return posicion + i + 1;
+                }
+            }
+            posicion += leidos;
+        }
+        return hasta;
+    }
+}
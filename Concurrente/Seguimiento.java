@@ -0,0 +1,185 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Modo de seguimiento para archivos CSV que crecen durante el día. Recuerda
+ * hasta qué byte se procesó cada archivo y, en la siguiente actualización,
+ * procesa solo los renglones nuevos y los agrega al final de la salida
+ * existente, de modo que el costo sea proporcional a los datos nuevos.
+ *
+ * <p>
+ * El estado se guarda junto a la salida, en {@code <salida>.seguimiento}: el
+ * byte donde continuar, el tamaño que debe tener la salida y una huella (CRC32)
+ * de los primeros bytes ya procesados. Se vuelve a empezar desde el byte cero si
+ * el archivo se reemplazó o se truncó, o si la salida cambió desde la última
+ * actualización. Un último renglón sin salto de línea se deja para la siguiente
+ * actualización, porque puede estar a medio escribir.
+ * </p>
+ *
+ * <p>
+ * Las subclases indican cómo leer el encabezado y cómo procesar un rango de
+ * renglones; por ejemplo, {@link ProcesarArchivo#actualizar} y
+ * {@link Filtrar#filtrarSiguiendo}.
+ * </p>
+ */
+public abstract class Seguimiento {
+
+    // Bytes del inicio del archivo que se usan como huella
+    private static final int TAMANO_HUELLA = 64 * 1024;
+
+    /**
+     * Describe cómo se procesa el archivo (por ejemplo, las columnas que se
+     * extraen). Si cambia entre dos actualizaciones, la salida se vuelve a
+     * generar desde el inicio.
+     *
+     * @return La descripción; por defecto, vacía.
+     */
+    protected String configuracion() {
+        return "";
+    }
+
+    /**
+     * Lee el renglón de encabezado del archivo de entrada. Se llama en cada
+     * actualización, aunque solo se vaya a continuar.
+     *
+     * @param lector El lector posicionado al inicio del archivo.
+     * @param salida El flujo donde debe escribirse el encabezado de la salida, o
+     *               {@code null} si la salida ya lo tiene.
+     * @return {@code false} si el archivo no se puede procesar.
+     * @throws IOException Si ocurre un error al leer o escribir.
+     */
+    protected abstract boolean leerEncabezado(LectorRenglones lector, OutputStream salida) throws IOException;
+
+    /**
+     * Procesa los renglones de datos del lector y escribe su resultado.
+     *
+     * @param lector El lector de los renglones nuevos.
+     * @param salida El flujo de salida.
+     * @throws IOException Si ocurre un error al leer o escribir.
+     */
+    protected abstract void procesarRango(LectorRenglones lector, OutputStream salida) throws IOException;
+
+    /**
+     * Procesa los renglones agregados al archivo desde la última actualización.
+     *
+     * @param entrada El archivo CSV de entrada.
+     * @param salida  El archivo de salida.
+     * @return El número de bytes nuevos de la entrada que se procesaron, o -1 si
+     *         el archivo no se pudo procesar.
+     * @throws IOException Si ocurre un error al leer o escribir.
+     */
+    public final long actualizar(File entrada, File salida) throws IOException {
+        File archivoEstado = new File(salida.getPath() + ".seguimiento");
+
+        try (FileChannel canal = FileChannel.open(entrada.toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            Properties estado = leerEstado(archivoEstado);
+            long desde = leerNumero(estado, "desplazamiento");
+            boolean continuar = desde > 0 && desde <= tamano
+                    && salida.length() == leerNumero(estado, "tamanoSalida")
+                    && configuracion().equals(estado.getProperty("configuracion"))
+                    && estado.getProperty("huella", "").equals(huella(canal, desde));
+            if (!continuar) {
+                desde = 0;
+            }
+
+            // Procesar solo renglones completos
+            long hasta = RangosArchivo.finUltimoRenglon(canal, desde, tamano);
+
+            // El encabezado siempre se lee para conocer las columnas, y antes de abrir la
+            // salida: si el archivo no se puede procesar, la salida anterior queda intacta
+            LectorRenglones lectorEncabezado = new LectorRenglones(canal, 0, tamano, 64 * 1024);
+            ByteArrayOutputStream encabezado = continuar ? null : new ByteArrayOutputStream();
+            if (!leerEncabezado(lectorEncabezado, encabezado)) {
+                return -1;
+            }
+            if (!continuar) {
+                desde = Math.min(lectorEncabezado.posicionSiguiente(), hasta);
+            }
+
+            try (OutputStream flujo = new EscritorAsincrono(salida, continuar)) {
+                if (encabezado != null) {
+                    encabezado.writeTo(flujo);
+                }
+                if (hasta > desde) {
+                    procesarRango(new LectorRenglones(canal, desde, hasta), flujo);
+                }
+            }
+
+            estado.setProperty("desplazamiento", Long.toString(hasta));
+            estado.setProperty("tamanoSalida", Long.toString(salida.length()));
+            estado.setProperty("huella", huella(canal, hasta));
+            estado.setProperty("configuracion", configuracion());
+            guardarEstado(archivoEstado, estado);
+            return hasta - desde;
+        }
+    }
+
+    /**
+     * Repite {@link #actualizar} cada cierto tiempo hasta que el hilo se
+     * interrumpa, como {@code tail -f}.
+     *
+     * @param entrada         El archivo CSV de entrada.
+     * @param salida          El archivo de salida.
+     * @param intervaloMillis La espera entre actualizaciones, en milisegundos.
+     * @throws IOException          Si ocurre un error al leer o escribir.
+     * @throws InterruptedException Si el hilo se interrumpe.
+     */
+    public final void seguir(File entrada, File salida, long intervaloMillis)
+            throws IOException, InterruptedException {
+        while (!Thread.currentThread().isInterrupted()) {
+            long procesados = actualizar(entrada, salida);
+            if (procesados > 0) {
+                System.out.println("Bytes nuevos procesados de " + entrada.getName() + ": " + procesados);
+            }
+            Thread.sleep(intervaloMillis);
+        }
+    }
+
+    // CRC32 de los primeros bytes ya procesados, para notar si el archivo se reemplazó
+    private static String huella(FileChannel canal, long procesados) throws IOException {
+        ByteBuffer bloque = ByteBuffer.allocate((int) Math.min(TAMANO_HUELLA, procesados));
+        while (bloque.hasRemaining() && canal.read(bloque, bloque.position()) > 0) {
+            // Repetir hasta llenar el bloque
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bloque.array(), 0, bloque.position());
+        return Long.toHexString(crc.getValue()) + ":" + bloque.position();
+    }
+
+    private static Properties leerEstado(File archivoEstado) {
+        Properties estado = new Properties();
+        if (archivoEstado.exists()) {
+            try (InputStream entrada = new FileInputStream(archivoEstado)) {
+                estado.load(entrada);
+            } catch (IOException | IllegalArgumentException e) {
+                estado.clear(); // Estado dañado: empezar de nuevo
+            }
+        }
+        return estado;
+    }
+
+    private static long leerNumero(Properties estado, String clave) {
+        try {
+            return Long.parseLong(estado.getProperty(clave, "-1"));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void guardarEstado(File archivoEstado, Properties estado) throws IOException {
+        try (OutputStream salida = new FileOutputStream(archivoEstado)) {
+            estado.store(salida, "Estado del modo de seguimiento");
+        }
+    }
+}
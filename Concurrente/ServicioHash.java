@@ -0,0 +1,257 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase que calcula sumas de verificación de archivos. Cada archivo se lee con
+ * un {@link FileChannel} en un buffer directo grande, en lugar de bloques de 512
+ * bytes, y varios archivos se procesan a la vez, uno por hilo.
+ *
+ * <p>
+ * Ofrece MD5 (el que muestra {@link IArchivo#obtenerAtributos}), SHA-256 y
+ * XXH64, un hash no criptográfico mucho más rápido que sirve para comprobar la
+ * integridad de los archivos, pero no para protegerlos contra modificaciones
+ * intencionales.
+ * </p>
+ */
+public class ServicioHash {
+
+    // Tamaño del buffer de lectura de cada hilo
+    private static final int TAMANO_BUFFER = 4 * 1024 * 1024;
+
+    // Cada hilo reutiliza su buffer directo entre archivos
+    private static final ThreadLocal<ByteBuffer> BUFFERS = ThreadLocal
+            .withInitial(() -> ByteBuffer.allocateDirect(TAMANO_BUFFER).order(ByteOrder.LITTLE_ENDIAN));
+
+    // Hilos compartidos por todas las llamadas a hashearTodos, para que sus buffers se
+    // reutilicen entre llamadas; un hilo sin trabajo termina al minuto y libera el suyo
+    private static final ExecutorService HILOS = Executors.newCachedThreadPool(tarea -> {
+        Thread hilo = new Thread(tarea, "hash");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    /**
+     * Algoritmos de hash disponibles.
+     */
+    public enum Algoritmo {
+        MD5, SHA256, XXH64
+    }
+
+    /**
+     * Calcula el hash de un archivo.
+     *
+     * @param archivo   El archivo.
+     * @param algoritmo El algoritmo a usar.
+     * @return El hash en hexadecimal.
+     * @throws IOException Si no se puede leer el archivo.
+     */
+    public static String hashear(Path archivo, Algoritmo algoritmo) throws IOException {
+        ByteBuffer buffer = BUFFERS.get();
+        buffer.clear();
+
+        return Metricas.medir("hash.archivo", () -> {
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+                String hash;
+                if (algoritmo == Algoritmo.XXH64) {
+                    hash = String.format("%016x", xxh64(canal, buffer));
+                } else {
+                    MessageDigest digest = crearDigest(algoritmo);
+                    while (canal.read(buffer) != -1) {
+                        buffer.flip();
+                        digest.update(buffer);
+                        buffer.clear();
+                    }
+                    hash = aHexadecimal(digest.digest());
+                }
+                Metricas.contador(Metricas.BYTES_HASHEADOS).add(canal.position());
+                return hash;
+            }
+        });
+    }
+
+    /**
+     * Calcula el hash de varios archivos en paralelo, con tantos hilos como
+     * procesadores. Los hilos se comparten entre llamadas y cada uno toma el
+     * siguiente archivo pendiente.
+     *
+     * @param archivos  Los archivos.
+     * @param algoritmo El algoritmo a usar.
+     * @return El hash en hexadecimal de cada archivo, en el mismo orden que la
+     *         lista recibida.
+     * @throws IOException Si alguno de los archivos no se puede leer.
+     */
+    public static Map<Path, String> hashearTodos(List<Path> archivos, Algoritmo algoritmo) throws IOException {
+        String[] hashes = new String[archivos.size()];
+        AtomicInteger siguiente = new AtomicInteger();
+        int numHilos = Math.max(1, Math.min(NumeroCPUs.numeroCPUs(), archivos.size()));
+        List<Future<?>> tareas = new ArrayList<>();
+        try {
+            for (int h = 0; h < numHilos; h++) {
+                tareas.add(HILOS.submit(() -> {
+                    for (int i = siguiente.getAndIncrement(); i < hashes.length; i = siguiente.getAndIncrement()) {
+                        hashes[i] = hashear(archivos.get(i), algoritmo);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+
+            Map<Path, String> resultado = new LinkedHashMap<>();
+            for (int i = 0; i < hashes.length; i++) {
+                resultado.put(archivos.get(i), hashes[i]);
+            }
+            return resultado;
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Cálculo de hashes interrumpido", e);
+        } finally {
+            for (Future<?> tarea : tareas) {
+                tarea.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Calcula el hash de varios archivos en paralelo.
+     *
+     * @param archivos  Los archivos.
+     * @param algoritmo El algoritmo a usar.
+     * @return El hash en hexadecimal de cada archivo, en el mismo orden.
+     * @throws IOException Si alguno de los archivos no se puede leer.
+     */
+    public static String[] hashearTodos(File[] archivos, Algoritmo algoritmo) throws IOException {
+        List<Path> rutas = new ArrayList<>();
+        for (File archivo : archivos) {
+            rutas.add(archivo.toPath());
+        }
+        return hashearTodos(rutas, algoritmo).values().toArray(new String[0]);
+    }
+
+    private static MessageDigest crearDigest(Algoritmo algoritmo) {
+        try {
+            return MessageDigest.getInstance(algoritmo == Algoritmo.MD5 ? "MD5" : "SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Todas las JVM deben incluir MD5 y SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String aHexadecimal(byte[] bytes) {
+        StringBuilder cadena = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            cadena.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return cadena.toString();
+    }
+
+    // ---------------------------------------------------------------------
+    // XXH64 (semilla 0)
+    // ---------------------------------------------------------------------
+
+    private static final long PRIMO1 = 0x9E3779B185EBCA87L;
+    private static final long PRIMO2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIMO3 = 0x165667B19E3779F9L;
+    private static final long PRIMO4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIMO5 = 0x27D4EB2F165667C5L;
+
+    /**
+     * Calcula XXH64 leyendo todo el canal. Los bloques de 32 bytes se procesan en
+     * cuanto se leen; los bytes que no completan un bloque se conservan al
+     * inicio del buffer para la siguiente lectura.
+     */
+    static long xxh64(FileChannel canal, ByteBuffer buffer) throws IOException {
+        long v1 = PRIMO1 + PRIMO2;
+        long v2 = PRIMO2;
+        long v3 = 0;
+        long v4 = -PRIMO1;
+        long longitud = 0;
+
+        while (canal.read(buffer) != -1) {
+            buffer.flip();
+            int posicion = buffer.position();
+            int limite = buffer.limit();
+            for (; posicion + 32 <= limite; posicion += 32) {
+                v1 = ronda(v1, buffer.getLong(posicion));
+                v2 = ronda(v2, buffer.getLong(posicion + 8));
+                v3 = ronda(v3, buffer.getLong(posicion + 16));
+                v4 = ronda(v4, buffer.getLong(posicion + 24));
+                longitud += 32;
+            }
+            buffer.position(posicion);
+            buffer.compact();
+        }
+        buffer.flip(); // Quedan menos de 32 bytes
+
+        long hash;
+        if (longitud >= 32) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+                    + Long.rotateLeft(v4, 18);
+            hash = mezclar(hash, v1);
+            hash = mezclar(hash, v2);
+            hash = mezclar(hash, v3);
+            hash = mezclar(hash, v4);
+        } else {
+            hash = PRIMO5;
+        }
+        hash += longitud + buffer.remaining();
+
+        int posicion = 0;
+        int limite = buffer.limit();
+        for (; posicion + 8 <= limite; posicion += 8) {
+            hash ^= ronda(0, buffer.getLong(posicion));
+            hash = Long.rotateLeft(hash, 27) * PRIMO1 + PRIMO4;
+        }
+        if (posicion + 4 <= limite) {
+            hash ^= (buffer.getInt(posicion) & 0xFFFFFFFFL) * PRIMO1;
+            hash = Long.rotateLeft(hash, 23) * PRIMO2 + PRIMO3;
+            posicion += 4;
+        }
+        for (; posicion < limite; posicion++) {
+            hash ^= (buffer.get(posicion) & 0xFFL) * PRIMO5;
+            hash = Long.rotateLeft(hash, 11) * PRIMO1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIMO2;
+        hash ^= hash >>> 29;
+        hash *= PRIMO3;
+        hash ^= hash >>> 32;
+        buffer.clear();
+        return hash;
+    }
+
+    private static long ronda(long acumulador, long entrada) {
+        acumulador += entrada * PRIMO2;
+        acumulador = Long.rotateLeft(acumulador, 31);
+        return acumulador * PRIMO1;
+    }
+
+    private static long mezclar(long hash, long acumulador) {
+        hash ^= ronda(0, acumulador);
+        return hash * PRIMO1 + PRIMO4;
+    }
+}
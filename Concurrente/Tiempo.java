@@ -1,21 +1,24 @@
+/**
+ * Temporizador de las operaciones del menú. Mide con {@link System#nanoTime()}
+ * y delega en {@link Metricas}, que además reúne los contadores y las etapas
+ * registradas por los hilos durante la operación.
+ */
 public class Tiempo {
 
-    private static long inicio; // Variable para almacenar el tiempo de inicio
-    private static long fin; // Variable para almacenar el tiempo de fin
-
-    // Método para iniciar el temporizador
+    // Método para iniciar el temporizador; también pone en cero las métricas
     public static void iniciar() {
-        inicio = System.currentTimeMillis(); // Captura el tiempo en milisegundos al iniciar
+        Metricas.iniciar();
     }
 
     // Método para detener el temporizador
     public static void detener() {
-        fin = System.currentTimeMillis(); // Captura el tiempo en milisegundos al terminar
+        Metricas.detener();
     }
 
-    // Método para calcular y mostrar el tiempo transcurrido
+    // Método para calcular y mostrar el tiempo transcurrido y las métricas de la operación
     public static void mostrarTiempo() {
-        long tiempoTranscurrido = fin - inicio; // Calcula la diferencia entre fin e inicio
+        long tiempoTranscurrido = Metricas.duracionNanos() / 1_000_000; // Convertir nanosegundos a milisegundos
+        long milisegundos = tiempoTranscurrido % 1000; // Obtener los milisegundos restantes
         long segundos = tiempoTranscurrido / 1000; // Convertir milisegundos a segundos
         long minutos = segundos / 60; // Convertir segundos a minutos
         segundos = segundos % 60; // Obtener los segundos restantes
@@ -24,7 +27,14 @@ public class Tiempo {
         System.out.println("                 TIEMPO DE EJECUCIÓN                 ");
         System.out.println("=====================================================");
         // Mostrar el mensaje con el tiempo transcurrido
-        System.out.printf("La tarea ha finalizado con éxito.\nTiempo de procesamiento: %d minutos y %d segundos.\n",
-                minutos, segundos);
+        System.out.printf("La tarea ha finalizado con éxito.\nTiempo de procesamiento: %d minutos y %d.%03d segundos.\n",
+                minutos, segundos, milisegundos);
+
+        // Mostrar el rendimiento y la duración de cada etapa, si se registraron
+        String reporte = Metricas.reporte();
+        if (!reporte.isEmpty()) {
+            System.out.println("-----------------------------------------------------");
+            System.out.print(reporte);
+        }
     }
 }
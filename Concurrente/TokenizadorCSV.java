@@ -0,0 +1,366 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Clase que separa un renglón CSV en campos sin crear objetos por renglón. Los
+ * campos se exponen como desplazamientos dentro del buffer de bytes del
+ * renglón, de modo que se pueden comparar o copiar sin construir un
+ * {@code String}.
+ *
+ * <p>
+ * Sigue las reglas de comillas del RFC 4180: un campo entre comillas dobles
+ * puede contener comas, y una comilla dentro de él se escribe duplicada
+ * ({@code ""}). Los saltos de línea dentro de un campo no se admiten, pues los
+ * renglones se delimitan antes de tokenizar.
+ * </p>
+ *
+ * <p>
+ * Una instancia se reutiliza para todos los renglones, pero no debe
+ * compartirse entre hilos.
+ * </p>
+ */
+public class TokenizadorCSV {
+
+    private static final byte SEPARADOR = ',';
+    private static final byte COMILLA = '"';
+
+    private static final double[] POTENCIAS_DIEZ = new double[23];
+
+    // Dígitos significativos que caben sin redondeo en la mantisa de un double
+    private static final int MAX_DIGITOS_EXACTOS = 15;
+
+    static {
+        POTENCIAS_DIEZ[0] = 1;
+        for (int i = 1; i < POTENCIAS_DIEZ.length; i++) {
+            POTENCIAS_DIEZ[i] = POTENCIAS_DIEZ[i - 1] * 10;
+        }
+    }
+
+    private byte[] buffer;
+    private int numCampos;
+
+    // Límites del valor de cada campo, sin las comillas exteriores
+    private int[] inicios = new int[32];
+    private int[] fines = new int[32];
+    // Indica si el campo venía entre comillas y si contiene comillas duplicadas
+    private boolean[] entreComillas = new boolean[32];
+    private boolean[] conEscapes = new boolean[32];
+
+    /**
+     * Separa en campos el renglón contenido en {@code [desde, hasta)}.
+     *
+     * @param buffer El buffer que contiene el renglón.
+     * @param desde  La posición del primer byte del renglón.
+     * @param hasta  La posición (exclusiva) del último byte del renglón, sin el
+     *               salto de línea.
+     * @return El número de campos del renglón.
+     */
+    public int tokenizar(byte[] buffer, int desde, int hasta) {
+        this.buffer = buffer;
+        numCampos = 0;
+        int p = desde;
+
+        while (true) {
+            if (numCampos == inicios.length) {
+                ampliar();
+            }
+
+            boolean comillas = false;
+            boolean escapes = false;
+            int inicio;
+            int fin;
+
+            if (p < hasta && buffer[p] == COMILLA) {
+                // Campo entre comillas: avanzar hasta la comilla de cierre
+                comillas = true;
+                inicio = ++p;
+                while (p < hasta) {
+                    if (buffer[p] == COMILLA) {
+                        if (p + 1 < hasta && buffer[p + 1] == COMILLA) {
+                            escapes = true;
+                            p += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    p++;
+                }
+                fin = p;
+                // Ignorar cualquier byte entre la comilla de cierre y la coma
+                while (p < hasta && buffer[p] != SEPARADOR) {
+                    p++;
+                }
+            } else {
+                inicio = p;
+                while (p < hasta && buffer[p] != SEPARADOR) {
+                    p++;
+                }
+                fin = p;
+            }
+
+            inicios[numCampos] = inicio;
+            fines[numCampos] = fin;
+            entreComillas[numCampos] = comillas;
+            conEscapes[numCampos] = escapes;
+            numCampos++;
+
+            if (p >= hasta) {
+                return numCampos;
+            }
+            p++; // Saltar la coma
+        }
+    }
+
+    private void ampliar() {
+        int nuevo = inicios.length * 2;
+        inicios = Arrays.copyOf(inicios, nuevo);
+        fines = Arrays.copyOf(fines, nuevo);
+        entreComillas = Arrays.copyOf(entreComillas, nuevo);
+        conEscapes = Arrays.copyOf(conEscapes, nuevo);
+    }
+
+    /**
+     * @return El número de campos del último renglón tokenizado.
+     */
+    public int numCampos() {
+        return numCampos;
+    }
+
+    /**
+     * @return El buffer del último renglón tokenizado.
+     */
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * @param i El índice del campo.
+     * @return La posición del primer byte del valor del campo, sin comillas.
+     */
+    public int inicio(int i) {
+        return inicios[i];
+    }
+
+    /**
+     * @param i El índice del campo.
+     * @return La posición (exclusiva) del último byte del valor del campo, sin
+     *         comillas.
+     */
+    public int fin(int i) {
+        return fines[i];
+    }
+
+    /**
+     * @param i El índice del campo.
+     * @return {@code true} si el campo venía entre comillas dobles.
+     */
+    public boolean entreComillas(int i) {
+        return entreComillas[i];
+    }
+
+    /**
+     * @param i El índice del campo.
+     * @return {@code true} si el valor del campo contiene comillas duplicadas
+     *         ({@code ""}) que representan una sola.
+     */
+    public boolean conEscapes(int i) {
+        return conEscapes[i];
+    }
+
+    /**
+     * Compara el valor de un campo con una secuencia de bytes, considerando las
+     * comillas duplicadas como una sola.
+     *
+     * @param i     El índice del campo.
+     * @param valor Los bytes del valor a comparar.
+     * @return {@code true} si el campo existe y su valor es igual a
+     *         {@code valor}.
+     */
+    public boolean igual(int i, byte[] valor) {
+        if (i >= numCampos) {
+            return false;
+        }
+        int inicio = inicios[i];
+        int fin = fines[i];
+
+        if (!conEscapes[i]) {
+            if (fin - inicio != valor.length) {
+                return false;
+            }
+            for (int k = 0; k < valor.length; k++) {
+                if (buffer[inicio + k] != valor[k]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Comparación byte a byte saltando la segunda comilla de cada par
+        int k = 0;
+        for (int p = inicio; p < fin; p++, k++) {
+            if (k >= valor.length || buffer[p] != valor[k]) {
+                return false;
+            }
+            if (buffer[p] == COMILLA) {
+                p++;
+            }
+        }
+        return k == valor.length;
+    }
+
+    /**
+     * Interpreta el valor de un campo como número decimal directamente desde
+     * sus bytes, sin crear un {@code String} ni llamar a
+     * {@code Double.parseDouble}. Acepta signo, parte decimal y exponente
+     * ({@code -1.5e3}); los espacios alrededor se ignoran.
+     *
+     * <p>
+     * El cálculo rápido solo se usa cuando es exacto (a lo más 15 dígitos
+     * significativos y un exponente decimal de a lo más 22); en otro caso se
+     * recurre a {@code Double.parseDouble}, de modo que el resultado siempre
+     * coincide con el de {@link Consulta}, que convierte así sus literales.
+     * </p>
+     *
+     * @param i El índice del campo.
+     * @return El valor numérico del campo, o {@code Double.NaN} si el campo no
+     *         existe o no es un número.
+     */
+    public double numero(int i) {
+        if (i >= numCampos) {
+            return Double.NaN;
+        }
+        int p = inicios[i];
+        int fin = fines[i];
+
+        // Ignorar espacios alrededor del número
+        while (p < fin && buffer[p] == ' ') {
+            p++;
+        }
+        while (fin > p && buffer[fin - 1] == ' ') {
+            fin--;
+        }
+        if (p == fin) {
+            return Double.NaN;
+        }
+        int inicioNumero = p;
+
+        boolean negativo = false;
+        if (buffer[p] == '-' || buffer[p] == '+') {
+            negativo = buffer[p] == '-';
+            p++;
+        }
+
+        // Acumular hasta 18 dígitos significativos en un long y llevar la cuenta del exponente
+        long mantisa = 0;
+        int exponente = 0;
+        int digitos = 0;
+        int significativos = 0;
+        boolean punto = false;
+        for (; p < fin; p++) {
+            byte b = buffer[p];
+            if (b >= '0' && b <= '9') {
+                digitos++;
+                if (significativos < 18) {
+                    if (mantisa != 0 || b != '0') {
+                        significativos++;
+                    }
+                    mantisa = mantisa * 10 + (b - '0');
+                    if (punto) {
+                        exponente--;
+                    }
+                } else if (!punto) {
+                    exponente++;
+                }
+            } else if (b == '.' && !punto) {
+                punto = true;
+            } else {
+                break;
+            }
+        }
+        if (digitos == 0) {
+            return Double.NaN;
+        }
+
+        // Exponente explícito
+        if (p < fin && (buffer[p] == 'e' || buffer[p] == 'E')) {
+            p++;
+            boolean exponenteNegativo = false;
+            if (p < fin && (buffer[p] == '-' || buffer[p] == '+')) {
+                exponenteNegativo = buffer[p] == '-';
+                p++;
+            }
+            int valorExponente = 0;
+            int digitosExponente = 0;
+            for (; p < fin && buffer[p] >= '0' && buffer[p] <= '9'; p++) {
+                valorExponente = Math.min(valorExponente * 10 + (buffer[p] - '0'), 10000);
+                digitosExponente++;
+            }
+            if (digitosExponente == 0) {
+                return Double.NaN;
+            }
+            exponente += exponenteNegativo ? -valorExponente : valorExponente;
+        }
+        if (p != fin) {
+            return Double.NaN;
+        }
+
+        // Con hasta 15 dígitos la mantisa es exacta en un double, y las potencias de 10
+        // hasta 10^22 también; una sola multiplicación o división redondea igual que
+        // Double.parseDouble. Fuera de ese caso se redondearía dos veces.
+        if (significativos > MAX_DIGITOS_EXACTOS || Math.abs(exponente) > 22) {
+            return Double.parseDouble(new String(buffer, inicioNumero, fin - inicioNumero, StandardCharsets.ISO_8859_1));
+        }
+        double valor = mantisa;
+        if (exponente > 0) {
+            valor *= POTENCIAS_DIEZ[exponente];
+        } else if (exponente < 0) {
+            valor /= POTENCIAS_DIEZ[-exponente];
+        }
+        return negativo ? -valor : valor;
+    }
+
+    /**
+     * Escribe el campo tal como aparece en el renglón, incluidas sus comillas
+     * si las tenía, para que la salida siga siendo CSV válido.
+     *
+     * @param i      El índice del campo.
+     * @param salida El flujo donde se escribe el campo.
+     * @throws IOException Si ocurre un error al escribir.
+     */
+    public void escribirCampo(int i, OutputStream salida) throws IOException {
+        if (entreComillas[i]) {
+            salida.write(COMILLA);
+            salida.write(buffer, inicios[i], fines[i] - inicios[i]);
+            salida.write(COMILLA);
+        } else {
+            salida.write(buffer, inicios[i], fines[i] - inicios[i]);
+        }
+    }
+
+    /**
+     * Convierte el valor de un campo a {@code String}. Pensado para encabezados
+     * y mensajes, no para el ciclo principal.
+     *
+     * @param i El índice del campo.
+     * @return El valor del campo sin comillas exteriores.
+     */
+    public String campo(int i) {
+        String valor = new String(buffer, inicios[i], fines[i] - inicios[i], StandardCharsets.UTF_8);
+        return conEscapes[i] ? valor.replace("\"\"", "\"") : valor;
+    }
+
+    /**
+     * Convierte todos los campos del último renglón a {@code String}.
+     *
+     * @return Un arreglo con el valor de cada campo.
+     */
+    public String[] campos() {
+        String[] valores = new String[numCampos];
+        for (int i = 0; i < numCampos; i++) {
+            valores[i] = campo(i);
+        }
+        return valores;
+    }
+}
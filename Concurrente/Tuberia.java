@@ -0,0 +1,805 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Encadena varias operaciones sobre un archivo CSV (contar, filtrar, extraer
+ * columnas, guardar, agrupar y dividir) y las ejecuta en un solo recorrido, en
+ * lugar de que {@link Dimensionar}, {@link Filtrar}, {@link Agregacion} y
+ * {@link Dividir} lean cada una el archivo completo.
+ *
+ * <p>
+ * El archivo se reparte en rangos alineados a saltos de línea que se recorren
+ * en paralelo. Cada renglón se separa en campos una sola vez y pasa por las
+ * etapas en el orden en que se agregaron; un filtro detiene el renglón, de modo
+ * que las etapas posteriores solo ven los que cumplen la consulta. Las etapas
+ * que escriben renglones lo hacen en un archivo temporal por rango, que al
+ * final se une en el orden del archivo de entrada.
+ * </p>
+ *
+ * <pre>
+ * Tuberia.desde("charts.csv")
+ *         .contar()
+ *         .filtrar("streams &gt; 1000000 AND region IN (Mexico, Argentina)")
+ *         .agrupar("region", "streams", null, new File("agregado.csv"))
+ *         .dividir(4, true)
+ *         .ejecutar();
+ * </pre>
+ */
+public class Tuberia {
+
+    // Rangos por hilo, para equilibrar la carga entre hilos
+    private static final int RANGOS_POR_HILO = 4;
+
+    private final File archivoEntrada;
+    private final List<Etapa> etapas = new ArrayList<>();
+
+    /**
+     * Una operación de la tubería. Antes del recorrido se prepara con el
+     * encabezado del archivo; durante el recorrido cada rango abre su propio
+     * {@link Paso}, y al final {@link #terminar()} combina los resultados de
+     * los rangos.
+     */
+    private abstract static class Etapa {
+
+        // Prepara la etapa; lanza IllegalArgumentException si no se puede aplicar al archivo
+        void preparar(String[] columnas, byte[] encabezado, int numRangos) throws IOException {
+        }
+
+        // Indica si la etapa lee los campos del renglón
+        boolean usaCampos() {
+            return false;
+        }
+
+        abstract Paso abrir(int rango) throws IOException;
+
+        void terminar() throws IOException {
+        }
+
+        // Borra los archivos temporales, haya terminado bien o no
+        void limpiar() {
+        }
+    }
+
+    /**
+     * Estado de una etapa dentro de un rango; solo lo usa el hilo del rango.
+     */
+    private interface Paso extends Closeable {
+
+        /**
+         * Procesa el renglón actual.
+         *
+         * @return {@code false} si el renglón no debe pasar a las etapas
+         *         siguientes.
+         */
+        boolean procesar(LectorRenglones lector, TokenizadorCSV campos) throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    private Tuberia(File archivoEntrada) {
+        this.archivoEntrada = archivoEntrada;
+    }
+
+    /**
+     * Crea una tubería sin etapas sobre un archivo CSV.
+     *
+     * @param archivoEntrada El archivo CSV a recorrer.
+     * @return La tubería.
+     */
+    public static Tuberia desde(String archivoEntrada) {
+        return new Tuberia(new File(archivoEntrada));
+    }
+
+    /**
+     * Cuenta los renglones de datos que llegan a esta etapa. Al inicio de la
+     * tubería equivale a {@link Dimensionar}: informa también el número de
+     * columnas.
+     *
+     * @return Esta tubería.
+     */
+    public Tuberia contar() {
+        boolean despuesDeFiltro = etapas.stream().anyMatch(etapa -> etapa instanceof Filtro);
+        etapas.add(new Conteo(despuesDeFiltro));
+        return this;
+    }
+
+    /**
+     * Deja pasar a las etapas siguientes solo los renglones que cumplen una
+     * consulta (ver {@link Consulta}).
+     *
+     * @param consulta El texto de la consulta.
+     * @return Esta tubería.
+     */
+    public Tuberia filtrar(String consulta) {
+        etapas.add(new Filtro(consulta));
+        return this;
+    }
+
+    /**
+     * Escribe los renglones completos que llegan a esta etapa, con el
+     * encabezado del archivo.
+     *
+     * @param archivoSalida El archivo de salida.
+     * @return Esta tubería.
+     */
+    public Tuberia guardar(File archivoSalida) {
+        etapas.add(new Guardado(archivoSalida));
+        return this;
+    }
+
+    /**
+     * Escribe las columnas indicadas de los renglones que llegan a esta etapa.
+     *
+     * @param proyeccion    Las columnas a extraer.
+     * @param archivoSalida El archivo de salida.
+     * @return Esta tubería.
+     */
+    public Tuberia proyectar(Proyeccion proyeccion, File archivoSalida) {
+        etapas.add(new Extraccion(proyeccion, archivoSalida));
+        return this;
+    }
+
+    /**
+     * Agrupa los renglones que llegan a esta etapa igual que
+     * {@link Agregacion#agrupar}.
+     *
+     * @param columnaClave     La columna que define el grupo.
+     * @param columnaValor     La columna numérica a resumir, o {@code null}.
+     * @param columnaDistintos La columna cuyos valores distintos se estiman, o
+     *                         {@code null}.
+     * @param archivoSalida    El archivo de salida.
+     * @return Esta tubería.
+     */
+    public Tuberia agrupar(String columnaClave, String columnaValor, String columnaDistintos, File archivoSalida) {
+        etapas.add(new Agrupacion(columnaClave, columnaValor, columnaDistintos, archivoSalida));
+        return this;
+    }
+
+    /**
+     * Reparte los renglones que llegan a esta etapa en partes de tamaño similar,
+     * en la carpeta {@code resultados} junto al archivo de entrada y con los
+     * mismos nombres que usa {@link Dividir}.
+     *
+     * @param numPartes         El número de partes.
+     * @param repetirEncabezado {@code true} para escribir el encabezado al
+     *                          inicio de cada parte y no solo de la primera.
+     * @return Esta tubería.
+     */
+    public Tuberia dividir(int numPartes, boolean repetirEncabezado) {
+        if (numPartes <= 0) {
+            throw new IllegalArgumentException("El número de partes debe ser positivo: " + numPartes);
+        }
+        etapas.add(new Division(numPartes, repetirEncabezado));
+        return this;
+    }
+
+    /**
+     * Recorre el archivo una vez y aplica todas las etapas.
+     *
+     * @throws IOException              Si ocurre un error al leer o escribir.
+     * @throws IllegalArgumentException Si una etapa no se puede aplicar al
+     *                                  archivo, por ejemplo si una columna no
+     *                                  existe o la consulta no es válida.
+     */
+    public void ejecutar() throws IOException {
+        if (etapas.isEmpty()) {
+            throw new IllegalStateException("La tubería no tiene etapas.");
+        }
+
+        int numHilos = NumeroCPUs.numeroCPUs();
+        ExecutorService executor = Executors.newFixedThreadPool(numHilos);
+
+        try (FileChannel canal = FileChannel.open(archivoEntrada.toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            LectorRenglones lectorEncabezado = new LectorRenglones(canal, 0, tamano, 64 * 1024);
+            if (!lectorEncabezado.siguiente()) {
+                throw new IOException("El archivo está vacío: " + archivoEntrada);
+            }
+            TokenizadorCSV tokenizador = new TokenizadorCSV();
+            tokenizador.tokenizar(lectorEncabezado.buffer(), lectorEncabezado.inicio(), lectorEncabezado.fin());
+            String[] columnas = tokenizador.campos();
+            byte[] encabezado = Arrays.copyOfRange(lectorEncabezado.buffer(), lectorEncabezado.inicio(),
+                    lectorEncabezado.fin());
+
+            long[] limites = RangosArchivo.calcularLimites(canal, lectorEncabezado.posicionSiguiente(), tamano,
+                    numHilos * RANGOS_POR_HILO);
+            int numRangos = limites.length - 1;
+
+            // Resolver columnas y consultas antes de leer, para fallar sin haber escrito nada
+            boolean usaCampos = false;
+            for (Etapa etapa : etapas) {
+                etapa.preparar(columnas, encabezado, numRangos);
+                usaCampos |= etapa.usaCampos();
+            }
+
+            boolean separarCampos = usaCampos;
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i < numRangos; i++) {
+                int rango = i;
+                long desde = limites[i];
+                long hasta = limites[i + 1];
+                tareas.add(executor.submit(() -> {
+                    recorrerRango(new LectorRenglones(canal, desde, hasta), rango, separarCampos);
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+
+            for (Etapa etapa : etapas) {
+                etapa.terminar();
+            }
+
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof IOException) {
+                throw (IOException) causa;
+            }
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            throw new IOException(causa);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Recorrido interrumpido");
+        } finally {
+            executor.shutdownNow();
+            for (Etapa etapa : etapas) {
+                etapa.limpiar();
+            }
+        }
+    }
+
+    /**
+     * Pasa cada renglón del rango por las etapas, separándolo en campos una
+     * sola vez si alguna etapa los usa.
+     */
+    private void recorrerRango(LectorRenglones lector, int rango, boolean separarCampos) throws IOException {
+        Paso[] pasos = new Paso[etapas.size()];
+        TokenizadorCSV campos = new TokenizadorCSV();
+        try {
+            Metricas.medir("tuberia.rango", () -> {
+                for (int i = 0; i < pasos.length; i++) {
+                    pasos[i] = etapas.get(i).abrir(rango);
+                }
+                while (lector.siguiente()) {
+                    if (separarCampos) {
+                        campos.tokenizar(lector.buffer(), lector.inicio(), lector.fin());
+                    }
+                    for (Paso paso : pasos) {
+                        if (!paso.procesar(lector, campos)) {
+                            break;
+                        }
+                    }
+                }
+            });
+        } finally {
+            cerrar(pasos);
+        }
+    }
+
+    // Cierra todos los pasos aunque alguno falle, y lanza el primer error
+    private static void cerrar(Paso[] pasos) throws IOException {
+        IOException error = null;
+        for (Paso paso : pasos) {
+            if (paso == null) {
+                continue;
+            }
+            try {
+                paso.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private static FileChannel crear(File archivo) throws IOException {
+        return FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Cuenta los renglones que llegan a la etapa.
+     */
+    private static class Conteo extends Etapa {
+        private final boolean despuesDeFiltro;
+        private final LongAdder renglones = new LongAdder();
+        private int numColumnas;
+
+        Conteo(boolean despuesDeFiltro) {
+            this.despuesDeFiltro = despuesDeFiltro;
+        }
+
+        @Override
+        void preparar(String[] columnas, byte[] encabezado, int numRangos) {
+            numColumnas = columnas.length;
+        }
+
+        @Override
+        Paso abrir(int rango) {
+            return new Paso() {
+                long cuenta;
+
+                @Override
+                public boolean procesar(LectorRenglones lector, TokenizadorCSV campos) {
+                    cuenta++;
+                    return true;
+                }
+
+                @Override
+                public void close() {
+                    renglones.add(cuenta);
+                }
+            };
+        }
+
+        @Override
+        void terminar() {
+            if (despuesDeFiltro) {
+                System.out.println("Renglones que cumplen la consulta: " + renglones.sum());
+            } else {
+                System.out.println("Número de renglones de datos: " + renglones.sum());
+                System.out.println("Número de columnas: " + numColumnas);
+            }
+        }
+    }
+
+    /**
+     * Detiene los renglones que no cumplen la consulta.
+     */
+    private static class Filtro extends Etapa {
+        private final String consulta;
+        private final LongAdder coincidentes = Metricas.contador(Metricas.RENGLONES_COINCIDENTES);
+        private Predicado predicado;
+
+        Filtro(String consulta) {
+            this.consulta = consulta;
+        }
+
+        @Override
+        void preparar(String[] columnas, byte[] encabezado, int numRangos) {
+            predicado = Consulta.compilar(consulta, columnas);
+        }
+
+        @Override
+        boolean usaCampos() {
+            return true;
+        }
+
+        @Override
+        Paso abrir(int rango) {
+            return new Paso() {
+                long cuenta;
+
+                @Override
+                public boolean procesar(LectorRenglones lector, TokenizadorCSV campos) {
+                    if (predicado.evaluar(campos)) {
+                        cuenta++;
+                        return true;
+                    }
+                    return false;
+                }
+
+                @Override
+                public void close() {
+                    coincidentes.add(cuenta);
+                }
+            };
+        }
+    }
+
+    /**
+     * Etapa que escribe renglones en un temporal por rango y al final los une
+     * en orden, precedidos de un encabezado.
+     */
+    private abstract static class SalidaOrdenada extends Etapa {
+        File[] temporales;
+        byte[] encabezadoSalida;
+
+        // Carpeta donde se crean los temporales, la misma de la salida para unirlos sin copiar entre discos
+        abstract File carpeta();
+
+        abstract byte[] encabezadoSalida(String[] columnas, byte[] encabezado);
+
+        abstract void escribir(LectorRenglones lector, TokenizadorCSV campos, OutputStream salida)
+                throws IOException;
+
+        @Override
+        void preparar(String[] columnas, byte[] encabezado, int numRangos) throws IOException {
+            encabezadoSalida = encabezadoSalida(columnas, encabezado);
+            temporales = new File[numRangos];
+            File carpeta = carpeta();
+            if (!carpeta.exists() && !carpeta.mkdirs()) {
+                throw new IOException("No se pudo crear la carpeta " + carpeta);
+            }
+        }
+
+        @Override
+        Paso abrir(int rango) throws IOException {
+            File temporal = File.createTempFile("tuberia_", ".parte", carpeta());
+            temporales[rango] = temporal;
+            OutputStream salida = new EscritorAsincrono(temporal);
+            return new Paso() {
+                @Override
+                public boolean procesar(LectorRenglones lector, TokenizadorCSV campos) throws IOException {
+                    escribir(lector, campos, salida);
+                    return true;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    salida.close();
+                }
+            };
+        }
+
+        // Une el encabezado y los temporales en el archivo de salida
+        void unir(File archivoSalida) throws IOException {
+            try (FileChannel destino = crear(archivoSalida)) {
+                destino.write(ByteBuffer.wrap(encabezadoSalida));
+                for (File temporal : temporales) {
+                    try (FileChannel origen = FileChannel.open(temporal.toPath(), StandardOpenOption.READ)) {
+                        RangosArchivo.copiar(origen, 0, origen.size(), destino);
+                    }
+                }
+            }
+        }
+
+        @Override
+        void limpiar() {
+            if (temporales == null) {
+                return;
+            }
+            for (File temporal : temporales) {
+                if (temporal != null) {
+                    temporal.delete();
+                }
+            }
+        }
+    }
+
+    // Encabezado original seguido de un salto de línea
+    private static byte[] conSalto(byte[] encabezado) {
+        byte[] renglon = Arrays.copyOf(encabezado, encabezado.length + 1);
+        renglon[encabezado.length] = '\n';
+        return renglon;
+    }
+
+    private static void escribirRenglon(LectorRenglones lector, OutputStream salida) throws IOException {
+        salida.write(lector.buffer(), lector.inicio(), lector.fin() - lector.inicio());
+        salida.write('\n');
+    }
+
+    /**
+     * Guarda los renglones completos.
+     */
+    private static class Guardado extends SalidaOrdenada {
+        private final File archivoSalida;
+
+        Guardado(File archivoSalida) {
+            this.archivoSalida = archivoSalida;
+        }
+
+        @Override
+        File carpeta() {
+            return archivoSalida.getAbsoluteFile().getParentFile();
+        }
+
+        @Override
+        byte[] encabezadoSalida(String[] columnas, byte[] encabezado) {
+            return conSalto(encabezado);
+        }
+
+        @Override
+        void escribir(LectorRenglones lector, TokenizadorCSV campos, OutputStream salida) throws IOException {
+            escribirRenglon(lector, salida);
+        }
+
+        @Override
+        void terminar() throws IOException {
+            unir(archivoSalida);
+            System.out.println("Renglones guardados en: " + archivoSalida);
+        }
+    }
+
+    /**
+     * Guarda las columnas de una proyección.
+     */
+    private static class Extraccion extends SalidaOrdenada {
+        private final Proyeccion proyeccion;
+        private final File archivoSalida;
+        private int[] indices;
+
+        Extraccion(Proyeccion proyeccion, File archivoSalida) {
+            this.proyeccion = proyeccion;
+            this.archivoSalida = archivoSalida;
+        }
+
+        @Override
+        File carpeta() {
+            return archivoSalida.getAbsoluteFile().getParentFile();
+        }
+
+        @Override
+        byte[] encabezadoSalida(String[] columnas, byte[] encabezado) {
+            indices = proyeccion.resolver(columnas);
+            return (proyeccion.encabezado() + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        boolean usaCampos() {
+            return true;
+        }
+
+        @Override
+        void escribir(LectorRenglones lector, TokenizadorCSV campos, OutputStream salida) throws IOException {
+            Proyeccion.escribir(campos, indices, salida);
+        }
+
+        @Override
+        void terminar() throws IOException {
+            unir(archivoSalida);
+            System.out.println("Columnas extraídas en: " + archivoSalida);
+        }
+    }
+
+    /**
+     * Agrupa los renglones como {@link Agregacion}: cada rango toma prestada
+     * una tabla de la reserva, de modo que hay a lo más una por hilo.
+     */
+    private static class Agrupacion extends Etapa {
+        private final String columnaClave;
+        private final String columnaValor;
+        private final String columnaDistintos;
+        private final File archivoSalida;
+        private int indiceClave;
+        private int indiceValor;
+        private int indiceDistintos;
+        private Agregacion.ReservaTablas reserva;
+
+        Agrupacion(String columnaClave, String columnaValor, String columnaDistintos, File archivoSalida) {
+            this.columnaClave = columnaClave;
+            this.columnaValor = columnaValor;
+            this.columnaDistintos = columnaDistintos;
+            this.archivoSalida = archivoSalida;
+        }
+
+        @Override
+        void preparar(String[] columnas, byte[] encabezado, int numRangos) {
+            indiceClave = Agregacion.resolverColumna(columnas, columnaClave);
+            indiceValor = Agregacion.resolverColumna(columnas, columnaValor);
+            indiceDistintos = Agregacion.resolverColumna(columnas, columnaDistintos);
+            if (indiceClave < 0 || indiceValor == -1 || indiceDistintos == -1) {
+                throw new IllegalArgumentException("No se puede agrupar por '" + columnaClave + "'");
+            }
+            reserva = new Agregacion.ReservaTablas(indiceDistintos >= 0);
+        }
+
+        @Override
+        boolean usaCampos() {
+            return true;
+        }
+
+        @Override
+        Paso abrir(int rango) {
+            Agregacion.TablaGrupos tabla = reserva.tomar();
+            return new Paso() {
+                @Override
+                public boolean procesar(LectorRenglones lector, TokenizadorCSV campos) {
+                    Agregacion.agruparRenglon(campos, indiceClave, indiceValor, indiceDistintos, tabla);
+                    return true;
+                }
+
+                @Override
+                public void close() {
+                    reserva.devolver(tabla);
+                }
+            };
+        }
+
+        @Override
+        void terminar() throws IOException {
+            Agregacion.TablaGrupos total = reserva.combinar();
+            Agregacion.escribirResultado(total, archivoSalida);
+            System.out.println("Agregación completada: " + total.numGrupos + " grupos. Archivo de salida: "
+                    + archivoSalida);
+        }
+    }
+
+    /**
+     * Reparte los renglones en partes. Como no se sabe cuántos bytes llegarán
+     * a la etapa hasta terminar el recorrido, los renglones se escriben primero
+     * en los temporales de cada rango y al final se cortan en partes de tamaño
+     * similar, en un salto de línea.
+     */
+    private class Division extends SalidaOrdenada {
+        private final int numPartes;
+        private final boolean repetirEncabezado;
+        private final File directorioResultados = new File(archivoEntrada.getAbsoluteFile().getParentFile(),
+                "resultados");
+
+        Division(int numPartes, boolean repetirEncabezado) {
+            this.numPartes = numPartes;
+            this.repetirEncabezado = repetirEncabezado;
+        }
+
+        @Override
+        File carpeta() {
+            return directorioResultados;
+        }
+
+        @Override
+        byte[] encabezadoSalida(String[] columnas, byte[] encabezado) {
+            return conSalto(encabezado);
+        }
+
+        @Override
+        void escribir(LectorRenglones lector, TokenizadorCSV campos, OutputStream salida) throws IOException {
+            escribirRenglon(lector, salida);
+        }
+
+        @Override
+        void terminar() throws IOException {
+            long total = 0;
+            for (File temporal : temporales) {
+                total += temporal.length();
+            }
+            long objetivo = Math.max(1, (total + numPartes - 1) / numPartes);
+
+            String fechaActual = new SimpleDateFormat("yyyyMMdd_HHmm").format(new Date());
+            Dividir nombres = new Dividir();
+            List<File> partes = new ArrayList<>();
+            FileChannel destino = null;
+            long enParte = 0;
+            try {
+                for (File temporal : temporales) {
+                    try (FileChannel origen = FileChannel.open(temporal.toPath(), StandardOpenOption.READ)) {
+                        long tamano = origen.size();
+                        long posicion = 0;
+                        while (posicion < tamano) {
+                            if (destino == null) {
+                                destino = abrirParte(nombres, fechaActual, partes);
+                                enParte = 0;
+                            }
+                            // La última parte se queda con lo que falte
+                            long corte = tamano;
+                            boolean ultima = partes.size() == numPartes;
+                            if (!ultima && enParte + (tamano - posicion) > objetivo) {
+                                corte = RangosArchivo.siguienteRenglon(origen, posicion + (objetivo - enParte), tamano);
+                            }
+                            RangosArchivo.copiar(origen, posicion, corte, destino);
+                            enParte += corte - posicion;
+                            posicion = corte;
+                            if (!ultima && enParte >= objetivo) {
+                                destino.close();
+                                destino = null;
+                            }
+                        }
+                    }
+                }
+                if (partes.isEmpty()) {
+                    // Ningún renglón llegó a la etapa: una sola parte con el encabezado
+                    destino = abrirParte(nombres, fechaActual, partes);
+                }
+            } finally {
+                if (destino != null) {
+                    destino.close();
+                }
+            }
+
+            for (File parte : partes) {
+                System.out.printf("Subarchivo creado: %s (Bytes: %d)\n", parte.getName(), parte.length());
+            }
+        }
+
+        private FileChannel abrirParte(Dividir nombres, String fechaActual, List<File> partes) throws IOException {
+            File parte = new File(directorioResultados,
+                    nombres.generarNombreArchivo(archivoEntrada.getName(), fechaActual, partes.size() + 1));
+            FileChannel canal = crear(parte);
+            if (partes.isEmpty() || repetirEncabezado) {
+                canal.write(ByteBuffer.wrap(encabezadoSalida));
+            }
+            partes.add(parte);
+            return canal;
+        }
+    }
+
+    /**
+     * Método interactivo que solicita un archivo mediante la clase
+     * {@link Buscar} y las operaciones a encadenar, y las ejecuta en un solo
+     * recorrido.
+     */
+    public static void tuberia() {
+        System.out.println("=====================================================");
+        System.out.println("          VARIAS OPERACIONES EN UN RECORRIDO         ");
+        System.out.println("=====================================================");
+
+        // Obtener el archivo desde la clase Buscar
+        String archivoEncontrado = Buscar.buscarArchivo();
+        if (archivoEncontrado == null) {
+            System.out.println("\nNo se pudo encontrar el archivo. El proceso se detendrá.");
+            return;
+        }
+        File entrada = new File(archivoEncontrado);
+        Tuberia tuberia = Tuberia.desde(archivoEncontrado);
+
+        System.out.println("\n¿Contar los renglones y columnas del archivo? (s/n)");
+        if (Consola.leerSiNo()) {
+            tuberia.contar();
+        }
+
+        System.out.println("\nConsulta para filtrar (ejemplo: streams > 1000000 AND region IN (mx, ar)), o deja vacío:");
+        String consulta = Consola.leerRenglon().trim();
+        if (!consulta.isEmpty()) {
+            tuberia.filtrar(consulta).contar();
+            System.out.println("\n¿Guardar los renglones que cumplen la consulta? (s/n)");
+            if (Consola.leerSiNo()) {
+                tuberia.guardar(new File(entrada.getParentFile(), "consulta_" + entrada.getName()));
+            }
+        }
+
+        System.out.println("\nColumnas a extraer separadas por comas, o deja vacío:");
+        String columnas = Consola.leerRenglon().trim();
+        if (!columnas.isEmpty()) {
+            tuberia.proyectar(Proyeccion.desdeTexto(columnas),
+                    new File(entrada.getParentFile(), "proyeccion_" + entrada.getName()));
+        }
+
+        System.out.println("\nColumna por la que deseas agrupar (ejemplo: region), o deja vacío:");
+        String columnaClave = Consola.leerRenglon().trim();
+        if (!columnaClave.isEmpty()) {
+            System.out.println("\nColumna numérica a resumir (ejemplo: streams), o deja vacío para solo contar:");
+            String columnaValor = Consola.leerRenglon();
+            tuberia.agrupar(columnaClave, columnaValor, null,
+                    new File(entrada.getParentFile(), "agregado_" + entrada.getName()));
+        }
+
+        System.out.println("\nNúmero de partes en que deseas dividir, o deja vacío para no dividir:");
+        int numPartes = Consola.leerEntero();
+        if (numPartes > 0) {
+            System.out.println("\n¿Deseas repetir el encabezado en cada parte? (s/n)");
+            tuberia.dividir(numPartes, Consola.leerSiNo());
+        }
+
+        System.out.println("\nProcesando el archivo... Por favor, espera.");
+
+        // Método para iniciar el temporizador
+        Tiempo.iniciar();
+        try {
+            Progreso.mostrar("Recorrido", entrada.length(), tuberia::ejecutar);
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+            System.err.println("Error al procesar el archivo: " + e.getMessage());
+        }
+        // Método para detener el temporizador
+        Tiempo.detener();
+
+        System.out.println("=====================================================");
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Pruebas de {@link Agregacion}: la combinación de tablas de grupos, el error
+ * del estimador de valores distintos, las claves con comillas y que el
+ * resultado no dependa del número de hilos ni de si se agrupa desde la
+ * {@link Tuberia}.
+ */
+public class PruebaAgregacion {
+
+    static void ejecutar() throws IOException {
+        combinarTablas();
+        estimarDistintos();
+        agruparArchivo();
+    }
+
+    private static void combinarTablas() {
+        Agregacion.TablaGrupos a = new Agregacion.TablaGrupos(false);
+        Agregacion.TablaGrupos b = new Agregacion.TablaGrupos(false);
+        // Suficientes claves para que las tablas se amplíen
+        for (int i = 0; i < 5_000; i++) {
+            acumular(a, "k" + i, i);
+            if (i % 2 == 0) {
+                acumular(b, "k" + i, -i);
+            }
+        }
+        acumular(b, "solo en b", 7);
+        a.combinar(b);
+
+        Verificar.igual(5_001, a.numGrupos, "grupos combinados");
+        int g = grupo(a, "k10");
+        Verificar.igual(2L, a.conteos[g], "conteo combinado");
+        Verificar.igual(0.0, a.sumas[g], "suma combinada");
+        Verificar.igual(-10.0, a.minimos[g], "mínimo combinado");
+        Verificar.igual(10.0, a.maximos[g], "máximo combinado");
+        Verificar.igual(1L, a.conteos[grupo(a, "k11")], "clave solo en la primera tabla");
+        Verificar.igual(7.0, a.sumas[grupo(a, "solo en b")], "clave solo en la segunda tabla");
+    }
+
+    private static void estimarDistintos() {
+        for (int distintos : new int[] { 10, 1_000, 10_000, 100_000 }) {
+            Agregacion.TablaGrupos a = new Agregacion.TablaGrupos(true);
+            Agregacion.TablaGrupos b = new Agregacion.TablaGrupos(true);
+            int ga = grupo(a, "g");
+            int gb = grupo(b, "g");
+            for (int i = 0; i < distintos; i++) {
+                byte[] valor = ("valor " + i).getBytes(StandardCharsets.UTF_8);
+                long h = Agregacion.hash(valor, 0, valor.length);
+                // Los valores repetidos y los que aparecen en ambas tablas no cuentan dos veces
+                a.observar(ga, h);
+                a.observar(ga, h);
+                if (i % 3 == 0) {
+                    b.observar(gb, h);
+                }
+            }
+            a.combinar(b);
+            long estimado = a.estimarDistintos(grupo(a, "g"));
+            // Con 1024 registros el error estándar es de alrededor de 3.3%
+            Verificar.verdadero(Math.abs(estimado - distintos) <= Math.max(1, distintos * 0.1),
+                    "estimado " + estimado + " para " + distintos + " distintos");
+        }
+    }
+
+    private static void agruparArchivo() throws IOException {
+        Path carpeta = Files.createTempDirectory("prueba_agregacion");
+        try {
+            File csv = carpeta.resolve("datos.csv").toFile();
+            Files.write(csv.toPath(), generar(30_000).getBytes(StandardCharsets.UTF_8));
+
+            File salidaUnHilo = carpeta.resolve("un_hilo.csv").toFile();
+            NumeroCPUs.establecerParalelismo(1);
+            Agregacion.agrupar(csv.getPath(), "region", "streams", "title", salidaUnHilo);
+            String esperado = leer(salidaUnHilo);
+
+            // La clave con comillas se escribe escapada una sola vez
+            Verificar.verdadero(esperado.contains("\n\"Dice \"\"hola\"\", adios\",")
+                    && !esperado.contains("\"\"\"\""), "clave con comillas escapada una vez:\n" + esperado);
+            Verificar.verdadero(esperado.contains("\nMexico,"), "clave sin comillas");
+
+            for (int hilos : new int[] { 3, 8 }) {
+                NumeroCPUs.establecerParalelismo(hilos);
+                File salida = carpeta.resolve("hilos.csv").toFile();
+                Agregacion.agrupar(csv.getPath(), "region", "streams", "title", salida);
+                Verificar.igual(esperado, leer(salida), "agrupación con " + hilos + " hilos");
+
+                Tuberia.desde(csv.getPath()).agrupar("region", "streams", "title", salida).ejecutar();
+                Verificar.igual(esperado, leer(salida), "agrupación en la tubería con " + hilos + " hilos");
+            }
+        } finally {
+            NumeroCPUs.establecerParalelismo(0);
+            for (File archivo : carpeta.toFile().listFiles()) {
+                archivo.delete();
+            }
+            carpeta.toFile().delete();
+        }
+    }
+
+    // Un CSV cuya región a veces es una clave con comas y comillas duplicadas
+    private static String generar(int numRenglones) {
+        Random aleatorio = new Random(11);
+        String[] regiones = { "Mexico", "Chile", "\"Peru\"", "\"Dice \"\"hola\"\", adios\"" };
+        StringBuilder contenido = new StringBuilder("title,region,streams\n");
+        for (int i = 0; i < numRenglones; i++) {
+            contenido.append("Song ").append(aleatorio.nextInt(2_000)).append(',')
+                    .append(regiones[aleatorio.nextInt(regiones.length)]).append(',')
+                    .append(aleatorio.nextInt(1_000_000)).append('\n');
+        }
+        return contenido.toString();
+    }
+
+    // Acumula un renglón como lo hace Agregacion.agruparRenglon
+    private static void acumular(Agregacion.TablaGrupos tabla, String clave, double valor) {
+        int g = grupo(tabla, clave);
+        tabla.conteos[g]++;
+        tabla.acumular(g, valor);
+    }
+
+    private static int grupo(Agregacion.TablaGrupos tabla, String clave) {
+        byte[] bytes = clave.getBytes(StandardCharsets.UTF_8);
+        return tabla.grupo(bytes, 0, bytes.length);
+    }
+
+    private static String leer(File archivo) throws IOException {
+        return new String(Files.readAllBytes(archivo.toPath()), StandardCharsets.UTF_8);
+    }
+}
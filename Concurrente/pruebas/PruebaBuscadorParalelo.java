@@ -0,0 +1,84 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Pruebas de {@link BuscadorParalelo}: con cualquier número de hilos se
+ * encuentran todas las coincidencias del árbol sin distinguir mayúsculas, la
+ * primera coincidencia es una de ellas, y los enlaces simbólicos a directorios
+ * no se siguen.
+ */
+public class PruebaBuscadorParalelo {
+
+    static void ejecutar() throws IOException {
+        Path raiz = Files.createTempDirectory("prueba_buscador");
+        try {
+            Set<Path> esperadas = crearArbol(raiz);
+            boolean conEnlaces = crearEnlaces(raiz, esperadas);
+
+            for (int hilos : new int[] { 1, 4 }) {
+                NumeroCPUs.establecerParalelismo(hilos);
+                try {
+                    List<Path> todas = BuscadorParalelo.todasLasCoincidencias(raiz, "CHARTS");
+                    Verificar.igual(esperadas, new HashSet<>(todas), "todas las coincidencias con " + hilos + " hilos");
+                    Verificar.igual(esperadas.size(), todas.size(), "sin repetidos con " + hilos + " hilos");
+
+                    Path primera = BuscadorParalelo.primeraCoincidencia(raiz, "charts");
+                    Verificar.verdadero(esperadas.contains(primera),
+                            "primera coincidencia con " + hilos + " hilos: " + primera);
+                    Verificar.igual(null, BuscadorParalelo.primeraCoincidencia(raiz, "no_existe"),
+                            "sin coincidencias con " + hilos + " hilos");
+                } finally {
+                    NumeroCPUs.establecerParalelismo(0);
+                }
+            }
+            Verificar.verdadero(BuscadorParalelo.todasLasCoincidencias(raiz.resolve("no_existe"), "charts").isEmpty(),
+                    "directorio inexistente");
+            if (!conEnlaces) {
+                System.out.println("  (enlaces simbólicos no disponibles, se omitieron esos casos)");
+            }
+        } finally {
+            try (Stream<Path> rutas = Files.walk(raiz)) {
+                rutas.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    // Un árbol de tres niveles con coincidencias en cada nivel y directorios que también coinciden
+    private static Set<Path> crearArbol(Path raiz) throws IOException {
+        Set<Path> esperadas = new HashSet<>();
+        for (int i = 0; i < 6; i++) {
+            Path nivel1 = Files.createDirectory(raiz.resolve("charts_dir_" + i));
+            esperadas.add(Files.createFile(nivel1.resolve("Charts_" + i + ".csv")).toAbsolutePath());
+            Files.createFile(nivel1.resolve("otro_" + i + ".csv"));
+            for (int j = 0; j < 4; j++) {
+                Path nivel2 = Files.createDirectories(nivel1.resolve("sub_" + j).resolve("hoja"));
+                if ((i + j) % 3 == 0) {
+                    esperadas.add(Files.createFile(nivel2.resolve("spotify_CHARTS.csv")).toAbsolutePath());
+                }
+                Files.createFile(nivel2.resolve("notas.txt"));
+            }
+        }
+        esperadas.add(Files.createFile(raiz.resolve("charts.csv")).toAbsolutePath());
+        return esperadas;
+    }
+
+    // Un enlace a un archivo cuenta, uno a un directorio (que forma un ciclo) y uno roto no
+    private static boolean crearEnlaces(Path raiz, Set<Path> esperadas) {
+        try {
+            Path destino = raiz.resolve("charts.csv");
+            esperadas.add(Files.createSymbolicLink(raiz.resolve("enlace_charts.csv"), destino).toAbsolutePath());
+            Files.createSymbolicLink(raiz.resolve("charts_dir_0").resolve("ciclo_charts"), raiz);
+            Files.createSymbolicLink(raiz.resolve("roto_charts.csv"), raiz.resolve("no_existe.csv"));
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Pruebas de {@link CacheColumnar}: cada columna se guarda con el tipo que
+ * permiten sus valores, las consultas y agrupaciones con la caché escriben lo
+ * mismo que el recorrido del texto, los grupos que no pueden cumplir la
+ * consulta se omiten, y las consultas o columnas que la caché no puede
+ * responder, igual que una caché dañada o de un archivo que cambió, vuelven
+ * al recorrido del texto.
+ */
+public class PruebaCacheColumnar {
+
+    private static final String[] REGIONES = { "Argentina", "Chile", "Mexico", "Peru" };
+    private static final int RENGLONES_POR_REGION = 1_500;
+    private static final int RENGLONES_POR_GRUPO = 500;
+
+    private static final String[] CONSULTAS = {
+            "region = Chile",
+            "region IN (Chile, Peru) AND streams > 500000",
+            "NOT region = Mexico OR score BETWEEN 0.2 AND 0.3",
+            "streams != 1000 AND streams <= 2000",
+            "grande >= 50000000000000",
+            "mixto < 10 AND region <> Argentina",
+            "region NOT IN (Chile, Uruguay)",
+            "score NOT BETWEEN 0.1 AND 0.9",
+            "region = Uruguay",
+            "streams IN (7919, 15838, 0)",
+            "mixto = 'n/a' OR (region = Peru AND NOT streams > 100)" };
+
+    static void ejecutar() throws IOException {
+        Path carpeta = Files.createTempDirectory("prueba_cache_columnar");
+        try {
+            File csv = carpeta.resolve("datos.csv").toFile();
+            generar(csv);
+            tipos(csv);
+            consultas(carpeta, csv);
+            agrupar(carpeta, csv);
+            omitidos(csv);
+            invalidas(carpeta, csv);
+        } finally {
+            try (Stream<Path> rutas = Files.walk(carpeta)) {
+                rutas.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static void tipos(File csv) throws IOException {
+        Verificar.verdadero(CacheColumnar.abrir(csv.getPath()) == null, "sin caché antes de construirla");
+        CacheColumnar cache = CacheColumnar.obtener(csv.getPath(), RENGLONES_POR_GRUPO);
+        Verificar.verdadero(CacheColumnar.archivoCache(csv).exists(), "caché guardada junto al archivo");
+        Verificar.igual(REGIONES.length * RENGLONES_POR_REGION + 2L, cache.numRenglones(),
+                "renglones, incluidos el vacío y el incompleto");
+        Verificar.igual(13, cache.numGrupos(), "grupos de renglones");
+        Verificar.igual(new String[] { "title", "region", "streams", "grande", "score", "mixto" },
+                cache.columnas(), "columnas del encabezado");
+
+        String[] esperados = { "NINGUNO", "DICCIONARIO", "ENTERO", "LARGO", "REAL", "DICCIONARIO" };
+        for (int c = 0; c < esperados.length; c++) {
+            Verificar.igual(esperados[c], cache.tipo(c).name(), "tipo de " + cache.columnas()[c]);
+        }
+        Verificar.verdadero(CacheColumnar.abrir(csv.getPath()) != null, "caché vigente");
+    }
+
+    // Cada consulta escribe lo mismo con la caché que recorriendo el texto
+    private static void consultas(Path carpeta, File csv) throws IOException {
+        CacheColumnar cache = CacheColumnar.abrir(csv.getPath());
+        for (int i = 0; i < CONSULTAS.length; i++) {
+            String consulta = CONSULTAS[i];
+            int numero = i;
+            Verificar.verdadero(cache.filtrar(Consulta.analizar(consulta, cache.columnas())) != null,
+                    "la caché responde " + consulta);
+            Verificar.igual(sinCache(csv, () -> filtrar(csv, consulta, carpeta.resolve("texto_" + numero + ".csv"))),
+                    filtrar(csv, consulta, carpeta.resolve("cache_" + i + ".csv")), "consulta " + consulta);
+        }
+    }
+
+    private static void agrupar(Path carpeta, File csv) throws IOException {
+        CacheColumnar cache = CacheColumnar.abrir(csv.getPath());
+        String[][] casos = {
+                { "region", "streams", "mixto" },
+                { "region", "score", null },
+                { "mixto", "grande", "region" },
+                { "region", null, null } };
+        for (int i = 0; i < casos.length; i++) {
+            String[] caso = casos[i];
+            String descripcion = "agrupación " + String.join(",", Stream.of(caso).map(String::valueOf)
+                    .toArray(String[]::new));
+            File esperado = carpeta.resolve("agregado_texto_" + i + ".csv").toFile();
+            File obtenido = carpeta.resolve("agregado_cache_" + i + ".csv").toFile();
+            sinCache(csv, () -> {
+                Verificar.verdadero(Agregacion.agrupar(csv.getPath(), caso[0], caso[1], caso[2], esperado),
+                        descripcion + " sin caché");
+                return null;
+            });
+            Verificar.verdadero(Agregacion.agrupar(csv.getPath(), caso[0], caso[1], caso[2], obtenido),
+                    descripcion + " con caché");
+            Verificar.igual(leer(esperado), leer(obtenido), descripcion);
+        }
+
+        // La clave debe ser de diccionario y el valor estar guardado
+        Verificar.verdadero(cache.agrupar(1, 2, 5) != null, "agrupación respondida por la caché");
+        Verificar.verdadero(cache.agrupar(2, -2, -2) == null, "clave numérica");
+        Verificar.verdadero(cache.agrupar(1, 0, -2) == null, "valor no guardado");
+        Verificar.verdadero(cache.agrupar(1, -2, 0) == null, "distintos no guardados");
+    }
+
+    // Con los renglones ordenados por región, una región solo se busca en sus grupos
+    private static void omitidos(File csv) throws IOException {
+        CacheColumnar cache = CacheColumnar.abrir(csv.getPath());
+        long antes = Metricas.contador(Metricas.GRUPOS_OMITIDOS).sum();
+        long[] posiciones = cache.filtrar(Consulta.analizar("region = Chile", cache.columnas()));
+        long omitidos = Metricas.contador(Metricas.GRUPOS_OMITIDOS).sum() - antes;
+        Verificar.igual(RENGLONES_POR_REGION, posiciones.length, "renglones de la región");
+        // Los 1,500 renglones de Chile ocupan a lo más 4 de los 13 grupos
+        Verificar.verdadero(omitidos >= cache.numGrupos() - 4, "grupos omitidos: " + omitidos);
+
+        antes = Metricas.contador(Metricas.GRUPOS_OMITIDOS).sum();
+        cache.filtrar(Consulta.analizar("grande < 0", cache.columnas()));
+        Verificar.igual((long) cache.numGrupos(), Metricas.contador(Metricas.GRUPOS_OMITIDOS).sum() - antes,
+                "ningún grupo puede cumplir");
+        antes = Metricas.contador(Metricas.GRUPOS_OMITIDOS).sum();
+        cache.filtrar(Consulta.analizar("NOT grande < 0", cache.columnas()));
+        Verificar.igual(0L, Metricas.contador(Metricas.GRUPOS_OMITIDOS).sum() - antes,
+                "la negación no omite grupos");
+    }
+
+    private static void invalidas(Path carpeta, File csv) throws IOException {
+        CacheColumnar cache = CacheColumnar.abrir(csv.getPath());
+
+        // Columnas sin guardar o comparaciones que su tipo no permite vuelven al texto
+        String[] noSoportadas = { "title = 'Song, 5'", "streams = abc", "region = Chile AND title = x" };
+        for (String consulta : noSoportadas) {
+            Verificar.verdadero(cache.filtrar(Consulta.analizar(consulta, cache.columnas())) == null,
+                    "la caché no responde " + consulta);
+            Verificar.igual(sinCache(csv, () -> filtrar(csv, consulta, carpeta.resolve("texto.csv"))),
+                    filtrar(csv, consulta, carpeta.resolve("cache.csv")), "consulta " + consulta);
+        }
+        Verificar.verdadero(!Filtrar.filtrarPorConsulta(csv.getPath(), "streams >", carpeta.resolve("x.csv").toFile()),
+                "consulta no válida con caché");
+        Verificar.verdadero(!carpeta.resolve("x.csv").toFile().exists(), "nada escrito ante una consulta no válida");
+
+        // Si el archivo cambia, la caché se ignora y la consulta ve el renglón nuevo
+        Files.write(csv.toPath(), "\n\"Song, nueva\",Chile,1,1,0.5,1".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+        Verificar.verdadero(CacheColumnar.abrir(csv.getPath()) == null, "caché vencida tras cambiar el archivo");
+        String conNuevo = filtrar(csv, "region = Chile", carpeta.resolve("nuevo.csv"));
+        Verificar.verdadero(conNuevo.endsWith("\"Song, nueva\",Chile,1,1,0.5,1\n"), "renglón nuevo filtrado");
+
+        // Una caché dañada se ignora y se reconstruye
+        CacheColumnar.obtener(csv.getPath(), RENGLONES_POR_GRUPO);
+        File archivoCache = CacheColumnar.archivoCache(csv);
+        try (RandomAccessFile archivo = new RandomAccessFile(archivoCache, "rw")) {
+            archivo.setLength(archivo.length() - 16);
+        }
+        Verificar.verdadero(CacheColumnar.abrir(csv.getPath()) == null, "caché dañada");
+        Verificar.igual(RENGLONES_POR_REGION + 1, CacheColumnar.obtener(csv.getPath(), RENGLONES_POR_GRUPO)
+                .filtrar(Consulta.analizar("region = Chile", cache.columnas())).length,
+                "caché reconstruida");
+
+        File vacio = carpeta.resolve("vacio.csv").toFile();
+        Files.write(vacio.toPath(), new byte[0]);
+        Verificar.verdadero(CacheColumnar.obtener(vacio.getPath()) == null, "archivo vacío");
+        File encabezado = carpeta.resolve("encabezado.csv").toFile();
+        Files.write(encabezado.toPath(), "title,region\n".getBytes(StandardCharsets.UTF_8));
+        Verificar.igual(0L, CacheColumnar.obtener(encabezado.getPath()).numRenglones(), "solo encabezado");
+        Verificar.igual("title,region\n", filtrar(encabezado, "region = Chile", carpeta.resolve("sin_datos.csv")),
+                "consulta sobre un archivo sin datos");
+
+        // El trabajo columnar del lote construye la caché con el tamaño de grupo normal
+        Lote.ejecutar(Map.of("operacion", "columnar", "entrada", csv.getPath()));
+        Verificar.igual(1, CacheColumnar.abrir(csv.getPath()).numGrupos(), "caché del lote");
+        Verificar.igual(0L, temporales(carpeta), "sin temporales");
+    }
+
+    // Escribe el CSV ordenado por región, con un renglón vacío y uno incompleto
+    private static void generar(File csv) throws IOException {
+        StringBuilder contenido = new StringBuilder("title,region,streams,grande,score,mixto");
+        int i = 0;
+        for (String region : REGIONES) {
+            for (int k = 0; k < RENGLONES_POR_REGION; k++, i++) {
+                contenido.append(i == 10 ? "\r\n" : "\n");
+                if (i == 3_000) {
+                    contenido.append("\n");
+                } else if (i == 4_000) {
+                    contenido.append("Solo\n");
+                }
+                String titulo = i % 50 == 0 ? "\"Say \"\"Hi\"\" " + i + "\"" : "\"Song, " + i + "\"";
+                String streams = i % 97 == 0 ? "" : Integer.toString(i * 7_919 % 1_000_000);
+                contenido.append(titulo).append(',').append(region).append(',').append(streams).append(',')
+                        .append(i * 10_000_000_000L).append(',')
+                        .append(String.format(Locale.ROOT, "%.2f", i % 100 / 100.0)).append(',')
+                        .append(i % 13 == 0 ? "n/a" : Integer.toString(i % 20));
+            }
+        }
+        Files.write(csv.toPath(), contenido.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private interface Calculo<T> {
+        T ejecutar() throws IOException;
+    }
+
+    // Ejecuta sin la caché, apartándola mientras tanto
+    private static <T> T sinCache(File csv, Calculo<T> calculo) throws IOException {
+        File archivoCache = CacheColumnar.archivoCache(csv);
+        File apartado = new File(archivoCache.getPath() + ".apartado");
+        Verificar.verdadero(archivoCache.renameTo(apartado), "caché apartada");
+        try {
+            return calculo.ejecutar();
+        } finally {
+            apartado.renameTo(archivoCache);
+        }
+    }
+
+    private static String filtrar(File csv, String consulta, Path salida) throws IOException {
+        Verificar.verdadero(Filtrar.filtrarPorConsulta(csv.getPath(), consulta, salida.toFile()), "filtrado");
+        return leer(salida.toFile());
+    }
+
+    private static long temporales(Path carpeta) throws IOException {
+        try (Stream<Path> rutas = Files.walk(carpeta)) {
+            return rutas.filter(ruta -> ruta.toString().endsWith(".tmp")).count();
+        }
+    }
+
+    private static String leer(File archivo) throws IOException {
+        return new String(Files.readAllBytes(archivo.toPath()), StandardCharsets.UTF_8);
+    }
+}
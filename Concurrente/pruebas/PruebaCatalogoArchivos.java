@@ -0,0 +1,126 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Pruebas de {@link CatalogoArchivos}: las búsquedas con y sin índice de
+ * trigramas devuelven los archivos del subárbol en orden, el contenido de
+ * cada carpeta coincide con el disco, y los archivos y carpetas que se crean o
+ * eliminan después de construirlo aparecen y desaparecen del catálogo. Un
+ * catálogo nuevo del mismo árbol parte de la instantánea del anterior.
+ */
+public class PruebaCatalogoArchivos {
+
+    // Tiempo máximo que se espera a que el vigilante aplique un cambio
+    private static final long ESPERA_MS = 10_000;
+
+    static void ejecutar() throws IOException, InterruptedException {
+        Path raiz = Files.createTempDirectory("prueba_catalogo").toRealPath();
+        try {
+            Files.createDirectories(raiz.resolve("datos").resolve("2023"));
+            Files.createDirectories(raiz.resolve("otros"));
+            Files.write(raiz.resolve("datos").resolve("charts_b.csv"), new byte[10]);
+            Files.write(raiz.resolve("datos").resolve("2023").resolve("Charts_a.csv"), new byte[20]);
+            Files.write(raiz.resolve("otros").resolve("charts_c.csv"), new byte[30]);
+            Files.write(raiz.resolve("otros").resolve("ab.txt"), new byte[0]);
+
+            CatalogoArchivos catalogo = CatalogoArchivos.para(raiz);
+            catalogo.esperarConstruccion();
+            Verificar.verdadero(catalogo.disponible(), "catálogo disponible");
+            Verificar.igual(8, catalogo.tamano(), "carpetas y archivos catalogados");
+            Verificar.verdadero(catalogo == CatalogoArchivos.existente(raiz.resolve("datos")),
+                    "un subdirectorio usa el catálogo de su ancestro");
+
+            busquedas(catalogo, raiz);
+
+            // El catálogo guarda su instantánea al terminar de construirse; uno nuevo la carga
+            // antes de recorrer el disco
+            File instantanea = new File(System.getProperty("java.io.tmpdir"),
+                    "catalogo_" + Integer.toHexString(raiz.toString().hashCode()) + ".bin");
+            Verificar.verdadero(esperar(instantanea::exists), "instantánea guardada");
+            catalogo.cerrar();
+            catalogo = CatalogoArchivos.para(raiz);
+            Verificar.verdadero(catalogo.disponible(), "catálogo disponible desde la instantánea");
+            busquedas(catalogo, raiz);
+            catalogo.esperarConstruccion();
+
+            cambios(catalogo, raiz);
+            catalogo.cerrar();
+        } finally {
+            try (Stream<Path> rutas = Files.walk(raiz)) {
+                rutas.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+            new File(System.getProperty("java.io.tmpdir"),
+                    "catalogo_" + Integer.toHexString(raiz.toString().hashCode()) + ".bin").delete();
+        }
+    }
+
+    private static void busquedas(CatalogoArchivos catalogo, Path raiz) {
+        // Con tres o más caracteres se usa el índice de trigramas; solo archivos, en orden por nombre
+        Verificar.igual(List.of("Charts_a.csv", "charts_b.csv", "charts_c.csv"),
+                nombres(catalogo.buscar(raiz, "CHARTS", 10)), "búsqueda con trigramas");
+        Verificar.igual(List.of("Charts_a.csv", "charts_b.csv"),
+                nombres(catalogo.buscar(raiz.resolve("datos"), "charts", 10)), "búsqueda dentro de un subárbol");
+        Verificar.igual(List.of("Charts_a.csv", "charts_b.csv"), nombres(catalogo.buscar(raiz, "charts", 2)),
+                "búsqueda con límite");
+        Verificar.igual("Charts_a.csv", catalogo.primeraCoincidencia(raiz, "arts_").nombre,
+                "primera coincidencia en orden alfabético");
+        Verificar.igual(null, catalogo.primeraCoincidencia(raiz, "2023"), "las carpetas no coinciden");
+
+        // Con menos de tres caracteres se revisan todos los nombres
+        Verificar.igual(List.of("ab.txt"), nombres(catalogo.buscar(raiz, "ab", 10)), "búsqueda corta");
+        Verificar.igual(List.of("charts_c.csv"), nombres(catalogo.buscar(raiz, "_c", 10)),
+                "búsqueda corta a mitad del nombre");
+
+        Verificar.igual(List.of("2023", "charts_b.csv"), nombres(catalogo.contenido(raiz.resolve("datos"))),
+                "contenido de una carpeta");
+        Verificar.igual(30L, catalogo.buscar(raiz, "charts_c", 1).get(0).tamano, "tamaño catalogado");
+        Verificar.igual(List.of("datos"), nombres(catalogo.buscarPorPrefijo("DAT")), "búsqueda por prefijo");
+    }
+
+    private static void cambios(CatalogoArchivos catalogo, Path raiz) throws IOException, InterruptedException {
+        Path nuevo = Files.write(raiz.resolve("otros").resolve("charts_nuevo.csv"), new byte[5]);
+        Verificar.verdadero(esperar(() -> catalogo.primeraCoincidencia(raiz, "charts_nuevo") != null),
+                "archivo creado después de catalogar");
+
+        Path carpeta = Files.createDirectories(raiz.resolve("nueva").resolve("interna"));
+        Files.write(carpeta.resolve("charts_interno.csv"), new byte[5]);
+        Verificar.verdadero(esperar(() -> catalogo.primeraCoincidencia(raiz, "charts_interno") != null),
+                "archivo dentro de una carpeta nueva");
+
+        Files.delete(nuevo);
+        Verificar.verdadero(esperar(() -> catalogo.primeraCoincidencia(raiz, "charts_nuevo") == null),
+                "archivo eliminado");
+
+        Files.delete(carpeta.resolve("charts_interno.csv"));
+        Files.delete(carpeta);
+        Verificar.verdadero(esperar(() -> catalogo.contenido(raiz.resolve("nueva")).isEmpty()
+                && catalogo.primeraCoincidencia(raiz, "charts_interno") == null), "carpeta eliminada");
+    }
+
+    // Espera a que el hilo del catálogo aplique los eventos del sistema de archivos
+    private static boolean esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.currentTimeMillis() + ESPERA_MS;
+        while (!condicion.getAsBoolean()) {
+            if (System.currentTimeMillis() > limite) {
+                return false;
+            }
+            Thread.sleep(20);
+        }
+        return true;
+    }
+
+    private static List<String> nombres(List<CatalogoArchivos.Entrada> entradas) {
+        List<String> nombres = new ArrayList<>();
+        for (CatalogoArchivos.Entrada entrada : entradas) {
+            nombres.add(entrada.nombre);
+        }
+        return nombres;
+    }
+}
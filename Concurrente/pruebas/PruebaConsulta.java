@@ -0,0 +1,86 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pruebas de {@link Consulta}: sintaxis, precedencia de operadores y
+ * comparaciones numéricas y de texto.
+ */
+public class PruebaConsulta {
+
+    private static final String[] COLUMNAS = { "title", "region", "streams", "danceability" };
+
+    static void ejecutar() {
+        comparaciones();
+        precedencia();
+        literalesNoNumericos();
+        errores();
+    }
+
+    private static boolean cumple(String consulta, String renglon) {
+        TokenizadorCSV campos = new TokenizadorCSV();
+        byte[] bytes = renglon.getBytes(StandardCharsets.UTF_8);
+        campos.tokenizar(bytes, 0, bytes.length);
+        return Consulta.compilar(consulta, COLUMNAS).evaluar(campos);
+    }
+
+    private static void comparaciones() {
+        String renglon = "\"Song, 1\",Mexico,1500000,0.75";
+        Verificar.verdadero(cumple("streams > 1000000", renglon), ">");
+        Verificar.verdadero(!cumple("streams < 1000000", renglon), "<");
+        Verificar.verdadero(cumple("streams >= 1500000 AND streams <= 1.5e6", renglon), ">= y <= en el límite");
+        Verificar.verdadero(cumple("streams = 1500000.0", renglon), "= numérico");
+        Verificar.verdadero(cumple("region = Mexico", renglon), "= de texto");
+        Verificar.verdadero(cumple("title = 'Song, 1'", renglon), "= con texto entre comillas");
+        Verificar.verdadero(cumple("region != Chile", renglon), "!= de texto");
+        Verificar.verdadero(cumple("region <> Chile", renglon), "<> de texto");
+        Verificar.verdadero(cumple("REGION in (ar, Mexico)", renglon), "IN sin distinguir mayúsculas en la sintaxis");
+        Verificar.verdadero(!cumple("region IN (mexico)", renglon), "IN distingue mayúsculas en los valores");
+        Verificar.verdadero(cumple("region NOT IN (ar, cl)", renglon), "NOT IN");
+        Verificar.verdadero(cumple("streams IN (1, 1500000)", renglon), "IN numérico");
+        Verificar.verdadero(cumple("danceability BETWEEN 0.6 AND 0.9", renglon), "BETWEEN");
+        Verificar.verdadero(!cumple("danceability NOT BETWEEN 0.6 AND 0.9", renglon), "NOT BETWEEN");
+        Verificar.verdadero(!cumple("streams > 10", "x,Mexico,,0.5"), "un campo vacío no cumple >");
+        Verificar.verdadero(cumple("streams != 10", "x,Mexico,n/a,0.5"), "un campo no numérico es distinto");
+    }
+
+    private static void precedencia() {
+        String renglon = "t,Mexico,10,0.5";
+        // AND se evalúa antes que OR: verdadero OR (falso AND falso)
+        Verificar.verdadero(cumple("region = Mexico OR streams > 100 AND danceability > 0.9", renglon),
+                "AND antes que OR");
+        Verificar.verdadero(!cumple("(region = Mexico OR streams > 100) AND danceability > 0.9", renglon),
+                "los paréntesis cambian la precedencia");
+        Verificar.verdadero(!cumple("NOT region = Mexico OR streams > 100", renglon), "NOT se aplica al factor");
+        Verificar.verdadero(cumple("NOT (region = Chile AND streams > 100)", renglon), "NOT de una expresión");
+        Verificar.verdadero(cumple("streams > 1 and region = Mexico", renglon), "palabras clave en minúsculas");
+    }
+
+    // Double.parseDouble acepta estos literales, pero no son números para la consulta
+    private static void literalesNoNumericos() {
+        for (String literal : new String[] { "Infinity", "NaN", "1d", "2f", "0x1p3" }) {
+            Verificar.verdadero(cumple("region = " + literal, "t," + literal + ",10,0.5"),
+                    "'" + literal + "' se compara como texto");
+            Verificar.verdadero(!cumple("region = " + literal, "t,Mexico,10,0.5"),
+                    "'" + literal + "' no coincide con otro texto");
+            Verificar.lanza(IllegalArgumentException.class, () -> cumple("streams < " + literal, "t,a,10,0.5"),
+                    "'" + literal + "' no es un número para <");
+        }
+        Verificar.verdadero(cumple("streams IN (10, Infinity)", "t,a,Infinity,0.5"),
+                "IN con un valor no numérico compara texto");
+        Verificar.verdadero(cumple("streams = -.5e1", "t,a,-5,0.5"), "número con signo, sin parte entera y exponente");
+    }
+
+    private static void errores() {
+        Verificar.lanza(IllegalArgumentException.class, () -> cumple("genre = pop", "t,a,1,1"), "columna inexistente");
+        Verificar.lanza(IllegalArgumentException.class, () -> cumple("streams >", "t,a,1,1"), "falta el valor");
+        Verificar.lanza(IllegalArgumentException.class, () -> cumple("streams > 1 region", "t,a,1,1"),
+                "símbolo sobrante");
+        Verificar.lanza(IllegalArgumentException.class, () -> cumple("region = 'mx", "t,a,1,1"),
+                "comillas sin cerrar");
+        Verificar.lanza(IllegalArgumentException.class, () -> cumple("(streams > 1", "t,a,1,1"),
+                "paréntesis sin cerrar");
+        Verificar.lanza(IllegalArgumentException.class, () -> cumple("region NOT = a", "t,a,1,1"),
+                "NOT sin IN ni BETWEEN");
+        Verificar.lanza(IllegalArgumentException.class, () -> cumple("streams BETWEEN 1 OR 2", "t,a,1,1"),
+                "BETWEEN sin AND");
+    }
+}
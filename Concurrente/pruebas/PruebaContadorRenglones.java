@@ -0,0 +1,97 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Pruebas de {@link ContadorRenglones}: el conteo SWAR de ocho en ocho bytes
+ * coincide con un conteo byte por byte en cualquier alineación, el último
+ * renglón sin salto final se cuenta y el resultado no depende de dónde caen
+ * los límites de los segmentos.
+ */
+public class PruebaContadorRenglones {
+
+    static void ejecutar() throws IOException {
+        File archivo = File.createTempFile("prueba_contador", ".csv");
+        try {
+            renglonesCortos(archivo);
+            saltosEnCadaPosicion(archivo);
+            variosSegmentos(archivo);
+        } finally {
+            archivo.delete();
+        }
+    }
+
+    private static void renglonesCortos(File archivo) throws IOException {
+        String[][] casos = { { "", "0" }, { "a", "1" }, { "a\n", "1" }, { "\n\n", "2" }, { "a\nb", "2" },
+                { "a\r\nb\r\n", "2" }, { "título,año\nñandú,2024", "2" } };
+        for (String[] caso : casos) {
+            Files.write(archivo.toPath(), caso[0].getBytes(StandardCharsets.UTF_8));
+            Verificar.igual(Long.parseLong(caso[1]), ContadorRenglones.contarRenglones(archivo.getPath()),
+                    "renglones de \"" + caso[0].replace("\n", "\\n").replace("\r", "\\r") + "\"");
+        }
+    }
+
+    // Bytes parecidos a '\n' (0x0A) y con el bit alto encendido en todas las posiciones de una palabra
+    private static void saltosEnCadaPosicion(File archivo) throws IOException {
+        byte[] parecidos = { '\n', 0x0B, 0x09, (byte) 0x8A, (byte) 0x0E, 0x00, (byte) 0xFF, 'a' };
+        Random aleatorio = new Random(2);
+        byte[] datos = new byte[1_000];
+        for (int i = 0; i < datos.length; i++) {
+            datos[i] = parecidos[aleatorio.nextInt(parecidos.length)];
+        }
+        Files.write(archivo.toPath(), datos);
+
+        boolean iguales = true;
+        try (FileChannel canal = FileChannel.open(archivo.toPath())) {
+            // Todas las posiciones de inicio y longitudes cortas, para cubrir los bytes sobrantes
+            for (int desde = 0; desde < 16; desde++) {
+                for (int longitud = 0; longitud < 40; longitud++) {
+                    iguales &= ContadorRenglones.contarSaltos(
+                            canal.map(FileChannel.MapMode.READ_ONLY, desde, longitud)) == contar(datos, desde,
+                                    longitud);
+                }
+            }
+            iguales &= ContadorRenglones.contarSaltos(canal.map(FileChannel.MapMode.READ_ONLY, 3,
+                    datos.length - 3)) == contar(datos, 3, datos.length - 3);
+        }
+        Verificar.verdadero(iguales, "conteo SWAR igual al conteo byte por byte");
+    }
+
+    // Un archivo de más de un segmento, con saltos de línea junto al punto donde se divide
+    private static void variosSegmentos(File archivo) throws IOException {
+        byte[] datos = new byte[33 * 1024 * 1024 + 5];
+        Random aleatorio = new Random(3);
+        for (int i = 0; i < datos.length; i++) {
+            datos[i] = aleatorio.nextInt(40) == 0 ? (byte) '\n' : (byte) ('a' + aleatorio.nextInt(26));
+        }
+        int mitad = datos.length / 2;
+        datos[mitad - 1] = '\n';
+        datos[mitad] = '\n';
+        datos[datos.length - 1] = 'z';
+        Files.write(archivo.toPath(), datos);
+
+        long esperado = contar(datos, 0, datos.length) + 1;
+        for (int hilos : new int[] { 1, 4 }) {
+            NumeroCPUs.establecerParalelismo(hilos);
+            try {
+                Verificar.igual(esperado, ContadorRenglones.contarRenglones(archivo.getPath()),
+                        "varios segmentos sin salto final con " + hilos + " hilos");
+            } finally {
+                NumeroCPUs.establecerParalelismo(0);
+            }
+        }
+    }
+
+    private static long contar(byte[] datos, int desde, int longitud) {
+        long total = 0;
+        for (int i = desde; i < desde + longitud; i++) {
+            if (datos[i] == '\n') {
+                total++;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,176 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Pruebas de la división de {@link Dividir}: las partes, copiadas con
+ * {@code transferTo}, terminan en un salto de línea y unidas en orden
+ * reproducen el archivo; con el encabezado repetido cada parte es un CSV
+ * completo, y un número de partes no válido se informa como falla. La
+ * división por tamaño crea el mínimo de partes que no superan el objetivo más
+ * un renglón.
+ */
+public class PruebaDividir {
+
+    static void ejecutar() throws IOException {
+        Path carpeta = Files.createTempDirectory("prueba_dividir");
+        File resultados = carpeta.resolve("resultados").toFile();
+        try {
+            File csv = carpeta.resolve("datos.csv").toFile();
+            byte[] datos = generar(csv, 5_000);
+            String encabezado = "title,region,streams\n";
+            Dividir dividir = new Dividir();
+
+            for (int numPartes : new int[] { 1, 3, 7, 64 }) {
+                for (boolean repetirEncabezado : new boolean[] { false, true }) {
+                    borrar(resultados);
+                    String caso = numPartes + " partes" + (repetirEncabezado ? " con encabezado" : "");
+                    Verificar.verdadero(dividir.dividirCSV(csv.getPath(), numPartes, repetirEncabezado),
+                            "división en " + caso);
+                    List<byte[]> partes = leerPartes(resultados);
+                    Verificar.igual(numPartes, partes.size(), "número de partes en " + caso);
+                    Verificar.verdadero(Arrays.equals(datos, unir(partes, repetirEncabezado ? encabezado : null)),
+                            "partes unidas en " + caso);
+                }
+            }
+
+            // Nunca más partes que renglones
+            File pocos = carpeta.resolve("pocos.csv").toFile();
+            Files.write(pocos.toPath(), "a\nb\nc".getBytes(StandardCharsets.UTF_8));
+            borrar(resultados);
+            Verificar.verdadero(dividir.dividirCSV(pocos.getPath(), 10), "más partes que renglones");
+            Verificar.igual(List.of("a\n", "b\n", "c"), textos(leerPartes(resultados)), "una parte por renglón");
+
+            Verificar.verdadero(!dividir.dividirCSV(csv.getPath(), 0), "cero partes");
+            Verificar.verdadero(!dividir.dividirCSV(csv.getPath(), Dividir.MAX_PARTES + 1), "demasiadas partes");
+            Verificar.verdadero(!dividir.dividirCSV(carpeta.resolve("no_existe.csv").toString(), 2),
+                    "archivo inexistente");
+
+            porTamano(dividir, csv, datos, resultados);
+        } finally {
+            borrar(resultados);
+            resultados.delete();
+            for (File archivo : carpeta.toFile().listFiles()) {
+                archivo.delete();
+            }
+            carpeta.toFile().delete();
+        }
+    }
+
+    private static void porTamano(Dividir dividir, File csv, byte[] datos, File resultados) throws IOException {
+        Verificar.igual(1, Dividir.calcularNumPartes(0, 100), "archivo vacío");
+        Verificar.igual(1, Dividir.calcularNumPartes(100, 100), "tamaño exacto de una parte");
+        Verificar.igual(2, Dividir.calcularNumPartes(101, 100), "un byte de más");
+        Verificar.igual(3, Dividir.calcularNumPartes(300, 100), "múltiplo exacto");
+        Verificar.igual(1, Dividir.calcularNumPartes(100, Long.MAX_VALUE), "parte enorme");
+        Verificar.igual(Dividir.MAX_PARTES, Dividir.calcularNumPartes(Dividir.MAX_PARTES, 1), "máximo de partes");
+        Verificar.lanza(IllegalArgumentException.class, () -> Dividir.calcularNumPartes(100, 0), "tamaño cero");
+        Verificar.lanza(IllegalArgumentException.class, () -> Dividir.calcularNumPartes(100, -1), "tamaño negativo");
+        Verificar.lanza(IllegalArgumentException.class,
+                () -> Dividir.calcularNumPartes(Dividir.MAX_PARTES + 1L, 1), "más partes que el máximo");
+
+        // El renglón más largo del archivo generado
+        int renglonMaximo = 0;
+        for (int i = 0, inicio = 0; i <= datos.length; i++) {
+            if (i == datos.length || datos[i] == '\n') {
+                renglonMaximo = Math.max(renglonMaximo, i + 1 - inicio);
+                inicio = i + 1;
+            }
+        }
+
+        for (long tamanoParte : new long[] { 4_096, 50_000, 100_000, datos.length, datos.length + 1L }) {
+            borrar(resultados);
+            String caso = "partes de " + tamanoParte + " bytes";
+            Verificar.verdadero(dividir.dividirCSVPorTamano(csv.getPath(), tamanoParte, false), "división en " + caso);
+            List<byte[]> partes = leerPartes(resultados);
+            Verificar.igual((int) ((datos.length + tamanoParte - 1) / tamanoParte), partes.size(),
+                    "número de partes en " + caso);
+            boolean acotadas = true;
+            for (byte[] parte : partes) {
+                acotadas &= parte.length <= tamanoParte + renglonMaximo;
+            }
+            Verificar.verdadero(acotadas, "ninguna parte excede el objetivo más un renglón en " + caso);
+            Verificar.verdadero(Arrays.equals(datos, unir(partes, null)), "partes unidas en " + caso);
+        }
+    }
+
+    // Escribe un CSV con renglones de longitud variada, sin salto final, y devuelve sus bytes
+    private static byte[] generar(File csv, int numRenglones) throws IOException {
+        Random aleatorio = new Random(19);
+        StringBuilder contenido = new StringBuilder("title,region,streams\n");
+        for (int i = 0; i < numRenglones; i++) {
+            contenido.append("\"Song, ").append("x".repeat(aleatorio.nextInt(60))).append("\",Mexico,").append(i);
+            if (i < numRenglones - 1) {
+                contenido.append('\n');
+            }
+        }
+        byte[] datos = contenido.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(csv.toPath(), datos);
+        return datos;
+    }
+
+    // Lee las partes en orden de su número, comprobando que todas menos la última terminan en salto de línea
+    private static List<byte[]> leerPartes(File resultados) throws IOException {
+        File[] archivos = resultados.listFiles();
+        Arrays.sort(archivos, Comparator.comparingInt(PruebaDividir::numeroParte));
+        List<byte[]> partes = new ArrayList<>();
+        boolean alineadas = true;
+        for (int i = 0; i < archivos.length; i++) {
+            byte[] parte = Files.readAllBytes(archivos[i].toPath());
+            alineadas &= i == archivos.length - 1 || (parte.length > 0 && parte[parte.length - 1] == '\n');
+            partes.add(parte);
+        }
+        Verificar.verdadero(alineadas, "partes alineadas a renglones");
+        return partes;
+    }
+
+    // Une las partes; si se repitió el encabezado, lo quita de todas menos la primera
+    private static byte[] unir(List<byte[]> partes, String encabezado) {
+        byte[] bytesEncabezado = encabezado == null ? new byte[0] : encabezado.getBytes(StandardCharsets.UTF_8);
+        StringBuilder errores = new StringBuilder();
+        ByteArrayOutputStream unidas = new ByteArrayOutputStream();
+        for (int i = 0; i < partes.size(); i++) {
+            byte[] parte = partes.get(i);
+            int desde = 0;
+            if (i > 0 && encabezado != null) {
+                if (!Arrays.equals(bytesEncabezado, Arrays.copyOf(parte, bytesEncabezado.length))) {
+                    errores.append(i + 1).append(' ');
+                }
+                desde = bytesEncabezado.length;
+            }
+            unidas.write(parte, desde, parte.length - desde);
+        }
+        Verificar.verdadero(errores.length() == 0, "encabezado al inicio de cada parte: " + errores);
+        return unidas.toByteArray();
+    }
+
+    private static void borrar(File resultados) {
+        File[] archivos = resultados.listFiles();
+        if (archivos != null) {
+            for (File archivo : archivos) {
+                archivo.delete();
+            }
+        }
+    }
+
+    private static int numeroParte(File parte) {
+        String nombre = parte.getName();
+        return Integer.parseInt(nombre.substring(nombre.lastIndexOf("parte") + 5, nombre.length() - 4));
+    }
+
+    private static List<String> textos(List<byte[]> partes) {
+        List<String> textos = new ArrayList<>();
+        for (byte[] parte : partes) {
+            textos.add(new String(parte, StandardCharsets.UTF_8));
+        }
+        return textos;
+    }
+}
@@ -0,0 +1,64 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Pruebas de {@link EscritorAsincrono}: lo escrito llega completo y en orden
+ * al archivo, también si el hilo se interrumpe antes de cerrarlo.
+ */
+public class PruebaEscritorAsincrono {
+
+    static void ejecutar() throws IOException {
+        File archivo = File.createTempFile("prueba_escritor", ".bin");
+        try {
+            byte[] datos = new byte[9 * 1024 * 1024 + 17];
+            new Random(21).nextBytes(datos);
+
+            try (OutputStream salida = new EscritorAsincrono(archivo)) {
+                escribirEnTrozos(salida, datos);
+            }
+            Verificar.verdadero(Arrays.equals(datos, Files.readAllBytes(archivo.toPath())), "contenido escrito");
+
+            // Con el hilo interrumpido, close espera los bloques pendientes en lugar de perderlos
+            OutputStream salida = new EscritorAsincrono(archivo);
+            escribirEnTrozos(salida, datos);
+            Thread.currentThread().interrupt();
+            salida.close();
+            Verificar.verdadero(Thread.interrupted(), "la interrupción se conserva");
+            Verificar.verdadero(Arrays.equals(datos, Files.readAllBytes(archivo.toPath())),
+                    "contenido escrito con el hilo interrumpido");
+
+            // Agregar al final del archivo existente
+            try (OutputStream agregar = new EscritorAsincrono(archivo, true)) {
+                agregar.write('x');
+            }
+            Verificar.igual((long) datos.length + 1, archivo.length(), "agregar al final");
+
+            Verificar.lanza(IOException.class, () -> {
+                OutputStream cerrado = new EscritorAsincrono(archivo);
+                cerrado.close();
+                cerrado.write(new byte[2 * 1024 * 1024]);
+            }, "escribir en un flujo cerrado");
+        } finally {
+            archivo.delete();
+        }
+    }
+
+    // Trozos de tamaños variados para cruzar los límites de los buffers
+    private static void escribirEnTrozos(OutputStream salida, byte[] datos) throws IOException {
+        Random aleatorio = new Random(4);
+        int posicion = 0;
+        while (posicion < datos.length) {
+            int cantidad = Math.min(datos.length - posicion, 1 + aleatorio.nextInt(300_000));
+            if (cantidad == 1) {
+                salida.write(datos[posicion]);
+            } else {
+                salida.write(datos, posicion, cantidad);
+            }
+            posicion += cantidad;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Pruebas del filtrado paralelo de {@link Filtrar}: con cualquier número de
+ * hilos debe producir lo mismo que el recorrido en un solo hilo, en el orden
+ * del archivo, e indicar cuándo no se pudo filtrar.
+ */
+public class PruebaFiltrar {
+
+    private static final String[] REGIONES = { "Mexico", "Chile", "Argentina", "Peru" };
+
+    static void ejecutar() throws IOException {
+        Path carpeta = Files.createTempDirectory("prueba_filtrar");
+        try {
+            for (boolean saltoFinal : new boolean[] { true, false }) {
+                File csv = carpeta.resolve("datos.csv").toFile();
+                String esperado = generar(csv, 20_000, saltoFinal);
+                for (int hilos : new int[] { 1, 3, 8 }) {
+                    NumeroCPUs.establecerParalelismo(hilos);
+                    Verificar.verdadero(Filtrar.filtrarPorColumnaParalelo(csv.getPath(), "region", "Mexico"),
+                            "filtrado completado con " + hilos + " hilos");
+                    Verificar.igual(esperado, leer(Filtrar.obtenerArchivoSalida(csv.getPath(), "region", "Mexico")),
+                            "filtrado paralelo con " + hilos + " hilos" + (saltoFinal ? "" : " sin salto final"));
+                }
+                NumeroCPUs.establecerParalelismo(0);
+                Filtrar.filtrarPorColumna(csv.getPath(), "region", "Mexico");
+                Verificar.igual(esperado, leer(Filtrar.obtenerArchivoSalida(csv.getPath(), "region", "Mexico")),
+                        "filtrado en un hilo" + (saltoFinal ? "" : " sin salto final"));
+            }
+
+            // Los errores se informan con el resultado, para que el lote los marque
+            File csv = carpeta.resolve("datos.csv").toFile();
+            File salida = carpeta.resolve("consulta.csv").toFile();
+            Verificar.verdadero(!Filtrar.filtrarPorColumnaParalelo(csv.getPath(), "pais", "Mexico"),
+                    "columna inexistente");
+            File anterior = Filtrar.obtenerArchivoSalida(csv.getPath(), "pais", "Mexico");
+            Files.write(anterior.toPath(), "resultado anterior\n".getBytes(StandardCharsets.UTF_8));
+            Verificar.verdadero(!Filtrar.filtrarPorColumnaIndexado(csv.getPath(), "pais", "Mexico"),
+                    "columna inexistente con índice");
+            Verificar.igual("resultado anterior\n", leer(anterior), "la salida anterior no se trunca");
+            Verificar.verdadero(!Filtrar.filtrarPorConsulta(csv.getPath(), "streams >", salida), "consulta no válida");
+            Verificar.verdadero(!Filtrar.filtrarPorConsulta(carpeta.resolve("no_existe.csv").toString(),
+                    "streams > 5", salida), "archivo inexistente");
+            Verificar.verdadero(Filtrar.filtrarPorConsulta(csv.getPath(), "streams > 5", salida), "consulta válida");
+        } finally {
+            NumeroCPUs.establecerParalelismo(0);
+            for (File archivo : carpeta.toFile().listFiles()) {
+                archivo.delete();
+            }
+            carpeta.toFile().delete();
+        }
+    }
+
+    // Escribe un CSV con comillas y saltos \r\n ocasionales, y devuelve la salida esperada
+    private static String generar(File csv, int numRenglones, boolean saltoFinal) throws IOException {
+        Random aleatorio = new Random(7);
+        StringBuilder contenido = new StringBuilder("title,region,streams\n");
+        StringBuilder esperado = new StringBuilder("title,region,streams\n");
+        for (int i = 0; i < numRenglones; i++) {
+            String region = REGIONES[aleatorio.nextInt(REGIONES.length)];
+            String titulo = aleatorio.nextInt(5) == 0 ? "\"Song, " + i + "\"" : "Song " + i;
+            String campoRegion = aleatorio.nextInt(7) == 0 ? "\"" + region + "\"" : region;
+            String renglon = titulo + "," + campoRegion + "," + aleatorio.nextInt(1_000_000);
+            boolean ultimo = i == numRenglones - 1;
+            contenido.append(renglon);
+            if (!ultimo || saltoFinal) {
+                contenido.append(aleatorio.nextInt(10) == 0 ? "\r\n" : "\n");
+            }
+            if (region.equals("Mexico")) {
+                esperado.append(renglon).append('\n');
+            }
+        }
+        Files.write(csv.toPath(), contenido.toString().getBytes(StandardCharsets.UTF_8));
+        return esperado.toString();
+    }
+
+    private static String leer(File archivo) throws IOException {
+        return new String(Files.readAllBytes(archivo.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Pruebas de {@link IndiceColumna} y de la copia de renglones indexados de
+ * {@link Filtrar}, incluidas posiciones más allá de 2 GB.
+ */
+public class PruebaIndiceColumna {
+
+    private static final long DOS_GB = 1L << 31;
+
+    static void ejecutar() throws IOException {
+        Path carpeta = Files.createTempDirectory("prueba_indice");
+        try {
+            codificacionDePosiciones();
+            indiceDeUnArchivo(carpeta);
+            copiaMasAllaDeDosGB(carpeta);
+        } finally {
+            for (File archivo : carpeta.toFile().listFiles()) {
+                archivo.delete();
+            }
+            carpeta.toFile().delete();
+        }
+    }
+
+    private static void codificacionDePosiciones() throws IOException {
+        long[] posiciones = { 0, 1, 127, 128, 16_384, DOS_GB - 1, DOS_GB, DOS_GB + 5, 1L << 40, Long.MAX_VALUE / 2 };
+        IndiceColumna.ListaPosiciones lista = new IndiceColumna.ListaPosiciones();
+        for (long posicion : posiciones) {
+            lista.agregar(posicion);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long escritos = lista.codificar(bytes);
+        Verificar.igual((long) bytes.size(), escritos, "codificar() devuelve los bytes escritos");
+        Verificar.igual(posiciones, IndiceColumna.ListaPosiciones.decodificar(
+                new ByteArrayInputStream(bytes.toByteArray()), posiciones.length), "ida y vuelta de posiciones");
+        Verificar.lanza(IOException.class, () -> IndiceColumna.ListaPosiciones.decodificar(
+                new ByteArrayInputStream(bytes.toByteArray(), 0, 3), posiciones.length), "bloque incompleto");
+    }
+
+    private static void indiceDeUnArchivo(Path carpeta) throws IOException {
+        String contenido = "title,region\na,Mexico\nb,Chile\nc,Mexico\n\"d, e\",\"Mexico\"\nf,Peru";
+        File csv = carpeta.resolve("datos.csv").toFile();
+        Files.write(csv.toPath(), contenido.getBytes(StandardCharsets.UTF_8));
+
+        IndiceColumna indice = IndiceColumna.obtener(csv.getPath(), "Region");
+        Verificar.igual(3, indice.numValores(), "valores distintos");
+        long[] esperadas = { contenido.indexOf("a,"), contenido.indexOf("c,"), contenido.indexOf("\"d") };
+        Verificar.igual(esperadas, indice.renglones("Mexico"), "posiciones de un valor");
+        Verificar.igual(new long[] { contenido.indexOf("f,") }, indice.renglones("Peru"),
+                "último renglón sin salto de línea");
+        Verificar.igual(0, indice.renglones("Bolivia").length, "un valor inexistente no tiene renglones");
+
+        // Un índice vigente se vuelve a cargar; si el CSV cambia se reconstruye
+        Verificar.igual(esperadas, IndiceColumna.obtener(csv.getPath(), "region").renglones("Mexico"),
+                "índice cargado del archivo");
+        Files.write(csv.toPath(), "\ng,Mexico\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Verificar.igual(4, IndiceColumna.obtener(csv.getPath(), "region").renglones("Mexico").length,
+                "índice reconstruido después de un cambio");
+
+        Verificar.igual(null, IndiceColumna.obtener(csv.getPath(), "genre"), "columna inexistente");
+    }
+
+    // La ventana de lectura de copiarRenglones calculaba su desplazamiento en int
+    private static void copiaMasAllaDeDosGB(Path carpeta) throws IOException {
+        File disperso = carpeta.resolve("disperso.csv").toFile();
+        long[] posiciones = { 10, DOS_GB + 10, DOS_GB + 20, 3 * DOS_GB };
+        String[] renglones = { "uno", "dos,2", "tres", "cuatro" };
+        try (RandomAccessFile archivo = new RandomAccessFile(disperso, "rw")) {
+            for (int i = 0; i < posiciones.length; i++) {
+                archivo.seek(posiciones[i]);
+                archivo.write((renglones[i] + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (FileChannel canal = FileChannel.open(disperso.toPath(), StandardOpenOption.READ)) {
+            Filtrar.copiarRenglones(canal, posiciones, salida);
+        }
+        Verificar.igual("uno\ndos,2\ntres\ncuatro\n", salida.toString(StandardCharsets.UTF_8.name()),
+                "renglones después de 2 GB");
+    }
+}
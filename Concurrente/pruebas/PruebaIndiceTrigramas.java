@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Pruebas de {@link IndiceTrigramas}: la codificación de las listas de
+ * identificadores, su intersección y que las búsquedas coincidan con revisar
+ * cada nombre, también después de quitar elementos y compactar el índice.
+ */
+public class PruebaIndiceTrigramas {
+
+    static void ejecutar() {
+        codificarListas();
+        intersectarListas();
+        buscarNombres();
+    }
+
+    private static void codificarListas() {
+        // Diferencias en los límites de 1, 2, 3, 4 y 5 bytes
+        int[] ids = { 0, 1, 127, 128, 255, 16_383, 16_384, 2_097_151, 2_097_152, 268_435_455, 268_435_456,
+                Integer.MAX_VALUE - 1 };
+        IndiceTrigramas.ListaPosiciones lista = new IndiceTrigramas.ListaPosiciones();
+        for (int id : ids) {
+            lista.agregar(id);
+            lista.agregar(id); // Los repetidos se ignoran
+        }
+        Verificar.igual(ids, lista.decodificar(), "ida y vuelta de los identificadores");
+
+        Random aleatorio = new Random(3);
+        int[] crecientes = new int[10_000];
+        int id = -1;
+        IndiceTrigramas.ListaPosiciones larga = new IndiceTrigramas.ListaPosiciones();
+        for (int i = 0; i < crecientes.length; i++) {
+            id += 1 + aleatorio.nextInt(1 << aleatorio.nextInt(20));
+            crecientes[i] = id;
+            larga.agregar(id);
+        }
+        Verificar.igual(crecientes, larga.decodificar(), "ida y vuelta de una lista larga");
+    }
+
+    private static void intersectarListas() {
+        Random aleatorio = new Random(5);
+        for (int prueba = 0; prueba < 200; prueba++) {
+            TreeSet<Integer> a = conjunto(aleatorio);
+            TreeSet<Integer> b = conjunto(aleatorio);
+            IndiceTrigramas.ListaPosiciones lista = new IndiceTrigramas.ListaPosiciones();
+            for (int id : b) {
+                lista.agregar(id);
+            }
+            int[] candidatos = a.stream().mapToInt(Integer::intValue).toArray();
+            int quedan = lista.intersectar(candidatos, candidatos.length);
+
+            a.retainAll(b);
+            Verificar.igual(a.stream().mapToInt(Integer::intValue).toArray(), Arrays.copyOf(candidatos, quedan),
+                    "intersección " + prueba);
+        }
+
+        IndiceTrigramas.ListaPosiciones vacia = new IndiceTrigramas.ListaPosiciones();
+        Verificar.igual(0, vacia.intersectar(new int[] { 1, 2, 3 }, 3), "intersección con una lista vacía");
+    }
+
+    private static TreeSet<Integer> conjunto(Random aleatorio) {
+        TreeSet<Integer> conjunto = new TreeSet<>();
+        int tamano = aleatorio.nextInt(300);
+        int rango = 1 + aleatorio.nextInt(1_000);
+        for (int i = 0; i < tamano; i++) {
+            conjunto.add(aleatorio.nextInt(rango));
+        }
+        return conjunto;
+    }
+
+    private static void buscarNombres() {
+        Random aleatorio = new Random(9);
+        String[] partes = { "charts", "datos", "mexico", "resultado", "_", "-", "2017", "2021", "aa", "ab", "ba" };
+        IndiceTrigramas<Integer> indice = new IndiceTrigramas<>();
+        List<String> nombres = new ArrayList<>();
+        boolean[] quitados = new boolean[5_000];
+        for (int i = 0; i < quitados.length; i++) {
+            StringBuilder nombre = new StringBuilder();
+            for (int k = 1 + aleatorio.nextInt(4); k > 0; k--) {
+                nombre.append(partes[aleatorio.nextInt(partes.length)]);
+            }
+            nombres.add(nombre.append(".csv").toString());
+            indice.agregar(nombres.get(i), i);
+        }
+
+        String[] consultas = { "charts", "aab", "abab", "2017_", ".csv", "xyz", "mexico2021", "a-b" };
+        verificarBusquedas(indice, nombres, quitados, consultas, "");
+
+        // Quitar más de la mitad para forzar la compactación del índice
+        for (int i = 0; i < quitados.length; i++) {
+            if (aleatorio.nextInt(3) != 0) {
+                indice.quitar(i);
+                quitados[i] = true;
+            }
+        }
+        verificarBusquedas(indice, nombres, quitados, consultas, " tras quitar");
+
+        Verificar.lanza(IllegalArgumentException.class, () -> indice.buscar("ab"), "consulta de dos caracteres");
+    }
+
+    private static void verificarBusquedas(IndiceTrigramas<Integer> indice, List<String> nombres,
+            boolean[] quitados, String[] consultas, String descripcion) {
+        for (String consulta : consultas) {
+            List<Integer> esperado = new ArrayList<>();
+            for (int i = 0; i < nombres.size(); i++) {
+                if (!quitados[i] && nombres.get(i).contains(consulta)) {
+                    esperado.add(i);
+                }
+            }
+            Verificar.igual(esperado, indice.buscar(consulta), "búsqueda de " + consulta + descripcion);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Pruebas de {@link Lote}: el archivo de trabajos se lee por bloques
+ * ignorando comentarios, cada trabajo produce la misma salida que la
+ * operación que nombra, y un trabajo incompleto o que no puede leer sus
+ * archivos se informa como falla sin cambiar el paralelismo del lote.
+ */
+public class PruebaLote {
+
+    static void ejecutar() throws IOException {
+        Path carpeta = Files.createTempDirectory("prueba_lote");
+        try {
+            leer(carpeta);
+            trabajos(carpeta);
+            errores(carpeta);
+        } finally {
+            try (Stream<Path> rutas = Files.walk(carpeta)) {
+                rutas.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static void leer(Path carpeta) throws IOException {
+        Path archivo = escribir(carpeta.resolve("trabajos.txt"), String.join("\n",
+                "# Comentario antes del primer trabajo",
+                "operacion=contar",
+                "entrada = charts.csv ",
+                "",
+                "",
+                "operacion=consulta",
+                "  # Comentario dentro del bloque",
+                "consulta=streams > 1000000 AND region IN (Mexico, Argentina)",
+                "hilos=4"));
+        Verificar.igual(List.of(
+                Map.of("operacion", "contar", "entrada", "charts.csv"),
+                Map.of("operacion", "consulta", "consulta", "streams > 1000000 AND region IN (Mexico, Argentina)",
+                        "hilos", "4")),
+                Lote.leerTrabajos(archivo.toString()), "bloques, comentarios y espacios");
+        Verificar.igual(List.of(), Lote.leerTrabajos(escribir(carpeta.resolve("vacio.txt"), "\n# nada\n").toString()),
+                "archivo sin trabajos");
+
+        Path malo = escribir(carpeta.resolve("malo.txt"), "operacion=contar\nentrada\n");
+        try {
+            Lote.leerTrabajos(malo.toString());
+            Verificar.fallar("renglón sin '=': se esperaba IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            Verificar.igual("renglón 2: se esperaba clave=valor", e.getMessage(), "se indica el renglón inválido");
+        }
+        Verificar.lanza(FileNotFoundException.class,
+                () -> Lote.leerTrabajos(carpeta.resolve("no_existe.txt").toString()), "archivo inexistente");
+    }
+
+    // Cada trabajo escribe lo mismo que la operación llamada directamente
+    private static void trabajos(Path carpeta) throws IOException {
+        File csv = carpeta.resolve("charts.csv").toFile();
+        StringBuilder contenido = new StringBuilder("title,region,streams");
+        String[] regiones = { "Mexico", "Chile", "Argentina" };
+        for (int i = 0; i < 3_000; i++) {
+            contenido.append("\n\"Song, ").append(i).append("\",").append(regiones[i % 3]).append(',')
+                    .append(i * 1_000);
+        }
+        escribir(csv.toPath(), contenido.toString());
+        String entrada = csv.getPath();
+        String consulta = "streams > 1000000 AND region IN (Mexico, Argentina)";
+
+        File esperadaConsulta = carpeta.resolve("esperada_consulta.csv").toFile();
+        Verificar.verdadero(Filtrar.filtrarPorConsulta(entrada, consulta, esperadaConsulta), "consulta directa");
+        File salidaConsulta = carpeta.resolve("lote_consulta.csv").toFile();
+        Lote.ejecutar(Map.of("operacion", "consulta", "entrada", entrada, "consulta", consulta,
+                "salida", salidaConsulta.getPath(), "hilos", "2"));
+        Verificar.igual(leer(esperadaConsulta), leer(salidaConsulta), "trabajo de consulta");
+
+        File esperadaAgregado = carpeta.resolve("esperado_agregado.csv").toFile();
+        Verificar.verdadero(Agregacion.agrupar(entrada, "region", "streams", null, esperadaAgregado),
+                "agrupación directa");
+        File salidaAgregado = carpeta.resolve("lote_agregado.csv").toFile();
+        Lote.ejecutar(Map.of("operacion", "agrupar", "entrada", entrada, "clave", "region", "valor", "streams",
+                "salida", salidaAgregado.getPath()));
+        Verificar.igual(leer(esperadaAgregado), leer(salidaAgregado), "trabajo de agrupación");
+
+        // La tubería guarda la consulta junto a la entrada con el prefijo consulta_
+        Lote.ejecutar(Map.of("operacion", "tuberia", "entrada", entrada, "consulta", consulta, "guardar", "s"));
+        Verificar.igual(leer(esperadaConsulta), leer(new File(csv.getParentFile(), "consulta_charts.csv")),
+                "trabajo de tubería");
+
+        Lote.ejecutar(Map.of("operacion", "Dividir", "entrada", entrada, "partes", "3"));
+        File[] partes = new File(csv.getParentFile(), "resultados").listFiles();
+        Verificar.igual(3, partes == null ? 0 : partes.length, "trabajo de división sin distinguir mayúsculas");
+    }
+
+    private static void errores(Path carpeta) throws IOException {
+        String entrada = carpeta.resolve("charts.csv").toString();
+        int paralelismo = NumeroCPUs.numeroCPUs();
+
+        Verificar.lanza(IllegalArgumentException.class, () -> Lote.ejecutar(Map.of("entrada", entrada)),
+                "sin operación");
+        Verificar.lanza(IllegalArgumentException.class,
+                () -> Lote.ejecutar(Map.of("operacion", "borrar", "entrada", entrada)), "operación desconocida");
+        Verificar.lanza(IllegalArgumentException.class,
+                () -> Lote.ejecutar(Map.of("operacion", "consulta", "entrada", entrada, "hilos", "3")),
+                "falta la consulta");
+        Verificar.igual(paralelismo, NumeroCPUs.numeroCPUs(), "paralelismo restaurado tras una falla");
+        Verificar.lanza(IllegalArgumentException.class,
+                () -> Lote.ejecutar(Map.of("operacion", "dividir", "entrada", entrada, "partes", "tres")),
+                "número no válido");
+        Verificar.lanza(FileNotFoundException.class, () -> Lote.ejecutar(
+                Map.of("operacion", "contar", "entrada", carpeta.resolve("no_existe.csv").toString())),
+                "entrada inexistente");
+        Verificar.lanza(IOException.class, () -> Lote.ejecutar(
+                Map.of("operacion", "procesar", "carpeta", carpeta.resolve("no_existe").toString())),
+                "carpeta inexistente");
+        Verificar.lanza(IOException.class, () -> Lote.ejecutar(Map.of("operacion", "consulta", "entrada", entrada,
+                "consulta", "streams >", "salida", carpeta.resolve("no_escrita.csv").toString())),
+                "consulta no válida");
+    }
+
+    private static Path escribir(Path archivo, String contenido) throws IOException {
+        return Files.write(archivo, contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String leer(File archivo) throws IOException {
+        return new String(Files.readAllBytes(archivo.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,119 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pruebas de {@link ManifiestoProcesamiento}: qué archivos se vuelven a
+ * procesar según su tamaño, su fecha, su contenido, su salida y la
+ * configuración, y que un archivo que cambia durante la ejecución o uno
+ * procesado sin calcular su hash no se omiten por error la vez siguiente.
+ */
+public class PruebaManifiestoProcesamiento {
+
+    private static final String CONFIGURACION = "region,streams";
+
+    static void ejecutar() throws IOException {
+        Path carpeta = Files.createTempDirectory("prueba_manifiesto");
+        try {
+            File a = crear(carpeta, "a.csv", "region\nMexico\n");
+            File b = crear(carpeta, "b.csv", "region\nChile\n");
+            File c = crear(carpeta, "c.csv", "region\nPeru\n");
+            File[] archivos = { a, b, c };
+
+            Verificar.igual(nombres(archivos), procesar(carpeta, archivos, CONFIGURACION, false),
+                    "sin manifiesto se procesa todo");
+            Verificar.igual(List.of(), procesar(carpeta, archivos, CONFIGURACION, false), "archivos sin cambios");
+
+            // Otro tamaño
+            Files.write(a.toPath(), "region\nMexico\nChile\n".getBytes(StandardCharsets.UTF_8));
+            Verificar.igual(List.of("a.csv"), procesar(carpeta, archivos, CONFIGURACION, false),
+                    "archivo con otro tamaño");
+
+            // Misma longitud y otra fecha: decide el contenido
+            b.setLastModified(b.lastModified() - 60_000);
+            Verificar.igual(List.of(), procesar(carpeta, archivos, CONFIGURACION, false), "solo cambió la fecha");
+            Verificar.igual(List.of(), procesar(carpeta, archivos, CONFIGURACION, false),
+                    "la nueva fecha quedó registrada");
+            Files.write(b.toPath(), "region\nChina\n".getBytes(StandardCharsets.UTF_8));
+            b.setLastModified(b.lastModified() - 120_000);
+            Verificar.igual(List.of("b.csv"), procesar(carpeta, archivos, CONFIGURACION, false),
+                    "mismo tamaño con otro contenido");
+
+            // Salida eliminada o modificada, y otra configuración
+            salida(carpeta, c).delete();
+            Verificar.igual(List.of("c.csv"), procesar(carpeta, archivos, CONFIGURACION, false), "salida eliminada");
+            Files.write(salida(carpeta, c).toPath(), "otra".getBytes(StandardCharsets.UTF_8));
+            Verificar.igual(List.of("c.csv"), procesar(carpeta, archivos, CONFIGURACION, false), "salida modificada");
+            ManifiestoProcesamiento manifiesto = ManifiestoProcesamiento.cargar(carpeta.toString());
+            Verificar.igual(nombres(archivos), nombres(manifiesto.seleccionarPendientes(archivos, "region", false)),
+                    "otra configuración");
+
+            // Un archivo que cambia entre la selección y el guardado no se registra
+            manifiesto = ManifiestoProcesamiento.cargar(carpeta.toString());
+            List<File> pendientes = manifiesto.seleccionarPendientes(archivos, "region", false);
+            for (File archivo : pendientes) {
+                manifiesto.registrar(archivo, salida(carpeta, archivo));
+            }
+            Files.write(a.toPath(), "region\nMexico\nPeru y Chile\n".getBytes(StandardCharsets.UTF_8));
+            manifiesto.guardar();
+            Verificar.igual(List.of("a.csv"), procesar(carpeta, archivos, "region", false),
+                    "archivo modificado durante el procesamiento");
+
+            // Con todos no se calcula el hash, así que un cambio de fecha vuelve a procesarlo
+            Verificar.igual(nombres(archivos), procesar(carpeta, archivos, CONFIGURACION, true), "todos los archivos");
+            c.setLastModified(c.lastModified() - 60_000);
+            Verificar.igual(List.of("c.csv"), procesar(carpeta, archivos, CONFIGURACION, false),
+                    "sin hash registrado se vuelve a procesar");
+            c.setLastModified(c.lastModified() - 60_000);
+            Verificar.igual(List.of(), procesar(carpeta, archivos, CONFIGURACION, false), "hash calculado al guardar");
+
+            // Un manifiesto dañado se descarta
+            Files.write(carpeta.resolve(ManifiestoProcesamiento.NOMBRE_ARCHIVO),
+                    (a.getAbsolutePath() + "\tx\t1\th\ts\t1\tc\n").getBytes(StandardCharsets.UTF_8));
+            Verificar.igual(nombres(archivos), procesar(carpeta, archivos, CONFIGURACION, false), "manifiesto dañado");
+        } finally {
+            for (File archivo : carpeta.toFile().listFiles()) {
+                archivo.delete();
+            }
+            carpeta.toFile().delete();
+        }
+    }
+
+    // Selecciona los pendientes, simula su procesamiento escribiendo una salida y guarda el manifiesto
+    private static List<String> procesar(Path carpeta, File[] archivos, String configuracion, boolean todos)
+            throws IOException {
+        ManifiestoProcesamiento manifiesto = ManifiestoProcesamiento.cargar(carpeta.toString());
+        List<File> pendientes = manifiesto.seleccionarPendientes(archivos, configuracion, todos);
+        for (File archivo : pendientes) {
+            File salida = salida(carpeta, archivo);
+            Files.write(salida.toPath(), ("resultado de " + archivo.getName()).getBytes(StandardCharsets.UTF_8));
+            manifiesto.registrar(archivo, salida);
+        }
+        manifiesto.guardar();
+        return nombres(pendientes);
+    }
+
+    private static File crear(Path carpeta, String nombre, String contenido) throws IOException {
+        return Files.write(carpeta.resolve(nombre), contenido.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+
+    private static File salida(Path carpeta, File entrada) {
+        return carpeta.resolve("resultado_" + entrada.getName()).toFile();
+    }
+
+    private static List<String> nombres(File[] archivos) {
+        return nombres(List.of(archivos));
+    }
+
+    private static List<String> nombres(List<File> archivos) {
+        List<String> nombres = new ArrayList<>();
+        for (File archivo : archivos) {
+            nombres.add(archivo.getName());
+        }
+        return nombres;
+    }
+}
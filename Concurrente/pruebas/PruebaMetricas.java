@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Pruebas de {@link Metricas.Temporizador}: los percentiles del histograma
+ * quedan dentro de su error relativo, los valores pequeños son exactos y los
+ * registros concurrentes no se pierden; {@link Metricas#medir} registra la
+ * etapa aunque el trabajo falle.
+ */
+public class PruebaMetricas {
+
+    static void ejecutar() throws InterruptedException {
+        vacio();
+        valoresPequenos();
+        distribucionUniforme();
+        errorRelativo();
+        registrosConcurrentes();
+        medirEtapa();
+    }
+
+    private static void vacio() {
+        Metricas.Temporizador temporizador = new Metricas.Temporizador();
+        Verificar.igual(0L, temporizador.cuenta(), "cuenta sin registros");
+        Verificar.igual(0L, temporizador.percentilNanos(50), "percentil sin registros");
+        Verificar.igual(0L, temporizador.maximoNanos(), "máximo sin registros");
+    }
+
+    private static void valoresPequenos() {
+        // Los valores menores a 16 tienen su propio intervalo
+        Metricas.Temporizador temporizador = new Metricas.Temporizador();
+        for (long valor = 1; valor <= 10; valor++) {
+            temporizador.registrar(valor);
+        }
+        temporizador.registrar(-5); // Una duración negativa cuenta como cero
+        Verificar.igual(11L, temporizador.cuenta(), "cuenta");
+        Verificar.igual(55L, temporizador.totalNanos(), "total");
+        Verificar.igual(0L, temporizador.percentilNanos(0), "percentil 0");
+        Verificar.igual(5L, temporizador.percentilNanos(50), "percentil 50 exacto");
+        Verificar.igual(10L, temporizador.percentilNanos(100), "percentil 100 exacto");
+
+        temporizador.reiniciar();
+        Verificar.igual(0L, temporizador.cuenta(), "cuenta tras reiniciar");
+        Verificar.igual(0L, temporizador.percentilNanos(99), "percentil tras reiniciar");
+    }
+
+    private static void distribucionUniforme() {
+        Metricas.Temporizador temporizador = new Metricas.Temporizador();
+        int n = 100_000;
+        for (int i = 1; i <= n; i++) {
+            temporizador.registrar(i * 1_000L);
+        }
+        Verificar.igual((long) n * 1_000L, temporizador.maximoNanos(), "máximo");
+        for (double percentil : new double[] { 1, 50, 90, 99, 99.9 }) {
+            double esperado = percentil / 100.0 * n * 1_000L;
+            long obtenido = temporizador.percentilNanos(percentil);
+            Verificar.verdadero(Math.abs(obtenido - esperado) <= esperado * 0.04,
+                    "percentil " + percentil + ": " + obtenido + " en lugar de " + esperado);
+        }
+        Verificar.verdadero(temporizador.percentilNanos(100) <= temporizador.maximoNanos(),
+                "el percentil 100 no pasa del máximo");
+    }
+
+    private static void errorRelativo() {
+        // Un solo registro por temporizador: el percentil es el valor del intervalo que lo contiene
+        Random aleatorio = new Random(5);
+        boolean dentro = true;
+        String peor = "";
+        for (int i = 0; i < 10_000; i++) {
+            long valor = aleatorio.nextLong() >>> (1 + aleatorio.nextInt(62));
+            Metricas.Temporizador temporizador = new Metricas.Temporizador();
+            temporizador.registrar(valor);
+            long obtenido = temporizador.percentilNanos(50);
+            if (Math.abs(obtenido - valor) > valor * 0.04) {
+                dentro = false;
+                peor = valor + " -> " + obtenido;
+            }
+        }
+        Verificar.verdadero(dentro, "error relativo de a lo más 4%: " + peor);
+    }
+
+    private static void medirEtapa() {
+        Metricas.Temporizador temporizador = Metricas.temporizador("prueba.etapa");
+        long antes = temporizador.cuenta();
+        Verificar.igual(42, Metricas.medir("prueba.etapa", () -> 42), "resultado del trabajo medido");
+        Verificar.lanza(IOException.class, () -> Metricas.medir("prueba.etapa", () -> {
+            throw new IOException("falla");
+        }), "la excepción del trabajo se propaga");
+        Verificar.igual(antes + 2, temporizador.cuenta(), "se registran las dos ejecuciones");
+        Verificar.igual(0, Metricas.etapasActivas(), "ninguna etapa queda activa");
+    }
+
+    private static void registrosConcurrentes() throws InterruptedException {
+        Metricas.Temporizador temporizador = new Metricas.Temporizador();
+        int hilos = 4;
+        int porHilo = 50_000;
+        List<Thread> trabajadores = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            Thread hilo = new Thread(() -> {
+                for (int i = 1; i <= porHilo; i++) {
+                    temporizador.registrar(i);
+                }
+            });
+            trabajadores.add(hilo);
+            hilo.start();
+        }
+        for (Thread hilo : trabajadores) {
+            hilo.join();
+        }
+        Verificar.igual((long) hilos * porHilo, temporizador.cuenta(), "registros concurrentes");
+        Verificar.igual((long) hilos * porHilo * (porHilo + 1L) / 2, temporizador.totalNanos(),
+                "total de registros concurrentes");
+        Verificar.igual((long) porHilo, temporizador.maximoNanos(), "máximo de registros concurrentes");
+    }
+}
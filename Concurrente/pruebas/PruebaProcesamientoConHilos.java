@@ -0,0 +1,143 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Pruebas de {@link ProcesamientoConHilos}: cada modo produce la misma
+ * proyección que un recorrido renglón por renglón, también en archivos de
+ * varios fragmentos, y un directorio que no se puede leer o un archivo al que
+ * le falta una columna se informan como falla.
+ *
+ * <p>
+ * Las salidas se escriben en la carpeta de resultados del directorio de
+ * trabajo; la prueba borra las suyas y conserva el manifiesto que hubiera.
+ * </p>
+ */
+public class PruebaProcesamientoConHilos {
+
+    private static final ProcesamientoConHilos.Modo[] MODOS = { ProcesamientoConHilos.Modo.FORK_JOIN,
+            ProcesamientoConHilos.Modo.ENTRADA_SALIDA };
+
+    private static final Proyeccion PROYECCION = new Proyeccion("region", "title");
+
+    static void ejecutar() throws IOException {
+        Path carpeta = Files.createTempDirectory("prueba_hilos");
+        File carpetaSalida = new File(ProcesarArchivo.CARPETA_SALIDA);
+        boolean existiaSalida = carpetaSalida.exists();
+        File manifiesto = new File(carpetaSalida, ManifiestoProcesamiento.NOMBRE_ARCHIVO);
+        byte[] manifiestoAnterior = manifiesto.exists() ? Files.readAllBytes(manifiesto.toPath()) : null;
+        try {
+            procesarDirectorio(carpeta);
+            muchosArchivos(carpeta);
+            fallas(carpeta);
+        } finally {
+            for (File archivo : carpeta.toFile().listFiles()) {
+                ProcesarArchivo.obtenerArchivoSalida(archivo.getPath()).delete();
+                archivo.delete();
+            }
+            carpeta.toFile().delete();
+            if (manifiestoAnterior != null) {
+                Files.write(manifiesto.toPath(), manifiestoAnterior);
+            } else {
+                manifiesto.delete();
+            }
+            if (!existiaSalida) {
+                carpetaSalida.delete();
+            }
+        }
+    }
+
+    private static void procesarDirectorio(Path carpeta) throws IOException {
+        // Un archivo de más de un fragmento, uno pequeño sin salto final y uno vacío
+        File grande = carpeta.resolve("prueba_hilos_grande.csv").toFile();
+        File pequeno = carpeta.resolve("prueba_hilos_pequeno.csv").toFile();
+        File vacio = carpeta.resolve("prueba_hilos_vacio.csv").toFile();
+        String esperadoGrande = generar(grande, 320_000, true);
+        String esperadoPequeno = generar(pequeno, 10, false);
+        Files.write(vacio.toPath(), new byte[0]);
+        Verificar.verdadero(grande.length() > 16L * 1024 * 1024, "archivo de más de un fragmento de 16 MB");
+
+        for (ProcesamientoConHilos.Modo modo : MODOS) {
+            for (int hilos : new int[] { 1, 4 }) {
+                NumeroCPUs.establecerParalelismo(hilos);
+                try {
+                    String caso = modo + " con " + hilos + " hilos";
+                    Verificar.verdadero(
+                            ProcesamientoConHilos.procesarArchivos(carpeta.toFile(), modo, false, PROYECCION),
+                            "procesamiento completado en " + caso);
+                    Verificar.igual(esperadoGrande, leer(ProcesarArchivo.obtenerArchivoSalida(grande.getPath())),
+                            "archivo de varios fragmentos en " + caso);
+                    Verificar.igual(esperadoPequeno, leer(ProcesarArchivo.obtenerArchivoSalida(pequeno.getPath())),
+                            "archivo sin salto final en " + caso);
+                    Verificar.verdadero(!ProcesarArchivo.obtenerArchivoSalida(vacio.getPath()).exists(),
+                            "archivo vacío sin salida en " + caso);
+                } finally {
+                    NumeroCPUs.establecerParalelismo(0);
+                }
+            }
+        }
+        for (File archivo : new File[] { grande, pequeno, vacio }) {
+            ProcesarArchivo.obtenerArchivoSalida(archivo.getPath()).delete();
+            archivo.delete();
+        }
+    }
+
+    // Más archivos que los que el modo de entrada/salida abre a la vez
+    private static void muchosArchivos(Path carpeta) throws IOException {
+        File[] archivos = new File[70];
+        String[] esperados = new String[archivos.length];
+        for (int i = 0; i < archivos.length; i++) {
+            archivos[i] = carpeta.resolve("prueba_hilos_" + i + ".csv").toFile();
+            esperados[i] = generar(archivos[i], 100 + i, true);
+        }
+        Verificar.verdadero(ProcesamientoConHilos.procesarArchivos(carpeta.toFile(),
+                ProcesamientoConHilos.Modo.ENTRADA_SALIDA, false, PROYECCION), "muchos archivos a la vez");
+        boolean iguales = true;
+        for (int i = 0; i < archivos.length; i++) {
+            iguales &= esperados[i].equals(leer(ProcesarArchivo.obtenerArchivoSalida(archivos[i].getPath())));
+            ProcesarArchivo.obtenerArchivoSalida(archivos[i].getPath()).delete();
+            archivos[i].delete();
+        }
+        Verificar.verdadero(iguales, "salida de cada uno de muchos archivos");
+    }
+
+    private static void fallas(Path carpeta) throws IOException {
+        File incompleto = carpeta.resolve("prueba_hilos_incompleto.csv").toFile();
+        Files.write(incompleto.toPath(), "title,streams\nSong,5\n".getBytes(StandardCharsets.UTF_8));
+        for (ProcesamientoConHilos.Modo modo : MODOS) {
+            Verificar.verdadero(!ProcesamientoConHilos.procesarArchivos(carpeta.toFile(), modo, false, PROYECCION),
+                    "columna faltante en " + modo);
+            Verificar.verdadero(!ProcesarArchivo.obtenerArchivoSalida(incompleto.getPath()).exists(),
+                    "sin salida por la columna faltante en " + modo);
+            Verificar.verdadero(!ProcesamientoConHilos.procesarArchivos(carpeta.resolve("no_existe").toFile(), modo,
+                    false, PROYECCION), "directorio inexistente en " + modo);
+        }
+    }
+
+    // Escribe un CSV con títulos entre comillas ocasionales y devuelve la proyección esperada
+    private static String generar(File csv, int numRenglones, boolean saltoFinal) throws IOException {
+        Random aleatorio = new Random(numRenglones);
+        String[] regiones = { "Mexico", "Chile", "Argentina", "Peru" };
+        StringBuilder contenido = new StringBuilder("rank,title,region,streams\n");
+        StringBuilder esperado = new StringBuilder(PROYECCION.encabezado()).append('\n');
+        for (int i = 0; i < numRenglones; i++) {
+            String titulo = aleatorio.nextInt(5) == 0 ? "\"Song, " + i + "\"" : "Song " + i;
+            String region = regiones[aleatorio.nextInt(regiones.length)];
+            contenido.append(i + 1).append(',').append(titulo).append(',').append(region).append(',')
+                    .append(aleatorio.nextInt(1_000_000)).append("  relleno para superar un fragmento");
+            if (i < numRenglones - 1 || saltoFinal) {
+                contenido.append('\n');
+            }
+            esperado.append(region).append(',').append(titulo).append('\n');
+        }
+        Files.write(csv.toPath(), contenido.toString().getBytes(StandardCharsets.UTF_8));
+        return esperado.toString();
+    }
+
+    private static String leer(File archivo) throws IOException {
+        return new String(Files.readAllBytes(archivo.toPath()), StandardCharsets.UTF_8);
+    }
+}
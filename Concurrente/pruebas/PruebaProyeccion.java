@@ -0,0 +1,65 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pruebas de {@link Proyeccion}: la lista de columnas se lee de texto, sus
+ * índices se resuelven sin distinguir mayúsculas ni comillas, las columnas
+ * faltantes se informan todas juntas y cada renglón se escribe con los campos
+ * en el orden pedido, tal como aparecen en el archivo.
+ */
+public class PruebaProyeccion {
+
+    static void ejecutar() throws IOException {
+        listas();
+        resolver();
+        escribir();
+    }
+
+    private static void listas() {
+        Verificar.igual("rank,region,streams,danceability,energy,valence,tempo",
+                Proyeccion.desdeTexto("").encabezado(), "lista vacía");
+        Verificar.verdadero(Proyeccion.desdeTexto("  ") == Proyeccion.POR_DEFECTO, "lista en blanco");
+        Verificar.verdadero(Proyeccion.desdeTexto(null) == Proyeccion.POR_DEFECTO, "sin lista");
+        Verificar.igual("streams,region", Proyeccion.desdeTexto(" streams , region ").encabezado(),
+                "espacios alrededor de los nombres");
+        Verificar.lanza(IllegalArgumentException.class, () -> Proyeccion.desdeTexto("region,,streams"),
+                "nombre vacío");
+        Verificar.lanza(IllegalArgumentException.class, () -> new Proyeccion(), "sin columnas");
+    }
+
+    private static void resolver() {
+        String[] encabezado = { "Rank", "\"Title\"", " region ", "streams" };
+        Verificar.igual(new int[] { 3, 1, 2 }, new Proyeccion("streams", "title", "REGION").resolver(encabezado),
+                "índices en el orden de la proyección");
+        Verificar.igual(new int[] { 0, 0 }, new Proyeccion("rank", "rank").resolver(encabezado),
+                "columna repetida");
+        try {
+            new Proyeccion("rank", "energy", "title", "tempo").resolver(encabezado);
+            Verificar.fallar("columnas faltantes: se esperaba IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            Verificar.igual("Columnas que no existen en el archivo: [energy, tempo]", e.getMessage(),
+                    "se enumeran todas las columnas faltantes");
+        }
+    }
+
+    private static void escribir() throws IOException {
+        TokenizadorCSV tokenizador = new TokenizadorCSV();
+        int[] indices = new Proyeccion("streams", "title", "region").resolver(
+                new String[] { "rank", "title", "region", "streams" });
+
+        String[][] casos = {
+                { "1,Song,Mexico,100", "100,Song,Mexico\n" },
+                { "2,\"Song, Part 2\",Chile,200", "200,\"Song, Part 2\",Chile\n" },
+                { "3,\"Say \"\"Hi\"\"\",Peru,300", "300,\"Say \"\"Hi\"\"\",Peru\n" },
+                { "4,Corta", ",Corta,\n" },
+                { "5,,,", ",,\n" } };
+        for (String[] caso : casos) {
+            byte[] renglon = caso[0].getBytes(StandardCharsets.UTF_8);
+            tokenizador.tokenizar(renglon, 0, renglon.length);
+            ByteArrayOutputStream salida = new ByteArrayOutputStream();
+            Proyeccion.escribir(tokenizador, indices, salida);
+            Verificar.igual(caso[1], salida.toString(StandardCharsets.UTF_8.name()), "proyección de " + caso[0]);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Pruebas de {@link RangosArchivo}: los límites caen siempre al inicio de un
+ * renglón, nunca hay más partes que renglones, se respeta un archivo sin salto
+ * de línea final y la copia por rangos reproduce el archivo.
+ */
+public class PruebaRangosArchivo {
+
+    static void ejecutar() throws IOException {
+        File archivo = File.createTempFile("prueba_rangos", ".csv");
+        File copia = File.createTempFile("prueba_rangos", ".copia");
+        try {
+            limitesPocosRenglones(archivo);
+            limitesAlineados(archivo, copia);
+            buscarRenglones(archivo);
+        } finally {
+            archivo.delete();
+            copia.delete();
+        }
+    }
+
+    private static void limitesPocosRenglones(File archivo) throws IOException {
+        escribir(archivo, "a\nb\nc");
+        try (FileChannel canal = FileChannel.open(archivo.toPath())) {
+            Verificar.igual(new long[] { 0, 2, 4, 5 }, RangosArchivo.calcularLimites(canal, 0, 5, 10),
+                    "más partes que renglones");
+            Verificar.igual(new long[] { 0, 2, 4, 5 }, RangosArchivo.calcularLimites(canal, 0, 5, Integer.MAX_VALUE),
+                    "número de partes enorme");
+            Verificar.igual(new long[] { 0, 5 }, RangosArchivo.calcularLimites(canal, 0, 5, 1), "una parte");
+            Verificar.igual(new long[] { 2, 4, 5 }, RangosArchivo.calcularLimites(canal, 2, 5, 3),
+                    "región que no inicia en cero");
+            Verificar.igual(new long[] { 5, 5 }, RangosArchivo.calcularLimites(canal, 5, 5, 4), "región vacía");
+            Verificar.lanza(IllegalArgumentException.class, () -> RangosArchivo.calcularLimites(canal, 0, 5, 0),
+                    "cero partes");
+        }
+    }
+
+    private static void limitesAlineados(File archivo, File copia) throws IOException {
+        // Renglones de longitudes variadas, algunos más largos que el bloque de búsqueda, sin salto final
+        Random aleatorio = new Random(8);
+        StringBuilder contenido = new StringBuilder();
+        int numRenglones = 2_000;
+        for (int i = 0; i < numRenglones; i++) {
+            int longitud = i % 97 == 0 ? 20_000 : aleatorio.nextInt(200);
+            for (int j = 0; j < longitud; j++) {
+                contenido.append((char) ('a' + aleatorio.nextInt(26)));
+            }
+            if (i < numRenglones - 1) {
+                contenido.append('\n');
+            }
+        }
+        escribir(archivo, contenido.toString());
+        byte[] datos = Files.readAllBytes(archivo.toPath());
+
+        try (FileChannel canal = FileChannel.open(archivo.toPath())) {
+            for (int numPartes : new int[] { 1, 2, 3, 7, 64, 1_000, 5_000, Integer.MAX_VALUE }) {
+                long[] limites = RangosArchivo.calcularLimites(canal, 0, datos.length, numPartes);
+                String caso = numPartes + " partes";
+                Verificar.igual(0L, limites[0], "primer límite con " + caso);
+                Verificar.igual((long) datos.length, limites[limites.length - 1], "último límite con " + caso);
+                Verificar.verdadero(limites.length - 1 <= Math.min(numPartes, numRenglones),
+                        "a lo más una parte por renglón con " + caso + ": " + (limites.length - 1));
+                boolean alineados = true;
+                for (int i = 1; i < limites.length; i++) {
+                    alineados &= limites[i] > limites[i - 1];
+                    if (i < limites.length - 1) {
+                        alineados &= datos[(int) limites[i] - 1] == '\n';
+                    }
+                }
+                Verificar.verdadero(alineados, "límites crecientes y al inicio de un renglón con " + caso);
+
+                // Copiar las partes en orden reproduce el archivo
+                try (FileChannel destino = FileChannel.open(copia.toPath(), StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    for (int i = 0; i + 1 < limites.length; i++) {
+                        RangosArchivo.copiar(canal, limites[i], limites[i + 1], destino);
+                    }
+                }
+                Verificar.verdadero(Arrays.equals(datos, Files.readAllBytes(copia.toPath())),
+                        "copia por partes con " + caso);
+            }
+
+            // Copiar más allá del final del origen falla en lugar de repetir sin fin
+            try (FileChannel destino = FileChannel.open(copia.toPath(), StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                Verificar.lanza(IOException.class,
+                        () -> RangosArchivo.copiar(canal, datos.length - 10, datos.length + 10, destino),
+                        "copia de un origen truncado");
+            }
+        }
+    }
+
+    private static void buscarRenglones(File archivo) throws IOException {
+        String largo = "x".repeat(20_000);
+        escribir(archivo, "abc\n" + largo + "\nfin");
+        long tamano = archivo.length();
+        long inicioFin = 4 + largo.length() + 1;
+        try (FileChannel canal = FileChannel.open(archivo.toPath())) {
+            Verificar.igual(4L, RangosArchivo.siguienteRenglon(canal, 0, tamano), "siguiente renglón");
+            Verificar.igual(4L, RangosArchivo.siguienteRenglon(canal, 3, tamano), "desde el salto de línea");
+            Verificar.igual(inicioFin, RangosArchivo.siguienteRenglon(canal, 4, tamano),
+                    "siguiente renglón tras uno largo");
+            Verificar.igual(tamano, RangosArchivo.siguienteRenglon(canal, inicioFin, tamano),
+                    "sin salto de línea final");
+            Verificar.igual(10L, RangosArchivo.siguienteRenglon(canal, 5, 10), "búsqueda limitada a la región");
+
+            Verificar.igual(inicioFin, RangosArchivo.finUltimoRenglon(canal, 0, tamano),
+                    "fin del último renglón completo");
+            Verificar.igual(4L, RangosArchivo.finUltimoRenglon(canal, 0, inicioFin - 1),
+                    "fin del último renglón tras uno largo");
+            Verificar.igual(5L, RangosArchivo.finUltimoRenglon(canal, 5, 5 + 15_000),
+                    "región sin saltos de línea");
+            Verificar.igual(inicioFin, RangosArchivo.finUltimoRenglon(canal, 0, inicioFin),
+                    "región que termina en salto de línea");
+        }
+    }
+
+    private static void escribir(File archivo, String contenido) throws IOException {
+        Files.write(archivo.toPath(), contenido.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,67 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Pruebas del modo de seguimiento con {@link Filtrar#filtrarSiguiendo}: solo
+ * se procesan los renglones nuevos, un cambio de consulta o de archivo vuelve a
+ * empezar, y un encabezado que no se puede procesar no borra la salida.
+ */
+public class PruebaSeguimiento {
+
+    static void ejecutar() throws IOException {
+        Path carpeta = Files.createTempDirectory("prueba_seguimiento");
+        try {
+            File csv = carpeta.resolve("datos.csv").toFile();
+            File salida = carpeta.resolve("salida.csv").toFile();
+            String consulta = "region = Mexico";
+
+            escribir(csv, "title,region\na,Mexico\nb,Chile\n");
+            Verificar.verdadero(Filtrar.filtrarSiguiendo(csv.getPath(), consulta, salida) > 0, "primera actualización");
+            Verificar.igual("title,region\na,Mexico\n", leer(salida), "salida inicial");
+
+            // Un renglón sin salto de línea se deja para después
+            agregar(csv, "c,Mexico\nd,Mex");
+            Filtrar.filtrarSiguiendo(csv.getPath(), consulta, salida);
+            Verificar.igual("title,region\na,Mexico\nc,Mexico\n", leer(salida), "renglones nuevos");
+            agregar(csv, "ico\n");
+            Verificar.igual((long) "d,Mexico\n".length(), Filtrar.filtrarSiguiendo(csv.getPath(), consulta, salida),
+                    "bytes del renglón completado");
+            Verificar.igual("title,region\na,Mexico\nc,Mexico\nd,Mexico\n", leer(salida), "renglón completado");
+            Verificar.igual(0L, Filtrar.filtrarSiguiendo(csv.getPath(), consulta, salida), "sin cambios");
+
+            // Otra consulta sobre la misma salida vuelve a filtrar desde el inicio
+            Filtrar.filtrarSiguiendo(csv.getPath(), "region = Chile", salida);
+            Verificar.igual("title,region\nb,Chile\n", leer(salida), "cambio de consulta");
+
+            // Un archivo reemplazado también
+            escribir(csv, "title,region\ne,Chile\n");
+            Filtrar.filtrarSiguiendo(csv.getPath(), "region = Chile", salida);
+            Verificar.igual("title,region\ne,Chile\n", leer(salida), "archivo reemplazado");
+
+            // Una consulta que no se puede compilar no trunca la salida anterior
+            Verificar.igual(-1L, Filtrar.filtrarSiguiendo(csv.getPath(), "pais = Chile", salida), "consulta no válida");
+            Verificar.igual("title,region\ne,Chile\n", leer(salida), "salida intacta tras el error");
+        } finally {
+            for (File archivo : carpeta.toFile().listFiles()) {
+                archivo.delete();
+            }
+            carpeta.toFile().delete();
+        }
+    }
+
+    private static void escribir(File archivo, String contenido) throws IOException {
+        Files.write(archivo.toPath(), contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void agregar(File archivo, String contenido) throws IOException {
+        Files.write(archivo.toPath(), contenido.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private static String leer(File archivo) throws IOException {
+        return new String(Files.readAllBytes(archivo.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,100 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Pruebas de {@link ServicioHash}: XXH64 contra los valores de referencia,
+ * que el resultado no dependa del tamaño del buffer de lectura, y que MD5,
+ * SHA-256 y el cálculo en paralelo coincidan con el de un solo archivo.
+ */
+public class PruebaServicioHash {
+
+    // Valores de referencia de XXH64 con semilla 0
+    private static final String[][] REFERENCIAS = {
+            { "", "ef46db3751d8e999" },
+            { "a", "d24ec4f1a98c6e5b" },
+            { "abc", "44bc2cf5ad770999" },
+            { "Nobody inspects the spammish repetition", "fbcea83c8a378bf1" },
+            { "The quick brown fox jumps over the lazy dog", "0b242d361fda71bc" },
+    };
+
+    static void ejecutar() throws IOException, NoSuchAlgorithmException {
+        Path carpeta = Files.createTempDirectory("prueba_hash");
+        try {
+            for (String[] referencia : REFERENCIAS) {
+                Path archivo = carpeta.resolve("referencia.txt");
+                Files.write(archivo, referencia[0].getBytes(StandardCharsets.US_ASCII));
+                Verificar.igual(referencia[1], ServicioHash.hashear(archivo, ServicioHash.Algoritmo.XXH64),
+                        "XXH64 de \"" + referencia[0] + "\"");
+            }
+
+            // Longitudes alrededor de los bloques de 32 bytes y de los restos de 8, 4 y 1
+            Random aleatorio = new Random(13);
+            List<Path> archivos = new ArrayList<>();
+            for (int longitud : new int[] { 0, 1, 3, 4, 7, 8, 31, 32, 33, 63, 64, 65, 100, 4099, 1_000_003 }) {
+                byte[] datos = new byte[longitud];
+                aleatorio.nextBytes(datos);
+                Path archivo = carpeta.resolve("datos_" + longitud + ".bin");
+                Files.write(archivo, datos);
+                archivos.add(archivo);
+
+                String esperado = ServicioHash.hashear(archivo, ServicioHash.Algoritmo.XXH64);
+                for (int tamanoBuffer : new int[] { 32, 45, 64, 4096 }) {
+                    Verificar.igual(esperado, xxh64(archivo, tamanoBuffer),
+                            "XXH64 de " + longitud + " bytes con buffer de " + tamanoBuffer);
+                }
+                Verificar.igual(hexadecimal(MessageDigest.getInstance("MD5").digest(datos)),
+                        ServicioHash.hashear(archivo, ServicioHash.Algoritmo.MD5), "MD5 de " + longitud + " bytes");
+                Verificar.igual(hexadecimal(MessageDigest.getInstance("SHA-256").digest(datos)),
+                        ServicioHash.hashear(archivo, ServicioHash.Algoritmo.SHA256),
+                        "SHA-256 de " + longitud + " bytes");
+            }
+
+            // En paralelo, dos veces para reutilizar los hilos y sus buffers
+            for (int vuelta = 0; vuelta < 2; vuelta++) {
+                Map<Path, String> hashes = ServicioHash.hashearTodos(archivos, ServicioHash.Algoritmo.XXH64);
+                Verificar.igual(archivos, new ArrayList<>(hashes.keySet()), "orden de hashearTodos");
+                for (Path archivo : archivos) {
+                    Verificar.igual(ServicioHash.hashear(archivo, ServicioHash.Algoritmo.XXH64), hashes.get(archivo),
+                            "hashearTodos de " + archivo.getFileName());
+                }
+            }
+
+            Verificar.lanza(IOException.class,
+                    () -> ServicioHash.hashearTodos(List.of(carpeta.resolve("no_existe")), ServicioHash.Algoritmo.XXH64),
+                    "archivo inexistente");
+        } finally {
+            for (File archivo : carpeta.toFile().listFiles()) {
+                archivo.delete();
+            }
+            carpeta.toFile().delete();
+        }
+    }
+
+    private static String xxh64(Path archivo, int tamanoBuffer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(tamanoBuffer).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            return String.format("%016x", ServicioHash.xxh64(canal, buffer));
+        }
+    }
+
+    private static String hexadecimal(byte[] bytes) {
+        StringBuilder cadena = new StringBuilder();
+        for (byte b : bytes) {
+            cadena.append(String.format("%02x", b));
+        }
+        return cadena.toString();
+    }
+}
@@ -0,0 +1,100 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Pruebas de {@link TokenizadorCSV}: reglas de comillas y conversión de números.
+ */
+public class PruebaTokenizadorCSV {
+
+    static void ejecutar() {
+        camposSimples();
+        camposEntreComillas();
+        numeros();
+        numerosComoParseDouble();
+    }
+
+    private static TokenizadorCSV tokenizar(String renglon) {
+        TokenizadorCSV tokenizador = new TokenizadorCSV();
+        byte[] bytes = renglon.getBytes(StandardCharsets.UTF_8);
+        tokenizador.tokenizar(bytes, 0, bytes.length);
+        return tokenizador;
+    }
+
+    private static void camposSimples() {
+        Verificar.igual(new String[] { "a", "b", "c" }, tokenizar("a,b,c").campos(), "campos simples");
+        Verificar.igual(new String[] { "", "b", "" }, tokenizar(",b,").campos(), "campos vacíos en los extremos");
+        Verificar.igual(1, tokenizar("").numCampos(), "un renglón vacío tiene un campo vacío");
+
+        // Más campos que la capacidad inicial
+        StringBuilder largo = new StringBuilder("0");
+        for (int i = 1; i < 100; i++) {
+            largo.append(',').append(i);
+        }
+        TokenizadorCSV muchos = tokenizar(largo.toString());
+        Verificar.igual(100, muchos.numCampos(), "cien campos");
+        Verificar.igual("99", muchos.campo(99), "último de cien campos");
+    }
+
+    private static void camposEntreComillas() {
+        TokenizadorCSV t = tokenizar("\"Song, 1\",x,\"dice \"\"hola\"\"\",\"\"");
+        Verificar.igual(4, t.numCampos(), "la coma entre comillas no separa");
+        Verificar.igual("Song, 1", t.campo(0), "campo con coma");
+        Verificar.verdadero(t.entreComillas(0), "el campo venía entre comillas");
+        Verificar.verdadero(!t.entreComillas(1), "el campo no venía entre comillas");
+        Verificar.igual("dice \"hola\"", t.campo(2), "comillas duplicadas");
+        Verificar.igual("", t.campo(3), "campo vacío entre comillas");
+
+        Verificar.verdadero(t.igual(2, "dice \"hola\"".getBytes(StandardCharsets.UTF_8)),
+                "igual() considera las comillas duplicadas como una");
+        Verificar.verdadero(!t.igual(2, "dice \"\"hola\"\"".getBytes(StandardCharsets.UTF_8)),
+                "igual() no compara el texto escapado");
+        Verificar.verdadero(t.igual(0, "Song, 1".getBytes(StandardCharsets.UTF_8)), "igual() sin escapes");
+        Verificar.verdadero(!t.igual(7, "x".getBytes(StandardCharsets.UTF_8)), "igual() en un campo inexistente");
+    }
+
+    private static void numeros() {
+        Verificar.igual(1500.0, tokenizar("1500").numero(0), "entero");
+        Verificar.igual(-1500.0, tokenizar("-1.5e3").numero(0), "signo y exponente");
+        Verificar.igual(0.25, tokenizar(" 0.25 ").numero(0), "espacios alrededor");
+        Verificar.igual(0.75, tokenizar("\"0.75\"").numero(0), "número entre comillas");
+        Verificar.verdadero(Double.isNaN(tokenizar("abc").numero(0)), "texto");
+        Verificar.verdadero(Double.isNaN(tokenizar("1e").numero(0)), "exponente sin dígitos");
+        Verificar.verdadero(Double.isNaN(tokenizar("1.2.3").numero(0)), "dos puntos");
+        Verificar.verdadero(Double.isNaN(tokenizar("").numero(0)), "campo vacío");
+        Verificar.verdadero(Double.isNaN(tokenizar("1").numero(3)), "campo inexistente");
+    }
+
+    // Con 16 a 18 dígitos el cálculo rápido redondearía dos veces
+    private static void numerosComoParseDouble() {
+        String[] casos = { "0.1", "123456789012345678", "9007199254740993", "1.7976931348623157e308", "4.9e-324",
+                "0.30000000000000004", "2.2250738585072014E-308", "12345678901234567890123", "1e23", "8.41e21",
+                "-0.0", "3.14159265358979323846" };
+        for (String caso : casos) {
+            Verificar.igual(Double.parseDouble(caso), tokenizar(caso).numero(0), "numero(\"" + caso + "\")");
+        }
+
+        Random aleatorio = new Random(42);
+        int distintos = 0;
+        for (int i = 0; i < 200_000; i++) {
+            int digitos = 1 + aleatorio.nextInt(19);
+            StringBuilder texto = new StringBuilder();
+            for (int d = 0; d < digitos; d++) {
+                texto.append((char) ('0' + aleatorio.nextInt(10)));
+            }
+            int punto = aleatorio.nextInt(digitos + 1);
+            if (punto < digitos) {
+                texto.insert(punto, '.');
+            }
+            if (aleatorio.nextBoolean()) {
+                texto.append('e').append(aleatorio.nextInt(60) - 30);
+            }
+            String caso = texto.toString();
+            if (Double.parseDouble(caso) != tokenizar(caso).numero(0)) {
+                if (distintos++ < 5) {
+                    Verificar.fallar("numero(\"" + caso + "\") difiere de Double.parseDouble");
+                }
+            }
+        }
+        Verificar.igual(0, distintos, "números aleatorios distintos de Double.parseDouble");
+    }
+}
@@ -0,0 +1,196 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Pruebas de las etapas de salida de {@link Tuberia}: con cualquier número de
+ * hilos, guardar, proyectar y dividir después de un filtro escriben en orden
+ * solo los renglones que lo cumplen, una etapa antes del filtro los recibe
+ * todos, y una división sin coincidencias deja una parte con el encabezado.
+ * Una columna o consulta no válida se informa antes de escribir nada, y no
+ * quedan temporales.
+ */
+public class PruebaTuberia {
+
+    private static final String ENCABEZADO = "title,region,streams";
+    private static final String[] REGIONES = { "Mexico", "Chile", "Peru", "Argentina" };
+    private static final String CONSULTA = "region IN (Mexico, Chile) AND streams > 500000";
+
+    static void ejecutar() throws IOException {
+        Path carpeta = Files.createTempDirectory("prueba_tuberia");
+        try {
+            File csv = carpeta.resolve("datos.csv").toFile();
+            String[][] renglones = generar(csv, 20_000);
+
+            for (int hilos : new int[] { 1, 4 }) {
+                NumeroCPUs.establecerParalelismo(hilos);
+                try {
+                    filtrada(carpeta, csv, renglones, hilos);
+                } finally {
+                    NumeroCPUs.establecerParalelismo(0);
+                }
+            }
+            sinFiltro(carpeta, csv);
+            errores(carpeta, csv);
+        } finally {
+            try (Stream<Path> rutas = Files.walk(carpeta)) {
+                rutas.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    // Guarda todo, filtra, y guarda, proyecta y divide lo filtrado en un solo recorrido
+    private static void filtrada(Path carpeta, File csv, String[][] renglones, int hilos) throws IOException {
+        File resultados = carpeta.resolve("resultados").toFile();
+        borrar(resultados);
+        File todos = carpeta.resolve("todos.csv").toFile();
+        File consulta = carpeta.resolve("consulta.csv").toFile();
+        File proyeccion = carpeta.resolve("proyeccion.csv").toFile();
+
+        Tuberia.desde(csv.getPath())
+                .guardar(todos)
+                .filtrar(CONSULTA)
+                .guardar(consulta)
+                .proyectar(new Proyeccion("streams", "title"), proyeccion)
+                .dividir(3, true)
+                .ejecutar();
+
+        StringBuilder completos = new StringBuilder(ENCABEZADO).append('\n');
+        StringBuilder filtrados = new StringBuilder(ENCABEZADO).append('\n');
+        StringBuilder proyectados = new StringBuilder("streams,title\n");
+        for (String[] renglon : renglones) {
+            String texto = String.join(",", renglon);
+            completos.append(texto).append('\n');
+            if ((renglon[1].equals("Mexico") || renglon[1].equals("Chile")) && Long.parseLong(renglon[2]) > 500_000) {
+                filtrados.append(texto).append('\n');
+                proyectados.append(renglon[2]).append(',').append(renglon[0]).append('\n');
+            }
+        }
+
+        String caso = " con " + hilos + " hilos";
+        Verificar.igual(completos.toString(), leer(todos), "guardado antes del filtro" + caso);
+        Verificar.igual(filtrados.toString(), leer(consulta), "guardado después del filtro" + caso);
+        Verificar.igual(proyectados.toString(), leer(proyeccion), "proyección filtrada" + caso);
+
+        File[] partes = partes(resultados);
+        Verificar.verdadero(partes.length >= 1 && partes.length <= 3, "a lo más 3 partes" + caso);
+        Verificar.igual(filtrados.toString(), unir(partes, ENCABEZADO + "\n"), "división filtrada" + caso);
+        Verificar.igual(Arrays.asList(), Arrays.asList(temporales(carpeta)), "sin temporales" + caso);
+    }
+
+    // Sin filtro la división reproduce el archivo; sin coincidencias queda solo el encabezado
+    private static void sinFiltro(Path carpeta, File csv) throws IOException {
+        File resultados = carpeta.resolve("resultados").toFile();
+        borrar(resultados);
+        Tuberia.desde(csv.getPath()).dividir(5, false).ejecutar();
+        File[] partes = partes(resultados);
+        Verificar.verdadero(partes.length >= 1 && partes.length <= 5, "a lo más 5 partes");
+        boolean alineadas = true;
+        for (File parte : partes) {
+            byte[] datos = Files.readAllBytes(parte.toPath());
+            alineadas &= datos.length > 0 && datos[datos.length - 1] == '\n';
+        }
+        Verificar.verdadero(alineadas, "partes alineadas a renglones");
+        Verificar.igual(leer(csv) + "\n", unir(partes, null), "división sin filtro");
+
+        borrar(resultados);
+        Tuberia.desde(csv.getPath()).filtrar("streams < 0").dividir(4, true).ejecutar();
+        partes = partes(resultados);
+        Verificar.igual(1, partes.length, "una parte sin coincidencias");
+        Verificar.igual(ENCABEZADO + "\n", leer(partes[0]), "parte con solo el encabezado");
+    }
+
+    private static void errores(Path carpeta, File csv) throws IOException {
+        Verificar.lanza(IllegalArgumentException.class, () -> Tuberia.desde(csv.getPath()).dividir(0, false),
+                "cero partes");
+        Verificar.lanza(IllegalStateException.class, () -> Tuberia.desde(csv.getPath()).ejecutar(), "sin etapas");
+
+        File vacio = carpeta.resolve("vacio.csv").toFile();
+        Files.write(vacio.toPath(), new byte[0]);
+        Verificar.lanza(IOException.class, () -> Tuberia.desde(vacio.getPath()).contar().ejecutar(),
+                "archivo vacío");
+
+        File salida = carpeta.resolve("no_escrita.csv").toFile();
+        Verificar.lanza(IllegalArgumentException.class, () -> Tuberia.desde(csv.getPath())
+                .guardar(salida)
+                .proyectar(new Proyeccion("title", "energy"), carpeta.resolve("p.csv").toFile())
+                .ejecutar(), "columna inexistente");
+        Verificar.lanza(IllegalArgumentException.class, () -> Tuberia.desde(csv.getPath())
+                .guardar(salida)
+                .filtrar("streams >")
+                .ejecutar(), "consulta no válida");
+        Verificar.verdadero(!salida.exists(), "nada escrito ante un error");
+        Verificar.igual(Arrays.asList(), Arrays.asList(temporales(carpeta)), "sin temporales tras un error");
+    }
+
+    // Escribe un CSV sin salto final y devuelve sus renglones de datos, campo por campo
+    private static String[][] generar(File csv, int numRenglones) throws IOException {
+        Random aleatorio = new Random(25);
+        String[][] renglones = new String[numRenglones][];
+        StringBuilder contenido = new StringBuilder(ENCABEZADO);
+        for (int i = 0; i < numRenglones; i++) {
+            renglones[i] = new String[] {
+                    "\"Song, " + i + "x".repeat(aleatorio.nextInt(40)) + "\"",
+                    REGIONES[aleatorio.nextInt(REGIONES.length)],
+                    Integer.toString(aleatorio.nextInt(1_000_000)) };
+            contenido.append('\n').append(String.join(",", renglones[i]));
+        }
+        Files.write(csv.toPath(), contenido.toString().getBytes(StandardCharsets.UTF_8));
+        return renglones;
+    }
+
+    private static File[] partes(File resultados) {
+        File[] archivos = resultados.listFiles();
+        Arrays.sort(archivos, Comparator.comparingInt(PruebaTuberia::numeroParte));
+        return archivos;
+    }
+
+    // Une las partes; si se repitió el encabezado, lo quita de todas menos la primera
+    private static String unir(File[] partes, String encabezado) throws IOException {
+        ByteArrayOutputStream unidas = new ByteArrayOutputStream();
+        boolean conEncabezado = true;
+        for (int i = 0; i < partes.length; i++) {
+            String parte = leer(partes[i]);
+            if (i > 0 && encabezado != null) {
+                conEncabezado &= parte.startsWith(encabezado);
+                parte = parte.substring(encabezado.length());
+            }
+            byte[] bytes = parte.getBytes(StandardCharsets.UTF_8);
+            unidas.write(bytes, 0, bytes.length);
+        }
+        Verificar.verdadero(conEncabezado, "encabezado al inicio de cada parte");
+        return unidas.toString(StandardCharsets.UTF_8.name());
+    }
+
+    private static File[] temporales(Path carpeta) throws IOException {
+        try (Stream<Path> rutas = Files.walk(carpeta)) {
+            return rutas.map(Path::toFile).filter(archivo -> archivo.getName().startsWith("tuberia_"))
+                    .toArray(File[]::new);
+        }
+    }
+
+    private static String leer(File archivo) throws IOException {
+        return new String(Files.readAllBytes(archivo.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static void borrar(File resultados) {
+        File[] archivos = resultados.listFiles();
+        if (archivos != null) {
+            for (File archivo : archivos) {
+                archivo.delete();
+            }
+        }
+    }
+
+    private static int numeroParte(File parte) {
+        String nombre = parte.getName();
+        return Integer.parseInt(nombre.substring(nombre.lastIndexOf("parte") + 5, nombre.length() - 4));
+    }
+}
@@ -0,0 +1,54 @@
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Ejecuta todas las pruebas. Se compila contra las clases de
+ * {@code Concurrente}:
+ *
+ * <pre>
+ * javac -encoding UTF-8 -d clases Concurrente/*.java
+ * javac -encoding UTF-8 -cp clases -d clases Concurrente/pruebas/*.java
+ * java -cp clases Pruebas
+ * </pre>
+ */
+public class Pruebas {
+
+    private static final String[] PRUEBAS = {
+            "PruebaTokenizadorCSV",
+            "PruebaRangosArchivo",
+            "PruebaDividir",
+            "PruebaContadorRenglones",
+            "PruebaProcesamientoConHilos",
+            "PruebaBuscadorParalelo",
+            "PruebaCatalogoArchivos",
+            "PruebaManifiestoProcesamiento",
+            "PruebaProyeccion",
+            "PruebaTuberia",
+            "PruebaConsulta",
+            "PruebaFiltrar",
+            "PruebaIndiceColumna",
+            "PruebaAgregacion",
+            "PruebaIndiceTrigramas",
+            "PruebaServicioHash",
+            "PruebaSeguimiento",
+            "PruebaEscritorAsincrono",
+            "PruebaMetricas",
+            "PruebaLote",
+            "PruebaCacheColumnar",
+    };
+
+    public static void main(String[] args) throws Exception {
+        for (String nombre : PRUEBAS) {
+            System.out.println(nombre);
+            try {
+                Class.forName(nombre).getDeclaredMethod("ejecutar").invoke(null);
+            } catch (InvocationTargetException e) {
+                Verificar.fallar(nombre + " terminó con " + e.getCause());
+                e.getCause().printStackTrace(System.out);
+            }
+        }
+        System.out.printf("%d verificaciones, %d fallas%n", Verificar.verificaciones(), Verificar.fallas());
+        if (Verificar.fallas() > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.Objects;
+
+/**
+ * Verificaciones mínimas para las pruebas de {@code pruebas/}, que no dependen
+ * de ninguna biblioteca: cada falla se informa con su descripción y se cuenta,
+ * y {@link Pruebas} termina con un código distinto de cero si hubo alguna.
+ */
+public class Verificar {
+
+    /**
+     * Acción que debe lanzar una excepción.
+     */
+    @FunctionalInterface
+    public interface Accion {
+        void ejecutar() throws Exception;
+    }
+
+    private static int verificaciones;
+    private static int fallas;
+
+    public static void igual(Object esperado, Object obtenido, String descripcion) {
+        verificaciones++;
+        if (!Objects.deepEquals(esperado, obtenido)) {
+            fallar(descripcion + ": se esperaba <" + esperado + "> y se obtuvo <" + obtenido + ">");
+        }
+    }
+
+    public static void verdadero(boolean condicion, String descripcion) {
+        verificaciones++;
+        if (!condicion) {
+            fallar(descripcion);
+        }
+    }
+
+    public static void lanza(Class<? extends Throwable> tipo, Accion accion, String descripcion) {
+        verificaciones++;
+        try {
+            accion.ejecutar();
+            fallar(descripcion + ": no lanzó " + tipo.getSimpleName());
+        } catch (Throwable e) {
+            if (!tipo.isInstance(e)) {
+                fallar(descripcion + ": lanzó " + e + " en lugar de " + tipo.getSimpleName());
+            }
+        }
+    }
+
+    static void fallar(String mensaje) {
+        fallas++;
+        System.out.println("  FALLA: " + mensaje);
+    }
+
+    static int verificaciones() {
+        return verificaciones;
+    }
+
+    static int fallas() {
+        return fallas;
+    }
+}